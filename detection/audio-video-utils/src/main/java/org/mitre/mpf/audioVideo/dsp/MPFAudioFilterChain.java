@@ -0,0 +1,127 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.dsp;
+
+/**
+ * Converts interleaved 16-bit audio to filtered mono audio at a target sampling rate: the channels are averaged,
+ * high-pass and low-pass filters are applied at the input rate, and then the result is resampled.  This is the order
+ * in which ffmpeg processes "-af highpass=...,lowpass=... -ac 1 -ar ..." when audio is ripped, since it runs the
+ * "-af" filters before the conversion it inserts for "-ac" and "-ar".  ffmpeg filters each channel before mixing them,
+ * which gives the same result because the filters are linear, apart from rounding.  Audio that was decoded once
+ * without filters can therefore be run through several chains with different settings instead of being decoded again
+ * for each.
+ * <BR><BR>
+ * A chain is stateful so that a stream can be processed in blocks.  Its scratch buffers grow to the largest block
+ * seen and are reused after that.  It is not thread-safe; create one chain per stream.
+ */
+public class MPFAudioFilterChain {
+
+    private final int inputChannels;
+    private final MPFPolyphaseResampler resampler;
+    private final MPFBiquadCascade filters;
+
+    private float[] mono = new float[0];
+    private float[] resampled = new float[0];
+
+    /**
+     * @param inputRate     The sampling rate of the input in Hz.
+     * @param inputChannels The number of interleaved input channels.
+     * @param outputRate    The sampling rate of the output in Hz.
+     * @param highpassHz    The cutoff of the high-pass filter, or null for none.
+     * @param lowpassHz     The cutoff of the low-pass filter, or null for none.
+     * @param order         The order of each filter, which must be a positive even number.  ffmpeg's filters are
+     *                      order 2.
+     */
+    public MPFAudioFilterChain(int inputRate, int inputChannels, int outputRate, Integer highpassHz,
+                               Integer lowpassHz, int order) {
+        if (inputChannels <= 0) {
+            throw new IllegalArgumentException("The number of channels must be positive.");
+        }
+        this.inputChannels = inputChannels;
+        resampler = inputRate == outputRate ? null : new MPFPolyphaseResampler(inputRate, outputRate);
+
+        MPFBiquadCascade chain = new MPFBiquadCascade();
+        if (highpassHz != null) {
+            chain = chain.then(MPFBiquadCascade.butterworthHighpass(inputRate, highpassHz, order));
+        }
+        if (lowpassHz != null) {
+            chain = chain.then(MPFBiquadCascade.butterworthLowpass(inputRate, lowpassHz, order));
+        }
+        filters = chain;
+    }
+
+    /**
+     * @param inputFrames The number of input frames in a block.
+     * @return The largest number of output samples that block can produce.
+     */
+    public int getMaxOutputLength(int inputFrames) {
+        return resampler == null ? inputFrames : resampler.getMaxOutputLength(inputFrames);
+    }
+
+    /**
+     * Processes a block of audio.
+     *
+     * @param input        Interleaved 16-bit samples.
+     * @param inputOffset  The index of the first sample of the first frame.
+     * @param inputFrames  The number of frames, where a frame holds one sample for each channel.
+     * @param output       Receives the mono output samples.  It must have room for
+     *                     {@link #getMaxOutputLength(int) getMaxOutputLength(inputFrames)} samples.
+     * @param outputOffset The index at which to store the first output sample.
+     * @return The number of output samples produced.
+     */
+    public int process(short[] input, int inputOffset, int inputFrames, short[] output, int outputOffset) {
+        if (mono.length < inputFrames) {
+            mono = new float[inputFrames];
+        }
+        MPFPcmConversion.downmix(input, inputOffset, inputFrames, inputChannels, mono, 0);
+        filters.process(mono, 0, inputFrames);
+
+        float[] samples = mono;
+        int count = inputFrames;
+        if (resampler != null) {
+            int maxOutput = resampler.getMaxOutputLength(inputFrames);
+            if (resampled.length < maxOutput) {
+                resampled = new float[maxOutput];
+            }
+            count = resampler.process(mono, 0, inputFrames, resampled, 0);
+            samples = resampled;
+        }
+
+        MPFPcmConversion.toShort(samples, 0, output, outputOffset, count);
+        return count;
+    }
+
+    /**
+     * Clears the state carried between blocks, so that the chain can be used for an unrelated stream.
+     */
+    public void reset() {
+        filters.reset();
+        if (resampler != null) {
+            resampler.reset();
+        }
+    }
+}
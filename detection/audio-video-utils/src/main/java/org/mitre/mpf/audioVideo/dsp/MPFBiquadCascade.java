@@ -0,0 +1,130 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.dsp;
+
+import java.util.Arrays;
+
+/**
+ * A series of {@link MPFBiquadFilter MPFBiquadFilter} sections applied one after another, which gives filters of any
+ * even order.  Blocks are processed one section at a time, in place, so processing allocates nothing.
+ * <BR><BR>
+ * A cascade keeps the state of one channel and is not thread-safe.
+ */
+public class MPFBiquadCascade {
+
+    private final MPFBiquadFilter[] sections;
+
+    public MPFBiquadCascade(MPFBiquadFilter... sections) {
+        this.sections = Arrays.copyOf(sections, sections.length);
+    }
+
+    /**
+     * Creates a Butterworth high-pass filter.  An order of 2 is the same response as ffmpeg's "highpass" filter.
+     *
+     * @param sampleRate The sampling rate in Hz.
+     * @param cutoffHz   The -3 dB frequency.
+     * @param order      The order of the filter, which must be a positive even number.  Each increase of 2 adds
+     *                   12 dB per octave of attenuation.
+     * @return The filter.
+     */
+    public static MPFBiquadCascade butterworthHighpass(double sampleRate, double cutoffHz, int order) {
+        MPFBiquadFilter[] sections = new MPFBiquadFilter[checkOrder(order) / 2];
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = MPFBiquadFilter.highpass(sampleRate, cutoffHz, butterworthQ(order, i));
+        }
+        return new MPFBiquadCascade(sections);
+    }
+
+    /**
+     * Creates a Butterworth low-pass filter.  An order of 2 is the same response as ffmpeg's "lowpass" filter.
+     *
+     * @param sampleRate The sampling rate in Hz.
+     * @param cutoffHz   The -3 dB frequency.
+     * @param order      The order of the filter, which must be a positive even number.
+     * @return The filter.
+     */
+    public static MPFBiquadCascade butterworthLowpass(double sampleRate, double cutoffHz, int order) {
+        MPFBiquadFilter[] sections = new MPFBiquadFilter[checkOrder(order) / 2];
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = MPFBiquadFilter.lowpass(sampleRate, cutoffHz, butterworthQ(order, i));
+        }
+        return new MPFBiquadCascade(sections);
+    }
+
+    /**
+     * @return A cascade that applies this cascade's sections followed by the other's.  The new cascade has its own
+     *         copies of neither; it shares the sections and their state.
+     */
+    public MPFBiquadCascade then(MPFBiquadCascade other) {
+        MPFBiquadFilter[] combined = Arrays.copyOf(sections, sections.length + other.sections.length);
+        System.arraycopy(other.sections, 0, combined, sections.length, other.sections.length);
+        return new MPFBiquadCascade(combined);
+    }
+
+    public int getSectionCount() {
+        return sections.length;
+    }
+
+    public double process(double x) {
+        for (MPFBiquadFilter section : sections) {
+            x = section.process(x);
+        }
+        return x;
+    }
+
+    /**
+     * Filters samples in place.
+     *
+     * @param samples The samples.
+     * @param offset  The index of the first sample to filter.
+     * @param length  The number of samples to filter.
+     */
+    public void process(float[] samples, int offset, int length) {
+        for (MPFBiquadFilter section : sections) {
+            section.process(samples, offset, length);
+        }
+    }
+
+    public void reset() {
+        for (MPFBiquadFilter section : sections) {
+            section.reset();
+        }
+    }
+
+    private static int checkOrder(int order) {
+        if (order <= 0 || order % 2 != 0) {
+            throw new IllegalArgumentException("The filter order must be a positive even number, but it was "
+                                               + order + '.');
+        }
+        return order;
+    }
+
+    // The Q of each second-order section of a Butterworth filter comes from the angle of its pair of poles.
+    private static double butterworthQ(int order, int section) {
+        return 1 / (2 * Math.cos(Math.PI * (2 * section + 1) / (2 * order)));
+    }
+}
@@ -0,0 +1,116 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.dsp;
+
+/**
+ * A second-order IIR filter, using the coefficients from Robert Bristow-Johnson's "Audio EQ Cookbook".  With the
+ * default Q of 1/sqrt(2), the high-pass and low-pass responses match ffmpeg's "highpass" and "lowpass" filters, so
+ * audio filtered in Java sounds the same as audio filtered by ffmpeg.
+ * <BR><BR>
+ * A filter keeps the state of one channel.  It is not thread-safe, and processing allocates nothing.
+ */
+public class MPFBiquadFilter {
+
+    /** The Q that gives a maximally flat (Butterworth) response. */
+    public static final double BUTTERWORTH_Q = 1 / Math.sqrt(2);
+
+    private final double b0;
+    private final double b1;
+    private final double b2;
+    private final double a1;
+    private final double a2;
+
+    private double x1;
+    private double x2;
+    private double y1;
+    private double y2;
+
+    private MPFBiquadFilter(double b0, double b1, double b2, double a0, double a1, double a2) {
+        this.b0 = b0 / a0;
+        this.b1 = b1 / a0;
+        this.b2 = b2 / a0;
+        this.a1 = a1 / a0;
+        this.a2 = a2 / a0;
+    }
+
+    public static MPFBiquadFilter highpass(double sampleRate, double cutoffHz) {
+        return highpass(sampleRate, cutoffHz, BUTTERWORTH_Q);
+    }
+
+    public static MPFBiquadFilter highpass(double sampleRate, double cutoffHz, double q) {
+        double w0 = 2 * Math.PI * cutoffHz / sampleRate;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        return new MPFBiquadFilter((1 + cos) / 2, -(1 + cos), (1 + cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    public static MPFBiquadFilter lowpass(double sampleRate, double cutoffHz) {
+        return lowpass(sampleRate, cutoffHz, BUTTERWORTH_Q);
+    }
+
+    public static MPFBiquadFilter lowpass(double sampleRate, double cutoffHz, double q) {
+        double w0 = 2 * Math.PI * cutoffHz / sampleRate;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        return new MPFBiquadFilter((1 - cos) / 2, 1 - cos, (1 - cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    /**
+     * Filters one sample.
+     *
+     * @param x The next input sample.
+     * @return The next output sample.
+     */
+    public double process(double x) {
+        double y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+        x2 = x1;
+        x1 = x;
+        y2 = y1;
+        y1 = y;
+        return y;
+    }
+
+    /**
+     * Filters samples in place.
+     *
+     * @param samples The samples.
+     * @param offset  The index of the first sample to filter.
+     * @param length  The number of samples to filter.
+     */
+    public void process(float[] samples, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            samples[i] = (float) process(samples[i]);
+        }
+    }
+
+    /**
+     * Clears the filter's memory of previous samples.
+     */
+    public void reset() {
+        x1 = x2 = y1 = y2 = 0;
+    }
+}
@@ -0,0 +1,100 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.dsp;
+
+/**
+ * Conversions between 16-bit integer samples and floating-point samples in the range [-1, 1], and downmixing of
+ * interleaved channels.  All methods work on caller-supplied arrays and allocate nothing.
+ */
+public final class MPFPcmConversion {
+
+    private static final float SHORT_SCALE = 32768f;
+
+    private MPFPcmConversion() {}
+
+    public static void toFloat(short[] input, int inputOffset, float[] output, int outputOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            output[outputOffset + i] = input[inputOffset + i] / SHORT_SCALE;
+        }
+    }
+
+    /**
+     * Converts floating-point samples to 16-bit samples, rounding to the nearest value and clipping samples outside
+     * of [-1, 1].
+     */
+    public static void toShort(float[] input, int inputOffset, short[] output, int outputOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            output[outputOffset + i] = toShort(input[inputOffset + i]);
+        }
+    }
+
+    public static short toShort(float sample) {
+        int value = Math.round(sample * SHORT_SCALE);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+
+    /**
+     * Averages interleaved channels into one channel.
+     *
+     * @param input        Interleaved 16-bit samples.
+     * @param inputOffset  The index of the first sample of the first frame.
+     * @param frames       The number of frames, where a frame holds one sample for each channel.
+     * @param channels     The number of interleaved channels.
+     * @param output       Receives one floating-point sample per frame.
+     * @param outputOffset The index at which to store the first output sample.
+     */
+    public static void downmix(short[] input, int inputOffset, int frames, int channels, float[] output,
+                               int outputOffset) {
+        float scale = 1 / (SHORT_SCALE * channels);
+        for (int frame = 0; frame < frames; frame++) {
+            int base = inputOffset + frame * channels;
+            int sum = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                sum += input[base + channel];
+            }
+            output[outputOffset + frame] = sum * scale;
+        }
+    }
+
+    /**
+     * Averages interleaved floating-point channels into one channel.
+     *
+     * @see #downmix(short[], int, int, int, float[], int)
+     */
+    public static void downmix(float[] input, int inputOffset, int frames, int channels, float[] output,
+                               int outputOffset) {
+        float scale = 1f / channels;
+        for (int frame = 0; frame < frames; frame++) {
+            int base = inputOffset + frame * channels;
+            float sum = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                sum += input[base + channel];
+            }
+            output[outputOffset + frame] = sum * scale;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Changes the sampling rate of one channel of audio by a rational factor.  The rate is conceptually raised by L,
+ * low-pass filtered, and lowered by M, where L/M is the reduced ratio of the output and input rates.  The polyphase
+ * form computes only the output samples that are kept, and only the filter taps that meet non-zero input, so the
+ * cost per output sample is just the number of taps in one phase.
+ * <BR><BR>
+ * The anti-aliasing filter is a Blackman-windowed sinc with its cutoff just below the lower of the two Nyquist
+ * frequencies.  Its delay of about {@link #getDelay()} input samples is not compensated.  State is carried from one
+ * block to the next, so a stream may be resampled in blocks of any size with the same result as all at once.  The
+ * resampler allocates only when it is created, and it is not thread-safe.
+ */
+public class MPFPolyphaseResampler {
+
+    // Taps per phase when downsampling by no more than a factor of 1.  Downsampling by more widens the filter
+    // proportionally, so that the transition band stays the same fraction of the output rate.
+    private static final int BASE_TAPS_PER_PHASE = 32;
+
+    // The cutoff as a fraction of the lower Nyquist frequency, leaving room for the transition band.
+    private static final double CUTOFF_FRACTION = 0.9;
+
+    private final int inputRate;
+    private final int outputRate;
+    private final int upFactor;
+    private final int downFactor;
+    private final int tapsPerPhase;
+    private final float[][] phases;
+
+    // The most recent inputs, newest first, stored twice so that a window never wraps.
+    private final float[] delayLine;
+    private int delayPosition;
+    private int phase;
+
+    public MPFPolyphaseResampler(int inputRate, int outputRate) {
+        if (inputRate <= 0 || outputRate <= 0) {
+            throw new IllegalArgumentException("Sampling rates must be positive.");
+        }
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        int gcd = gcd(inputRate, outputRate);
+        upFactor = outputRate / gcd;
+        downFactor = inputRate / gcd;
+        tapsPerPhase = BASE_TAPS_PER_PHASE * Math.max(1, (downFactor + upFactor - 1) / upFactor);
+        phases = designPhases(upFactor, downFactor, tapsPerPhase);
+        delayLine = new float[2 * tapsPerPhase];
+        delayPosition = tapsPerPhase - 1;
+    }
+
+    public int getInputRate() {
+        return inputRate;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    /**
+     * @return The delay introduced by the anti-aliasing filter, in input samples.
+     */
+    public int getDelay() {
+        return tapsPerPhase / 2;
+    }
+
+    /**
+     * @param inputLength The number of input samples in a block.
+     * @return The largest number of output samples that block can produce.
+     */
+    public int getMaxOutputLength(int inputLength) {
+        return (int) (((long) inputLength * upFactor + downFactor - 1) / downFactor) + 1;
+    }
+
+    /**
+     * Resamples a block of input.
+     *
+     * @param input        The input samples.
+     * @param inputOffset  The index of the first input sample.
+     * @param inputLength  The number of input samples.
+     * @param output       Receives the output samples.  It must have room for
+     *                     {@link #getMaxOutputLength(int) getMaxOutputLength(inputLength)} samples.
+     * @param outputOffset The index at which to store the first output sample.
+     * @return The number of output samples produced.
+     */
+    public int process(float[] input, int inputOffset, int inputLength, float[] output, int outputOffset) {
+        int out = outputOffset;
+        for (int i = inputOffset; i < inputOffset + inputLength; i++) {
+            delayPosition = delayPosition == 0 ? tapsPerPhase - 1 : delayPosition - 1;
+            delayLine[delayPosition] = input[i];
+            delayLine[delayPosition + tapsPerPhase] = input[i];
+
+            while (phase < upFactor) {
+                float[] taps = phases[phase];
+                float sum = 0;
+                for (int j = 0; j < tapsPerPhase; j++) {
+                    sum += taps[j] * delayLine[delayPosition + j];
+                }
+                output[out++] = sum;
+                phase += downFactor;
+            }
+            phase -= upFactor;
+        }
+        return out - outputOffset;
+    }
+
+    public void reset() {
+        Arrays.fill(delayLine, 0);
+        delayPosition = tapsPerPhase - 1;
+        phase = 0;
+    }
+
+    private static float[][] designPhases(int upFactor, int downFactor, int tapsPerPhase) {
+        int length = upFactor * tapsPerPhase;
+        // The cutoff as a fraction of the upsampled rate.
+        double cutoff = CUTOFF_FRACTION * 0.5 / Math.max(upFactor, downFactor);
+        double center = (length - 1) / 2.0;
+        float[][] phases = new float[upFactor][tapsPerPhase];
+        for (int k = 0; k < length; k++) {
+            double t = k - center;
+            double sinc = t == 0 ? 1 : Math.sin(2 * Math.PI * cutoff * t) / (2 * Math.PI * cutoff * t);
+            double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * k / (length - 1))
+                    + 0.08 * Math.cos(4 * Math.PI * k / (length - 1));
+            // The gain of L makes up for the zeros that upsampling inserts between samples.
+            phases[k % upFactor][k / upFactor] = (float) (2 * cutoff * sinc * window * upFactor);
+        }
+        return phases;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
@@ -0,0 +1,96 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.dsp;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Chooses where to cut a long recording into pieces of about the same length so that the cuts fall in pauses rather
+ * than in the middle of speech.  Each cut is placed at the quietest short window within a search distance of its
+ * evenly spaced target.
+ */
+public final class MPFSilenceSplitter {
+
+    // The length of the window whose energy is compared, and how far apart candidate windows are.
+    private static final int WINDOW_MS = 20;
+    private static final int STEP_MS = 10;
+
+    private MPFSilenceSplitter() {}
+
+    /**
+     * Finds the cut points for splitting the remaining samples of the buffer into the given number of pieces.  The
+     * buffer's position is not changed.
+     *
+     * @param samples    Mono 16-bit samples.
+     * @param sampleRate The sampling rate of the samples.
+     * @param pieces     The number of pieces.
+     * @param searchMs   How far from its evenly spaced target each cut may move.
+     * @return The pieces - 1 cut points in increasing order, in milliseconds relative to the buffer's position.
+     *         Every piece is at least one step long.
+     */
+    public static int[] findCutPoints(ShortBuffer samples, int sampleRate, int pieces, int searchMs) {
+        int durationMs = (int) ((long) samples.remaining() * 1000 / sampleRate);
+        int[] cuts = new int[Math.max(0, pieces - 1)];
+        int previousCut = 0;
+        for (int i = 0; i < cuts.length; i++) {
+            int target = (int) ((long) durationMs * (i + 1) / pieces);
+            // Stay clear of the previous cut and leave room for the remaining ones.
+            int low = Math.max(previousCut + STEP_MS, target - searchMs);
+            int high = Math.min(durationMs - (cuts.length - i) * STEP_MS, target + searchMs);
+            int cut = high < low
+                    ? Math.max(previousCut + STEP_MS, target)
+                    : findQuietest(samples, sampleRate, low, high, target);
+            cuts[i] = cut;
+            previousCut = cut;
+        }
+        return cuts;
+    }
+
+    // Returns the center of the quietest window whose center is between low and high.  Ties go to the window
+    // closest to the target.
+    private static int findQuietest(ShortBuffer samples, int sampleRate, int low, int high, int target) {
+        int windowSamples = Math.min(samples.remaining(), Math.max(1, sampleRate * WINDOW_MS / 1000));
+        int base = samples.position();
+        int bestCenter = target;
+        double bestEnergy = Double.MAX_VALUE;
+        for (int center = low; center <= high; center += STEP_MS) {
+            int start = (int) ((long) center * sampleRate / 1000) - windowSamples / 2;
+            start = Math.max(0, Math.min(samples.remaining() - windowSamples, start));
+            double energy = 0;
+            for (int j = base + start; j < base + start + windowSamples; j++) {
+                double sample = samples.get(j);
+                energy += sample * sample;
+            }
+            if (energy < bestEnergy
+                    || (energy == bestEnergy && Math.abs(center - target) < Math.abs(bestCenter - target))) {
+                bestEnergy = energy;
+                bestCenter = center;
+            }
+        }
+        return bestCenter;
+    }
+}
@@ -0,0 +1,191 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.dsp;
+
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the parts of a recording that probably contain speech, from the short-time energy and zero-crossing rate of
+ * fixed-length frames.  This is meant as a cheap pre-filter that lets a speech detector skip silence and steady
+ * background noise, so it errs toward keeping audio: a frame is active when it is well above the noise floor, or
+ * somewhat above it with the high zero-crossing rate of unvoiced consonants, and short pauses between active frames
+ * are kept.
+ * <BR><BR>
+ * The noise floor is estimated from the quietest frames of the samples being analyzed, so the detector adapts to
+ * each recording.  Detectors are immutable and may be shared between threads.
+ */
+public class MPFVoiceActivityDetector {
+
+    public static final int DEFAULT_FRAME_MS = 20;
+    public static final double DEFAULT_THRESHOLD_DB = 9;
+    public static final int DEFAULT_MIN_GAP_MS = 300;
+
+    // Frames quieter than this are never speech, however quiet the recording is.
+    private static final double MIN_SPEECH_DB = -55;
+
+    // Limits the noise floor in recordings with almost no pauses, where even the quietest frames are speech.
+    private static final double MAX_NOISE_FLOOR_DB = -35;
+
+    // The fraction of frames treated as noise when estimating the floor.
+    private static final double NOISE_PERCENTILE = 0.1;
+
+    // Fricatives such as "s" and "f" are quiet but cross zero far more often than voiced speech or hum.
+    private static final double FRICATIVE_ZCR = 0.3;
+
+    // Active runs shorter than this are clicks rather than speech.
+    private static final int MIN_SPEECH_MS = 60;
+
+    private final int sampleRate;
+    private final int frameMs;
+    private final double thresholdDb;
+    private final int minGapMs;
+
+    public MPFVoiceActivityDetector(int sampleRate) {
+        this(sampleRate, DEFAULT_FRAME_MS, DEFAULT_THRESHOLD_DB, DEFAULT_MIN_GAP_MS);
+    }
+
+    /**
+     * @param sampleRate  The sampling rate of the mono samples that will be analyzed.
+     * @param frameMs     The length of each analysis frame, in milliseconds.
+     * @param thresholdDb How far above the noise floor a frame's energy must be for the frame to be active.
+     * @param minGapMs    Inactive stretches shorter than this between two active regions are made part of a single
+     *                    region.
+     */
+    public MPFVoiceActivityDetector(int sampleRate, int frameMs, double thresholdDb, int minGapMs) {
+        if (sampleRate <= 0 || frameMs <= 0 || (long) sampleRate * frameMs < 1000) {
+            throw new IllegalArgumentException("Each frame must contain at least one sample.");
+        }
+        this.sampleRate = sampleRate;
+        this.frameMs = frameMs;
+        this.thresholdDb = thresholdDb;
+        this.minGapMs = Math.max(0, minGapMs);
+    }
+
+    /**
+     * Finds the active regions in the remaining samples of the buffer.  The buffer's position is not changed.
+     *
+     * @param samples Mono 16-bit samples.
+     * @return The active regions in order, with times in milliseconds relative to the buffer's position.
+     */
+    public List<Region> detect(ShortBuffer samples) {
+        int frameSamples = (int) ((long) sampleRate * frameMs / 1000);
+        int frameCount = samples.remaining() / frameSamples;
+        List<Region> regions = new ArrayList<>();
+        if (frameCount == 0) {
+            return regions;
+        }
+
+        double[] energyDb = new double[frameCount];
+        double[] zcr = new double[frameCount];
+        int base = samples.position();
+        for (int frame = 0; frame < frameCount; frame++) {
+            int start = base + frame * frameSamples;
+            double sumSquares = 0;
+            int crossings = 0;
+            short previous = samples.get(start);
+            for (int i = start; i < start + frameSamples; i++) {
+                short sample = samples.get(i);
+                sumSquares += (double) sample * sample;
+                if ((sample < 0) != (previous < 0)) {
+                    crossings++;
+                }
+                previous = sample;
+            }
+            double meanSquare = sumSquares / frameSamples / (32768.0 * 32768.0);
+            energyDb[frame] = 10 * Math.log10(meanSquare + 1e-12);
+            zcr[frame] = (double) crossings / frameSamples;
+        }
+
+        double noiseFloorDb = Math.min(MAX_NOISE_FLOOR_DB, estimateNoiseFloor(energyDb));
+        double loudThreshold = Math.max(MIN_SPEECH_DB, noiseFloorDb + thresholdDb);
+        double quietThreshold = Math.max(MIN_SPEECH_DB, noiseFloorDb + thresholdDb / 2);
+
+        int regionStart = -1;
+        int regionStop = -1;
+        int minGapFrames = (minGapMs + frameMs - 1) / frameMs;
+        for (int frame = 0; frame < frameCount; frame++) {
+            boolean active = energyDb[frame] > loudThreshold
+                    || (energyDb[frame] > quietThreshold && zcr[frame] >= FRICATIVE_ZCR);
+            if (!active) {
+                continue;
+            }
+            if (regionStart >= 0 && frame - regionStop > minGapFrames) {
+                addRegion(regions, regionStart, regionStop);
+                regionStart = -1;
+            }
+            if (regionStart < 0) {
+                regionStart = frame;
+            }
+            regionStop = frame + 1;
+        }
+        if (regionStart >= 0) {
+            addRegion(regions, regionStart, regionStop);
+        }
+        return regions;
+    }
+
+    private void addRegion(List<Region> regions, int startFrame, int stopFrame) {
+        if ((stopFrame - startFrame) * frameMs >= MIN_SPEECH_MS) {
+            regions.add(new Region(startFrame * frameMs, stopFrame * frameMs));
+        }
+    }
+
+    private static double estimateNoiseFloor(double[] energyDb) {
+        double[] sorted = energyDb.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) (NOISE_PERCENTILE * (sorted.length - 1))];
+    }
+
+    /**
+     * A span of audio that probably contains speech.
+     */
+    public static final class Region {
+        private final int startMs;
+        private final int stopMs;
+
+        public Region(int startMs, int stopMs) {
+            this.startMs = startMs;
+            this.stopMs = stopMs;
+        }
+
+        public int getStartMs() {
+            return startMs;
+        }
+
+        public int getStopMs() {
+            return stopMs;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + startMs + ", " + stopMs + ")";
+        }
+    }
+}
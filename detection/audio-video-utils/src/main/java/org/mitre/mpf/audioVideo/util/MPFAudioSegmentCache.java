@@ -0,0 +1,318 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A scratch directory of decoded audio segments that is shared by every job, pipeline stage, and component process
+ * on the host.  When several stages decode the same range of the same media with the same attributes, only the first
+ * one runs ffmpeg; the others receive a hard link to its output, or a copy when a link cannot be made.
+ * <BR><BR>
+ * Segments are content-addressed by a SHA-256 digest of the media's {@link MPFMediaKey identity} and every encoding
+ * attribute, including the time range, so a changed media file or a different filter setting never hits a stale
+ * entry.  Each segment is written to a temporary file and atomically renamed into place, so readers never see a
+ * partial segment.  File locks ensure that concurrent processes decode a segment only once.  When the directory grows
+ * beyond its byte budget, the least recently used segments are deleted.
+ * <BR><BR>
+ * The shared instance is enabled by setting "mpf.audio.cache.dir" (or MPF_AUDIO_CACHE_DIR) to a directory on a local
+ * file system.  Its budget is set by "mpf.audio.cache.max.mb", which defaults to 1024.
+ */
+public class MPFAudioSegmentCache {
+
+    /**
+     * Writes a segment to the given file on a cache miss.
+     */
+    public interface Producer {
+        void produce(File output) throws IOException;
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(MPFAudioSegmentCache.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Temporary files older than this were left behind by a process that died while decoding.
+    private static final long ABANDONED_TEMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    // Locks are striped by the first byte of the digest so that the number of lock files stays fixed.
+    private static final int LOCK_STRIPES = 256;
+
+    private static final MPFAudioSegmentCache INSTANCE = createConfiguredInstance();
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // FileLock only excludes other processes, so threads in this process also need to hold the matching stripe.
+    private final ReentrantLock[] localLocks = new ReentrantLock[LOCK_STRIPES];
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * @param directory The directory to store segments in.  It is created if it does not exist.
+     * @param maxBytes  The total size of the segments to keep.
+     */
+    public MPFAudioSegmentCache(Path directory, long maxBytes) {
+        this.directory = directory.toAbsolutePath();
+        this.maxBytes = maxBytes;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            localLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return The cache configured by "mpf.audio.cache.dir", or null if caching is disabled.
+     */
+    public static MPFAudioSegmentCache getInstance() {
+        return INSTANCE;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Writes the segment decoded from the source with the given attributes to the output file.  If the segment is
+     * not already cached, the producer is called to decode it first.
+     * <BR><BR>
+     * The output may be a hard link to the cached segment, so it must be treated as read-only.  Deleting it is safe.
+     *
+     * @param source     The media file.
+     * @param attributes The attributes the segment is decoded with, including its time range.
+     * @param output     The file to write the segment to.  It is replaced if it exists.
+     * @param producer   Decodes the segment on a cache miss.
+     * @throws IOException If the producer fails or the cache directory cannot be used.
+     */
+    public void get(File source, MPFEncodingAttributes attributes, File output, Producer producer)
+            throws IOException {
+        String digest = digest(MPFMediaKey.of(source), attributes);
+        Path segment = directory.resolve(digest + SEGMENT_SUFFIX);
+
+        if (tryCopy(segment, output)) {
+            LOG.debug("Reused cached audio segment {} for {}.", segment, source);
+            return;
+        }
+
+        Files.createDirectories(directory);
+        int stripe = Integer.parseInt(digest.substring(0, 2), 16);
+        ReentrantLock localLock = localLocks[stripe];
+        localLock.lock();
+        try (FileChannel lockChannel = FileChannel.open(directory.resolve("stripe-" + stripe + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Closing the channel releases the lock.
+            lockChannel.lock();
+            // Another process may have decoded the segment while this one waited for the lock.
+            if (tryCopy(segment, output)) {
+                LOG.debug("Reused cached audio segment {} for {}.", segment, source);
+                return;
+            }
+            publish(producer, segment);
+            if (!tryCopy(segment, output)) {
+                throw new IOException("The cached audio segment " + segment
+                        + " was removed before it could be used.");
+            }
+        } finally {
+            localLock.unlock();
+        }
+        evict();
+    }
+
+    /**
+     * Deletes the least recently used segments until the cache is within its byte budget.  If another thread or
+     * process is already evicting, this returns immediately.
+     *
+     * @throws IOException If the directory cannot be listed.
+     */
+    public void evict() throws IOException {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try (FileChannel lockChannel = FileChannel.open(directory.resolve("evict.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.tryLock()) {
+            if (lock != null) {
+                evictLocked();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void evictLocked() throws IOException {
+        List<Map.Entry<Path, BasicFileAttributes>> segments = new ArrayList<>();
+        long totalBytes = 0;
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(new AbstractMap.SimpleImmutableEntry<>(path, attributes));
+                    totalBytes += attributes.size();
+                }
+                else if (name.endsWith(TEMP_SUFFIX)
+                        && now - attributes.lastModifiedTime().toMillis() > ABANDONED_TEMP_MILLIS) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+
+        // Segments are touched each time they are used, so the oldest modification time is the least recently used.
+        segments.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+        for (Map.Entry<Path, BasicFileAttributes> segment : segments) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            if (Files.deleteIfExists(segment.getKey())) {
+                totalBytes -= segment.getValue().size();
+                LOG.debug("Evicted cached audio segment {}.", segment.getKey());
+            }
+        }
+    }
+
+    private void publish(Producer producer, Path segment) throws IOException {
+        Path temp = Files.createTempFile(directory, segment.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            producer.produce(temp.toFile());
+            try {
+                Files.move(temp, segment, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // The temporary file is in the same directory, so this only happens on unusual file systems.
+                Files.move(temp, segment, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Marks the segment as recently used and links or copies it to the output.  Returns false if it is not cached.
+    private static boolean tryCopy(Path segment, File output) throws IOException {
+        try {
+            Files.setLastModifiedTime(segment, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        Path target = output.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, segment);
+            return true;
+        } catch (NoSuchFileException e) {
+            // The segment was evicted after it was touched.
+            return false;
+        } catch (IOException | UnsupportedOperationException e) {
+            // Hard links are not possible across file systems.
+        }
+        try {
+            Files.copy(segment, target, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static String digest(MPFMediaKey mediaKey, MPFEncodingAttributes attributes) {
+        MPFAudioAttributes audio = attributes.getAudioAttributes();
+        StringBuilder key = new StringBuilder()
+                .append(mediaKey.getCanonicalPath()).append('\n')
+                .append(mediaKey.getSize()).append('\n')
+                .append(mediaKey.getLastModifiedNanos()).append('\n')
+                .append(attributes.getFormat()).append('\n')
+                .append(attributes.getOffset()).append('\n')
+                .append(attributes.getDuration()).append('\n')
+                .append(attributes.getOffsetMillis()).append('\n')
+                .append(attributes.getDurationMillis()).append('\n')
+                .append(attributes.getInputSeek()).append('\n');
+        if (audio != null) {
+            key.append(audio.getCodec()).append('\n')
+                    .append(audio.getSamplingRate()).append('\n')
+                    .append(audio.getChannels()).append('\n')
+                    .append(audio.getVolume()).append('\n')
+                    .append(audio.getHighpassCutoffFrequency()).append('\n')
+                    .append(audio.getLowpassCutoffFrequency()).append('\n');
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MPFAudioSegmentCache createConfiguredInstance() {
+        String directory = MPFSystemProperties.getString("mpf.audio.cache.dir", null);
+        if (directory == null) {
+            return null;
+        }
+        long maxBytes = MPFSystemProperties.getInt("mpf.audio.cache.max.mb", 1024) * 1024L * 1024L;
+        LOG.info("Caching decoded audio segments in {} with a budget of {} bytes.", directory, maxBytes);
+        return new MPFAudioSegmentCache(Paths.get(directory), maxBytes);
+    }
+}
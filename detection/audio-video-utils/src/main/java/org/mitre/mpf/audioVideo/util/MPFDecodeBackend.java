@@ -0,0 +1,87 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A way of decoding media to audio.  {@link MPFEncoder MPFEncoder} chooses a backend for each input by showing the
+ * first bytes of the file to every available backend, in order of priority, and using the first one that supports
+ * it.  ffmpeg is used when no other backend does.
+ * <BR><BR>
+ * Backends are discovered with {@link java.util.ServiceLoader ServiceLoader}, so a component can add one by listing
+ * its class in "META-INF/services/org.mitre.mpf.audioVideo.util.MPFDecodeBackend".  Implementations must have a public
+ * no-argument constructor and be thread-safe.
+ */
+public interface MPFDecodeBackend {
+
+    /** The number of bytes from the beginning of the file that are passed to {@link #supports}. */
+    int HEADER_SIZE = 4096;
+
+    String getName();
+
+    /**
+     * @return The order in which backends are asked; higher values are asked first.
+     */
+    default int getPriority() {
+        return 0;
+    }
+
+    /**
+     * Decides whether this backend can produce exactly the audio described by the attributes from the source.
+     *
+     * @param source     The media file.
+     * @param header     A read-only view of up to the first {@link #HEADER_SIZE} bytes of the file.
+     * @param attributes The audio to produce.
+     * @return Whether {@link #transcode} and {@link #openPcmStream} will succeed for this input.
+     */
+    boolean supports(File source, ByteBuffer header, MPFEncodingAttributes attributes);
+
+    /**
+     * Writes the audio described by the attributes to the target file, in the attributes' format.
+     *
+     * @param source     The media file.
+     * @param target     The file to write.  It is replaced if it exists.
+     * @param attributes The audio to produce.
+     * @throws IOException If the source cannot be decoded or the target cannot be written.
+     */
+    void transcode(File source, File target, MPFEncodingAttributes attributes) throws IOException;
+
+    /**
+     * Decodes the audio described by the attributes to raw little-endian 16-bit PCM, ignoring their format and codec.
+     *
+     * @param source     The media file.
+     * @param attributes The audio to produce.
+     * @return The samples.  The caller must close the stream.  Reaching its end throws an IOException if decoding
+     *         failed.
+     * @throws IOException If decoding cannot be started.
+     */
+    InputStream openPcmStream(File source, MPFEncodingAttributes attributes) throws IOException;
+}
@@ -29,169 +29,67 @@ package org.mitre.mpf.audioVideo.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
 
 public class MPFEncoder {
 
     private static final Logger LOG = LoggerFactory.getLogger(MPFEncoder.class);
 
-    public MPFEncoder() {}
+    // Backends other than ffmpeg, highest priority first.
+    private static final List<MPFDecodeBackend> BACKENDS = loadBackends();
 
-    public Float getFramesPerSecond(File source) {
+    private final MPFFfmpegDecodeBackend ffmpegBackend = new MPFFfmpegDecodeBackend();
+    private final MPFMediaProbe probe = new MPFMediaProbe();
 
-        MPF_FFMPEGExecutor ffmpeg = new MPF_FFMPEGExecutor();
-        Float returnVal = null;
-        String query = "ffmpeg -i " + source.toString() + " 2>&1 | sed -n 's/.*, \\(.*\\) fp.*/\\1/p'";
-        LOG.debug("query = " + query);
-        String[] command = {"/bin/sh", "-c", query};
-        Process process = null;
-        InputStreamReader stdInputReader= null;
-        InputStreamReader stdErrorReader = null;
-        BufferedReader stdInput=null;
-        BufferedReader stdError = null;
-        try {
-            process = ffmpeg.executeCustomCommand(command);
-            stdInputReader = new InputStreamReader(process.getInputStream());
-            stdInput = new BufferedReader(stdInputReader);
-            stdErrorReader = new InputStreamReader(process.getErrorStream());
-            stdError = new BufferedReader(stdErrorReader);
+    public MPFEncoder() {}
 
-            LOG.debug("The ffmpeg standard output is:");
-            String s;
-            while ((s = stdInput.readLine()) != null) {
-                LOG.debug(s);
-                returnVal = Float.parseFloat(s);
-            }
+    /**
+     * Reads all of the metadata for the file with a single ffprobe process.  The result is cached, so repeated calls
+     * for the same unmodified file do not run ffprobe again.
+     *
+     * @param source The media file.
+     * @return The metadata for the file and each of its streams.
+     * @throws IOException If the file could not be probed.
+     */
+    public MPFMediaInfo getMediaInfo(File source) throws IOException {
+        return probe.probeCached(source);
+    }
 
-            // read any errors from the attempted command
-            LOG.debug("The ffmpeg standard error output is:\n");
-            while ((s = stdError.readLine()) != null) {
-                LOG.debug(s);
+    public Float getFramesPerSecond(File source) {
+        try {
+            MPFStreamInfo video = getMediaInfo(source).getVideoStream();
+            if (video != null && video.getFrameRate() != null) {
+                return video.getFrameRate().floatValue();
             }
         } catch (IOException e) {
             LOG.error("Failed to obtain the fps in the file '{}' due to an exception.", source, e);
-        } finally {
-            if (process!=null) {
-                process.destroy();
-            }
-            if (stdInputReader != null) {
-                try {
-                    stdInputReader.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
-            if (stdErrorReader != null) {
-                try {
-                    stdErrorReader.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
-            if (stdInput != null) {
-                try {
-                    stdInput.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
-            if (stdError != null) {
-                try {
-                    stdError.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
         }
-
-        return returnVal;
+        return null;
     }
 
-    public Integer getDuration(File source) { // TODO: needs to be tested
-
-        MPF_FFMPEGExecutor ffmpeg = new MPF_FFMPEGExecutor();
-        Integer returnVal = null;
-
-        String query = "ffmpeg -i " + source.toString() + " 2>&1 | sed -n 's/.*Duration: \\([^ ,]*\\).*/\\1/p'";
-        LOG.debug("query = " + query);
-        String[] command = {"/bin/sh", "-c", query};
-
-        Process process = null;
-        InputStreamReader stdInputReader= null;
-        InputStreamReader stdErrorReader = null;
-        BufferedReader stdInput=null;
-        BufferedReader stdError = null;
+    public Integer getDuration(File source) {
         try {
-            process = ffmpeg.executeCustomCommand(command);
-            stdInputReader = new InputStreamReader(process.getInputStream());
-            stdInput = new BufferedReader(stdInputReader);
-            stdErrorReader = new InputStreamReader(process.getErrorStream());
-            stdError = new BufferedReader(stdErrorReader);
-
-
-            String s;
-            while ((s = stdInput.readLine()) != null) {
-                String[] tokens = s.split(":");
-
-                int hours = Integer.parseInt(tokens[0]);
-                int minutes = Integer.parseInt(tokens[1]);
-
-                String[] subtokens = tokens[2].split("\\.");
-                int seconds = Integer.parseInt(subtokens[0]);
-                int milliseconds = Integer.parseInt(subtokens[1]);
-
-                returnVal = (hours * 60 * 60 * 1000) + (minutes * 60 * 1000) + (seconds * 1000) + milliseconds;
-
-                System.out.println("Converted " + s + " to " + returnVal);
-            }
-
-            // read any errors from the attempted command
-            LOG.debug("The ffmpeg standard error output is:\n");
-            while ((s = stdError.readLine()) != null) {
-                LOG.debug(s);
+            Long durationMs = getMediaInfo(source).getDurationMs();
+            if (durationMs != null) {
+                return durationMs.intValue();
             }
         } catch (IOException e) {
             LOG.error("Failed to obtain the duration in the file '{}' due to an exception.", source, e);
-        } catch (NumberFormatException e) {
-            LOG.error("Failed to obtain the duration in the file '{}' due to an exception.", source, e);
-        } finally {
-            if (process!=null) {
-                process.destroy();
-            }
-            if (stdInputReader != null) {
-                try {
-                    stdInputReader.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
-            if (stdErrorReader != null) {
-                try {
-                    stdErrorReader.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
-            if (stdInput != null) {
-                try {
-                    stdInput.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
-            if (stdError != null) {
-                try {
-                    stdError.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
         }
-
-        return returnVal;
+        return null;
     }
 
     // NOTE: Using tbr may cause problems:
@@ -199,167 +97,112 @@ public class MPFEncoder {
     // except sometimes it is twice what one would expect because of field rate versus frame rate."
 
     public Float getTbr(File source) {
-
-        MPF_FFMPEGExecutor ffmpeg = new MPF_FFMPEGExecutor();
-        Float returnVal = null;
-        String query = "ffmpeg -i " + source.toString() + " 2>&1 | sed -n 's/.*, \\(.*\\) tbr.*/\\1/p'";
-        LOG.debug("query = " + query);
-        String[] command = {"/bin/sh", "-c", query};
-
-        Process process = null;
-        InputStreamReader stdInputReader= null;
-        InputStreamReader stdErrorReader = null;
-        BufferedReader stdInput=null;
-        BufferedReader stdError = null;
         try {
-            process = ffmpeg.executeCustomCommand(command);
-            stdInputReader = new InputStreamReader(process.getInputStream());
-            stdInput = new BufferedReader(stdInputReader);
-            stdErrorReader = new InputStreamReader(process.getErrorStream());
-            stdError = new BufferedReader(stdErrorReader);
-            LOG.debug("The ffmpeg standard output is:");
-            String s;
-            while ((s = stdInput.readLine()) != null) {
-                LOG.debug(s);
-                returnVal = Float.parseFloat(s);
-            }
-            // read any errors from the attempted command
-            LOG.debug("The ffmpeg standard error output is:\n");
-            while ((s = stdError.readLine()) != null) {
-                LOG.debug(s);
+            MPFStreamInfo video = getMediaInfo(source).getVideoStream();
+            if (video != null && video.getRealFrameRate() != null) {
+                return video.getRealFrameRate().floatValue();
             }
         } catch (IOException e) {
             LOG.error("Failed to obtain the tbr in the file '{}' due to an exception.", source, e);
-        } finally {
-            if (process!=null) {
-                process.destroy();
-            }
-            if (stdInputReader != null) {
-                try {
-                    stdInputReader.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
-            if (stdErrorReader != null) {
-                try {
-                    stdErrorReader.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
-            if (stdInput != null) {
-                try {
-                    stdInput.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
-            if (stdError != null) {
-                try {
-                    stdError.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
         }
-
-        return returnVal;
+        return null;
     }
 
+    /**
+     * Writes the audio described by the attributes to the target file.  The decoding is done by the highest-priority
+     * {@link MPFDecodeBackend MPFDecodeBackend} that supports the source, which is ffmpeg unless the source is
+     * already in a form that can be handled in the JVM.
+     *
+     * @param source     The media file.
+     * @param target     The file to write.
+     * @param attributes The time range, format, and audio attributes to produce.
+     * @throws IOException If the source could not be decoded.
+     */
     public void transcodeWithFiltering(File source, File target, MPFEncodingAttributes attributes)
             throws IllegalArgumentException, IOException {
 
         target = target.getAbsoluteFile();
-        MPF_FFMPEGExecutor ffmpeg = new MPF_FFMPEGExecutor();
 
         if (!target.getParentFile().exists() && !target.getParentFile().mkdirs()) {
             LOG.error("Failed to create temporary audio file for processing");
             return;
         }
 
-        // ffmpeg –i <input file> -ss offset -t duration -ac 1 -ar 16000 –acodec pcm_s16le –af “highpass=f=200, lowpass=f=3000" -vn -f wav -y <output file>.wav
-        String query = "ffmpeg -i " + source.getAbsolutePath().toString();
-        if (attributes.getOffset() != null) {
-            query += " -ss " + String.valueOf(attributes.getOffset().floatValue());
-        }
-        if (attributes.getDuration() != null) {
-            query += " -t " + String.valueOf(attributes.getDuration().floatValue());
+        selectBackend(source, attributes).transcode(source, target, attributes);
+    }
+
+    /**
+     * Decodes the audio to raw little-endian 16-bit PCM with the highest-priority backend that supports the source.
+     * When that backend is ffmpeg, the caller reads from its output while decoding is still in progress, and closing
+     * the stream stops ffmpeg if it is still running.  The codec and format in the attributes are ignored.
+     *
+     * @param source     The media file.
+     * @param attributes The time range, channel count, sampling rate, and filters to apply.
+     * @return The raw PCM samples.  The caller must close the stream.
+     * @throws IOException If decoding cannot be started.
+     */
+    public InputStream openPcmStream(File source, MPFEncodingAttributes attributes) throws IOException {
+        return selectBackend(source, attributes).openPcmStream(source, attributes);
+    }
+
+    /**
+     * Decodes the audio to raw 16-bit PCM and passes it to the consumer in fixed-size chunks as it is decoded.  No
+     * file is written.
+     *
+     * @param source        The media file.
+     * @param attributes    The time range, channel count, sampling rate, and filters to apply.
+     * @param chunkSamples  The number of samples in each chunk.
+     * @param consumer      Receives each chunk.  The buffer passed to it is reused.
+     * @return The total number of samples decoded.
+     * @throws IOException If ffmpeg fails or the consumer throws.
+     */
+    public long transcodeToPcm(File source, MPFEncodingAttributes attributes, int chunkSamples,
+                               MPFPcmChunkConsumer consumer) throws IOException {
+        try (InputStream stream = openPcmStream(source, attributes)) {
+            return MPFPcmChunkReader.read(stream, chunkSamples, consumer);
         }
-        query += " -ac " + String.valueOf(attributes.getAudioAttributes().getChannels().intValue()) +
-            " -ar " + String.valueOf(attributes.getAudioAttributes().getSamplingRate().intValue()) +
-            " -acodec " + attributes.getAudioAttributes().getCodec() +
-            " -af \"highpass=f=" + String.valueOf(attributes.getAudioAttributes().getHighpassCutoffFrequency().intValue()) +
-            ", lowpass=f=" + String.valueOf(attributes.getAudioAttributes().getLowpassCutoffFrequency().intValue()) + "\"" +
-            " -vn " + "-f " + attributes.getFormat() + " -y " + target.getAbsolutePath().toString() +
-            " -loglevel error"; // by default, ffmpeg writes all of its messages to stderr,
-                                  // so we set the loglevel to get just errors
-        LOG.debug("query = " + query);
-        String[] command = {"/bin/sh", "-c", query};
+    }
 
-        Process process = null;
-        InputStreamReader stdInputReader= null;
-        InputStreamReader stdErrorReader = null;
-        BufferedReader stdInput=null;
-        BufferedReader stdError = null;
-        try {
-            process = ffmpeg.executeCustomCommand(command);
-            stdInputReader = new InputStreamReader(process.getInputStream());
-            stdInput = new BufferedReader(stdInputReader);
-            stdErrorReader = new InputStreamReader(process.getErrorStream());
-            stdError = new BufferedReader(stdErrorReader);
-            // read the output from the command
-            if(LOG.isDebugEnabled()) {
-                LOG.debug("The ffmpeg standard output is:");
-                String sStd;
-                while ((sStd = stdInput.readLine()) != null) {
-                    LOG.debug(sStd+'\n');
-                }
-            }
-            // read any errors from the attempted command
-            StringBuilder stringBuilder = new StringBuilder();
-            for (String line = stdError.readLine(); line != null; line = stdError.readLine()) {
-                stringBuilder.append(line+'\n');
-            }
-            if(stringBuilder.length() > 0) {
-                LOG.warn("FFMPEG STDERR Output:\n{}", stringBuilder.toString());
-            }
-        } finally {
-            if (process!=null) {
-                process.destroy();
-            }
-            if (stdInputReader != null) {
-                try {
-                    stdInputReader.close();
-                } catch (Throwable t) {
-                    ;
+    private MPFDecodeBackend selectBackend(File source, MPFEncodingAttributes attributes) {
+        if (!BACKENDS.isEmpty()) {
+            ByteBuffer header = ByteBuffer.allocate(MPFDecodeBackend.HEADER_SIZE);
+            try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+                while (header.hasRemaining() && channel.read(header) >= 0) {
+                    // Keep reading until the header is full or the file ends.
                 }
+            } catch (IOException e) {
+                // Let ffmpeg report the problem with the file as it always has.
+                LOG.debug("Unable to read the header of {}.", source, e);
+                return ffmpegBackend;
             }
-            if (stdErrorReader != null) {
-                try {
-                    stdErrorReader.close();
-                } catch (Throwable t) {
-                    ;
+            header.flip();
+            for (MPFDecodeBackend backend : BACKENDS) {
+                if (backend.supports(source, header.asReadOnlyBuffer(), attributes)) {
+                    LOG.debug("Decoding {} with the {} backend.", source, backend.getName());
+                    return backend;
                 }
             }
-            if (stdInput != null) {
-                try {
-                    stdInput.close();
-                } catch (Throwable t) {
-                    ;
-                }
-            }
-            if (stdError != null) {
-                try {
-                    stdError.close();
-                } catch (Throwable t) {
-                    ;
+        }
+        return ffmpegBackend;
+    }
+
+    private static List<MPFDecodeBackend> loadBackends() {
+        List<MPFDecodeBackend> backends = new ArrayList<>();
+        Iterator<MPFDecodeBackend> iterator =
+                ServiceLoader.load(MPFDecodeBackend.class, MPFEncoder.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
                 }
+                backends.add(iterator.next());
+            } catch (ServiceConfigurationError e) {
+                LOG.warn("Skipping a decode backend that could not be loaded.", e);
             }
         }
-        if(!target.exists() || target.length() == 0) {
-            throw new IOException("Unable to transcode input file: "+source.getAbsolutePath());
-        }
+        backends.sort(Comparator.comparingInt(MPFDecodeBackend::getPriority).reversed());
+        LOG.debug("Available decode backends: {}", backends.stream().map(MPFDecodeBackend::getName)
+                .collect(Collectors.toList()));
+        return Collections.unmodifiableList(backends);
     }
-
 }
@@ -33,6 +33,10 @@ public class MPFEncodingAttributes {
     private String format = null;
     private Float offset = null;
     private Float duration = null;
+    private Long offsetMillis = null;
+    private Long durationMillis = null;
+    private Boolean inputSeek = null;
+    private Long timeoutMillis = null;
 
     public MPFAudioAttributes getAudioAttributes() {
         return audioAttributes;
@@ -56,6 +60,25 @@ public class MPFEncodingAttributes {
 
     public void setOffset(Float offset) {
         this.offset = offset;
+        this.offsetMillis = null;
+    }
+
+    /**
+     * @return The offset set by {@link #setOffsetMillis(Long)}, or null if it was set in seconds or not at all.
+     */
+    public Long getOffsetMillis() {
+        return offsetMillis;
+    }
+
+    /**
+     * Sets the offset exactly.  A float cannot represent every millisecond past about 16,000 seconds, so this is
+     * passed on to the decoder in place of {@link #getOffset()}, which returns the nearest float.
+     *
+     * @param offsetMillis The number of milliseconds to skip, or null to start at the beginning.
+     */
+    public void setOffsetMillis(Long offsetMillis) {
+        this.offsetMillis = offsetMillis;
+        this.offset = offsetMillis == null ? null : offsetMillis / 1000f;
     }
 
     public Float getDuration() {
@@ -64,6 +87,59 @@ public class MPFEncodingAttributes {
 
     public void setDuration(Float duration) {
         this.duration = duration;
+        this.durationMillis = null;
+    }
+
+    /**
+     * @return The duration set by {@link #setDurationMillis(Long)}, or null if it was set in seconds or not at all.
+     */
+    public Long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Sets the duration exactly.  {@link #getDuration()} returns the nearest float.
+     *
+     * @param durationMillis The number of milliseconds to decode, or null to decode to the end.
+     */
+    public void setDurationMillis(Long durationMillis) {
+        this.durationMillis = durationMillis;
+        this.duration = durationMillis == null ? null : durationMillis / 1000f;
+    }
+
+    public Boolean getInputSeek() {
+        return inputSeek;
+    }
+
+    /**
+     * When true, ffmpeg seeks to the offset in the input before decoding, instead of decoding from the beginning of
+     * the file and discarding everything before the offset.  This is much faster for offsets far into a file.
+     *
+     * @param inputSeek Whether to seek in the input.
+     */
+    public void setInputSeek(Boolean inputSeek) {
+        this.inputSeek = inputSeek;
+    }
+
+    public Long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Sets how long ffmpeg may run before it is stopped.  When null, the default from
+     * {@link MPFProcessExecutor#getDefaultTimeoutMillis()} is used.
+     *
+     * @param timeoutMillis The deadline in milliseconds, or zero for none.
+     */
+    public void setTimeoutMillis(Long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return The deadline that applies to ffmpeg when it runs with these attributes, or zero for none.
+     */
+    public long getEffectiveTimeoutMillis() {
+        return timeoutMillis == null ? MPFProcessExecutor.getDefaultTimeoutMillis() : timeoutMillis;
     }
 
     public MPFEncodingAttributes() {}
@@ -71,7 +147,9 @@ public class MPFEncodingAttributes {
     @Override
     public String toString() {
         return getClass().getName() + "(format=" + format + ", offset="
-                + offset + ", duration=" + duration + ", audioAttributes="
+                + offset + ", offsetMillis=" + offsetMillis + ", duration=" + duration
+                + ", durationMillis=" + durationMillis + ", inputSeek=" + inputSeek + ", timeoutMillis=" + timeoutMillis
+                + ", audioAttributes="
                 + audioAttributes + ")";
     }
 
@@ -0,0 +1,255 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds the argument list for an ffmpeg audio transcode.  The arguments are passed straight to the process rather
+ * than through a shell, so no extra shell process is started and paths containing spaces or shell metacharacters
+ * need no quoting.
+ * <BR><BR>
+ * The options that describe the audio come from {@link MPFEncodingAttributes MPFEncodingAttributes}; the options that
+ * depend on where the output goes are set by the caller:
+ * <pre>
+ *     List&lt;String&gt; command = MPFFfmpegCommand.forAudio(source, attributes)
+ *             .threads(2)
+ *             .output(target)
+ *             .build();
+ * </pre>
+ */
+public class MPFFfmpegCommand {
+
+    /** The output name that makes ffmpeg write to its standard output. */
+    public static final String PIPE_OUTPUT = "pipe:1";
+
+    private final File source;
+    private String offset;
+    private boolean inputSeek;
+    private String duration;
+    private Integer channels;
+    private Integer samplingRate;
+    private String codec;
+    private final List<String> filters = new ArrayList<>();
+    private Integer threads;
+    private String format;
+    private String output;
+    private String logLevel = "error";
+
+    private MPFFfmpegCommand(File source) {
+        this.source = source;
+    }
+
+    /**
+     * Starts a command that reads from the source file.
+     *
+     * @param source The media file.
+     * @return A command with no other options.
+     */
+    public static MPFFfmpegCommand forInput(File source) {
+        return new MPFFfmpegCommand(source);
+    }
+
+    /**
+     * Starts a command that decodes the time range, channel count, sampling rate, codec, output format, and filters
+     * described by the attributes.  Attributes that are null are left to ffmpeg's defaults.
+     *
+     * @param source     The media file.
+     * @param attributes The audio to produce.
+     * @return A command that still needs an output.
+     */
+    public static MPFFfmpegCommand forAudio(File source, MPFEncodingAttributes attributes) {
+        boolean inputSeek = Boolean.TRUE.equals(attributes.getInputSeek());
+        MPFFfmpegCommand command = new MPFFfmpegCommand(source).format(attributes.getFormat());
+        if (attributes.getOffsetMillis() != null) {
+            command.offsetMillis(attributes.getOffsetMillis(), inputSeek);
+        }
+        else {
+            command.offset(attributes.getOffset(), inputSeek);
+        }
+        if (attributes.getDurationMillis() != null) {
+            command.durationMillis(attributes.getDurationMillis());
+        }
+        else {
+            command.duration(attributes.getDuration());
+        }
+        MPFAudioAttributes audio = attributes.getAudioAttributes();
+        if (audio != null) {
+            command.channels(audio.getChannels())
+                    .samplingRate(audio.getSamplingRate())
+                    .codec(audio.getCodec());
+            if (audio.getHighpassCutoffFrequency() != null) {
+                command.filter("highpass=f=" + audio.getHighpassCutoffFrequency());
+            }
+            if (audio.getLowpassCutoffFrequency() != null) {
+                command.filter("lowpass=f=" + audio.getLowpassCutoffFrequency());
+            }
+        }
+        return command;
+    }
+
+    /**
+     * @param offset    The number of seconds to skip, or null to start at the beginning.
+     * @param inputSeek When true, ffmpeg seeks in the input before decoding instead of decoding and discarding
+     *                  everything before the offset.
+     */
+    public MPFFfmpegCommand offset(Float offset, boolean inputSeek) {
+        this.offset = offset == null ? null : String.valueOf(offset.floatValue());
+        this.inputSeek = inputSeek;
+        return this;
+    }
+
+    /**
+     * @param offsetMillis The number of milliseconds to skip.  Unlike a float offset, it is passed on exactly.
+     * @param inputSeek    When true, ffmpeg seeks in the input before decoding.
+     */
+    public MPFFfmpegCommand offsetMillis(long offsetMillis, boolean inputSeek) {
+        this.offset = formatMillis(offsetMillis);
+        this.inputSeek = inputSeek;
+        return this;
+    }
+
+    public MPFFfmpegCommand duration(Float duration) {
+        this.duration = duration == null ? null : String.valueOf(duration.floatValue());
+        return this;
+    }
+
+    public MPFFfmpegCommand durationMillis(long durationMillis) {
+        this.duration = formatMillis(durationMillis);
+        return this;
+    }
+
+    public MPFFfmpegCommand channels(Integer channels) {
+        this.channels = channels;
+        return this;
+    }
+
+    public MPFFfmpegCommand samplingRate(Integer samplingRate) {
+        this.samplingRate = samplingRate;
+        return this;
+    }
+
+    public MPFFfmpegCommand codec(String codec) {
+        this.codec = codec;
+        return this;
+    }
+
+    /**
+     * Appends an audio filter.  Filters are applied in the order they are added.
+     */
+    public MPFFfmpegCommand filter(String filter) {
+        filters.add(filter);
+        return this;
+    }
+
+    public MPFFfmpegCommand threads(Integer threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public MPFFfmpegCommand format(String format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * Writes the output to the file, replacing it if it exists.
+     */
+    public MPFFfmpegCommand output(File output) {
+        this.output = output.getAbsolutePath();
+        return this;
+    }
+
+    /**
+     * Writes the output to ffmpeg's standard output.
+     */
+    public MPFFfmpegCommand outputToPipe() {
+        this.output = PIPE_OUTPUT;
+        return this;
+    }
+
+    public MPFFfmpegCommand logLevel(String logLevel) {
+        this.logLevel = logLevel;
+        return this;
+    }
+
+    /**
+     * @return The program name followed by its arguments.
+     * @throws IllegalStateException If no output has been set.
+     */
+    public List<String> build() {
+        if (output == null) {
+            throw new IllegalStateException("The ffmpeg command for " + source + " has no output.");
+        }
+        List<String> argv = new ArrayList<>(32);
+        argv.add("ffmpeg");
+        // By default, ffmpeg writes all of its messages to stderr, so only ask for errors.
+        if (logLevel != null) {
+            Collections.addAll(argv, "-loglevel", logLevel);
+        }
+        if (inputSeek && offset != null) {
+            Collections.addAll(argv, "-ss", offset);
+        }
+        Collections.addAll(argv, "-i", source.getAbsolutePath());
+        if (!inputSeek && offset != null) {
+            Collections.addAll(argv, "-ss", offset);
+        }
+        if (duration != null) {
+            Collections.addAll(argv, "-t", duration);
+        }
+        if (channels != null) {
+            Collections.addAll(argv, "-ac", String.valueOf(channels.intValue()));
+        }
+        if (samplingRate != null) {
+            Collections.addAll(argv, "-ar", String.valueOf(samplingRate.intValue()));
+        }
+        if (codec != null) {
+            Collections.addAll(argv, "-acodec", codec);
+        }
+        if (!filters.isEmpty()) {
+            Collections.addAll(argv, "-af", String.join(",", filters));
+        }
+        if (threads != null) {
+            Collections.addAll(argv, "-threads", String.valueOf(threads.intValue()));
+        }
+        argv.add("-vn");
+        if (format != null) {
+            Collections.addAll(argv, "-f", format);
+        }
+        Collections.addAll(argv, "-y", output);
+        return argv;
+    }
+
+    // Formats the time as seconds with exactly three decimal places, which ffmpeg parses without rounding.
+    private static String formatMillis(long millis) {
+        return BigDecimal.valueOf(millis, 3).toPlainString();
+    }
+}
@@ -0,0 +1,131 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Decodes media by running ffmpeg.  It supports every input, so {@link MPFEncoder MPFEncoder} uses it whenever no
+ * other {@link MPFDecodeBackend MPFDecodeBackend} applies.  Every process waits for a slot from
+ * {@link MPFProcessScheduler MPFProcessScheduler}, which also decides how many threads it may use.
+ */
+public class MPFFfmpegDecodeBackend implements MPFDecodeBackend {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MPFFfmpegDecodeBackend.class);
+
+    private final MPFProcessExecutor executor = new MPFProcessExecutor();
+
+    public MPFFfmpegDecodeBackend() {}
+
+    @Override
+    public String getName() {
+        return "ffmpeg";
+    }
+
+    @Override
+    public int getPriority() {
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public boolean supports(File source, ByteBuffer header, MPFEncodingAttributes attributes) {
+        return true;
+    }
+
+    @Override
+    public void transcode(File source, File target, MPFEncodingAttributes attributes) throws IOException {
+        // ffmpeg -loglevel error -i <input file> -ss offset -t duration -ac 1 -ar 16000 -acodec pcm_s16le -af highpass=f=200,lowpass=f=3000 -threads <n> -vn -f wav -y <output file>.wav
+        MPFFfmpegCommand command = MPFFfmpegCommand.forAudio(source, attributes).output(target);
+
+        // The thread budget comes from the scheduler so that concurrent transcodes share the available cores.
+        MPFProcessResult result = runScheduled(threads -> command.threads(threads).build(),
+                                               attributes.getEffectiveTimeoutMillis());
+        // read the output from the command
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("The ffmpeg standard output is:");
+            for (String sStd : result.getStdoutLines()) {
+                LOG.debug(sStd+'\n');
+            }
+        }
+        // read any errors from the attempted command
+        if(!result.getStderr().isEmpty()) {
+            LOG.warn("FFMPEG STDERR Output:\n{}", result.getStderr());
+        }
+        // A failed or interrupted run can leave a truncated file behind, so it must not be returned as output.
+        if (!result.isSuccess()) {
+            throw new IOException("Unable to transcode input file: " + source.getAbsolutePath()
+                    + ". ffmpeg exited with status " + result.getExitCode() + ".");
+        }
+        if(!target.exists() || target.length() == 0) {
+            throw new IOException("Unable to transcode input file: "+source.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Starts ffmpeg writing raw little-endian 16-bit PCM to a pipe that the caller reads from while decoding is still
+     * in progress.
+     *
+     * @param source     The media file.
+     * @param attributes The time range, channel count, sampling rate, and filters to apply.
+     * @return The raw PCM samples.  The caller must close the stream, which stops ffmpeg if it is still running.
+     * @throws IOException If ffmpeg cannot be started.
+     */
+    @Override
+    public MPFProcessOutputStream openPcmStream(File source, MPFEncodingAttributes attributes) throws IOException {
+        MPFFfmpegCommand command = MPFFfmpegCommand.forAudio(source, attributes)
+                .codec("pcm_s16le")
+                .format("s16le")
+                .outputToPipe();
+        MPFProcessScheduler.Permit permit = MPFProcessScheduler.getInstance().acquire();
+        try {
+            List<String> argv = command.threads(permit.getThreadBudget()).build();
+            LOG.debug("command = {}", argv);
+            MPFProcessOutputStream stream = executor.executeStreaming(argv, attributes.getEffectiveTimeoutMillis());
+            stream.onExit().whenComplete((process, error) -> permit.close());
+            return stream;
+        } catch (IOException | RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    private MPFProcessResult runScheduled(IntFunction<List<String>> commandFactory, long timeoutMillis)
+            throws IOException {
+        try (MPFProcessScheduler.Permit permit = MPFProcessScheduler.getInstance().acquire()) {
+            List<String> argv = commandFactory.apply(permit.getThreadBudget());
+            LOG.debug("command = {}", argv);
+            return executor.executeAndWait(argv, timeoutMillis);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converts between video frame numbers and milliseconds from the start of the video.  Constant-frame-rate video is
+ * described by its exact rational frame rate, so conversions are constant-time integer arithmetic that does not drift
+ * however long the video is.  Variable-frame-rate video, such as phone footage, is described by the presentation
+ * timestamp of every frame, held in a {@code long[]} and searched in O(log n).
+ * <BR><BR>
+ * Frame 0 is at time 0; timestamps are measured from the first frame.  Instances are immutable.
+ */
+public final class MPFFrameTimeMap {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MPFFrameTimeMap.class);
+
+    // Failures are cached too, so that media which cannot be probed is not probed again for every job.
+    private static final MPFMediaCache<LoadResult> CACHE = new MPFMediaCache<>(
+            LoadResult::of, MPFSystemProperties.getInt("mpf.frame.time.map.cache.size", 64));
+
+    // Constant frame rate: frames per second as num/den.
+    private final long rateNumerator;
+    private final long rateDenominator;
+
+    // Variable frame rate: sorted timestamps relative to the first frame, in units of timeBaseNum/timeBaseDen seconds.
+    private final long[] timestamps;
+    private final long timeBaseNumerator;
+    private final long timeBaseDenominator;
+
+    private MPFFrameTimeMap(MPFRational frameRate, long[] timestamps, MPFRational timeBase) {
+        this.rateNumerator = frameRate == null ? 0 : frameRate.getNumerator();
+        this.rateDenominator = frameRate == null ? 0 : frameRate.getDenominator();
+        this.timestamps = timestamps;
+        this.timeBaseNumerator = timeBase == null ? 0 : timeBase.getNumerator();
+        this.timeBaseDenominator = timeBase == null ? 0 : timeBase.getDenominator();
+    }
+
+    /**
+     * @param frameRate The exact frame rate, such as 30000/1001.
+     * @return A map for constant-frame-rate video.
+     */
+    public static MPFFrameTimeMap forConstantRate(MPFRational frameRate) {
+        if (frameRate.getNumerator() <= 0) {
+            throw new IllegalArgumentException("The frame rate must be positive, but it was " + frameRate + '.');
+        }
+        return new MPFFrameTimeMap(frameRate, null, null);
+    }
+
+    /**
+     * Creates a map from the presentation timestamps of every frame.  If the frames turn out to be evenly spaced, the
+     * result uses the constant-rate representation and the timestamps are not kept.  Spacing that alternates by one
+     * timestamp unit, as when 29.97 fps video is stored with a 1/1000 time base as 33 and 34 ms intervals, still counts
+     * as even, as long as every frame is within one unit of where a constant rate would put it.
+     *
+     * @param timestamps The timestamps, in any order, as ffmpeg reports them.  The array is not modified.
+     * @param timeBase   The length of one timestamp unit in seconds, such as 1/90000.
+     * @return The map.
+     */
+    public static MPFFrameTimeMap fromTimestamps(long[] timestamps, MPFRational timeBase) {
+        if (timestamps.length == 0 || timeBase.getNumerator() <= 0) {
+            throw new IllegalArgumentException("At least one timestamp and a positive time base are required.");
+        }
+        long[] sorted = timestamps.clone();
+        Arrays.sort(sorted);
+        long first = sorted[0];
+        long minInterval = Long.MAX_VALUE;
+        long maxInterval = 0;
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] -= first;
+            if (i < sorted.length - 1) {
+                long interval = sorted[i + 1] - sorted[i];
+                minInterval = Math.min(minInterval, interval);
+                maxInterval = Math.max(maxInterval, interval);
+            }
+        }
+        if (sorted.length > 1 && minInterval > 0 && maxInterval == minInterval) {
+            // One frame per interval time-base units.
+            return forConstantRate(new MPFRational(timeBase.getDenominator(), minInterval * timeBase.getNumerator()));
+        }
+        if (sorted.length > 1 && minInterval > 0 && maxInterval - minInterval <= 1) {
+            MPFRational frameRate = findRoundedRate(sorted, timeBase);
+            if (frameRate != null) {
+                return forConstantRate(frameRate);
+            }
+        }
+        return new MPFFrameTimeMap(null, sorted, timeBase);
+    }
+
+    // Returns a constant rate that puts every frame within one time-base unit of its timestamp, or null if there is
+    // none.  The whole-number and NTSC (n * 1000/1001) rates nearest the average are preferred over the average itself,
+    // since rounded timestamps almost always come from one of them.
+    private static MPFRational findRoundedRate(long[] sorted, MPFRational timeBase) {
+        int last = sorted.length - 1;
+        MPFRational average = new MPFRational(last * timeBase.getDenominator(),
+                                              sorted[last] * timeBase.getNumerator());
+        double fps = average.doubleValue();
+        MPFRational[] candidates = {
+                new MPFRational(Math.round(fps), 1),
+                new MPFRational(Math.round(fps * 1.001) * 1000, 1001),
+                average
+        };
+        for (MPFRational candidate : candidates) {
+            if (candidate.getNumerator() > 0 && isWithinOneUnit(sorted, timeBase, candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isWithinOneUnit(long[] sorted, MPFRational timeBase, MPFRational frameRate) {
+        // Frame i is ideally at i / rate seconds, which is i * tbDen * rateDen / (tbNum * rateNum) units.
+        long scale = timeBase.getNumerator() * frameRate.getNumerator();
+        long step = timeBase.getDenominator() * frameRate.getDenominator();
+        for (int i = 0; i < sorted.length; i++) {
+            if (Math.abs(sorted[i] * scale - i * step) > scale) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the map for the first video stream of the file, reading the timestamp of every packet with ffprobe the
+     * first time it is requested for the current version of the file.  Maps are shared across the JVM for up to
+     * "mpf.frame.time.map.cache.size" files, 64 by default.  A file that has no video timestamps is remembered as
+     * well, and is not probed again until it changes.  Other failures, such as ffprobe timing out, are not remembered,
+     * so the next request probes the file again.
+     *
+     * @param source The video file.
+     * @return The map.
+     * @throws IOException If the file could not be probed or has no video timestamps.
+     */
+    public static MPFFrameTimeMap getCached(File source) throws IOException {
+        LoadResult result = CACHE.get(source);
+        if (result.error != null) {
+            throw new IOException(result.error.getMessage(), result.error);
+        }
+        return result.map;
+    }
+
+    public boolean isConstantRate() {
+        return timestamps == null;
+    }
+
+    /**
+     * @return The exact frame rate, or null if the frame rate is variable.
+     */
+    public MPFRational getFrameRate() {
+        return isConstantRate() ? new MPFRational(rateNumerator, rateDenominator) : null;
+    }
+
+    /**
+     * @param frame The frame number.
+     * @return The time at which the frame is presented, in whole milliseconds rounded down.  For variable-rate video,
+     *         frames past the last timestamp are extrapolated at the average rate.
+     */
+    public long getTimeMs(long frame) {
+        if (isConstantRate()) {
+            return Math.floorDiv(frame * 1000 * rateDenominator, rateNumerator);
+        }
+        int last = timestamps.length - 1;
+        if (frame <= last) {
+            return toMs(timestamps[(int) Math.max(0, frame)]);
+        }
+        // The average interval so far, applied to the frames beyond the end.
+        long extra = last == 0 ? 0 : (frame - last) * timestamps[last] / last;
+        return toMs(timestamps[last] + extra);
+    }
+
+    /**
+     * @param timeMs A time in milliseconds.
+     * @return The frame being presented at that time: the last frame whose time is not after it.
+     */
+    public long getFrameAtOrBefore(long timeMs) {
+        if (isConstantRate()) {
+            // The largest frame f with floor(f * 1000 * den / num) <= timeMs.
+            return Math.max(0, Math.floorDiv((timeMs + 1) * rateNumerator - 1, 1000 * rateDenominator));
+        }
+        int low = 0;
+        int high = timestamps.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (toMs(timestamps[mid]) <= timeMs) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param timeMs A time in milliseconds.
+     * @return The first frame whose time is not before it.  For variable-rate video, this is at most one past the
+     *         last frame.
+     */
+    public long getFrameAtOrAfter(long timeMs) {
+        if (isConstantRate()) {
+            // The smallest frame f with floor(f * 1000 * den / num) >= timeMs.
+            return Math.max(0, Math.floorDiv(timeMs * rateNumerator + 1000 * rateDenominator - 1,
+                                             1000 * rateDenominator));
+        }
+        int low = 0;
+        int high = timestamps.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (toMs(timestamps[mid]) >= timeMs) {
+                high = mid;
+            }
+            else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private long toMs(long timestamp) {
+        return Math.floorDiv(timestamp * 1000 * timeBaseNumerator, timeBaseDenominator);
+    }
+
+    private static MPFFrameTimeMap load(File source) throws IOException {
+        MPFStreamInfo video = new MPFMediaProbe().probeCached(source).getVideoStream();
+        if (video == null || video.getTimeBase() == null) {
+            throw new NoTimestampsException("Unable to map frames to times in " + source
+                    + ": it has no video time base.");
+        }
+        List<String> command = List.of(
+                "ffprobe", "-v", "error", "-select_streams", "v:0",
+                "-show_entries", "packet=pts", "-of", "csv=p=0",
+                source.getAbsolutePath());
+        MPFProcessResult result;
+        try (MPFProcessScheduler.Permit permit = MPFProcessScheduler.getInstance().acquire()) {
+            result = new MPFProcessExecutor().executeAndWait(command);
+        }
+        if (!result.isSuccess()) {
+            throw new IOException("Unable to read the video timestamps of " + source.getAbsolutePath()
+                    + ": ffprobe exited with status " + result.getExitCode() + ": " + result.getStderr().trim());
+        }
+        long[] timestamps = parseTimestamps(result.getStdoutLines());
+        if (timestamps.length == 0) {
+            throw new NoTimestampsException("Unable to map frames to times in " + source
+                    + ": it has no video timestamps.");
+        }
+        MPFFrameTimeMap map = fromTimestamps(timestamps, video.getTimeBase());
+        LOG.debug("Mapped {} frames of {} at {}.", timestamps.length, source,
+                  map.isConstantRate() ? map.getFrameRate() + " fps" : "a variable rate");
+        return map;
+    }
+
+    private static final class LoadResult {
+        private final MPFFrameTimeMap map;
+        private final IOException error;
+
+        private LoadResult(MPFFrameTimeMap map, IOException error) {
+            this.map = map;
+            this.error = error;
+        }
+
+        // Only failures that will happen again for the same file are cached.  Others are thrown, and the cache does
+        // not keep them.
+        private static LoadResult of(File source) throws IOException {
+            try {
+                return new LoadResult(load(source), null);
+            } catch (NoTimestampsException e) {
+                return new LoadResult(null, e);
+            }
+        }
+    }
+
+    // Thrown when the file itself cannot be mapped, as opposed to when ffprobe could not be run.
+    private static final class NoTimestampsException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private NoTimestampsException(String message) {
+            super(message);
+        }
+    }
+
+    // Packets without a timestamp are reported as "N/A" and skipped.
+    static long[] parseTimestamps(List<String> lines) {
+        long[] timestamps = new long[lines.size()];
+        int count = 0;
+        for (String line : lines) {
+            String value = line.trim();
+            if (value.endsWith(",")) {
+                value = value.substring(0, value.length() - 1);
+            }
+            try {
+                timestamps[count] = Long.parseLong(value);
+                count++;
+            } catch (NumberFormatException e) {
+                // Not a timestamp.
+            }
+        }
+        return Arrays.copyOf(timestamps, count);
+    }
+}
@@ -0,0 +1,165 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A bounded, thread-safe cache of values derived from media files, such as probe results.  Entries are keyed by
+ * {@link MPFMediaKey MPFMediaKey}, so a file that changes on disk is loaded again.  When the cache is full, the least
+ * recently used entry is evicted.
+ * <BR><BR>
+ * Loading is single-flight: when several threads ask for the same file at the same time, only the first one runs the
+ * loader and the others wait for its result.  A failed load is not cached.
+ *
+ * @param <V> The type of value cached for each file.
+ */
+public class MPFMediaCache<V> {
+
+    /**
+     * Computes the value for a media file.
+     */
+    public interface Loader<V> {
+        V load(File file) throws IOException;
+    }
+
+    private final Loader<V> loader;
+    private final int maxEntries;
+    private final Map<MPFMediaKey, CompletableFuture<V>> entries;
+
+    private long hitCount;
+    private long missCount;
+    private long loadFailureCount;
+    private long evictionCount;
+    private long totalLoadNanos;
+
+    /**
+     * @param loader     Computes the value for a file on a cache miss.
+     * @param maxEntries The maximum number of files to keep values for.
+     */
+    public MPFMediaCache(Loader<V> loader, int maxEntries) {
+        this.loader = loader;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MPFMediaKey, CompletableFuture<V>> eldest) {
+                if (size() > MPFMediaCache.this.maxEntries) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for the current version of the file, loading it if necessary.
+     *
+     * @param file The media file.
+     * @return The cached or newly loaded value.
+     * @throws IOException If the file's attributes cannot be read or the loader fails.
+     */
+    public V get(File file) throws IOException {
+        MPFMediaKey key = MPFMediaKey.of(file);
+        CompletableFuture<V> future;
+        boolean isLoader = false;
+        synchronized (this) {
+            future = entries.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                entries.put(key, future);
+                missCount++;
+                isLoader = true;
+            }
+            else {
+                hitCount++;
+            }
+        }
+
+        if (isLoader) {
+            return load(file, key, future);
+        }
+        return await(future);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized MPFMediaCacheStats getStatistics() {
+        return new MPFMediaCacheStats(entries.size(), hitCount, missCount, loadFailureCount, evictionCount,
+                totalLoadNanos / 1_000_000);
+    }
+
+    private V load(File file, MPFMediaKey key, CompletableFuture<V> future) throws IOException {
+        long start = System.nanoTime();
+        try {
+            V value = loader.load(file);
+            future.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Errors must also complete the future, or the threads waiting on it would block forever.
+            synchronized (this) {
+                entries.remove(key, future);
+                loadFailureCount++;
+            }
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            synchronized (this) {
+                totalLoadNanos += elapsed;
+            }
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for another thread to load the media.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+/**
+ * A point-in-time snapshot of the {@link MPFMediaCache MPFMediaCache} counters.
+ */
+public class MPFMediaCacheStats {
+
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+    private final long loadFailureCount;
+    private final long evictionCount;
+    private final long totalLoadMillis;
+
+    public MPFMediaCacheStats(int size, long hitCount, long missCount, long loadFailureCount, long evictionCount,
+                              long totalLoadMillis) {
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadFailureCount = loadFailureCount;
+        this.evictionCount = evictionCount;
+        this.totalLoadMillis = totalLoadMillis;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The number of lookups that found an entry, including lookups that waited for another thread to finish
+     *         loading it.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return The number of lookups that had to load the entry.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getTotalLoadMillis() {
+        return totalLoadMillis;
+    }
+
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "(size=" + size + ", hitCount=" + hitCount + ", missCount=" + missCount
+                + ", loadFailureCount=" + loadFailureCount + ", evictionCount=" + evictionCount
+                + ", totalLoadMillis=" + totalLoadMillis + ")";
+    }
+}
@@ -0,0 +1,91 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The metadata for a media file gathered by a single {@link MPFMediaProbe MPFMediaProbe} run.
+ */
+public class MPFMediaInfo {
+
+    private final File source;
+    private final Long durationMs;
+    private final List<MPFStreamInfo> streams;
+
+    public MPFMediaInfo(File source, Long durationMs, List<MPFStreamInfo> streams) {
+        this.source = source;
+        this.durationMs = durationMs;
+        this.streams = Collections.unmodifiableList(streams);
+    }
+
+    public File getSource() {
+        return source;
+    }
+
+    /**
+     * @return The duration of the whole container in milliseconds, or null if it is unknown.
+     */
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public List<MPFStreamInfo> getStreams() {
+        return streams;
+    }
+
+    /**
+     * @return The first video stream, or null if the media has no video.
+     */
+    public MPFStreamInfo getVideoStream() {
+        for (MPFStreamInfo stream : streams) {
+            if (stream.isVideo()) {
+                return stream;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The first audio stream, or null if the media has no audio.
+     */
+    public MPFStreamInfo getAudioStream() {
+        for (MPFStreamInfo stream : streams) {
+            if (stream.isAudio()) {
+                return stream;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "(source=" + source + ", durationMs=" + durationMs + ", streams=" + streams + ")";
+    }
+}
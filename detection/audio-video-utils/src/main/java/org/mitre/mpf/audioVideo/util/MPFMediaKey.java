@@ -0,0 +1,96 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Identifies a particular version of a media file.  Two keys are equal only if they refer to the same canonical path
+ * and the file had the same size and modification time when each key was created, so a file that is replaced or
+ * rewritten in place gets a new key.
+ */
+public final class MPFMediaKey {
+
+    private final String canonicalPath;
+    private final long size;
+    private final long lastModifiedNanos;
+
+    private MPFMediaKey(String canonicalPath, long size, long lastModifiedNanos) {
+        this.canonicalPath = canonicalPath;
+        this.size = size;
+        this.lastModifiedNanos = lastModifiedNanos;
+    }
+
+    /**
+     * @param file The media file.
+     * @return The key for the current version of the file.
+     * @throws IOException If the file does not exist or its attributes cannot be read.
+     */
+    public static MPFMediaKey of(File file) throws IOException {
+        Path path = file.toPath().toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new MPFMediaKey(path.toString(), attributes.size(),
+                attributes.lastModifiedTime().toInstant().getEpochSecond() * 1_000_000_000L
+                        + attributes.lastModifiedTime().toInstant().getNano());
+    }
+
+    public String getCanonicalPath() {
+        return canonicalPath;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModifiedNanos() {
+        return lastModifiedNanos;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof MPFMediaKey)) {
+            return false;
+        }
+        MPFMediaKey other = (MPFMediaKey) obj;
+        return size == other.size && lastModifiedNanos == other.lastModifiedNanos
+                && canonicalPath.equals(other.canonicalPath);
+    }
+
+    @Override
+    public int hashCode() {
+        return (canonicalPath.hashCode() * 31 + Long.hashCode(size)) * 31 + Long.hashCode(lastModifiedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return canonicalPath + " (size=" + size + ", lastModifiedNanos=" + lastModifiedNanos + ")";
+    }
+}
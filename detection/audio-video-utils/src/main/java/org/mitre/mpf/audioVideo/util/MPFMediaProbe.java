@@ -0,0 +1,195 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gathers the metadata for a media file with a single ffprobe process.  ffprobe is asked for its machine-readable
+ * key=value output, which is parsed here rather than scraped from the human-readable ffmpeg banner.
+ * <BR><BR>
+ * Besides the container and stream headers, the first {@value #KEYFRAME_SAMPLE_PACKETS} packets are read in order to
+ * measure the keyframe interval of each stream.
+ * <BR><BR>
+ * {@link #probeCached(File)} shares results across the JVM through an {@link MPFMediaCache MPFMediaCache}, so that
+ * the many segment jobs for one file only probe it once.  The cache holds the results for up to
+ * "mpf.media.cache.size" files, 256 by default.
+ */
+public class MPFMediaProbe {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MPFMediaProbe.class);
+
+    static final int KEYFRAME_SAMPLE_PACKETS = 2000;
+
+    private static final MPFMediaCache<MPFMediaInfo> CACHE = new MPFMediaCache<>(
+            file -> new MPFMediaProbe().probe(file), MPFSystemProperties.getInt("mpf.media.cache.size", 256));
+
+    private final MPFProcessExecutor executor = new MPFProcessExecutor();
+
+    public MPFMediaProbe() {}
+
+    /**
+     * Probes the media file.
+     *
+     * @param source The media file.
+     * @return The metadata for the file and each of its streams.
+     * @throws IOException If ffprobe could not be run or could not read the file.
+     */
+    public MPFMediaInfo probe(File source) throws IOException {
+        List<String> command = Arrays.asList(
+                "ffprobe", "-v", "error",
+                "-show_format", "-show_streams",
+                "-show_entries", "packet=stream_index,flags",
+                "-read_intervals", "%+#" + KEYFRAME_SAMPLE_PACKETS,
+                "-print_format", "default",
+                source.getAbsolutePath());
+
+        MPFProcessResult result;
+        // ffprobe competes with ffmpeg for the same cores, so it waits for a slot like ffmpeg does.
+        try (MPFProcessScheduler.Permit permit = MPFProcessScheduler.getInstance().acquire()) {
+            result = executor.executeAndWait(command);
+        }
+        if (!result.isSuccess()) {
+            throw new IOException("Unable to probe " + source.getAbsolutePath() + ": ffprobe exited with status "
+                    + result.getExitCode() + ": " + result.getStderr().trim());
+        }
+        MPFMediaInfo info = parse(source, result.getStdoutLines());
+        LOG.debug("Probed {}", info);
+        return info;
+    }
+
+    /**
+     * Returns the metadata for the current version of the file, probing it only if no other caller has already done
+     * so.
+     *
+     * @param source The media file.
+     * @return The metadata for the file and each of its streams.
+     * @throws IOException If the file could not be probed.
+     */
+    public MPFMediaInfo probeCached(File source) throws IOException {
+        return CACHE.get(source);
+    }
+
+    public static MPFMediaCacheStats getCacheStatistics() {
+        return CACHE.getStatistics();
+    }
+
+    static MPFMediaInfo parse(File source, List<String> lines) {
+        List<Map<String, String>> streamSections = new ArrayList<>();
+        Map<String, String> formatSection = new HashMap<>();
+        Map<Integer, KeyframeCounter> keyframeCounters = new HashMap<>();
+
+        Map<String, String> current = null;
+        String currentSection = null;
+        for (String line : lines) {
+            if (line.startsWith("[/")) {
+                if ("STREAM".equals(currentSection)) {
+                    streamSections.add(current);
+                }
+                else if ("FORMAT".equals(currentSection)) {
+                    formatSection = current;
+                }
+                else if ("PACKET".equals(currentSection)) {
+                    countPacket(current, keyframeCounters);
+                }
+                current = null;
+                currentSection = null;
+            }
+            else if (line.startsWith("[")) {
+                currentSection = line.substring(1, line.length() - 1);
+                current = new HashMap<>();
+            }
+            else if (current != null) {
+                int separator = line.indexOf('=');
+                if (separator > 0) {
+                    current.put(line.substring(0, separator), line.substring(separator + 1));
+                }
+            }
+        }
+
+        List<MPFStreamInfo> streams = new ArrayList<>(streamSections.size());
+        for (Map<String, String> fields : streamSections) {
+            KeyframeCounter counter = keyframeCounters.get(parseIndex(fields));
+            streams.add(new MPFStreamInfo(fields, counter == null ? null : counter.getInterval()));
+        }
+        return new MPFMediaInfo(source, MPFStreamInfo.parseDurationMs(formatSection.get("duration")), streams);
+    }
+
+    private static void countPacket(Map<String, String> packet, Map<Integer, KeyframeCounter> counters) {
+        String streamIndex = packet.get("stream_index");
+        String flags = packet.get("flags");
+        if (streamIndex == null || flags == null) {
+            return;
+        }
+        try {
+            counters.computeIfAbsent(Integer.valueOf(streamIndex), k -> new KeyframeCounter())
+                    .add(flags.indexOf('K') >= 0);
+        } catch (NumberFormatException e) {
+            // Ignore malformed packet entries; the keyframe interval is only an estimate.
+        }
+    }
+
+    private static Integer parseIndex(Map<String, String> fields) {
+        try {
+            return Integer.valueOf(fields.get("index"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final class KeyframeCounter {
+        private int packetsSinceFirstKeyframe = -1;
+        private int packetsAtLastKeyframe;
+        private int keyframes;
+
+        void add(boolean keyframe) {
+            if (packetsSinceFirstKeyframe >= 0) {
+                packetsSinceFirstKeyframe++;
+            }
+            if (keyframe) {
+                if (packetsSinceFirstKeyframe < 0) {
+                    packetsSinceFirstKeyframe = 0;
+                }
+                packetsAtLastKeyframe = packetsSinceFirstKeyframe;
+                keyframes++;
+            }
+        }
+
+        Double getInterval() {
+            return keyframes < 2 ? null : (double) packetsAtLastKeyframe / (keyframes - 1);
+        }
+    }
+}
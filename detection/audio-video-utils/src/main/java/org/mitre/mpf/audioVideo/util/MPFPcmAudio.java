@@ -0,0 +1,408 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only access to the samples in a WAV file, such as the one produced by
+ * {@code MPFAudioDetectionMediaHandler.ripAudio}.  The file is memory-mapped rather than read onto the heap, and
+ * windows of audio are returned as views of the mapping, so even multi-hour audio can be analyzed piece by piece
+ * without copying it.
+ * <BR><BR>
+ * A single mapping is limited to 2 GB, which 48 kHz stereo floating-point audio reaches in about an hour and a half.
+ * Larger files are mapped as a series of overlapping regions, each twice as long as the distance between their
+ * starts, so that any window up to {@link #getMaxWindowBytes()} long lies entirely within one region.
+ * <BR><BR>
+ * Both 16-bit integer PCM and 32-bit floating-point WAV files are supported.  Multi-channel samples are interleaved.
+ * An instance may be shared by any number of threads; each window is an independent view with its own position.
+ */
+public class MPFPcmAudio {
+
+    /**
+     * The sample formats that can be read.
+     */
+    public enum Encoding {
+        PCM_16,
+        FLOAT_32
+    }
+
+    /** The size of the header written by {@link #createPcm16Header(int, int, long)}. */
+    public static final int PCM16_HEADER_BYTES = 44;
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final File source;
+    private final Encoding encoding;
+    private final int sampleRate;
+    private final int channels;
+    private final int dataOffset;
+    // Region i starts regionStride * i bytes into the samples.  A file that fits in one mapping has a single region.
+    private final ByteBuffer[] regions;
+    private final long regionStride;
+    private final long frameCount;
+
+    private MPFPcmAudio(File source, Encoding encoding, int sampleRate, int channels, int dataOffset,
+                        ByteBuffer[] regions, long regionStride, long dataBytes) {
+        this.source = source;
+        this.encoding = encoding;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.dataOffset = dataOffset;
+        this.regions = regions;
+        this.regionStride = regionStride;
+        this.frameCount = dataBytes / ((long) channels * getBytesPerSample());
+    }
+
+    /**
+     * Maps the WAV file into memory and validates its header.
+     *
+     * @param file The WAV file.
+     * @return The mapped audio.
+     * @throws IOException If the file cannot be read, is not a WAV file, or uses an unsupported sample format.
+     */
+    public static MPFPcmAudio open(File file) throws IOException {
+        return open(file, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxMappingBytes The largest single mapping to create.  Only tests use a value other than 2 GB.
+     */
+    static MPFPcmAudio open(File file, long maxMappingBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, maxMappingBytes));
+            Layout layout = readLayout(file, head);
+            // Writers that stream their output sometimes leave the size unset, so never read past the file.
+            long dataBytes = Math.min(layout.dataSize, fileSize - layout.dataOffset);
+
+            ByteBuffer[] regions;
+            long regionStride;
+            if (layout.dataOffset + dataBytes <= head.limit()) {
+                regions = new ByteBuffer[] { slice(head, layout.dataOffset, dataBytes) };
+                regionStride = Math.max(1, dataBytes);
+            }
+            else {
+                long frameBytes = (long) layout.channels * (layout.encoding == Encoding.PCM_16 ? 2 : 4);
+                regionStride = maxMappingBytes / 2 / frameBytes * frameBytes;
+                if (regionStride == 0) {
+                    throw new IOException("Unable to map " + file + " because a sample frame is too large.");
+                }
+                regions = new ByteBuffer[(int) ((dataBytes + regionStride - 1) / regionStride)];
+                for (int i = 0; i < regions.length; i++) {
+                    long start = i * regionStride;
+                    long length = Math.min(2 * regionStride, dataBytes - start);
+                    ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, layout.dataOffset + start, length);
+                    regions[i] = region.order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            return new MPFPcmAudio(file, layout.encoding, layout.sampleRate, layout.channels, layout.dataOffset,
+                                   regions, regionStride, dataBytes);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, long length) {
+        return buffer.duplicate().position(offset).limit(offset + (int) length).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Reads the format of a WAV file from its first bytes.  The buffer must extend at least to the header of the
+     * data chunk, but need not include any samples.
+     *
+     * @param file   The file the bytes came from, for error messages.
+     * @param buffer The beginning of the file.
+     * @return The layout of the file.
+     * @throws IOException If the bytes do not begin a supported WAV file.
+     */
+    static Layout readLayout(File file, ByteBuffer buffer) throws IOException {
+        ByteBuffer header = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (header.remaining() < 12 || header.getInt(0) != fourCC("RIFF") || header.getInt(8) != fourCC("WAVE")) {
+            throw new IOException(file + " is not a RIFF/WAVE file.");
+        }
+
+        Integer formatTag = null;
+        int channels = 0;
+        int sampleRate = 0;
+        int bitsPerSample = 0;
+        int position = 12;
+        while (position + 8 <= header.limit()) {
+            int chunkId = header.getInt(position);
+            long chunkSize = Integer.toUnsignedLong(header.getInt(position + 4));
+            int body = position + 8;
+
+            if (chunkId == fourCC("fmt ")) {
+                if (chunkSize < 16 || body + chunkSize > header.limit()) {
+                    throw new IOException(file + " has a truncated fmt chunk.");
+                }
+                formatTag = header.getShort(body) & 0xFFFF;
+                channels = header.getShort(body + 2) & 0xFFFF;
+                sampleRate = header.getInt(body + 4);
+                bitsPerSample = header.getShort(body + 14) & 0xFFFF;
+                if (formatTag == WAVE_FORMAT_EXTENSIBLE && chunkSize >= 26) {
+                    // The first two bytes of the sub-format GUID hold the actual format tag.
+                    formatTag = header.getShort(body + 24) & 0xFFFF;
+                }
+            }
+            else if (chunkId == fourCC("data")) {
+                if (formatTag == null) {
+                    throw new IOException(file + " has a data chunk before its fmt chunk.");
+                }
+                return new Layout(toEncoding(file, formatTag, bitsPerSample), sampleRate,
+                                  validateChannels(file, channels, sampleRate), body, chunkSize);
+            }
+            // Chunks are padded to an even length.
+            position = (int) Math.min(header.limit(), body + chunkSize + (chunkSize & 1));
+        }
+        throw new IOException(file + " does not contain a data chunk.");
+    }
+
+    public File getSource() {
+        return source;
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getBytesPerSample() {
+        return encoding == Encoding.PCM_16 ? 2 : 4;
+    }
+
+    /**
+     * @return The position in the file of the first sample.
+     */
+    public int getDataOffset() {
+        return dataOffset;
+    }
+
+    /**
+     * @return The number of sample frames, where a frame holds one sample for each channel.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return The largest number of bytes a single window can hold.  Only files larger than 2 GB limit their windows.
+     */
+    public long getMaxWindowBytes() {
+        return regions.length == 1 ? regions[0].capacity() : regionStride;
+    }
+
+    public long getDurationMs() {
+        return frameCount * 1000 / sampleRate;
+    }
+
+    /**
+     * Converts a time to the index of the sample frame that contains it, clamped to the bounds of the audio.
+     *
+     * @param timeMs The time in milliseconds.
+     * @return The index of the sample frame.
+     */
+    public long toFrameIndex(long timeMs) {
+        return Math.max(0, Math.min(frameCount, timeMs * sampleRate / 1000));
+    }
+
+    /**
+     * Returns a read-only view of the 16-bit samples from startMs, inclusive, to stopMs, exclusive.  No samples are
+     * copied.
+     *
+     * @param startMs The beginning of the window in milliseconds.
+     * @param stopMs  The end of the window in milliseconds.
+     * @return The interleaved samples in the window.
+     * @throws IllegalStateException If the file does not contain 16-bit PCM.
+     * @throws IllegalArgumentException If the window is longer than {@link #getMaxWindowBytes()}.
+     */
+    public ShortBuffer getShortWindow(long startMs, long stopMs) {
+        if (encoding != Encoding.PCM_16) {
+            throw new IllegalStateException(source + " does not contain 16-bit PCM samples.");
+        }
+        return getWindowBytes(startMs, stopMs).asShortBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the 32-bit floating-point samples from startMs, inclusive, to stopMs, exclusive.
+     * No samples are copied.
+     *
+     * @param startMs The beginning of the window in milliseconds.
+     * @param stopMs  The end of the window in milliseconds.
+     * @return The interleaved samples in the window.
+     * @throws IllegalStateException If the file does not contain floating-point samples.
+     * @throws IllegalArgumentException If the window is longer than {@link #getMaxWindowBytes()}.
+     */
+    public FloatBuffer getFloatWindow(long startMs, long stopMs) {
+        if (encoding != Encoding.FLOAT_32) {
+            throw new IllegalStateException(source + " does not contain floating-point samples.");
+        }
+        return getWindowBytes(startMs, stopMs).asFloatBuffer();
+    }
+
+    /**
+     * Copies the samples from startMs, inclusive, to stopMs, exclusive, into the destination array as floats in the
+     * range [-1, 1], regardless of the encoding of the file.
+     *
+     * @param startMs     The beginning of the window in milliseconds.
+     * @param stopMs      The end of the window in milliseconds.
+     * @param destination The array to fill, starting at index 0.  It may be reused between calls.
+     * @return The number of samples copied, which is limited by the length of the destination.
+     */
+    public int copyWindow(long startMs, long stopMs, float[] destination) {
+        // Only map as much of the window as fits in the destination.
+        long startFrame = toFrameIndex(startMs);
+        long stopFrame = Math.max(startFrame, Math.min(toFrameIndex(stopMs),
+                                                       startFrame + (destination.length + channels - 1) / channels));
+        ByteBuffer bytes = getFrameBytes(startFrame, stopFrame);
+        if (encoding == Encoding.FLOAT_32) {
+            FloatBuffer window = bytes.asFloatBuffer();
+            int count = Math.min(window.remaining(), destination.length);
+            window.get(destination, 0, count);
+            return count;
+        }
+        ShortBuffer window = bytes.asShortBuffer();
+        int count = Math.min(window.remaining(), destination.length);
+        for (int i = 0; i < count; i++) {
+            destination[i] = window.get(i) / 32768f;
+        }
+        return count;
+    }
+
+    private ByteBuffer getWindowBytes(long startMs, long stopMs) {
+        long startFrame = toFrameIndex(startMs);
+        return getFrameBytes(startFrame, Math.max(startFrame, toFrameIndex(stopMs)));
+    }
+
+    /**
+     * Returns a read-only view of the raw little-endian bytes of the sample frames from startFrame, inclusive, to
+     * stopFrame, exclusive.
+     *
+     * @param startFrame The index of the first frame.
+     * @param stopFrame  The index after the last frame.
+     * @return The bytes of the frames.
+     * @throws IllegalArgumentException If the window is longer than {@link #getMaxWindowBytes()}.
+     */
+    public ByteBuffer getFrameBytes(long startFrame, long stopFrame) {
+        long frameBytes = (long) channels * getBytesPerSample();
+        startFrame = Math.max(0, Math.min(frameCount, startFrame));
+        stopFrame = Math.max(startFrame, Math.min(frameCount, stopFrame));
+        long start = startFrame * frameBytes;
+        int index = (int) Math.min(regions.length - 1, start / regionStride);
+        ByteBuffer region = regions[index];
+        long regionStart = index * regionStride;
+        long stop = stopFrame * frameBytes;
+        if (stop - regionStart > region.capacity()) {
+            throw new IllegalArgumentException("Windows of " + source + " can be at most " + getMaxWindowBytes()
+                    + " bytes long, but " + (stop - start) + " bytes were requested.");
+        }
+        return region.asReadOnlyBuffer()
+                .position((int) (start - regionStart))
+                .limit((int) (stop - regionStart))
+                .slice()
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Creates the 44-byte header of a 16-bit PCM WAV file.
+     *
+     * @param sampleRate The number of sample frames per second.
+     * @param channels   The number of interleaved channels.
+     * @param dataBytes  The number of bytes of samples that will follow the header.
+     * @return The header, ready to be written.
+     */
+    public static ByteBuffer createPcm16Header(int sampleRate, int channels, long dataBytes) {
+        if (dataBytes > 0xFFFFFFFFL - 36) {
+            throw new IllegalArgumentException("A WAV file cannot hold " + dataBytes + " bytes of samples.");
+        }
+        ByteBuffer header = ByteBuffer.allocate(PCM16_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(fourCC("RIFF")).putInt((int) (36 + dataBytes)).putInt(fourCC("WAVE"));
+        header.putInt(fourCC("fmt ")).putInt(16)
+                .putShort((short) WAVE_FORMAT_PCM).putShort((short) channels)
+                .putInt(sampleRate).putInt(sampleRate * channels * 2)
+                .putShort((short) (channels * 2)).putShort((short) 16);
+        header.putInt(fourCC("data")).putInt((int) dataBytes);
+        return header.flip();
+    }
+
+    private static Encoding toEncoding(File file, int formatTag, int bitsPerSample) throws IOException {
+        if (formatTag == WAVE_FORMAT_PCM && bitsPerSample == 16) {
+            return Encoding.PCM_16;
+        }
+        if (formatTag == WAVE_FORMAT_IEEE_FLOAT && bitsPerSample == 32) {
+            return Encoding.FLOAT_32;
+        }
+        throw new IOException(file + " uses an unsupported sample format (format tag " + formatTag + ", "
+                + bitsPerSample + " bits per sample).");
+    }
+
+    private static int validateChannels(File file, int channels, int sampleRate) throws IOException {
+        if (channels <= 0 || sampleRate <= 0) {
+            throw new IOException(file + " has an invalid fmt chunk (" + channels + " channels, " + sampleRate
+                    + " Hz).");
+        }
+        return channels;
+    }
+
+    private static int fourCC(String id) {
+        return (id.charAt(0)) | (id.charAt(1) << 8) | (id.charAt(2) << 16) | (id.charAt(3) << 24);
+    }
+
+    /**
+     * The format of a WAV file and the location of its samples.
+     */
+    static final class Layout {
+        final Encoding encoding;
+        final int sampleRate;
+        final int channels;
+        final int dataOffset;
+        // The size declared in the data chunk, which may exceed the actual file.
+        final long dataSize;
+
+        private Layout(Encoding encoding, int sampleRate, int channels, int dataOffset, long dataSize) {
+            this.encoding = encoding;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.dataOffset = dataOffset;
+            this.dataSize = dataSize;
+        }
+    }
+}
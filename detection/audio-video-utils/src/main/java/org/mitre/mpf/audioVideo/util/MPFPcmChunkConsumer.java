@@ -0,0 +1,45 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+
+/**
+ * Receives decoded 16-bit PCM audio one chunk at a time.
+ */
+public interface MPFPcmChunkConsumer {
+
+    /**
+     * Processes the next chunk of samples.  For multi-channel audio, the samples are interleaved.
+     *
+     * @param samples The samples between the buffer's position and limit.  The buffer is reused for the next chunk,
+     *                so it must not be retained after this method returns.
+     * @throws IOException To stop decoding early.
+     */
+    void accept(ShortBuffer samples) throws IOException;
+}
@@ -0,0 +1,82 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * Splits a stream of raw little-endian 16-bit PCM (ffmpeg's "s16le" format) into chunks of samples.  A single buffer
+ * is allocated up front and reused for every chunk.
+ */
+public final class MPFPcmChunkReader {
+
+    private MPFPcmChunkReader() {}
+
+    /**
+     * Reads the stream to the end, passing each chunk to the consumer.
+     *
+     * @param in            The raw PCM data.  It is not closed by this method.
+     * @param chunkSamples  The number of samples in every chunk except possibly the last.
+     * @param consumer      Receives each chunk.
+     * @return The total number of samples read.
+     * @throws IOException If the stream cannot be read or the consumer throws.
+     */
+    public static long read(InputStream in, int chunkSamples, MPFPcmChunkConsumer consumer) throws IOException {
+        if (chunkSamples <= 0) {
+            throw new IllegalArgumentException("chunkSamples must be positive.");
+        }
+        byte[] bytes = new byte[chunkSamples * 2];
+        ShortBuffer samples = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        long totalSamples = 0;
+        int filled = 0;
+        while (true) {
+            int count = in.read(bytes, filled, bytes.length - filled);
+            if (count < 0) {
+                break;
+            }
+            filled += count;
+            if (filled == bytes.length) {
+                samples.clear();
+                consumer.accept(samples);
+                totalSamples += chunkSamples;
+                filled = 0;
+            }
+        }
+        // A trailing odd byte cannot form a sample, so it is dropped.
+        int remaining = filled / 2;
+        if (remaining > 0) {
+            samples.clear().limit(remaining);
+            consumer.accept(samples);
+            totalSamples += remaining;
+        }
+        return totalSamples;
+    }
+}
@@ -0,0 +1,271 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Merges concurrent requests to decode audio from the same media file.  When segments of one video are processed at
+ * the same time in one JVM, their requests usually cover adjacent or overlapping ranges.  Rather than starting one
+ * ffmpeg process per segment, the first request waits for a short window, the requests for the same file that arrive
+ * during that window and touch its range are merged into it, and the union of their ranges is decoded once.  Each
+ * requester then receives a read-only view of its own part of the shared samples, so nothing is copied.  A request
+ * whose range is inside a decode that has already started shares that decode instead of starting another.  Setting
+ * the window to 0 decodes each request that does not overlap an open batch immediately.
+ * <BR><BR>
+ * Because the union is decoded as one range, samples near the boundaries of a request can differ slightly from those
+ * of a separate decode, where the filters start fresh at the boundary.  The union is held in memory until every view
+ * of it is released, which is about 32 KB per second of 16 kHz mono audio.
+ */
+public class MPFPcmDecodeCoalescer {
+
+    /**
+     * Decodes a range of a media file to interleaved 16-bit samples.
+     */
+    public interface Decoder {
+        ShortBuffer decode(File source, int startTime, int stopTime) throws IOException;
+    }
+
+    /**
+     * Waits for other requests to join a batch.
+     */
+    interface Window {
+        void await(long millis) throws InterruptedException;
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(MPFPcmDecodeCoalescer.class);
+
+    private final Decoder decoder;
+    private final int samplesPerSecond;
+    private final long windowMillis;
+    private final Window window;
+
+    // The requests in progress, the batches still accepting requests and the batches being decoded, by media file.
+    private final Map<MPFMediaKey, FileState> files = new HashMap<>();
+
+    private long requestCount;
+    private long decodeCount;
+
+    /**
+     * Creates a coalescer whose window is set by "mpf.audio.coalesce.window.ms", which defaults to 50.
+     *
+     * @param decoder          Decodes the union of the merged ranges.
+     * @param samplesPerSecond The number of samples the decoder produces per second, across all channels.
+     */
+    public MPFPcmDecodeCoalescer(Decoder decoder, int samplesPerSecond) {
+        this(decoder, samplesPerSecond, MPFSystemProperties.getInt("mpf.audio.coalesce.window.ms", 50));
+    }
+
+    /**
+     * @param decoder          Decodes the union of the merged ranges.
+     * @param samplesPerSecond The number of samples the decoder produces per second, across all channels.
+     * @param windowMillis     How long the first request for a range waits for others to join it.
+     */
+    public MPFPcmDecodeCoalescer(Decoder decoder, int samplesPerSecond, long windowMillis) {
+        this(decoder, samplesPerSecond, windowMillis, Thread::sleep);
+    }
+
+    MPFPcmDecodeCoalescer(Decoder decoder, int samplesPerSecond, long windowMillis, Window window) {
+        this.decoder = decoder;
+        this.samplesPerSecond = samplesPerSecond;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.window = window;
+    }
+
+    /**
+     * Decodes the samples from startTime to stopTime, sharing the decode with any concurrent requests for adjacent or
+     * overlapping ranges of the same file.
+     *
+     * @param source    The media file.
+     * @param startTime The beginning of the range in milliseconds.
+     * @param stopTime  The end of the range in milliseconds.
+     * @return A read-only view of the samples in the range.
+     * @throws IOException If the shared decode fails.
+     */
+    public ShortBuffer decode(File source, int startTime, int stopTime) throws IOException {
+        MPFMediaKey key = MPFMediaKey.of(source);
+        Batch batch = null;
+        boolean isLeader = false;
+        synchronized (this) {
+            requestCount++;
+            FileState file = files.computeIfAbsent(key, k -> new FileState());
+            file.activeRequests++;
+            for (Batch candidate : file.runningBatches) {
+                if (startTime >= candidate.startTime && stopTime <= candidate.stopTime) {
+                    batch = candidate;
+                    break;
+                }
+            }
+            List<Batch> batches = file.openBatches;
+            for (int i = 0; batch == null && i < batches.size(); i++) {
+                Batch candidate = batches.get(i);
+                if (startTime <= candidate.stopTime && stopTime >= candidate.startTime) {
+                    batch = candidate;
+                    batch.startTime = Math.min(batch.startTime, startTime);
+                    batch.stopTime = Math.max(batch.stopTime, stopTime);
+                    batch.requesters++;
+                }
+            }
+            if (batch == null) {
+                batch = new Batch(startTime, stopTime);
+                batches.add(batch);
+                isLeader = true;
+            }
+        }
+
+        try {
+            if (isLeader) {
+                runBatch(source, key, batch);
+            }
+            return slice(await(batch.result), batch.startTime, startTime, stopTime);
+        } finally {
+            finishRequest(key);
+        }
+    }
+
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    public synchronized long getDecodeCount() {
+        return decodeCount;
+    }
+
+    private void runBatch(File source, MPFMediaKey key, Batch batch) {
+        try {
+            if (windowMillis > 0) {
+                window.await(windowMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synchronized (this) {
+                files.get(key).openBatches.remove(batch);
+            }
+            batch.result.completeExceptionally(
+                    new IOException("Interrupted while waiting for other requests to decode " + source + ".", e));
+            return;
+        }
+
+        closeBatch(key, batch);
+        LOG.debug("Decoding {} from {} to {} for {} coalesced requests.", source, batch.startTime, batch.stopTime,
+                  batch.requesters);
+        try {
+            batch.result.complete(decoder.decode(source, batch.startTime, batch.stopTime));
+        } catch (Throwable e) {
+            // Errors must also complete the result, or the other requesters would wait forever.
+            batch.result.completeExceptionally(e);
+        } finally {
+            finishBatch(key, batch);
+        }
+    }
+
+    private synchronized void closeBatch(MPFMediaKey key, Batch batch) {
+        decodeCount++;
+        FileState file = files.get(key);
+        file.openBatches.remove(batch);
+        file.runningBatches.add(batch);
+    }
+
+    private synchronized void finishBatch(MPFMediaKey key, Batch batch) {
+        // The leader's own request keeps the file's state alive until this returns.
+        files.get(key).runningBatches.remove(batch);
+    }
+
+    private synchronized void finishRequest(MPFMediaKey key) {
+        FileState file = files.get(key);
+        file.activeRequests--;
+        if (file.activeRequests == 0) {
+            files.remove(key);
+        }
+    }
+
+    private ShortBuffer slice(ShortBuffer samples, int unionStartTime, int startTime, int stopTime) {
+        ShortBuffer view = samples.asReadOnlyBuffer();
+        int from = toSampleIndex(view, startTime - unionStartTime);
+        int to = Math.max(from, toSampleIndex(view, stopTime - unionStartTime));
+        view.limit(to);
+        view.position(from);
+        return view.slice();
+    }
+
+    private int toSampleIndex(ShortBuffer samples, long offsetMillis) {
+        return (int) Math.max(0, Math.min(samples.capacity(), offsetMillis * samplesPerSecond / 1000));
+    }
+
+    private static ShortBuffer await(CompletableFuture<ShortBuffer> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the shared audio decode.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static class FileState {
+        private final List<Batch> openBatches = new ArrayList<>();
+        private final List<Batch> runningBatches = new ArrayList<>();
+        private int activeRequests;
+    }
+
+    // The range only changes while the batch is open, and only under the coalescer's lock.  It is read without the
+    // lock after the result completes, which happens after the batch is closed.  Requests only join a running batch
+    // when their range is inside it, so its range no longer changes.
+    private static class Batch {
+        private final CompletableFuture<ShortBuffer> result = new CompletableFuture<>();
+        private int startTime;
+        private int stopTime;
+        private int requesters = 1;
+
+        private Batch(int startTime, int stopTime) {
+            this.startTime = startTime;
+            this.stopTime = stopTime;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs external processes, such as ffmpeg, without blocking the calling thread.  Standard output and standard error
+ * are drained concurrently while the process runs, so a verbose process can never fill a pipe buffer and stall.
+ * Every process is tracked by a shared registry which destroys any survivors when the JVM shuts down.
+ * <BR><BR>
+ * Every process can be given a deadline, after which it and every process it started are destroyed.  Calls that do
+ * not specify one use the default set by "mpf.ffmpeg.timeout.ms" (or MPF_FFMPEG_TIMEOUT_MS), which is disabled when
+ * zero or unset.
+ */
+public class MPFProcessExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MPFProcessExecutor.class);
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = MPFSystemProperties.getInt("mpf.ffmpeg.timeout.ms", 0);
+
+    private static final AtomicInteger DRAINER_COUNT = new AtomicInteger();
+
+    private static final ExecutorService STREAM_DRAINERS = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "mpf-process-drainer-" + DRAINER_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MPFProcessExecutor() {}
+
+    /**
+     * @return The deadline applied to processes started without an explicit one, or zero if there is none.
+     */
+    public static long getDefaultTimeoutMillis() {
+        return DEFAULT_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * Starts the command with the default deadline and returns immediately.
+     *
+     * @see #execute(List, long)
+     */
+    public CompletableFuture<MPFProcessResult> execute(List<String> command) {
+        return execute(command, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Starts the command and returns immediately.  Cancelling the returned future destroys the process and its
+     * descendants.
+     *
+     * @param command       The program to run followed by its arguments.  No shell is involved unless the command
+     *                      itself invokes one.
+     * @param timeoutMillis How long the process may run.  Values less than or equal to zero disable the deadline.
+     * @return A future that completes once the process has exited and both of its output streams have been fully
+     *         read.  If the process cannot be started, the future completes exceptionally with an IOException.  If
+     *         the deadline expires, it completes exceptionally with an {@link MPFProcessTimeoutException}.
+     */
+    public CompletableFuture<MPFProcessResult> execute(List<String> command, long timeoutMillis) {
+        List<String> commandCopy = new ArrayList<>(command);
+        LOG.debug("Executing: {}", commandCopy);
+
+        Process process;
+        try {
+            process = new ProcessBuilder(commandCopy).start();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        MPFProcessRegistry.register(process);
+        AtomicBoolean timedOut = MPFProcessWatchdog.watch(process, timeoutMillis);
+
+        CompletableFuture<String> stdout = drain(process.getInputStream());
+        CompletableFuture<String> stderr = drain(process.getErrorStream());
+        CompletableFuture<MPFProcessResult> result = CompletableFuture.allOf(stdout, stderr, process.onExit())
+                .thenCompose(v -> timedOut.get()
+                        ? CompletableFuture.failedFuture(new MPFProcessTimeoutException(commandCopy.get(0),
+                                                                                        timeoutMillis))
+                        : CompletableFuture.completedFuture(new MPFProcessResult(
+                                commandCopy, process.exitValue(), stdout.join(), stderr.join())));
+        result.whenComplete((r, error) -> {
+            if (error instanceof CancellationException && process.isAlive()) {
+                LOG.debug("Destroying process {} because its result was cancelled.", process.pid());
+                MPFProcessWatchdog.destroyTree(process);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Starts the command with the default deadline and streams its standard output.
+     *
+     * @see #executeStreaming(List, long)
+     */
+    public MPFProcessOutputStream executeStreaming(List<String> command) throws IOException {
+        return executeStreaming(command, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Starts the command and returns its standard output as a stream, so the caller can consume the output while the
+     * process is still producing it.  Standard error is drained in the background.
+     *
+     * @param command       The program to run followed by its arguments.
+     * @param timeoutMillis How long the process may run.  Values less than or equal to zero disable the deadline.
+     * @return The standard output of the running process.  The caller must close it.
+     * @throws IOException If the process cannot be started.
+     */
+    public MPFProcessOutputStream executeStreaming(List<String> command, long timeoutMillis) throws IOException {
+        List<String> commandCopy = new ArrayList<>(command);
+        LOG.debug("Executing with streamed output: {}", commandCopy);
+
+        Process process = new ProcessBuilder(commandCopy).start();
+        MPFProcessRegistry.register(process);
+        AtomicBoolean timedOut = MPFProcessWatchdog.watch(process, timeoutMillis);
+        return new MPFProcessOutputStream(process, drain(process.getErrorStream()), commandCopy.get(0),
+                                          timedOut, timeoutMillis);
+    }
+
+    /**
+     * Runs the command with the default deadline and blocks until it has finished.
+     *
+     * @see #executeAndWait(List, long)
+     */
+    public MPFProcessResult executeAndWait(List<String> command) throws IOException {
+        return executeAndWait(command, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Runs the command and blocks until it has finished.  If the calling thread is interrupted while waiting, the
+     * process and its descendants are destroyed.
+     *
+     * @param command       The program to run followed by its arguments.
+     * @param timeoutMillis How long the process may run.  Values less than or equal to zero disable the deadline.
+     * @return The exit status and captured output of the process.
+     * @throws MPFProcessTimeoutException If the deadline expired.
+     * @throws IOException If the process could not be started, its output could not be read, or the calling thread
+     *                     was interrupted while waiting.
+     */
+    public MPFProcessResult executeAndWait(List<String> command, long timeoutMillis) throws IOException {
+        CompletableFuture<MPFProcessResult> result = execute(command, timeoutMillis);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + command.get(0) + " to complete.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to execute " + command.get(0) + '.', cause);
+        }
+    }
+
+    private static CompletableFuture<String> drain(InputStream stream) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = stream) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, STREAM_DRAINERS);
+    }
+}
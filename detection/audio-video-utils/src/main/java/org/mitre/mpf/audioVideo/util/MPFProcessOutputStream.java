@@ -0,0 +1,147 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The standard output of a running process, as returned by
+ * {@link MPFProcessExecutor#executeStreaming(java.util.List) MPFProcessExecutor.executeStreaming}.  Standard error is
+ * drained in the background.  The stream is bounded by the operating system's pipe buffer, so a process that produces
+ * data faster than the caller consumes it is simply paused until the caller catches up.
+ * <BR><BR>
+ * Reaching the end of the stream waits for the process to exit and throws an IOException if it failed, so truncated
+ * output is never mistaken for complete output.  If the process was stopped because its deadline expired, an
+ * {@link MPFProcessTimeoutException} is thrown instead.  Closing the stream while the process is still running
+ * destroys the process and its descendants.  Closing it after the process has exited on its own checks the exit status
+ * in the same way, so a caller that stops reading once it has all the data it expects still learns of a failure.
+ */
+public class MPFProcessOutputStream extends InputStream {
+
+    private final Process process;
+    private final InputStream stdout;
+    private final CompletableFuture<String> stderr;
+    private final String programName;
+    private final AtomicBoolean timedOut;
+    private final long timeoutMillis;
+    private boolean exitChecked;
+    private boolean closed;
+
+    MPFProcessOutputStream(Process process, CompletableFuture<String> stderr, String programName,
+                           AtomicBoolean timedOut, long timeoutMillis) {
+        this.process = process;
+        this.stdout = process.getInputStream();
+        this.stderr = stderr;
+        this.programName = programName;
+        this.timedOut = timedOut;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = stdout.read();
+        if (b < 0) {
+            checkExit();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int count = stdout.read(buffer, offset, length);
+        if (count < 0) {
+            checkExit();
+        }
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return stdout.available();
+    }
+
+    /**
+     * @return A channel view of this stream.  Closing the channel closes this stream.
+     */
+    public ReadableByteChannel getChannel() {
+        return Channels.newChannel(this);
+    }
+
+    /**
+     * @return A future that completes when the process exits, whether or not the stream has been fully read.
+     */
+    public CompletableFuture<Process> onExit() {
+        return process.onExit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean exited;
+        try {
+            stdout.close();
+        } finally {
+            exited = !process.isAlive();
+            if (!exited) {
+                MPFProcessWatchdog.destroyTree(process);
+            }
+        }
+        if (exited) {
+            checkExit();
+        }
+    }
+
+    private void checkExit() throws IOException {
+        if (exitChecked) {
+            return;
+        }
+        exitChecked = true;
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            MPFProcessWatchdog.destroyTree(process);
+            throw new IOException("Interrupted while waiting for " + programName + " to complete.", e);
+        }
+        if (timedOut.get()) {
+            throw new MPFProcessTimeoutException(programName, timeoutMillis);
+        }
+        if (exitCode != 0) {
+            String errorOutput = stderr.exceptionally(e -> "").join().trim();
+            throw new IOException(programName + " exited with status " + exitCode + ": " + errorOutput);
+        }
+    }
+}
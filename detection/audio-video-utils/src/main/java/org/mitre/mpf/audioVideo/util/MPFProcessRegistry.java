@@ -0,0 +1,67 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks every external process started by this library that is still alive.  A single JVM shutdown hook destroys
+ * whatever is left in the registry, and processes remove themselves as soon as they exit, so the registry never holds
+ * on to finished processes.
+ */
+final class MPFProcessRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MPFProcessRegistry.class);
+
+    private static final Set<Process> LIVE_PROCESSES = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(MPFProcessRegistry::destroyAll, "mpf-process-registry-shutdown"));
+    }
+
+    private MPFProcessRegistry() {}
+
+    public static void register(Process process) {
+        LIVE_PROCESSES.add(process);
+        process.onExit().thenRun(() -> LIVE_PROCESSES.remove(process));
+    }
+
+    public static int getLiveProcessCount() {
+        return LIVE_PROCESSES.size();
+    }
+
+    private static void destroyAll() {
+        for (Process process : LIVE_PROCESSES) {
+            LOG.warn("Destroying process {} at JVM shutdown.", process.pid());
+            process.destroy();
+        }
+    }
+}
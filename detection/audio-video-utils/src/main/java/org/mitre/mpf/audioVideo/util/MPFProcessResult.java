@@ -0,0 +1,93 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The outcome of an external process run through {@link MPFProcessExecutor MPFProcessExecutor}: the exit status along
+ * with everything the process wrote to standard output and standard error.
+ */
+public class MPFProcessResult {
+
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r?\\n");
+
+    private final List<String> command;
+    private final int exitCode;
+    private final String stdout;
+    private final String stderr;
+
+    public MPFProcessResult(List<String> command, int exitCode, String stdout, String stderr) {
+        this.command = Collections.unmodifiableList(command);
+        this.exitCode = exitCode;
+        this.stdout = stdout;
+        this.stderr = stderr;
+    }
+
+    public List<String> getCommand() {
+        return command;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public boolean isSuccess() {
+        return exitCode == 0;
+    }
+
+    public String getStdout() {
+        return stdout;
+    }
+
+    public String getStderr() {
+        return stderr;
+    }
+
+    public List<String> getStdoutLines() {
+        return toLines(stdout);
+    }
+
+    public List<String> getStderrLines() {
+        return toLines(stderr);
+    }
+
+    private static List<String> toLines(String output) {
+        if (output.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(LINE_BREAK.split(output));
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "(command=" + command + ", exitCode=" + exitCode + ")";
+    }
+}
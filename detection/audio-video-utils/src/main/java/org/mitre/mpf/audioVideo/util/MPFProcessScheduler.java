@@ -0,0 +1,195 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Limits how many ffmpeg and ffprobe processes run at once in this JVM.  Callers that arrive while every slot is taken
+ * wait in a first-come, first-served queue.  When the queue itself is full, new requests are rejected with an IOException
+ * instead of piling up.
+ * <BR><BR>
+ * Each admitted process is given a thread budget, which should be passed to ffmpeg with "-threads", so that the
+ * running processes share the available cores instead of each one trying to use all of them.
+ * <BR><BR>
+ * The limits are read once from the "mpf.ffmpeg.max.processes" and "mpf.ffmpeg.max.queued" settings, which may be set
+ * as JVM system properties or as the MPF_FFMPEG_MAX_PROCESSES and MPF_FFMPEG_MAX_QUEUED environment variables.
+ */
+public class MPFProcessScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MPFProcessScheduler.class);
+
+    private static final MPFProcessScheduler INSTANCE = new MPFProcessScheduler(
+            MPFSystemProperties.getInt("mpf.ffmpeg.max.processes", Runtime.getRuntime().availableProcessors()),
+            MPFSystemProperties.getInt("mpf.ffmpeg.max.queued", 256),
+            Runtime.getRuntime().availableProcessors());
+
+    private final int maxProcesses;
+    private final int maxQueued;
+    private final int cores;
+    private final Semaphore slots;
+    private final MPFProcessExecutor executor = new MPFProcessExecutor();
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong admittedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    MPFProcessScheduler(int maxProcesses, int maxQueued, int cores) {
+        this.maxProcesses = Math.max(1, maxProcesses);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.cores = Math.max(1, cores);
+        this.slots = new Semaphore(this.maxProcesses, true);
+        LOG.debug("Allowing at most {} concurrent ffmpeg processes with {} queued.", this.maxProcesses, this.maxQueued);
+    }
+
+    public static MPFProcessScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Waits for a free slot and then reserves it.  The returned permit must be closed once the process has finished.
+     *
+     * @return The reserved slot and its thread budget.
+     * @throws IOException If the queue is full or the calling thread is interrupted while waiting.
+     */
+    public Permit acquire() throws IOException {
+        long queuedAt = System.nanoTime();
+        // Only skip the queue when nobody is already waiting, so that admission stays first-come, first-served.
+        if (queued.get() > 0 || !slots.tryAcquire()) {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejectedCount.incrementAndGet();
+                throw new IOException("Unable to start ffmpeg because " + maxQueued + " requests are already queued.");
+            }
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting to start ffmpeg.", e);
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+        recordWait(System.nanoTime() - queuedAt);
+        // Budget for the processes that are about to run as well, so the first admitted process does not claim every
+        // core just before the queue drains into the remaining slots.
+        return new Permit(getThreadBudget(running.incrementAndGet(), queued.get()));
+    }
+
+    /**
+     * @return The share of the cores given to a process admitted while the given number of processes, including
+     *         itself, are running and the given number are queued.
+     */
+    int getThreadBudget(int runningProcesses, int queuedProcesses) {
+        int expectedRunning = Math.min(maxProcesses, runningProcesses + queuedProcesses);
+        return Math.max(1, cores / Math.max(1, expectedRunning));
+    }
+
+    /**
+     * Runs the command with the default deadline.
+     *
+     * @see #execute(IntFunction, long)
+     */
+    public CompletableFuture<MPFProcessResult> execute(IntFunction<List<String>> commandFactory) throws IOException {
+        return execute(commandFactory, MPFProcessExecutor.getDefaultTimeoutMillis());
+    }
+
+    /**
+     * Waits for a free slot, then starts the command built by the given factory and releases the slot when the
+     * process exits.  Waiting happens on the calling thread, which is what provides backpressure to the caller.
+     *
+     * @param commandFactory Builds the command line from the thread budget assigned to the process.
+     * @param timeoutMillis  How long the process may run.  Values less than or equal to zero disable the deadline.
+     * @return A future that completes when the process has exited.  If the deadline expires, it completes
+     *         exceptionally with an {@link MPFProcessTimeoutException}.
+     * @throws IOException If the queue is full or the calling thread is interrupted while waiting.
+     */
+    public CompletableFuture<MPFProcessResult> execute(IntFunction<List<String>> commandFactory, long timeoutMillis)
+            throws IOException {
+        Permit permit = acquire();
+        try {
+            return executor.execute(commandFactory.apply(permit.getThreadBudget()), timeoutMillis)
+                    .whenComplete((result, error) -> permit.close());
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    public MPFProcessSchedulerStats getStatistics() {
+        return new MPFProcessSchedulerStats(maxProcesses, running.get(), queued.get(), admittedCount.get(),
+                rejectedCount.get(), totalWaitNanos.get() / 1_000_000, maxWaitNanos.get() / 1_000_000);
+    }
+
+    private void recordWait(long waitNanos) {
+        admittedCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * A reserved process slot.
+     */
+    public class Permit implements AutoCloseable {
+
+        private final int threadBudget;
+        private boolean released;
+
+        private Permit(int threadBudget) {
+            this.threadBudget = threadBudget;
+        }
+
+        /**
+         * @return The number of threads the process should use, based on the available cores and how many
+         *         processes were running or queued when this one was admitted.
+         */
+        public int getThreadBudget() {
+            return threadBudget;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                running.decrementAndGet();
+                slots.release();
+            }
+        }
+    }
+}
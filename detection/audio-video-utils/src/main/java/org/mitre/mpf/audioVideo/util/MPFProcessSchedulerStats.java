@@ -0,0 +1,93 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+/**
+ * A point-in-time snapshot of the {@link MPFProcessScheduler MPFProcessScheduler} counters.  Wait times measure how
+ * long callers spent in the queue before their process was allowed to start.
+ */
+public class MPFProcessSchedulerStats {
+
+    private final int maxProcesses;
+    private final int runningProcesses;
+    private final int queueDepth;
+    private final long admittedCount;
+    private final long rejectedCount;
+    private final long totalWaitMillis;
+    private final long maxWaitMillis;
+
+    public MPFProcessSchedulerStats(int maxProcesses, int runningProcesses, int queueDepth, long admittedCount,
+                                    long rejectedCount, long totalWaitMillis, long maxWaitMillis) {
+        this.maxProcesses = maxProcesses;
+        this.runningProcesses = runningProcesses;
+        this.queueDepth = queueDepth;
+        this.admittedCount = admittedCount;
+        this.rejectedCount = rejectedCount;
+        this.totalWaitMillis = totalWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public int getMaxProcesses() {
+        return maxProcesses;
+    }
+
+    public int getRunningProcesses() {
+        return runningProcesses;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getAdmittedCount() {
+        return admittedCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public long getTotalWaitMillis() {
+        return totalWaitMillis;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public double getAverageWaitMillis() {
+        return admittedCount == 0 ? 0 : (double) totalWaitMillis / admittedCount;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "(maxProcesses=" + maxProcesses + ", runningProcesses=" + runningProcesses
+                + ", queueDepth=" + queueDepth + ", admittedCount=" + admittedCount + ", rejectedCount="
+                + rejectedCount + ", averageWaitMillis=" + getAverageWaitMillis() + ", maxWaitMillis="
+                + maxWaitMillis + ")";
+    }
+}
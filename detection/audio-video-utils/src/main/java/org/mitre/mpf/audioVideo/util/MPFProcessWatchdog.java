@@ -0,0 +1,114 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Enforces deadlines on external processes.  A single daemon thread tracks every deadline, so a deadline costs one
+ * queue entry rather than one thread.  When a deadline expires, the process and all of its descendants are destroyed.
+ * Destroying only the process that was started would leave running any helpers it started itself, and they would
+ * keep holding their pipes, CPU and scheduler slot after the caller has given up.  The descendants are found through
+ * {@link Process#descendants()} and destroyed along with the process, and anything still alive after a grace
+ * period is killed forcibly.
+ */
+final class MPFProcessWatchdog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MPFProcessWatchdog.class);
+
+    // Processes that ignore SIGTERM for this long are killed.
+    private static final long KILL_GRACE_MILLIS = 5000;
+
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+    private MPFProcessWatchdog() {}
+
+    /**
+     * Destroys the process tree if the process is still running after the timeout.
+     *
+     * @param process       The process to watch.
+     * @param timeoutMillis The deadline, relative to now.  Values less than or equal to zero disable the deadline.
+     * @return A flag that becomes true if the deadline expired and the process was destroyed.
+     */
+    public static AtomicBoolean watch(Process process, long timeoutMillis) {
+        AtomicBoolean expired = new AtomicBoolean();
+        if (timeoutMillis <= 0) {
+            return expired;
+        }
+        ScheduledFuture<?> deadline = TIMER.schedule(() -> {
+            if (process.isAlive()) {
+                LOG.warn("Process {} did not complete within {} ms. Destroying it.", process.pid(), timeoutMillis);
+                expired.set(true);
+                destroyTree(process);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        process.onExit().thenRun(() -> deadline.cancel(false));
+        return expired;
+    }
+
+    /**
+     * Asks the process and all of its descendants to terminate, and forcibly kills any of them that are still alive
+     * after a grace period.
+     *
+     * @param process The root of the process tree.
+     */
+    public static void destroyTree(Process process) {
+        // Children are collected before the parent is destroyed, since they are re-parented once it exits.
+        ProcessHandle[] descendants = process.descendants().toArray(ProcessHandle[]::new);
+        process.destroy();
+        for (ProcessHandle descendant : descendants) {
+            descendant.destroy();
+        }
+        TIMER.schedule(() -> {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+            for (ProcessHandle descendant : descendants) {
+                if (descendant.isAlive()) {
+                    descendant.destroyForcibly();
+                }
+            }
+        }, KILL_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "mpf-process-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most deadlines are cancelled because the process finished, so don't let them pile up in the queue.
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
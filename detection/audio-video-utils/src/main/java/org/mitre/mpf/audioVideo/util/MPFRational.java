@@ -0,0 +1,130 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+/**
+ * An exact fraction, as used by ffmpeg for frame rates and time bases (e.g. 30000/1001).
+ */
+public final class MPFRational {
+
+    private final long numerator;
+    private final long denominator;
+
+    public MPFRational(long numerator, long denominator) {
+        if (denominator == 0) {
+            throw new IllegalArgumentException("The denominator must not be zero.");
+        }
+        if (denominator < 0) {
+            numerator = -numerator;
+            denominator = -denominator;
+        }
+        long gcd = gcd(Math.abs(numerator), denominator);
+        this.numerator = gcd == 0 ? numerator : numerator / gcd;
+        this.denominator = gcd == 0 ? denominator : denominator / gcd;
+    }
+
+    /**
+     * Parses a fraction in ffmpeg's "num/den" form, or a plain decimal number such as "29.97".
+     *
+     * @param value The text to parse.
+     * @return The parsed value, or null if the text is missing, malformed, or has a zero denominator, as ffmpeg
+     *         reports "0/0" for unknown rates.
+     */
+    public static MPFRational parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        try {
+            int slash = value.indexOf('/');
+            if (slash >= 0) {
+                long den = Long.parseLong(value.substring(slash + 1));
+                return den == 0 ? null : new MPFRational(Long.parseLong(value.substring(0, slash)), den);
+            }
+            int dot = value.indexOf('.');
+            if (dot < 0) {
+                return new MPFRational(Long.parseLong(value), 1);
+            }
+            int decimals = value.length() - dot - 1;
+            if (decimals > 9) {
+                value = value.substring(0, dot + 10);
+                decimals = 9;
+            }
+            long den = 1;
+            for (int i = 0; i < decimals; i++) {
+                den *= 10;
+            }
+            return new MPFRational(Long.parseLong(value.substring(0, dot) + value.substring(dot + 1)), den);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public long getNumerator() {
+        return numerator;
+    }
+
+    public long getDenominator() {
+        return denominator;
+    }
+
+    public double doubleValue() {
+        return (double) numerator / denominator;
+    }
+
+    public float floatValue() {
+        return (float) doubleValue();
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof MPFRational)) {
+            return false;
+        }
+        MPFRational other = (MPFRational) obj;
+        return numerator == other.numerator && denominator == other.denominator;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(numerator) * 31 + Long.hashCode(denominator);
+    }
+
+    @Override
+    public String toString() {
+        return numerator + "/" + denominator;
+    }
+}
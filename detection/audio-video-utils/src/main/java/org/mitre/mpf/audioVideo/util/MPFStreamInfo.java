@@ -0,0 +1,180 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import java.util.Map;
+
+/**
+ * Metadata for a single audio or video stream, as reported by {@link MPFMediaProbe MPFMediaProbe}.  Values that the
+ * container does not provide are null.
+ */
+public class MPFStreamInfo {
+
+    private final int index;
+    private final String codecType;
+    private final String codecName;
+    private final MPFRational frameRate;
+    private final MPFRational realFrameRate;
+    private final MPFRational timeBase;
+    private final Long durationMs;
+    private final Long frameCount;
+    private final Integer sampleRate;
+    private final Integer channels;
+    private final Double keyframeInterval;
+
+    /**
+     * @param fields            The key=value pairs from the stream section of the ffprobe output.
+     * @param keyframeInterval  The average number of packets between keyframes, or null if it could not be measured.
+     */
+    MPFStreamInfo(Map<String, String> fields, Double keyframeInterval) {
+        index = parseInt(fields.get("index"), -1);
+        codecType = fields.get("codec_type");
+        codecName = fields.get("codec_name");
+        realFrameRate = MPFRational.parse(fields.get("r_frame_rate"));
+        MPFRational avgFrameRate = MPFRational.parse(fields.get("avg_frame_rate"));
+        frameRate = avgFrameRate == null ? realFrameRate : avgFrameRate;
+        timeBase = MPFRational.parse(fields.get("time_base"));
+        durationMs = parseDurationMs(fields.get("duration"));
+        sampleRate = fields.containsKey("sample_rate") ? parseInt(fields.get("sample_rate"), null) : null;
+        channels = fields.containsKey("channels") ? parseInt(fields.get("channels"), null) : null;
+        this.keyframeInterval = keyframeInterval;
+
+        Long nbFrames = parseLong(fields.get("nb_frames"));
+        if (nbFrames == null && isVideo() && frameRate != null && durationMs != null) {
+            nbFrames = Math.round(durationMs * frameRate.doubleValue() / 1000);
+        }
+        frameCount = nbFrames;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return "video", "audio", "subtitle", or "data".
+     */
+    public String getCodecType() {
+        return codecType;
+    }
+
+    public boolean isVideo() {
+        return "video".equals(codecType);
+    }
+
+    public boolean isAudio() {
+        return "audio".equals(codecType);
+    }
+
+    public String getCodecName() {
+        return codecName;
+    }
+
+    /**
+     * @return The average frame rate of a video stream, falling back to {@link #getRealFrameRate()} when the average
+     *         is unknown.
+     */
+    public MPFRational getFrameRate() {
+        return frameRate;
+    }
+
+    /**
+     * Returns the lowest frame rate that can represent every timestamp in the stream, which ffmpeg reports as "tbr".
+     * This is sometimes twice the actual frame rate because of field rate versus frame rate.
+     *
+     * @return The real base frame rate of the stream.
+     */
+    public MPFRational getRealFrameRate() {
+        return realFrameRate;
+    }
+
+    public MPFRational getTimeBase() {
+        return timeBase;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    /**
+     * @return The number of frames reported by the container, or an estimate from the duration and frame rate when
+     *         the container does not report it.
+     */
+    public Long getFrameCount() {
+        return frameCount;
+    }
+
+    public Integer getSampleRate() {
+        return sampleRate;
+    }
+
+    public Integer getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return The average number of frames from one keyframe to the next, measured over the beginning of the stream.
+     */
+    public Double getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    static Long parseDurationMs(String seconds) {
+        if (seconds == null) {
+            return null;
+        }
+        try {
+            return Math.round(Double.parseDouble(seconds) * 1000);
+        } catch (NumberFormatException e) {
+            // ffprobe reports "N/A" when the duration is unknown.
+            return null;
+        }
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer parseInt(String value, Integer defaultValue) {
+        Long parsed = parseLong(value);
+        return parsed == null ? defaultValue : Integer.valueOf(parsed.intValue());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "(index=" + index + ", codecType=" + codecType + ", codecName=" + codecName
+                + ", frameRate=" + frameRate + ", timeBase=" + timeBase + ", durationMs=" + durationMs
+                + ", frameCount=" + frameCount + ", sampleRate=" + sampleRate + ", channels=" + channels
+                + ", keyframeInterval=" + keyframeInterval + ")";
+    }
+}
@@ -0,0 +1,375 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import org.mitre.mpf.audioVideo.dsp.MPFBiquadCascade;
+import org.mitre.mpf.audioVideo.dsp.MPFBiquadFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes 16-bit PCM WAV files in the JVM, without starting any process.  It applies when the source already has the
+ * requested sampling rate and channel count, which is the case for audio that was captured for, or previously ripped
+ * by, MPF.  Unfiltered ranges are copied straight from the source file with {@link FileChannel#transferTo}; the
+ * high-pass and low-pass filters are applied with {@link MPFBiquadFilter MPFBiquadFilter}, whose response matches
+ * ffmpeg's.
+ */
+public class MPFWavDecodeBackend implements MPFDecodeBackend {
+
+    private static final String PCM_CODEC = "pcm_s16le";
+    private static final String WAV_FORMAT = "wav";
+    private static final String RAW_FORMAT = "s16le";
+
+    // When ffmpeg seeks on the output side, its filters have already seen the audio before the offset.  Running the
+    // filters over this much of it first gives the same settled output.
+    private static final int FILTER_PRE_ROLL_MS = 100;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // The number of frames read from the mapped audio at a time, which keeps each window well within the limit that
+    // MPFPcmAudio places on files larger than 2 GB.
+    private static final int WINDOW_FRAMES = 1 << 20;
+
+    public MPFWavDecodeBackend() {}
+
+    @Override
+    public String getName() {
+        return "wav";
+    }
+
+    @Override
+    public int getPriority() {
+        return 100;
+    }
+
+    @Override
+    public boolean supports(File source, ByteBuffer header, MPFEncodingAttributes attributes) {
+        MPFPcmAudio.Layout layout;
+        try {
+            layout = MPFPcmAudio.readLayout(source, header);
+        } catch (IOException e) {
+            return false;
+        }
+        if (layout.encoding != MPFPcmAudio.Encoding.PCM_16) {
+            return false;
+        }
+        String format = attributes.getFormat();
+        if (format != null && !format.equals(WAV_FORMAT) && !format.equals(RAW_FORMAT)) {
+            return false;
+        }
+        MPFAudioAttributes audio = attributes.getAudioAttributes();
+        return audio == null
+                || ((audio.getCodec() == null || audio.getCodec().equals(PCM_CODEC))
+                    && (audio.getSamplingRate() == null || audio.getSamplingRate() == layout.sampleRate)
+                    && (audio.getChannels() == null || audio.getChannels() == layout.channels)
+                    && audio.getVolume() == null);
+    }
+
+    @Override
+    public void transcode(File source, File target, MPFEncodingAttributes attributes) throws IOException {
+        MPFPcmAudio audio = MPFPcmAudio.open(source);
+        long startFrame = getStartFrame(audio, attributes);
+        long stopFrame = getStopFrame(audio, attributes, startFrame);
+        long frameBytes = (long) audio.getChannels() * audio.getBytesPerSample();
+        long dataBytes = (stopFrame - startFrame) * frameBytes;
+
+        try (FileChannel output = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (!RAW_FORMAT.equals(attributes.getFormat())) {
+                writeFully(output, MPFPcmAudio.createPcm16Header(audio.getSampleRate(), audio.getChannels(), dataBytes));
+            }
+
+            List<MPFBiquadCascade> filters = createFilters(audio, attributes);
+            if (filters.isEmpty()) {
+                try (FileChannel input = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+                    long position = audio.getDataOffset() + startFrame * frameBytes;
+                    long remaining = dataBytes;
+                    while (remaining > 0) {
+                        long count = input.transferTo(position, remaining, output);
+                        if (count <= 0) {
+                            throw new IOException("Unexpected end of " + source + '.');
+                        }
+                        position += count;
+                        remaining -= count;
+                    }
+                }
+                return;
+            }
+
+            FilteringReader reader = new FilteringReader(audio, filters, startFrame, stopFrame);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (reader.read(buffer) > 0) {
+                buffer.flip();
+                writeFully(output, buffer);
+                buffer.clear();
+            }
+        }
+    }
+
+    @Override
+    public InputStream openPcmStream(File source, MPFEncodingAttributes attributes) throws IOException {
+        MPFPcmAudio audio = MPFPcmAudio.open(source);
+        long startFrame = getStartFrame(audio, attributes);
+        long stopFrame = getStopFrame(audio, attributes, startFrame);
+        List<MPFBiquadCascade> filters = createFilters(audio, attributes);
+        if (filters.isEmpty()) {
+            return new FrameBytesInputStream(audio, startFrame, stopFrame);
+        }
+        return new FilteringInputStream(new FilteringReader(audio, filters, startFrame, stopFrame));
+    }
+
+    private static long getStartFrame(MPFPcmAudio audio, MPFEncodingAttributes attributes) {
+        if (attributes.getOffsetMillis() != null) {
+            return Math.min(audio.getFrameCount(), toFrames(attributes.getOffsetMillis(), audio));
+        }
+        if (attributes.getOffset() == null) {
+            return 0;
+        }
+        return Math.min(audio.getFrameCount(), Math.round(attributes.getOffset() * (double) audio.getSampleRate()));
+    }
+
+    private static long getStopFrame(MPFPcmAudio audio, MPFEncodingAttributes attributes, long startFrame) {
+        long frames;
+        if (attributes.getDurationMillis() != null) {
+            frames = Math.max(0, toFrames(attributes.getDurationMillis(), audio));
+        }
+        else if (attributes.getDuration() == null) {
+            return audio.getFrameCount();
+        }
+        else {
+            frames = Math.max(0, Math.round(attributes.getDuration() * (double) audio.getSampleRate()));
+        }
+        return Math.min(audio.getFrameCount(), startFrame + frames);
+    }
+
+    private static long toFrames(long millis, MPFPcmAudio audio) {
+        return Math.round(millis * (double) audio.getSampleRate() / 1000);
+    }
+
+    // Returns one cascade of filters for each channel.
+    private static List<MPFBiquadCascade> createFilters(MPFPcmAudio audio, MPFEncodingAttributes attributes) {
+        List<MPFBiquadCascade> filters = new ArrayList<>();
+        MPFAudioAttributes audioAttributes = attributes.getAudioAttributes();
+        if (audioAttributes == null) {
+            return filters;
+        }
+        Integer highpass = audioAttributes.getHighpassCutoffFrequency();
+        Integer lowpass = audioAttributes.getLowpassCutoffFrequency();
+        if (highpass == null && lowpass == null) {
+            return filters;
+        }
+        for (int channel = 0; channel < audio.getChannels(); channel++) {
+            List<MPFBiquadFilter> chain = new ArrayList<>(2);
+            if (highpass != null) {
+                chain.add(MPFBiquadFilter.highpass(audio.getSampleRate(), highpass));
+            }
+            if (lowpass != null) {
+                chain.add(MPFBiquadFilter.lowpass(audio.getSampleRate(), lowpass));
+            }
+            filters.add(new MPFBiquadCascade(chain.toArray(new MPFBiquadFilter[0])));
+        }
+        return filters;
+    }
+
+    private static void writeFully(FileChannel output, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+    }
+
+    /**
+     * Produces filtered 16-bit samples from a range of the mapped audio, one buffer at a time.
+     */
+    private static class FilteringReader {
+        private final MPFPcmAudio audio;
+        private final int channels;
+        private final List<MPFBiquadCascade> filters;
+        private final long stopFrame;
+        private long frame;
+
+        private ShortBuffer window = ShortBuffer.allocate(0);
+        private long windowStartFrame;
+
+        FilteringReader(MPFPcmAudio audio, List<MPFBiquadCascade> filters, long startFrame, long stopFrame) {
+            this.audio = audio;
+            this.channels = audio.getChannels();
+            this.filters = filters;
+            this.stopFrame = stopFrame;
+
+            long preRollFrames = Math.min(startFrame, (long) audio.getSampleRate() * FILTER_PRE_ROLL_MS / 1000);
+            for (long f = startFrame - preRollFrames; f < startFrame; f++) {
+                for (int channel = 0; channel < channels; channel++) {
+                    filter(channel, sample(f, channel));
+                }
+            }
+            this.frame = startFrame;
+        }
+
+        // Fills the buffer with as many whole frames as fit.  Returns the number of bytes written, or 0 at the end.
+        int read(ByteBuffer output) {
+            int start = output.position();
+            while (frame < stopFrame && output.remaining() >= channels * 2) {
+                for (int channel = 0; channel < channels; channel++) {
+                    double y = filter(channel, sample(frame, channel));
+                    output.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(y))));
+                }
+                frame++;
+            }
+            return output.position() - start;
+        }
+
+        private short sample(long frame, int channel) {
+            long offset = frame - windowStartFrame;
+            if (offset < 0 || offset * channels >= window.limit()) {
+                windowStartFrame = frame;
+                window = audio.getFrameBytes(frame, frame + WINDOW_FRAMES).asShortBuffer();
+                offset = 0;
+            }
+            return window.get((int) (offset * channels + channel));
+        }
+
+        private double filter(int channel, double x) {
+            return filters.get(channel).process(x);
+        }
+    }
+
+    private static class FilteringInputStream extends InputStream {
+        private final FilteringReader reader;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        FilteringInputStream(FilteringReader reader) {
+            this.reader = reader;
+            buffer.limit(0);
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        private boolean fill() {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            buffer.clear();
+            reader.read(buffer);
+            buffer.flip();
+            return buffer.hasRemaining();
+        }
+    }
+
+    // Reads a range of the mapped audio one window at a time.
+    private static class FrameBytesInputStream extends InputStream {
+        private final MPFPcmAudio audio;
+        private final long stopFrame;
+        private long nextFrame;
+        private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+        FrameBytesInputStream(MPFPcmAudio audio, long startFrame, long stopFrame) {
+            this.audio = audio;
+            this.nextFrame = startFrame;
+            this.stopFrame = stopFrame;
+        }
+
+        @Override
+        public int read() {
+            return fill() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = 0;
+            while (skipped < n && fill()) {
+                int count = (int) Math.min(n - skipped, buffer.remaining());
+                buffer.position(buffer.position() + count);
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        private boolean fill() {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            if (nextFrame >= stopFrame) {
+                return false;
+            }
+            long windowStop = Math.min(stopFrame, nextFrame + WINDOW_FRAMES);
+            buffer = audio.getFrameBytes(nextFrame, windowStop);
+            nextFrame = windowStop;
+            return buffer.hasRemaining();
+        }
+    }
+}
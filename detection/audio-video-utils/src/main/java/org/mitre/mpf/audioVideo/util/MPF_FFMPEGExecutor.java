@@ -26,35 +26,78 @@
 
 package org.mitre.mpf.audioVideo.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
+/**
+ * @deprecated Use {@link MPFProcessExecutor MPFProcessExecutor}, which returns the captured output directly instead
+ * of through a {@link Process}.
+ */
+@Deprecated
 public class MPF_FFMPEGExecutor {
 
-    private Process ffmpeg = null;
+    private final MPFProcessExecutor executor = new MPFProcessExecutor();
 
     public MPF_FFMPEGExecutor() {}
 
     public Process executeCustomCommand(String[] command) throws IOException {
-        try {
-            ffmpeg = Runtime.getRuntime().exec(command);
-        } catch (IOException e) {
-            e.printStackTrace();
+        return executeCustomCommand(command, MPFProcessExecutor.getDefaultTimeoutMillis());
+    }
+
+    /**
+     * Runs the command and waits for it to exit.  The output is read while the process runs, so a process that fills
+     * its pipes cannot block forever.  If it is still running after the timeout, or the calling thread is interrupted,
+     * the process and its descendants are destroyed.
+     *
+     * @param command       The program to run followed by its arguments.
+     * @param timeoutMillis How long the process may run.  Values less than or equal to zero disable the deadline.
+     * @return The exited process.  Its input and error streams replay the output that was captured.
+     * @throws MPFProcessTimeoutException If the deadline expired.
+     * @throws IOException If the process could not be started or the calling thread was interrupted.
+     */
+    public Process executeCustomCommand(String[] command, long timeoutMillis) throws IOException {
+        return new CompletedProcess(executor.executeAndWait(Arrays.asList(command), timeoutMillis));
+    }
+
+    // A process that has already exited, for callers that read its output after waiting for it.
+    private static class CompletedProcess extends Process {
+        private final MPFProcessResult result;
+
+        private CompletedProcess(MPFProcessResult result) {
+            this.result = result;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return OutputStream.nullOutputStream();
         }
-        try {
-            ffmpeg.waitFor();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(result.getStdout().getBytes(StandardCharsets.UTF_8));
         }
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+
+        @Override
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(result.getStderr().getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int waitFor() {
+            return result.getExitCode();
+        }
+
+        @Override
+        public int exitValue() {
+            return result.getExitCode();
+        }
+
+        @Override
+        public void destroy() {
         }
-        Runtime.getRuntime().addShutdownHook(new Thread() {
-            public void run() {
-                ffmpeg.destroy();
-            }
-        });
-        return ffmpeg;
     }
 }
@@ -0,0 +1,161 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.dsp;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+public class MPFAudioFilterChainTest extends TestCase {
+
+    @Test
+    public void testResamplerKeepsPassbandAndRemovesAliases() {
+        // 44.1 kHz to 16 kHz is a ratio of 160/441.
+        MPFPolyphaseResampler resampler = new MPFPolyphaseResampler(44100, 16000);
+        float[] input = tone(44100, 1000, 44100);
+        float[] output = new float[resampler.getMaxOutputLength(input.length)];
+        int count = resampler.process(input, 0, input.length, output, 0);
+        assertEquals(16000, count, 1);
+        assertEquals(1 / Math.sqrt(2), rms(output, 2000, count - 2000), 0.01);
+
+        // 12 kHz is above the new Nyquist frequency, so it must not fold back into the output.
+        resampler.reset();
+        input = tone(44100, 12000, 44100);
+        count = resampler.process(input, 0, input.length, output, 0);
+        assertTrue(rms(output, 2000, count - 2000) < 0.01);
+    }
+
+    @Test
+    public void testBlockSizeDoesNotChangeOutput() {
+        float[] input = tone(48000, 440, 4800);
+        MPFPolyphaseResampler whole = new MPFPolyphaseResampler(48000, 16000);
+        float[] expected = new float[whole.getMaxOutputLength(input.length)];
+        int expectedCount = whole.process(input, 0, input.length, expected, 0);
+
+        MPFPolyphaseResampler blocks = new MPFPolyphaseResampler(48000, 16000);
+        float[] actual = new float[expected.length];
+        int actualCount = 0;
+        for (int offset = 0; offset < input.length; offset += 37) {
+            int length = Math.min(37, input.length - offset);
+            actualCount += blocks.process(input, offset, length, actual, actualCount);
+        }
+        assertEquals(expectedCount, actualCount);
+        for (int i = 0; i < expectedCount; i++) {
+            assertEquals(expected[i], actual[i], 0f);
+        }
+    }
+
+    @Test
+    public void testButterworthCascadeAttenuation() {
+        // A fourth-order filter is 3 dB down at its cutoff.  Above the cutoff, the bilinear transform warps the
+        // analog response by the ratio of tangents.
+        MPFBiquadCascade lowpass = MPFBiquadCascade.butterworthLowpass(16000, 1000, 4);
+        assertEquals(2, lowpass.getSectionCount());
+        assertEquals(1 / Math.sqrt(2), gain(lowpass, 1000), 0.01);
+        double warped = Math.tan(Math.PI * 2000 / 16000) / Math.tan(Math.PI * 1000 / 16000);
+        assertEquals(1 / Math.sqrt(1 + Math.pow(warped, 8)), gain(lowpass, 2000), 0.005);
+        assertEquals(1, gain(lowpass, 100), 0.01);
+
+        try {
+            MPFBiquadCascade.butterworthHighpass(16000, 200, 3);
+            fail("Expected odd orders to be rejected.");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testChainDownmixesAndFilters() {
+        // The left channel is a 1 kHz tone and the right is silent, so the mix is the tone at half amplitude.
+        int frames = 8000;
+        short[] stereo = new short[frames * 2];
+        float[] tone = tone(8000, 1000, frames);
+        for (int i = 0; i < frames; i++) {
+            stereo[2 * i] = MPFPcmConversion.toShort(tone[i] * 0.5f);
+        }
+
+        MPFAudioFilterChain chain = new MPFAudioFilterChain(8000, 2, 16000, 200, 3000, 2);
+        short[] output = new short[chain.getMaxOutputLength(frames)];
+        int count = chain.process(stereo, 0, frames, output, 0);
+        assertEquals(16000, count, 1);
+
+        float[] mono = new float[count];
+        MPFPcmConversion.toFloat(output, 0, mono, 0, count);
+        assertEquals(0.25 / Math.sqrt(2), rms(mono, 4000, count - 4000), 0.01);
+    }
+
+    @Test
+    public void testChainFiltersBeforeResamplingLikeFfmpeg() {
+        // ffmpeg applies "-af" at the input rate and converts for "-ar" afterwards, so the chain must match filtering
+        // at 48 kHz followed by resampling, and not resampling followed by filtering at 16 kHz.
+        int frames = 4800;
+        float[] signal = tone(48000, 250, frames);
+        float[] noise = tone(48000, 2900, frames);
+        short[] input = new short[frames];
+        float[] expected = new float[frames];
+        for (int i = 0; i < frames; i++) {
+            input[i] = MPFPcmConversion.toShort(0.4f * (signal[i] + noise[i]));
+        }
+        MPFPcmConversion.toFloat(input, 0, expected, 0, frames);
+        MPFBiquadCascade.butterworthHighpass(48000, 200, 2)
+                .then(MPFBiquadCascade.butterworthLowpass(48000, 3000, 2))
+                .process(expected, 0, frames);
+        MPFPolyphaseResampler resampler = new MPFPolyphaseResampler(48000, 16000);
+        float[] resampled = new float[resampler.getMaxOutputLength(frames)];
+        int expectedCount = resampler.process(expected, 0, frames, resampled, 0);
+
+        MPFAudioFilterChain chain = new MPFAudioFilterChain(48000, 1, 16000, 200, 3000, 2);
+        short[] output = new short[chain.getMaxOutputLength(frames)];
+        assertEquals(expectedCount, chain.process(input, 0, frames, output, 0));
+        for (int i = 0; i < expectedCount; i++) {
+            assertEquals(MPFPcmConversion.toShort(resampled[i]), output[i], 1);
+        }
+    }
+
+    private static float[] tone(int sampleRate, double frequency, int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) Math.sin(2 * Math.PI * frequency * i / sampleRate);
+        }
+        return samples;
+    }
+
+    private static double gain(MPFBiquadCascade filter, double frequency) {
+        filter.reset();
+        float[] samples = tone(16000, frequency, 16000);
+        filter.process(samples, 0, samples.length);
+        return rms(samples, 8000, 8000) * Math.sqrt(2);
+    }
+
+    private static double rms(float[] samples, int offset, int length) {
+        double sum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += samples[i] * samples[i];
+        }
+        return Math.sqrt(sum / length);
+    }
+}
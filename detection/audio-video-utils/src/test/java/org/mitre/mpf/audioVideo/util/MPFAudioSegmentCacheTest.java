@@ -0,0 +1,153 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class MPFAudioSegmentCacheTest extends TestCase {
+
+    @Test
+    public void testReusesSegmentsAndEvictsLeastRecentlyUsed() throws IOException {
+        Path root = Files.createTempDirectory("mpf-audio-segment-cache-test");
+        try {
+            File media = root.resolve("media.mp4").toFile();
+            Files.write(media.toPath(), new byte[] { 1, 2, 3 });
+            MPFAudioSegmentCache cache = new MPFAudioSegmentCache(root.resolve("cache"), 250);
+            AtomicInteger produceCount = new AtomicInteger();
+
+            File first = root.resolve("first.wav").toFile();
+            cache.get(media, createAttributes(0), first, output -> {
+                produceCount.incrementAndGet();
+                Files.write(output.toPath(), new byte[100]);
+            });
+            assertEquals(1, produceCount.get());
+            assertEquals(100, first.length());
+
+            // The same media and attributes are served from the cache, even to a different output file.
+            File second = root.resolve("second.wav").toFile();
+            cache.get(media, createAttributes(0), second, output -> fail("Expected a cache hit."));
+            assertEquals(100, second.length());
+
+            pause();
+            // A different time range is a different segment.  Adding two more exceeds the budget, so the segment
+            // that was used least recently is evicted.
+            cache.get(media, createAttributes(10), root.resolve("third.wav").toFile(), output -> {
+                produceCount.incrementAndGet();
+                Files.write(output.toPath(), new byte[100]);
+            });
+            pause();
+            cache.get(media, createAttributes(0), second, output -> fail("Expected a cache hit."));
+            pause();
+            cache.get(media, createAttributes(20), root.resolve("fourth.wav").toFile(), output -> {
+                produceCount.incrementAndGet();
+                Files.write(output.toPath(), new byte[100]);
+            });
+            assertEquals(3, produceCount.get());
+
+            cache.get(media, createAttributes(0), second, output -> fail("Expected a cache hit."));
+            cache.get(media, createAttributes(10), root.resolve("third.wav").toFile(), output -> {
+                produceCount.incrementAndGet();
+                Files.write(output.toPath(), new byte[100]);
+            });
+            assertEquals(4, produceCount.get());
+
+            // Changing the media invalidates its segments.
+            Files.write(media.toPath(), new byte[] { 1, 2, 3, 4 });
+            cache.get(media, createAttributes(0), second, output -> {
+                produceCount.incrementAndGet();
+                Files.write(output.toPath(), new byte[50]);
+            });
+            assertEquals(5, produceCount.get());
+            assertEquals(50, second.length());
+        }
+        finally {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    public void testFailedProducerLeavesNoSegment() throws IOException {
+        Path root = Files.createTempDirectory("mpf-audio-segment-cache-test");
+        try {
+            File media = root.resolve("media.mp4").toFile();
+            Files.write(media.toPath(), new byte[] { 1, 2, 3 });
+            MPFAudioSegmentCache cache = new MPFAudioSegmentCache(root.resolve("cache"), 1000);
+            try {
+                cache.get(media, createAttributes(0), root.resolve("out.wav").toFile(), output -> {
+                    Files.write(output.toPath(), new byte[10]);
+                    throw new IOException("ffmpeg failed");
+                });
+                fail("Expected the producer's exception.");
+            }
+            catch (IOException e) {
+                assertEquals("ffmpeg failed", e.getMessage());
+            }
+            try (Stream<Path> files = Files.list(root.resolve("cache"))) {
+                assertTrue(files.noneMatch(p -> p.toString().endsWith(".seg") || p.toString().endsWith(".tmp")));
+            }
+        }
+        finally {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    // Recency is tracked by modification time, so give each use a distinct one.
+    private static void pause() {
+        try {
+            Thread.sleep(20);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MPFEncodingAttributes createAttributes(float offset) {
+        MPFAudioAttributes audioAttributes = new MPFAudioAttributes();
+        audioAttributes.setChannels(1);
+        audioAttributes.setSamplingRate(16000);
+        audioAttributes.setCodec("pcm_s16le");
+        MPFEncodingAttributes attributes = new MPFEncodingAttributes();
+        attributes.setAudioAttributes(audioAttributes);
+        attributes.setFormat("wav");
+        attributes.setOffset(offset);
+        attributes.setDuration(10f);
+        return attributes;
+    }
+}
@@ -0,0 +1,98 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+public class MPFFfmpegCommandTest extends TestCase {
+
+    @Test
+    public void testBuildsArgvFromAttributes() {
+        MPFAudioAttributes audioAttributes = new MPFAudioAttributes();
+        audioAttributes.setChannels(1);
+        audioAttributes.setSamplingRate(16000);
+        audioAttributes.setCodec("pcm_s16le");
+        audioAttributes.setHighpassCutoffFrequency(200);
+        audioAttributes.setLowpassCutoffFrequency(3000);
+        MPFEncodingAttributes attributes = new MPFEncodingAttributes();
+        attributes.setAudioAttributes(audioAttributes);
+        attributes.setFormat("wav");
+        attributes.setOffset(1.5f);
+        attributes.setDuration(10f);
+
+        // Paths with spaces stay a single argument because no shell is involved.
+        File source = new File("/data/my media/in put.mp4");
+        File target = new File("/tmp/out dir/out.wav");
+        assertEquals(Arrays.asList(
+                "ffmpeg", "-loglevel", "error", "-i", source.getAbsolutePath(), "-ss", "1.5", "-t", "10.0",
+                "-ac", "1", "-ar", "16000", "-acodec", "pcm_s16le", "-af", "highpass=f=200,lowpass=f=3000",
+                "-threads", "2", "-vn", "-f", "wav", "-y", target.getAbsolutePath()),
+                MPFFfmpegCommand.forAudio(source, attributes).threads(2).output(target).build());
+
+        attributes.setInputSeek(true);
+        assertEquals(Arrays.asList(
+                "ffmpeg", "-loglevel", "error", "-ss", "1.5", "-i", source.getAbsolutePath(), "-t", "10.0",
+                "-ac", "1", "-ar", "16000", "-acodec", "pcm_s16le", "-af", "highpass=f=200,lowpass=f=3000",
+                "-vn", "-f", "s16le", "-y", "pipe:1"),
+                MPFFfmpegCommand.forAudio(source, attributes).format("s16le").outputToPipe().build());
+    }
+
+    @Test
+    public void testPassesMillisecondsExactly() {
+        MPFEncodingAttributes attributes = new MPFEncodingAttributes();
+        // The nearest float to 20,000.123 seconds is 20,000.123046875.
+        attributes.setOffsetMillis(20_000_123L);
+        attributes.setDurationMillis(7L);
+        assertEquals(20_000.123f, attributes.getOffset());
+
+        File source = new File("in.mp4");
+        assertEquals(Arrays.asList(
+                "ffmpeg", "-loglevel", "error", "-i", source.getAbsolutePath(), "-ss", "20000.123", "-t", "0.007",
+                "-vn", "-y", "pipe:1"),
+                MPFFfmpegCommand.forAudio(source, attributes).outputToPipe().build());
+
+        // Setting the offset in seconds replaces the exact offset.
+        attributes.setOffset(1.5f);
+        assertNull(attributes.getOffsetMillis());
+        assertEquals("1.5", MPFFfmpegCommand.forAudio(source, attributes).outputToPipe().build().get(6));
+    }
+
+    @Test
+    public void testRequiresOutput() {
+        try {
+            MPFFfmpegCommand.forInput(new File("in.mp4")).build();
+            fail("Expected an IllegalStateException.");
+        }
+        catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("no output"));
+        }
+    }
+}
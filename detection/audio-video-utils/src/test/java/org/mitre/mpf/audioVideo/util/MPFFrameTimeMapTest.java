@@ -0,0 +1,112 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.List;
+
+public class MPFFrameTimeMapTest extends TestCase {
+
+    @Test
+    public void testConstantRateDoesNotDrift() {
+        MPFFrameTimeMap map = MPFFrameTimeMap.forConstantRate(new MPFRational(30000, 1001));
+        assertTrue(map.isConstantRate());
+
+        // About ten hours in, where single-precision arithmetic drifts by milliseconds.
+        long frame = 1_080_000;
+        assertEquals(36_036_000, map.getTimeMs(frame));
+        assertEquals(frame, map.getFrameAtOrBefore(36_036_000));
+        assertEquals(frame, map.getFrameAtOrAfter(36_036_000));
+        assertEquals(frame - 1, map.getFrameAtOrBefore(36_035_999));
+        assertEquals(frame + 1, map.getFrameAtOrAfter(36_036_001));
+
+        for (long f = 0; f < 100_000; f += 7) {
+            long time = map.getTimeMs(f);
+            assertEquals(f, map.getFrameAtOrBefore(time));
+            assertEquals(f, map.getFrameAtOrAfter(time));
+        }
+    }
+
+    @Test
+    public void testVariableRateUsesTimestamps() {
+        // 90 kHz time base: frames at 0, 33.3, 66.7 ms, then a stall until 500 ms, then 50 ms per frame.  The packets
+        // arrive in decode order, with the first frame's timestamp offset from zero.
+        long[] pts = { 1000, 10000, 4000, 7000, 46000, 50500 };
+        MPFFrameTimeMap map = MPFFrameTimeMap.fromTimestamps(pts, new MPFRational(1, 90000));
+        assertFalse(map.isConstantRate());
+        assertNull(map.getFrameRate());
+
+        assertEquals(0, map.getTimeMs(0));
+        assertEquals(33, map.getTimeMs(1));
+        assertEquals(100, map.getTimeMs(3));
+        assertEquals(500, map.getTimeMs(4));
+        assertEquals(550, map.getTimeMs(5));
+
+        // Frame 3 is on screen until frame 4 replaces it at 500 ms.
+        assertEquals(3, map.getFrameAtOrBefore(499));
+        assertEquals(4, map.getFrameAtOrBefore(500));
+        assertEquals(4, map.getFrameAtOrAfter(101));
+        assertEquals(6, map.getFrameAtOrAfter(10_000));
+    }
+
+    @Test
+    public void testEvenlySpacedTimestampsBecomeConstantRate() {
+        long[] pts = new long[100];
+        for (int i = 0; i < pts.length; i++) {
+            pts[i] = 512 + i * 1001L;
+        }
+        MPFFrameTimeMap map = MPFFrameTimeMap.fromTimestamps(pts, new MPFRational(1, 30000));
+        assertTrue(map.isConstantRate());
+        assertEquals(new MPFRational(30000, 1001), map.getFrameRate());
+
+        assertEquals(3, MPFFrameTimeMap.parseTimestamps(List.of("3003", "N/A", "0,", "1001")).length);
+    }
+
+    @Test
+    public void testRoundedTimestampsBecomeConstantRate() {
+        // 29.97 fps with a millisecond time base: the intervals alternate between 33 and 34 ms.
+        long[] pts = new long[1000];
+        for (int i = 0; i < pts.length; i++) {
+            pts[i] = Math.round(i * 1001 / 30.0);
+        }
+        MPFFrameTimeMap map = MPFFrameTimeMap.fromTimestamps(pts, new MPFRational(1, 1000));
+        assertTrue(map.isConstantRate());
+        assertEquals(new MPFRational(30000, 1001), map.getFrameRate());
+
+        // Intervals that also differ by only one unit, but switch from 40 to 41 ms halfway through, drift away from
+        // any constant rate.
+        long[] drifting = new long[100];
+        for (int i = 1; i < drifting.length; i++) {
+            drifting[i] = drifting[i - 1] + (i < 50 ? 40 : 41);
+        }
+        MPFFrameTimeMap variable = MPFFrameTimeMap.fromTimestamps(drifting, new MPFRational(1, 1000));
+        assertFalse(variable.isConstantRate());
+        assertEquals(drifting[99], variable.getTimeMs(99));
+    }
+}
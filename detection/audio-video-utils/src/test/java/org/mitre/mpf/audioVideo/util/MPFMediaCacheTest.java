@@ -0,0 +1,206 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class MPFMediaCacheTest extends TestCase {
+
+    @Test
+    public void testConcurrentRequestsLoadOnce() throws Exception {
+        Path root = Files.createTempDirectory("mpf-media-cache-test");
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            File media = createFile(root, "media.mp4");
+            AtomicInteger loadCount = new AtomicInteger();
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            MPFMediaCache<String> cache = new MPFMediaCache<>(file -> {
+                loadCount.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return file.getName();
+            }, 10);
+
+            Future<String> first = executor.submit(() -> cache.get(media));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            // The loader is blocked, so these requests find the pending entry and wait for it.
+            Future<String> second = executor.submit(() -> cache.get(media));
+            Future<String> third = executor.submit(() -> cache.get(media));
+            while (cache.getStatistics().getHitCount() < 2) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertEquals("media.mp4", first.get(10, TimeUnit.SECONDS));
+            assertEquals("media.mp4", second.get(10, TimeUnit.SECONDS));
+            assertEquals("media.mp4", third.get(10, TimeUnit.SECONDS));
+            assertEquals(1, loadCount.get());
+            assertEquals(1, cache.getStatistics().getMissCount());
+        }
+        finally {
+            executor.shutdownNow();
+            delete(root);
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        Path root = Files.createTempDirectory("mpf-media-cache-test");
+        try {
+            File a = createFile(root, "a.mp4");
+            File b = createFile(root, "b.mp4");
+            File c = createFile(root, "c.mp4");
+            AtomicInteger loadCount = new AtomicInteger();
+            MPFMediaCache<String> cache = new MPFMediaCache<>(file -> {
+                loadCount.incrementAndGet();
+                return file.getName();
+            }, 2);
+
+            cache.get(a);
+            cache.get(b);
+            // Using "a" again makes "b" the least recently used entry, so it is the one evicted for "c".
+            cache.get(a);
+            cache.get(c);
+            assertEquals(3, loadCount.get());
+            assertEquals(1, cache.getStatistics().getEvictionCount());
+            assertEquals(2, cache.getStatistics().getSize());
+
+            cache.get(a);
+            assertEquals(3, loadCount.get());
+            cache.get(b);
+            assertEquals(4, loadCount.get());
+        }
+        finally {
+            delete(root);
+        }
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() throws IOException {
+        Path root = Files.createTempDirectory("mpf-media-cache-test");
+        try {
+            File media = createFile(root, "media.mp4");
+            AtomicInteger loadCount = new AtomicInteger();
+            MPFMediaCache<String> cache = new MPFMediaCache<>(file -> {
+                int attempt = loadCount.incrementAndGet();
+                if (attempt == 1) {
+                    throw new IOException("probe failed");
+                }
+                if (attempt == 2) {
+                    throw new StackOverflowError("probe crashed");
+                }
+                return file.getName();
+            }, 10);
+
+            try {
+                cache.get(media);
+                fail("Expected the loader's exception.");
+            }
+            catch (IOException e) {
+                assertEquals("probe failed", e.getMessage());
+            }
+            try {
+                cache.get(media);
+                fail("Expected the loader's error.");
+            }
+            catch (StackOverflowError e) {
+                assertEquals("probe crashed", e.getMessage());
+            }
+            assertEquals(0, cache.getStatistics().getSize());
+            assertEquals(2, cache.getStatistics().getLoadFailureCount());
+
+            assertEquals("media.mp4", cache.get(media));
+            assertEquals("media.mp4", cache.get(media));
+            assertEquals(3, loadCount.get());
+        }
+        finally {
+            delete(root);
+        }
+    }
+
+    @Test
+    public void testChangedFileIsLoadedAgain() throws IOException {
+        Path root = Files.createTempDirectory("mpf-media-cache-test");
+        try {
+            File media = createFile(root, "media.mp4");
+            AtomicInteger loadCount = new AtomicInteger();
+            MPFMediaCache<Integer> cache = new MPFMediaCache<>(file -> loadCount.incrementAndGet(), 10);
+
+            assertEquals(1, cache.get(media).intValue());
+            assertEquals(1, cache.get(media).intValue());
+
+            // The size is unchanged, so only the modification time distinguishes the new version.
+            FileTime modified = Files.getLastModifiedTime(media.toPath());
+            Files.setLastModifiedTime(media.toPath(), FileTime.fromMillis(modified.toMillis() + 5000));
+            assertEquals(2, cache.get(media).intValue());
+            assertEquals(2, cache.get(media).intValue());
+        }
+        finally {
+            delete(root);
+        }
+    }
+
+    private static File createFile(Path root, String name) throws IOException {
+        Path path = root.resolve(name);
+        Files.write(path, new byte[] { 1, 2, 3 });
+        return path.toFile();
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IOException("Timed out waiting for the test to release the loader.");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
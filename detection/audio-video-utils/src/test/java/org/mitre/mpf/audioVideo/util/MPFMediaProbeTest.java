@@ -0,0 +1,119 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MPFMediaProbeTest extends TestCase {
+
+    @Test
+    public void testParseVideoWithAudio() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            lines.addAll(Arrays.asList("[PACKET]", "stream_index=0", i % 5 == 0 ? "flags=K_" : "flags=__", "[/PACKET]"));
+            lines.addAll(Arrays.asList("[PACKET]", "stream_index=1", "flags=K_", "[/PACKET]"));
+        }
+        lines.addAll(Arrays.asList(
+                "[STREAM]",
+                "index=0",
+                "codec_name=h264",
+                "codec_type=video",
+                "r_frame_rate=60000/1001",
+                "avg_frame_rate=30000/1001",
+                "time_base=1/30000",
+                "duration=10.010000",
+                "nb_frames=300",
+                "DISPOSITION:default=1",
+                "[/STREAM]",
+                "[STREAM]",
+                "index=1",
+                "codec_name=aac",
+                "codec_type=audio",
+                "sample_rate=48000",
+                "channels=2",
+                "r_frame_rate=0/0",
+                "avg_frame_rate=0/0",
+                "time_base=1/48000",
+                "duration=10.005333",
+                "nb_frames=N/A",
+                "[/STREAM]",
+                "[FORMAT]",
+                "filename=test.mp4",
+                "duration=10.010000",
+                "[/FORMAT]"));
+
+        MPFMediaInfo info = MPFMediaProbe.parse(new File("test.mp4"), lines);
+
+        assertEquals(Long.valueOf(10010), info.getDurationMs());
+        assertEquals(2, info.getStreams().size());
+
+        MPFStreamInfo video = info.getVideoStream();
+        assertEquals("h264", video.getCodecName());
+        assertEquals(new MPFRational(30000, 1001), video.getFrameRate());
+        assertEquals(new MPFRational(60000, 1001), video.getRealFrameRate());
+        assertEquals(new MPFRational(1, 30000), video.getTimeBase());
+        assertEquals(Long.valueOf(300), video.getFrameCount());
+        assertEquals(5.0, video.getKeyframeInterval(), 1e-9);
+        assertNull(video.getSampleRate());
+
+        MPFStreamInfo audio = info.getAudioStream();
+        assertEquals(1, audio.getIndex());
+        assertEquals(Integer.valueOf(48000), audio.getSampleRate());
+        assertEquals(Integer.valueOf(2), audio.getChannels());
+        assertEquals(Long.valueOf(10005), audio.getDurationMs());
+        assertNull(audio.getFrameRate());
+        assertNull(audio.getFrameCount());
+        assertEquals(1.0, audio.getKeyframeInterval(), 1e-9);
+    }
+
+    @Test
+    public void testParseMissingValues() {
+        MPFMediaInfo info = MPFMediaProbe.parse(new File("test.wav"), Arrays.asList(
+                "[STREAM]", "index=0", "codec_type=audio", "duration=N/A", "[/STREAM]",
+                "[FORMAT]", "duration=N/A", "[/FORMAT]"));
+
+        assertNull(info.getDurationMs());
+        assertNull(info.getVideoStream());
+        assertNull(info.getAudioStream().getDurationMs());
+        assertNull(info.getAudioStream().getKeyframeInterval());
+    }
+
+    @Test
+    public void testParseRational() {
+        assertEquals(new MPFRational(2997, 100), MPFRational.parse("29.97"));
+        assertEquals(new MPFRational(25, 1), MPFRational.parse("25"));
+        assertEquals(new MPFRational(30000, 1001), MPFRational.parse("30000/1001"));
+        assertNull(MPFRational.parse("0/0"));
+        assertNull(MPFRational.parse("N/A"));
+    }
+}
@@ -0,0 +1,144 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+
+public class MPFPcmAudioTest extends TestCase {
+
+    @Test
+    public void testWindowsOf16BitAudio() throws IOException {
+        short[] samples = new short[16000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) i;
+        }
+        File file = writeWav(samples, 16000);
+        try {
+            MPFPcmAudio audio = MPFPcmAudio.open(file);
+            assertEquals(MPFPcmAudio.Encoding.PCM_16, audio.getEncoding());
+            assertEquals(16000, audio.getSampleRate());
+            assertEquals(1, audio.getChannels());
+            assertEquals(16000, audio.getFrameCount());
+            assertEquals(1000, audio.getDurationMs());
+
+            ShortBuffer window = audio.getShortWindow(250, 500);
+            assertEquals(4000, window.remaining());
+            assertEquals(4000, window.get(0));
+            assertEquals(7999, window.get(3999));
+
+            // Windows are independent views, so reading one does not move another.
+            ShortBuffer other = audio.getShortWindow(250, 500);
+            window.get();
+            assertEquals(0, other.position());
+
+            // Windows are clamped to the audio.
+            assertEquals(1600, audio.getShortWindow(900, 5000).remaining());
+            assertEquals(0, audio.getShortWindow(500, 100).remaining());
+
+            float[] floats = new float[10];
+            assertEquals(10, audio.copyWindow(0, 1000, floats));
+            assertEquals(1 / 32768f, floats[1], 1e-9);
+        }
+        finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    @Test
+    public void testFilesLargerThanOneMappingAreMappedInRegions() throws IOException {
+        short[] samples = new short[16000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) i;
+        }
+        File file = writeWav(samples, 16000);
+        try {
+            // With mappings of at most 1000 bytes, the regions start every 250 frames and are 500 frames long.
+            MPFPcmAudio audio = MPFPcmAudio.open(file, 1000);
+            assertEquals(16000, audio.getFrameCount());
+            assertEquals(500, audio.getMaxWindowBytes());
+
+            // Windows that cross the start of a region are read from the region before it.
+            ShortBuffer window = audio.getShortWindow(15, 30);
+            assertEquals(240, window.remaining());
+            assertEquals(240, window.get(0));
+            assertEquals(479, window.get(239));
+            assertEquals(160, audio.getShortWindow(990, 1000).remaining());
+            assertEquals(15999, audio.getShortWindow(990, 1000).get(159));
+            assertEquals(0, audio.getShortWindow(1000, 1000).remaining());
+
+            float[] floats = new float[250];
+            assertEquals(250, audio.copyWindow(500, 1000, floats));
+            assertEquals(8000 / 32768f, floats[0], 1e-9);
+
+            try {
+                audio.getShortWindow(0, 100);
+                fail("Expected a window longer than a region to be rejected.");
+            }
+            catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("500"));
+            }
+        }
+        finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    @Test
+    public void testRejectsNonWavFile() throws IOException {
+        File file = File.createTempFile("mpf-pcm-audio-test", ".wav");
+        try {
+            Files.write(file.toPath(), "not a wav file at all".getBytes());
+            MPFPcmAudio.open(file);
+            fail("Expected an IOException for a file without a RIFF header.");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().contains("RIFF"));
+        }
+        finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    private static File writeWav(short[] samples, int sampleRate) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(44 + samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MPFPcmAudio.createPcm16Header(sampleRate, 1, samples.length * 2));
+        for (short sample : samples) {
+            buffer.putShort(sample);
+        }
+        File file = File.createTempFile("mpf-pcm-audio-test", ".wav");
+        Files.write(file.toPath(), buffer.array());
+        return file;
+    }
+}
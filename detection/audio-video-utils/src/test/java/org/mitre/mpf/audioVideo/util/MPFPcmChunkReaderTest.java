@@ -0,0 +1,129 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MPFPcmChunkReaderTest extends TestCase {
+
+    @Test
+    public void testJoinsPartialReadsIntoWholeChunks() throws IOException {
+        // 23 samples in chunks of 5, delivered a few bytes at a time so that reads split samples in half.
+        byte[] pcm = createPcm(23);
+        List<Integer> chunkSizes = new ArrayList<>();
+        List<Short> samples = new ArrayList<>();
+        long total = MPFPcmChunkReader.read(new TrickleInputStream(pcm, 3), 5, chunk -> {
+            chunkSizes.add(chunk.remaining());
+            while (chunk.hasRemaining()) {
+                samples.add(chunk.get());
+            }
+        });
+
+        assertEquals(23, total);
+        assertEquals(List.of(5, 5, 5, 5, 3), chunkSizes);
+        for (int i = 0; i < 23; i++) {
+            assertEquals(i * 100 - 1000, samples.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void testDropsTrailingOddByte() throws IOException {
+        byte[] pcm = createPcm(6);
+        byte[] odd = new byte[pcm.length + 1];
+        System.arraycopy(pcm, 0, odd, 0, pcm.length);
+        odd[pcm.length] = 0x7F;
+
+        List<Integer> chunkSizes = new ArrayList<>();
+        long total = MPFPcmChunkReader.read(new TrickleInputStream(odd, 1), 4,
+                                            chunk -> chunkSizes.add(chunk.remaining()));
+        assertEquals(6, total);
+        assertEquals(List.of(4, 2), chunkSizes);
+
+        // A stream holding a single byte has no samples at all.
+        assertEquals(0, MPFPcmChunkReader.read(new ByteArrayInputStream(new byte[1]), 4,
+                                               chunk -> fail("Expected no chunks.")));
+    }
+
+    @Test
+    public void testConsumerExceptionStopsReading() throws IOException {
+        TrickleInputStream stream = new TrickleInputStream(createPcm(100), 64);
+        try {
+            MPFPcmChunkReader.read(stream, 10, chunk -> {
+                throw new IOException("consumer failed");
+            });
+            fail("Expected the consumer's exception.");
+        }
+        catch (IOException e) {
+            assertEquals("consumer failed", e.getMessage());
+        }
+        // Only the first chunk was read.
+        assertEquals(200 - 20, stream.available());
+    }
+
+    @Test
+    public void testRejectsEmptyChunks() throws IOException {
+        try {
+            MPFPcmChunkReader.read(new ByteArrayInputStream(new byte[0]), 0, chunk -> { });
+            fail("Expected an IllegalArgumentException.");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("chunkSamples"));
+        }
+    }
+
+    private static byte[] createPcm(int sampleCount) {
+        ByteBuffer buffer = ByteBuffer.allocate(sampleCount * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < sampleCount; i++) {
+            buffer.putShort((short) (i * 100 - 1000));
+        }
+        return buffer.array();
+    }
+
+    // Returns at most a few bytes from each read, like a pipe that is only partly filled.
+    private static class TrickleInputStream extends FilterInputStream {
+        private final int maxRead;
+
+        private TrickleInputStream(byte[] bytes, int maxRead) {
+            super(new ByteArrayInputStream(bytes));
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(length, maxRead));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MPFPcmDecodeCoalescerTest extends TestCase {
+
+    @Test
+    public void testConcurrentRequestsShareOneDecode() throws Exception {
+        File file = File.createTempFile("mpf-coalescer-test", ".mp4");
+        List<String> decodedRanges = new ArrayList<>();
+        CountDownLatch decodeStarted = new CountDownLatch(1);
+        CountDownLatch releaseDecode = new CountDownLatch(1);
+        CountDownLatch closeWindow = new CountDownLatch(1);
+        AtomicInteger windowCount = new AtomicInteger();
+        // At one sample per millisecond, each sample holds its own timestamp.
+        MPFPcmDecodeCoalescer coalescer = new MPFPcmDecodeCoalescer((source, startTime, stopTime) -> {
+            synchronized (decodedRanges) {
+                decodedRanges.add(startTime + "-" + stopTime);
+            }
+            if (startTime == 0) {
+                decodeStarted.countDown();
+                await(releaseDecode);
+            }
+            ShortBuffer samples = ShortBuffer.allocate(stopTime - startTime);
+            for (int i = 0; i < samples.capacity(); i++) {
+                samples.put(i, (short) (startTime + i));
+            }
+            return samples;
+        }, 1000, 50, millis -> {
+            windowCount.incrementAndGet();
+            assertTrue(closeWindow.await(10, TimeUnit.SECONDS));
+        });
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            // The first request waits for the window, and the overlapping requests that arrive during it join it.
+            Future<ShortBuffer> a = executor.submit(() -> coalescer.decode(file, 0, 100));
+            awaitRequestCount(coalescer, 1);
+            Future<ShortBuffer> b = executor.submit(() -> coalescer.decode(file, 50, 200));
+            awaitRequestCount(coalescer, 2);
+            Future<ShortBuffer> c = executor.submit(() -> coalescer.decode(file, 150, 300));
+            awaitRequestCount(coalescer, 3);
+            closeWindow.countDown();
+            assertTrue(decodeStarted.await(10, TimeUnit.SECONDS));
+
+            // A request inside the range being decoded shares it without waiting for another window.
+            Future<ShortBuffer> d = executor.submit(() -> coalescer.decode(file, 120, 250));
+            awaitRequestCount(coalescer, 4);
+            releaseDecode.countDown();
+
+            assertSamples(a.get(10, TimeUnit.SECONDS), 0, 100);
+            assertSamples(b.get(10, TimeUnit.SECONDS), 50, 200);
+            assertSamples(c.get(10, TimeUnit.SECONDS), 150, 300);
+            assertSamples(d.get(10, TimeUnit.SECONDS), 120, 250);
+            assertTrue(b.get().isReadOnly());
+
+            assertEquals(1, windowCount.get());
+            assertEquals(1, coalescer.getDecodeCount());
+            assertEquals(List.of("0-300"), decodedRanges);
+
+            // Once the decode is done, a new request starts a new batch.
+            assertSamples(coalescer.decode(file, 120, 250), 120, 250);
+            assertEquals(2, windowCount.get());
+            assertEquals(List.of("0-300", "120-250"), decodedRanges);
+        }
+        finally {
+            executor.shutdownNow();
+            Files.delete(file.toPath());
+        }
+    }
+
+    @Test
+    public void testNoWindowDecodesImmediately() throws Exception {
+        File file = File.createTempFile("mpf-coalescer-test", ".mp4");
+        MPFPcmDecodeCoalescer coalescer = new MPFPcmDecodeCoalescer(
+                (source, startTime, stopTime) -> ShortBuffer.allocate(stopTime - startTime), 1000, 0,
+                millis -> fail("The window should not be used."));
+        try {
+            assertEquals(100, coalescer.decode(file, 0, 100).remaining());
+            assertEquals(1, coalescer.getDecodeCount());
+        }
+        finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    @Test
+    public void testDecodeFailureReachesEveryRequester() throws Exception {
+        File file = File.createTempFile("mpf-coalescer-test", ".mp4");
+        CountDownLatch holdFile = new CountDownLatch(1);
+        CountDownLatch closeWindow = new CountDownLatch(1);
+        // The request at the start of the file does not overlap the others, so it is decoded separately.
+        MPFPcmDecodeCoalescer coalescer = new MPFPcmDecodeCoalescer((source, startTime, stopTime) -> {
+            if (startTime == 0) {
+                await(holdFile);
+                return ShortBuffer.allocate(stopTime - startTime);
+            }
+            // Errors, not just exceptions, must reach every requester in the batch.
+            throw new OutOfMemoryError("ffmpeg output too large");
+        }, 1000, 50, millis -> assertTrue(closeWindow.await(10, TimeUnit.SECONDS)));
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Future<ShortBuffer> holder = executor.submit(() -> coalescer.decode(file, 0, 100));
+            awaitRequestCount(coalescer, 1);
+            Future<ShortBuffer> leader = executor.submit(() -> coalescer.decode(file, 150, 200));
+            awaitRequestCount(coalescer, 2);
+            Future<ShortBuffer> joiner = executor.submit(() -> coalescer.decode(file, 180, 300));
+            awaitRequestCount(coalescer, 3);
+            closeWindow.countDown();
+
+            for (Future<ShortBuffer> result : List.of(leader, joiner)) {
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                    fail("Expected the decode to fail.");
+                }
+                catch (ExecutionException e) {
+                    assertEquals("ffmpeg output too large", e.getCause().getMessage());
+                }
+            }
+
+            holdFile.countDown();
+            assertEquals(100, holder.get(10, TimeUnit.SECONDS).remaining());
+            assertEquals(2, coalescer.getDecodeCount());
+        }
+        finally {
+            holdFile.countDown();
+            executor.shutdownNow();
+            Files.delete(file.toPath());
+        }
+    }
+
+    private static void awaitRequestCount(MPFPcmDecodeCoalescer coalescer, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (coalescer.getRequestCount() < count) {
+            assertTrue("Timed out waiting for the requests to arrive.", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IOException("Timed out waiting for the test to release the decoder.");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static void assertSamples(ShortBuffer samples, int startTime, int stopTime) {
+        assertEquals(stopTime - startTime, samples.remaining());
+        for (int i = 0; i < samples.remaining(); i++) {
+            assertEquals(startTime + i, samples.get(i));
+        }
+    }
+}
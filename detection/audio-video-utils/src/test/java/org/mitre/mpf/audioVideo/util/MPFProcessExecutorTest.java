@@ -0,0 +1,115 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class MPFProcessExecutorTest extends TestCase {
+
+    @Test
+    public void testCapturesOutputAndExitCode() throws IOException {
+        MPFProcessResult result = new MPFProcessExecutor().executeAndWait(
+                Arrays.asList("/bin/sh", "-c", "echo out; echo err >&2; exit 3"), 0);
+        assertEquals(3, result.getExitCode());
+        assertFalse(result.isSuccess());
+        assertEquals("out", result.getStdout().trim());
+        assertEquals("err", result.getStderr().trim());
+    }
+
+    @Test
+    public void testTimeoutDestroysProcessTree() throws Exception {
+        File pidFile = File.createTempFile("mpf-process-executor-test", ".pid");
+        try {
+            long start = System.nanoTime();
+            try {
+                new MPFProcessExecutor().executeAndWait(startChildCommand(pidFile), 500);
+                fail("Expected a timeout.");
+            }
+            catch (MPFProcessTimeoutException e) {
+                assertEquals(500, e.getTimeoutMillis());
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 30);
+            assertNotAlive(pidFile);
+        }
+        finally {
+            Files.delete(pidFile.toPath());
+        }
+    }
+
+    @Test
+    public void testCancellationDestroysProcessTree() throws Exception {
+        File pidFile = File.createTempFile("mpf-process-executor-test", ".pid");
+        try {
+            CompletableFuture<MPFProcessResult> result = new MPFProcessExecutor().execute(
+                    startChildCommand(pidFile), 0);
+            while (pidFile.length() == 0) {
+                Thread.sleep(20);
+            }
+            assertTrue(result.cancel(true));
+            assertNotAlive(pidFile);
+        }
+        finally {
+            Files.delete(pidFile.toPath());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedExecutorDrainsOutputWhileRunning() throws IOException {
+        // The output is far larger than a pipe buffer, so the process could never exit if nothing read it.
+        Process process = new MPF_FFMPEGExecutor().executeCustomCommand(new String[] {
+                "/bin/sh", "-c", "yes | head -c 1000000; yes | head -c 1000000 >&2; exit 3" }, 30_000);
+        assertEquals(3, process.exitValue());
+        assertEquals(1_000_000, process.getInputStream().readAllBytes().length);
+        assertEquals(1_000_000, process.getErrorStream().readAllBytes().length);
+    }
+
+    // The shell waits on a child, so destroying only the shell would leave the child running.
+    private static List<String> startChildCommand(File pidFile) {
+        return Arrays.asList("/bin/sh", "-c", "sleep 60 & echo $! > " + pidFile.getAbsolutePath() + "; wait");
+    }
+
+    private static void assertNotAlive(File pidFile) throws Exception {
+        long pid = Long.parseLong(new String(Files.readAllBytes(pidFile.toPath())).trim());
+        for (int i = 0; i < 50; i++) {
+            if (!ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false)) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        fail("The child process is still running.");
+    }
+}
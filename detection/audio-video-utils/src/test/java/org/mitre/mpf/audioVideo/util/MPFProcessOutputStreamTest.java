@@ -0,0 +1,99 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class MPFProcessOutputStreamTest extends TestCase {
+
+    @Test
+    public void testReadsOutputAndChecksExitStatusAtEnd() throws IOException {
+        try (MPFProcessOutputStream stream = new MPFProcessExecutor().executeStreaming(
+                shell("printf abc"), 0)) {
+            assertEquals("abc", new String(stream.readAllBytes()));
+        }
+
+        try (MPFProcessOutputStream stream = new MPFProcessExecutor().executeStreaming(
+                shell("printf abc; echo broken >&2; exit 3"), 0)) {
+            stream.readAllBytes();
+            fail("Expected the exit status to be checked.");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().contains("exited with status 3"));
+            assertTrue(e.getMessage().contains("broken"));
+        }
+    }
+
+    @Test
+    public void testCloseChecksExitStatusOfFinishedProcess() throws Exception {
+        MPFProcessOutputStream stream = new MPFProcessExecutor().executeStreaming(
+                shell("printf abc; exit 3"), 0);
+        // The caller read everything it expected, so it never reached the end of the stream.
+        assertEquals('a', stream.read());
+        stream.onExit().get(10, TimeUnit.SECONDS);
+        try {
+            stream.close();
+            fail("Expected the exit status to be checked.");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().contains("exited with status 3"));
+        }
+        // Closing again does nothing.
+        stream.close();
+    }
+
+    @Test
+    public void testConsumerExceptionDestroysProcess() throws Exception {
+        MPFProcessOutputStream stream = new MPFProcessExecutor().executeStreaming(
+                shell("head -c 100000 /dev/zero; sleep 60"), 0);
+        long start = System.nanoTime();
+        try (stream) {
+            MPFPcmChunkReader.read(stream, 1000, chunk -> {
+                throw new IOException("consumer failed");
+            });
+            fail("Expected the consumer's exception.");
+        }
+        catch (IOException e) {
+            assertEquals("consumer failed", e.getMessage());
+            // A process that is still running is destroyed, not treated as a failure.
+            assertEquals(0, e.getSuppressed().length);
+        }
+        Process process = stream.onExit().get(10, TimeUnit.SECONDS);
+        assertFalse(process.isAlive());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+    }
+
+    private static List<String> shell(String script) {
+        return Arrays.asList("/bin/sh", "-c", script);
+    }
+}
@@ -0,0 +1,151 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class MPFProcessSchedulerTest extends TestCase {
+
+    @Test
+    public void testRejectsWhenQueueIsFull() throws Exception {
+        MPFProcessScheduler scheduler = new MPFProcessScheduler(1, 1, 4);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MPFProcessScheduler.Permit running = scheduler.acquire();
+            Future<MPFProcessScheduler.Permit> waiting = executor.submit(scheduler::acquire);
+            awaitQueueDepth(scheduler, 1);
+
+            try {
+                scheduler.acquire();
+                fail("Expected the request to be rejected.");
+            }
+            catch (IOException e) {
+                assertTrue(e.getMessage().contains("1 requests are already queued"));
+            }
+            assertEquals(1, scheduler.getStatistics().getRejectedCount());
+
+            // Releasing the slot admits the queued request.
+            running.close();
+            waiting.get(10, TimeUnit.SECONDS).close();
+            assertEquals(2, scheduler.getStatistics().getAdmittedCount());
+            assertEquals(0, scheduler.getStatistics().getRunningProcesses());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDividesCoresAmongExpectedProcesses() throws IOException {
+        MPFProcessScheduler scheduler = new MPFProcessScheduler(3, 10, 12);
+        try (MPFProcessScheduler.Permit first = scheduler.acquire();
+             MPFProcessScheduler.Permit second = scheduler.acquire();
+             MPFProcessScheduler.Permit third = scheduler.acquire()) {
+            assertEquals(12, first.getThreadBudget());
+            assertEquals(6, second.getThreadBudget());
+            assertEquals(4, third.getThreadBudget());
+        }
+
+        // Queued processes count toward the share, up to the process limit.
+        assertEquals(6, scheduler.getThreadBudget(1, 1));
+        assertEquals(4, scheduler.getThreadBudget(1, 5));
+        assertEquals(4, scheduler.getThreadBudget(3, 0));
+        // Every process gets at least one thread.
+        assertEquals(1, new MPFProcessScheduler(16, 10, 4).getThreadBudget(8, 0));
+    }
+
+    @Test
+    public void testReleasesSlotWhenProcessFails() throws Exception {
+        // With no queue, any request made while the only slot is held is rejected.
+        MPFProcessScheduler scheduler = new MPFProcessScheduler(1, 0, 4);
+
+        MPFProcessResult result = scheduler.execute(threads -> Arrays.asList("/bin/sh", "-c", "exit 3"))
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(3, result.getExitCode());
+        assertSlotReleased(scheduler);
+
+        CompletableFuture<MPFProcessResult> missing =
+                scheduler.execute(threads -> Arrays.asList("/nonexistent/mpf-test-program"));
+        try {
+            missing.get(10, TimeUnit.SECONDS);
+            fail("Expected the program to be missing.");
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertSlotReleased(scheduler);
+
+        try {
+            scheduler.execute(threads -> {
+                throw new IllegalStateException("bad command");
+            });
+            fail("Expected the command factory's exception.");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("bad command", e.getMessage());
+        }
+        assertSlotReleased(scheduler);
+    }
+
+    @Test
+    public void testReleasesSlotWhenProcessTimesOut() throws Exception {
+        MPFProcessScheduler scheduler = new MPFProcessScheduler(1, 0, 4);
+        CompletableFuture<MPFProcessResult> result =
+                scheduler.execute(threads -> Arrays.asList("/bin/sh", "-c", "sleep 60"), 200);
+        try {
+            result.get(10, TimeUnit.SECONDS);
+            fail("Expected a timeout.");
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MPFProcessTimeoutException);
+        }
+        assertSlotReleased(scheduler);
+    }
+
+    private static void assertSlotReleased(MPFProcessScheduler scheduler) throws IOException {
+        assertEquals(0, scheduler.getStatistics().getRunningProcesses());
+        scheduler.acquire().close();
+    }
+
+    private static void awaitQueueDepth(MPFProcessScheduler scheduler, int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (scheduler.getStatistics().getQueueDepth() < depth) {
+            assertTrue("Timed out waiting for the request to queue.", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.audioVideo.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.mitre.mpf.audioVideo.dsp.MPFBiquadFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+public class MPFWavDecodeBackendTest extends TestCase {
+
+    @Test
+    public void testCopiesUnfilteredRangeWithoutFfmpeg() throws IOException {
+        File source = writeWav(16000, i -> i);
+        File target = File.createTempFile("mpf-wav-backend-test", ".wav");
+        try {
+            // ffmpeg is not needed, so this only passes if the WAV backend was discovered and chosen.
+            new MPFEncoder().transcodeWithFiltering(source, target, createAttributes(16000, 0.25f, 0.5f, false));
+
+            MPFPcmAudio audio = MPFPcmAudio.open(target);
+            assertEquals(16000, audio.getSampleRate());
+            assertEquals(8000, audio.getFrameCount());
+            ShortBuffer samples = audio.getShortWindow(0, 1000);
+            assertEquals(4000, samples.get(0));
+            assertEquals(11999, samples.get(7999));
+        }
+        finally {
+            Files.delete(source.toPath());
+            Files.delete(target.toPath());
+        }
+    }
+
+    @Test
+    public void testFiltersLikeBiquadChain() throws IOException {
+        File source = writeWav(16000, MPFWavDecodeBackendTest::sample);
+        try {
+            MPFEncodingAttributes attributes = createAttributes(16000, 0.5f, 0.1f, true);
+            byte[] pcm;
+            try (InputStream stream = new MPFEncoder().openPcmStream(source, attributes)) {
+                pcm = stream.readAllBytes();
+            }
+            assertEquals(1600 * 2, pcm.length);
+
+            // The filters are warmed up on the 100 ms before the offset.
+            MPFBiquadFilter highpass = MPFBiquadFilter.highpass(16000, 200);
+            MPFBiquadFilter lowpass = MPFBiquadFilter.lowpass(16000, 3000);
+            ShortBuffer actual = ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+            for (int i = 6400; i < 9600; i++) {
+                double expected = lowpass.process(highpass.process(sample(i)));
+                if (i >= 8000) {
+                    assertEquals(Math.round(expected), actual.get(i - 8000));
+                }
+            }
+        }
+        finally {
+            Files.delete(source.toPath());
+        }
+    }
+
+    @Test
+    public void testTranscodeToPcmDeliversChunks() throws IOException {
+        File source = writeWav(16000, i -> i);
+        try {
+            MPFEncodingAttributes attributes = createAttributes(16000, 0.5f, 0.1f, false);
+            List<Integer> chunkSizes = new ArrayList<>();
+            List<Short> samples = new ArrayList<>();
+            // 1600 samples do not divide evenly into chunks of 7.
+            long total = new MPFEncoder().transcodeToPcm(source, attributes, 7, chunk -> {
+                chunkSizes.add(chunk.remaining());
+                while (chunk.hasRemaining()) {
+                    samples.add(chunk.get());
+                }
+            });
+            assertEquals(1600, total);
+            assertEquals(229, chunkSizes.size());
+            assertEquals(4, chunkSizes.get(228).intValue());
+            for (int i = 0; i < 1600; i++) {
+                assertEquals(8000 + i, samples.get(i).intValue());
+            }
+
+            try {
+                new MPFEncoder().transcodeToPcm(source, attributes, 7, chunk -> {
+                    throw new IOException("consumer failed");
+                });
+                fail("Expected the consumer's exception.");
+            }
+            catch (IOException e) {
+                assertEquals("consumer failed", e.getMessage());
+            }
+        }
+        finally {
+            Files.delete(source.toPath());
+        }
+    }
+
+    @Test
+    public void testDeclinesOtherSampleRates() throws IOException {
+        File source = writeWav(8000, i -> 0);
+        try {
+            ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(source.toPath()), 0, 44);
+            MPFWavDecodeBackend backend = new MPFWavDecodeBackend();
+            assertFalse(backend.supports(source, header, createAttributes(16000, 0f, 1f, true)));
+            assertTrue(backend.supports(source, header, createAttributes(8000, 0f, 1f, true)));
+            assertFalse(backend.supports(source, ByteBuffer.wrap("not a wav file".getBytes()),
+                                         createAttributes(8000, 0f, 1f, true)));
+        }
+        finally {
+            Files.delete(source.toPath());
+        }
+    }
+
+    private static int sample(int index) {
+        // A mix of a low hum and a mid-range tone, so both filters have something to do.
+        return (int) (8000 * Math.sin(index * 2 * Math.PI * 50 / 16000)
+                + 4000 * Math.sin(index * 2 * Math.PI * 1000 / 16000));
+    }
+
+    private static File writeWav(int sampleRate, IntUnaryOperator samples) throws IOException {
+        int frames = sampleRate;
+        ByteBuffer buffer = ByteBuffer.allocate(44 + frames * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MPFPcmAudio.createPcm16Header(sampleRate, 1, frames * 2));
+        for (int i = 0; i < frames; i++) {
+            buffer.putShort((short) samples.applyAsInt(i));
+        }
+        File file = File.createTempFile("mpf-wav-backend-test", ".wav");
+        Files.write(file.toPath(), buffer.array());
+        return file;
+    }
+
+    private static MPFEncodingAttributes createAttributes(int samplingRate, float offset, float duration,
+                                                          boolean filtered) {
+        MPFAudioAttributes audioAttributes = new MPFAudioAttributes();
+        audioAttributes.setChannels(1);
+        audioAttributes.setSamplingRate(samplingRate);
+        audioAttributes.setCodec("pcm_s16le");
+        if (filtered) {
+            audioAttributes.setHighpassCutoffFrequency(200);
+            audioAttributes.setLowpassCutoffFrequency(3000);
+        }
+        MPFEncodingAttributes attributes = new MPFEncodingAttributes();
+        attributes.setAudioAttributes(audioAttributes);
+        attributes.setFormat("wav");
+        attributes.setOffset(offset);
+        attributes.setDuration(duration);
+        return attributes;
+    }
+}
@@ -0,0 +1,125 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.benchmarks;
+
+import org.mitre.mpf.audioVideo.dsp.MPFAudioFilterChain;
+import org.mitre.mpf.audioVideo.dsp.MPFBiquadCascade;
+import org.mitre.mpf.audioVideo.dsp.MPFPolyphaseResampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the {@code org.mitre.mpf.audioVideo.dsp} classes in input sample frames per second.
+ * Every benchmark processes blocks of {@value #BLOCK_FRAMES} frames, and each frame counts as one operation, so the
+ * scores are frames per second.  Run with "-prof gc" to confirm that processing a block allocates nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MPFAudioFilterChainBenchmark {
+
+    private static final int BLOCK_FRAMES = 4096;
+
+    private short[] mono16k;
+    private short[] stereo48k;
+    private float[] floats;
+    private float[] scratch;
+    private short[] output;
+
+    // The ffmpeg defaults used by MPFAudioDetectionMediaHandler: a 200 Hz high-pass and a 3000 Hz low-pass.
+    private MPFAudioFilterChain filterOnly;
+    private MPFAudioFilterChain downmixFilterAndResample;
+    private MPFBiquadCascade biquads;
+    private MPFPolyphaseResampler resampler;
+
+    @Setup(Level.Trial)
+    public void createInput() {
+        Random random = new Random(42);
+        mono16k = new short[BLOCK_FRAMES];
+        stereo48k = new short[BLOCK_FRAMES * 2];
+        floats = new float[BLOCK_FRAMES];
+        for (int i = 0; i < BLOCK_FRAMES; i++) {
+            mono16k[i] = (short) (random.nextGaussian() * 4000);
+            stereo48k[2 * i] = mono16k[i];
+            stereo48k[2 * i + 1] = (short) (random.nextGaussian() * 4000);
+            floats[i] = mono16k[i] / 32768f;
+        }
+        scratch = new float[BLOCK_FRAMES];
+        output = new short[BLOCK_FRAMES];
+
+        filterOnly = new MPFAudioFilterChain(16000, 1, 16000, 200, 3000, 2);
+        downmixFilterAndResample = new MPFAudioFilterChain(48000, 2, 16000, 200, 3000, 2);
+        biquads = MPFBiquadCascade.butterworthHighpass(16000, 200, 2)
+                .then(MPFBiquadCascade.butterworthLowpass(16000, 3000, 2));
+        resampler = new MPFPolyphaseResampler(48000, 16000);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK_FRAMES)
+    public short filterChain16kMono() {
+        filterOnly.process(mono16k, 0, BLOCK_FRAMES, output, 0);
+        return output[BLOCK_FRAMES - 1];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK_FRAMES)
+    public short filterChain48kStereoTo16kMono() {
+        int count = downmixFilterAndResample.process(stereo48k, 0, BLOCK_FRAMES, output, 0);
+        return output[count - 1];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK_FRAMES)
+    public float biquadCascade() {
+        System.arraycopy(floats, 0, scratch, 0, BLOCK_FRAMES);
+        biquads.process(scratch, 0, BLOCK_FRAMES);
+        return scratch[BLOCK_FRAMES - 1];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK_FRAMES)
+    public float resampler48kTo16k() {
+        int count = resampler.process(floats, 0, BLOCK_FRAMES, scratch, 0);
+        return scratch[count - 1];
+    }
+}
@@ -0,0 +1,131 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.benchmarks;
+
+import org.mitre.mpf.audioVideo.util.MPFPcmAudio;
+import org.mitre.mpf.component.api.detection.adapters.MPFAudioDetectionMediaHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MPFAudioDetectionMediaHandler#ripAudio(File, File, int, int)} with
+ * {@link MPFAudioDetectionMediaHandler#ripAudioParallel(File, File, int, int, int)}.  A chunk count of 1 is the
+ * single-process path, since ripAudioParallel then calls ripAudio.
+ * <BR><BR>
+ * By default the input is a generated 16 kHz mono WAV file, which is decoded and filtered in the JVM by
+ * MPFWavDecodeBackend, so the benchmark runs without ffmpeg.  To measure ffmpeg, pass a media file with
+ * "-p source=/path/to/media"; its duration must be at least "durationMs".  The speedup depends on the number of cores,
+ * so report it together with the core count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MPFAudioRipBenchmark {
+
+    @Param({ "" })
+    public String source;
+
+    @Param({ "600000" })
+    public int durationMs;
+
+    @Param({ "1", "2", "4", "8" })
+    public int chunkCount;
+
+    private final MPFAudioDetectionMediaHandler handler = MPFAudioDetectionMediaHandler.getInstance();
+
+    private File input;
+    private File output;
+    private boolean generated;
+
+    @Setup(Level.Trial)
+    public void createInput() throws IOException {
+        generated = source.isEmpty();
+        input = generated ? createWav(durationMs) : new File(source);
+        output = File.createTempFile("mpf-rip-benchmark", ".wav");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(output.toPath());
+        if (generated) {
+            Files.deleteIfExists(input.toPath());
+        }
+    }
+
+    @Benchmark
+    public long ripAudio() throws IOException {
+        handler.ripAudioParallel(input, output, 0, durationMs, chunkCount);
+        return output.length();
+    }
+
+    // A 1 kHz tone in noise, so the filters have work to do.
+    private static File createWav(int durationMs) throws IOException {
+        File file = File.createTempFile("mpf-rip-benchmark-input", ".wav");
+        int sampleCount = durationMs * 16;
+        Random random = new Random(42);
+        ByteBuffer block = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.write(MPFPcmAudio.createPcm16Header(16000, 1, sampleCount * 2L));
+            for (int i = 0; i < sampleCount; i++) {
+                double sample = 0.3 * Math.sin(2 * Math.PI * 1000 * i / 16000) + 0.1 * random.nextGaussian();
+                block.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample * Short.MAX_VALUE)));
+                if (!block.hasRemaining()) {
+                    block.flip();
+                    channel.write(block);
+                    block.clear();
+                }
+            }
+            block.flip();
+            channel.write(block);
+        }
+        return file;
+    }
+}
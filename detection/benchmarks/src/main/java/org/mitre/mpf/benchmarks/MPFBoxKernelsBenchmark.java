@@ -0,0 +1,180 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.benchmarks;
+
+import org.mitre.mpf.component.api.detection.geometry.MPFBoxArray;
+import org.mitre.mpf.component.api.detection.geometry.MPFBoxGridIndex;
+import org.mitre.mpf.component.api.detection.geometry.MPFBoxKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the geometry kernels with the pairwise loops that components used before, at 1k, 10k and 100k boxes.  The
+ * frame grows with the number of boxes so that each box overlaps about the same number of neighbors at every size,
+ * as in a wide crowded scene.
+ * <BR><BR>
+ * The "scalar" IoU benchmark calls the single-pair method for every box, and the "bulk" benchmark runs the column
+ * loop.  The pairwise NMS and matching baselines are quadratic and take minutes per operation at 100k boxes, so run
+ * that size with "-p boxes=100000 -e Pairwise".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MPFBoxKernelsBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int boxes;
+
+    private MPFBoxArray current;
+    private MPFBoxArray previous;
+    private float[] scores;
+    private float[] result;
+    private int[] xs;
+    private int[] ys;
+    private int[] widths;
+    private int[] heights;
+
+    @Setup(Level.Trial)
+    public void createBoxes() {
+        Random random = new Random(42);
+        int frameSize = (int) (Math.sqrt(boxes) * 60);
+        xs = new int[boxes];
+        ys = new int[boxes];
+        widths = new int[boxes];
+        heights = new int[boxes];
+        int[] previousXs = new int[boxes];
+        int[] previousYs = new int[boxes];
+        scores = new float[boxes];
+        for (int i = 0; i < boxes; i++) {
+            xs[i] = random.nextInt(frameSize);
+            ys[i] = random.nextInt(frameSize);
+            widths[i] = 20 + random.nextInt(40);
+            heights[i] = 40 + random.nextInt(60);
+            // The same boxes one frame earlier, a few pixels away.
+            previousXs[i] = xs[i] + random.nextInt(9) - 4;
+            previousYs[i] = ys[i] + random.nextInt(9) - 4;
+            scores[i] = random.nextFloat();
+        }
+        current = new MPFBoxArray(xs, ys, widths, heights);
+        previous = new MPFBoxArray(previousXs, previousYs, widths.clone(), heights.clone());
+        result = new float[boxes];
+    }
+
+    @Benchmark
+    public float[] iouScalar() {
+        for (int i = 0; i < boxes; i++) {
+            result[i] = MPFBoxKernels.iou(xs[0], ys[0], widths[0], heights[0], xs[i], ys[i], widths[i], heights[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public float[] iouBulk() {
+        MPFBoxKernels.iou(xs[0], ys[0], widths[0], heights[0], current, result);
+        return result;
+    }
+
+    @Benchmark
+    public float[] containmentBulk() {
+        MPFBoxKernels.containment(current, 0, 0, 960, 540, result);
+        return result;
+    }
+
+    @Benchmark
+    public int[] nmsGridIndex() {
+        return MPFBoxKernels.nonMaximumSuppression(current, scores, 0.5f);
+    }
+
+    // Greedy NMS that compares every kept box with every box after it.
+    @Benchmark
+    public int[] nmsPairwise() {
+        Integer[] order = new Integer[boxes];
+        for (int i = 0; i < boxes; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+        boolean[] suppressed = new boolean[boxes];
+        int[] kept = new int[boxes];
+        int keptCount = 0;
+        for (int r = 0; r < boxes; r++) {
+            int i = order[r];
+            if (suppressed[i]) {
+                continue;
+            }
+            kept[keptCount++] = i;
+            for (int s = r + 1; s < boxes; s++) {
+                int j = order[s];
+                if (!suppressed[j] && MPFBoxKernels.iou(current, i, j) > 0.5f) {
+                    suppressed[j] = true;
+                }
+            }
+        }
+        return Arrays.copyOf(kept, keptCount);
+    }
+
+    // Matches each box to the previous frame's boxes; runs in parallel from MPFBoxGridIndex.PARALLEL_THRESHOLD up.
+    @Benchmark
+    public int[] matchGridIndex() {
+        return MPFBoxGridIndex.build(previous).findBestMatches(current, 0.3f);
+    }
+
+    @Benchmark
+    public int[] matchPairwise() {
+        int[] matches = new int[boxes];
+        for (int q = 0; q < boxes; q++) {
+            float best = 0.3f;
+            int bestIndex = -1;
+            for (int i = 0; i < boxes; i++) {
+                float iou = MPFBoxKernels.iou(xs[q], ys[q], widths[q], heights[q],
+                                              previous.getX(i), previous.getY(i), widths[i], heights[i]);
+                if (iou > best || (iou == best && bestIndex < 0)) {
+                    best = iou;
+                    bestIndex = i;
+                }
+            }
+            matches[q] = bestIndex;
+        }
+        return matches;
+    }
+}
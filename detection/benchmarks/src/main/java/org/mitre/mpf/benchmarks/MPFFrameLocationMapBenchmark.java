@@ -0,0 +1,153 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.benchmarks;
+
+import org.mitre.mpf.component.api.detection.MPFFrameLocationMap;
+import org.mitre.mpf.component.api.detection.MPFImageLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MPFFrameLocationMap MPFFrameLocationMap} with the {@code HashMap<Integer, MPFImageLocation>} that
+ * MPFVideoTrack used before.  A track holds one detection on each of "frames" consecutive frames.  Run with
+ * "-prof gc" and compare gc.alloc.rate.norm for the build benchmarks to see the memory each container allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MPFFrameLocationMapBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int frames;
+
+    private MPFImageLocation[] locations;
+    private HashMap<Integer, MPFImageLocation> hashMap;
+    private MPFFrameLocationMap frameLocationMap;
+    private int[] lookups;
+
+    @Setup(Level.Trial)
+    public void createTracks() {
+        locations = new MPFImageLocation[frames];
+        hashMap = new HashMap<>();
+        frameLocationMap = new MPFFrameLocationMap();
+        for (int frame = 0; frame < frames; frame++) {
+            locations[frame] = new MPFImageLocation(frame, frame, 64, 64, 0.9f, Map.of());
+            hashMap.put(frame, locations[frame]);
+            frameLocationMap.put(frame, locations[frame]);
+        }
+        Random random = new Random(42);
+        lookups = new int[1024];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = random.nextInt(frames);
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, MPFImageLocation> buildHashMap() {
+        HashMap<Integer, MPFImageLocation> map = new HashMap<>();
+        for (int frame = 0; frame < frames; frame++) {
+            map.put(frame, locations[frame]);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public Map<Integer, MPFImageLocation> buildFrameLocationMap() {
+        MPFFrameLocationMap map = new MPFFrameLocationMap();
+        for (int frame = 0; frame < frames; frame++) {
+            map.put(frame, locations[frame]);
+        }
+        return map;
+    }
+
+    // Callers that need frame order had to sort the keys of a HashMap first.
+    @Benchmark
+    public long iterateHashMapInFrameOrder() {
+        List<Integer> keys = new ArrayList<>(hashMap.keySet());
+        Collections.sort(keys);
+        long sum = 0;
+        for (Integer frame : keys) {
+            sum += frame + hashMap.get(frame).getXLeftUpper();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long iterateFrameLocationMap() {
+        long[] sum = new long[1];
+        frameLocationMap.forEachFrame((frame, location) -> sum[0] += frame + location.getXLeftUpper());
+        return sum[0];
+    }
+
+    @Benchmark
+    public long iterateFrameLocationMapEntries() {
+        long sum = 0;
+        for (Map.Entry<Integer, MPFImageLocation> entry : frameLocationMap.entrySet()) {
+            sum += entry.getKey() + entry.getValue().getXLeftUpper();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long lookUpHashMap() {
+        long sum = 0;
+        for (int frame : lookups) {
+            sum += hashMap.get(frame).getXLeftUpper();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long lookUpFrameLocationMap() {
+        long sum = 0;
+        for (int frame : lookups) {
+            sum += frameLocationMap.get(frame).getXLeftUpper();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,169 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.benchmarks;
+
+import org.mitre.mpf.component.api.detection.MPFImageLocation;
+import org.mitre.mpf.component.api.detection.MPFImageLocationBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a list of {@link MPFImageLocation MPFImageLocation} objects with an
+ * {@link MPFImageLocationBatch MPFImageLocationBatch} for a frame of "detections" detections, each with a
+ * "CLASSIFICATION" property.  The "legacy" benchmark gives every location its own {@code HashMap}, as the
+ * MPFImageLocation constructor used to, by adding the property after the location is created.  Run with "-prof gc" and divide gc.alloc.rate.norm by the number of detections
+ * to get the bytes each detection allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MPFImageLocationBatchBenchmark {
+
+    private static final String[] CLASSES = { "person", "car", "truck", "bicycle" };
+
+    @Param({ "1000", "10000", "100000" })
+    public int detections;
+
+    private int[] boxes;
+    private float[] confidences;
+    private String[] classes;
+
+    private List<MPFImageLocation> list;
+    private MPFImageLocationBatch batch;
+    private MPFImageLocationBatch directBatch;
+
+    @Setup(Level.Trial)
+    public void createDetections() {
+        Random random = new Random(42);
+        boxes = new int[detections * 4];
+        confidences = new float[detections];
+        classes = new String[detections];
+        for (int i = 0; i < detections; i++) {
+            boxes[4 * i] = random.nextInt(1920);
+            boxes[4 * i + 1] = random.nextInt(1080);
+            boxes[4 * i + 2] = 16 + random.nextInt(128);
+            boxes[4 * i + 3] = 16 + random.nextInt(128);
+            confidences[i] = random.nextFloat();
+            classes[i] = CLASSES[random.nextInt(CLASSES.length)];
+        }
+        list = buildList();
+        batch = buildBatch();
+        directBatch = buildDirectBatch();
+    }
+
+    @Benchmark
+    public List<MPFImageLocation> buildLegacyList() {
+        List<MPFImageLocation> locations = new ArrayList<>(detections);
+        for (int i = 0; i < detections; i++) {
+            MPFImageLocation location = new MPFImageLocation(boxes[4 * i], boxes[4 * i + 1], boxes[4 * i + 2],
+                                                             boxes[4 * i + 3], confidences[i], Map.of());
+            // Adding a property gives the location a HashMap of its own.
+            location.getDetectionProperties().put("CLASSIFICATION", classes[i]);
+            locations.add(location);
+        }
+        return locations;
+    }
+
+    @Benchmark
+    public List<MPFImageLocation> buildList() {
+        List<MPFImageLocation> locations = new ArrayList<>(detections);
+        for (int i = 0; i < detections; i++) {
+            locations.add(new MPFImageLocation(boxes[4 * i], boxes[4 * i + 1], boxes[4 * i + 2], boxes[4 * i + 3],
+                                               confidences[i], Map.of("CLASSIFICATION", classes[i])));
+        }
+        return locations;
+    }
+
+    @Benchmark
+    public MPFImageLocationBatch buildBatch() {
+        return fill(new MPFImageLocationBatch(detections));
+    }
+
+    @Benchmark
+    public MPFImageLocationBatch buildDirectBatch() {
+        return fill(MPFImageLocationBatch.allocateDirect(detections));
+    }
+
+    @Benchmark
+    public int countConfidentList() {
+        int count = 0;
+        for (MPFImageLocation location : list) {
+            if (location.getConfidence() >= 0.5f) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int countConfidentBatch() {
+        return countConfident(batch);
+    }
+
+    @Benchmark
+    public int countConfidentDirectBatch() {
+        return countConfident(directBatch);
+    }
+
+    private MPFImageLocationBatch fill(MPFImageLocationBatch target) {
+        for (int i = 0; i < detections; i++) {
+            int index = target.add(boxes[4 * i], boxes[4 * i + 1], boxes[4 * i + 2], boxes[4 * i + 3],
+                                   confidences[i]);
+            target.setProperty(index, "CLASSIFICATION", classes[i]);
+        }
+        return target;
+    }
+
+    private static int countConfident(MPFImageLocationBatch source) {
+        int count = 0;
+        for (int i = 0, size = source.size(); i < size; i++) {
+            if (source.getConfidence(i) >= 0.5f) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,111 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.benchmarks;
+
+import org.mitre.mpf.component.api.detection.MPFAudioJob;
+import org.mitre.mpf.component.api.detection.MPFImageJob;
+import org.mitre.mpf.component.api.detection.MPFVideoJob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what constructing a job costs now that jobs share their property maps.  The "legacy" benchmarks repeat
+ * the two {@code HashMap} copies that every MPFJob constructor used to make, so they show the allocation that was
+ * removed.  Run with "-prof gc" and compare gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MPFJobConstructionBenchmark {
+
+    private Map<String, String> jobProperties;
+    private Map<String, String> mediaProperties;
+    private MPFVideoJob videoJob;
+
+    @Setup(Level.Trial)
+    public void createProperties() {
+        // A typical job: a dozen algorithm properties and the media properties the workflow manager sends.
+        jobProperties = new HashMap<>();
+        for (int i = 0; i < 12; i++) {
+            jobProperties.put("ALGORITHM_PROPERTY_" + i, String.valueOf(i * 0.25));
+        }
+        mediaProperties = new HashMap<>();
+        mediaProperties.put("FRAME_WIDTH", "1920");
+        mediaProperties.put("FRAME_HEIGHT", "1080");
+        mediaProperties.put("MIME_TYPE", "video/mp4");
+        mediaProperties.put("FPS", "29.97");
+        mediaProperties.put("FRAME_COUNT", "18000");
+        mediaProperties.put("DURATION", "600600");
+        videoJob = new MPFVideoJob("job", "/data/video.mp4", jobProperties, mediaProperties, 0, 17999);
+    }
+
+    // What every job constructor used to do before storing the properties.
+    @Benchmark
+    public Object legacyCopies() {
+        Map<String, String> jobCopy = new HashMap<>();
+        jobCopy.putAll(jobProperties);
+        Map<String, String> mediaCopy = new HashMap<>();
+        mediaCopy.putAll(mediaProperties);
+        return new Object[] { jobCopy, mediaCopy };
+    }
+
+    // A job built from maps the caller assembled itself, as the workflow manager does, which are copied once.
+    @Benchmark
+    public MPFImageJob imageJobFromHashMaps() {
+        return new MPFImageJob("job", "/data/image.jpg", jobProperties, mediaProperties);
+    }
+
+    // A job built from another job's properties, as segment and sub-jobs are, which shares them.
+    @Benchmark
+    public MPFImageJob imageJobFromJobProperties() {
+        return new MPFImageJob("job", "/data/image.jpg", videoJob.getJobProperties(),
+                               videoJob.getMediaProperties());
+    }
+
+    // The audio job that MPFAudioAndVideoDetectionComponentAdapter derives from a video job.
+    @Benchmark
+    public MPFAudioJob derivedAudioJob() {
+        return new MPFAudioJob(videoJob.getJobName(), videoJob.getDataUri(), videoJob.getJobProperties(),
+                               videoJob.getMediaProperties(), 0, 600600);
+    }
+}
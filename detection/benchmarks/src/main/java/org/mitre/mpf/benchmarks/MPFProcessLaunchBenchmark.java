@@ -0,0 +1,138 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.benchmarks;
+
+import org.mitre.mpf.audioVideo.util.MPFProcessExecutor;
+import org.mitre.mpf.audioVideo.util.MPFProcessResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the way MPFEncoder used to read a file's duration and frame rate, with one "/bin/sh -c" pipeline into sed
+ * for each value, against a single process started from an argv list by
+ * {@link MPFProcessExecutor MPFProcessExecutor} whose output is parsed with precompiled patterns.
+ * <BR><BR>
+ * ffmpeg's own run time is the same either way, so "cat" of a recorded ffmpeg banner stands in for it.  What is
+ * measured is the cost of starting the processes and parsing their output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MPFProcessLaunchBenchmark {
+
+    private static final String BANNER = String.join("\n",
+            "Input #0, mov,mp4,m4a,3gp,3g2,mj2, from 'sample video.mp4':",
+            "  Metadata:",
+            "    major_brand     : isom",
+            "    minor_version   : 512",
+            "    compatible_brands: isomiso2avc1mp41",
+            "    encoder         : Lavf58.29.100",
+            "  Duration: 00:10:01.23, start: 0.000000, bitrate: 1205 kb/s",
+            "    Stream #0:0(und): Video: h264 (High) (avc1 / 0x31637661), yuv420p, 1280x720, 1070 kb/s,"
+                    + " 29.97 fps, 29.97 tbr, 30k tbn, 59.94 tbc (default)",
+            "    Stream #0:1(und): Audio: aac (LC) (mp4a / 0x6134706D), 48000 Hz, stereo, fltp, 128 kb/s (default)",
+            "At least one output file must be specified",
+            "");
+
+    private static final Pattern DURATION = Pattern.compile("Duration: (\\d+):(\\d+):(\\d+(?:\\.\\d+)?)");
+    private static final Pattern FPS = Pattern.compile(", ([\\d.]+) fps");
+
+    private final MPFProcessExecutor executor = new MPFProcessExecutor();
+
+    private File banner;
+
+    @Setup(Level.Trial)
+    public void createBanner() throws IOException {
+        // The path contains a space, which the shell pipeline has to quote and the argv list does not.
+        banner = File.createTempFile("mpf launch benchmark", ".txt");
+        Files.write(banner.toPath(), BANNER.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteBanner() throws IOException {
+        Files.deleteIfExists(banner.toPath());
+    }
+
+    @Benchmark
+    public double shellPipelines() throws IOException, InterruptedException {
+        String quoted = "'" + banner.getAbsolutePath() + "'";
+        String duration = runShell("cat " + quoted + " 2>&1 | sed -n 's/.*Duration: \\([^ ,]*\\).*/\\1/p'");
+        String fps = runShell("cat " + quoted + " 2>&1 | sed -n 's/.*, \\(.*\\) fp.*/\\1/p'");
+        String[] parts = duration.trim().split(":");
+        double seconds = Integer.parseInt(parts[0]) * 3600 + Integer.parseInt(parts[1]) * 60
+                + Double.parseDouble(parts[2]);
+        return seconds + Double.parseDouble(fps.trim());
+    }
+
+    @Benchmark
+    public double argvAndJavaParsing() throws IOException {
+        MPFProcessResult result = executor.executeAndWait(Arrays.asList("cat", banner.getAbsolutePath()));
+        String output = result.getStdout();
+        Matcher duration = DURATION.matcher(output);
+        Matcher fps = FPS.matcher(output);
+        if (!duration.find() || !fps.find()) {
+            throw new IOException("The banner could not be parsed.");
+        }
+        double seconds = Integer.parseInt(duration.group(1)) * 3600 + Integer.parseInt(duration.group(2)) * 60
+                + Double.parseDouble(duration.group(3));
+        return seconds + Double.parseDouble(fps.group(1));
+    }
+
+    private static String runShell(String query) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(List.of("/bin/sh", "-c", query)).redirectErrorStream(true).start();
+        String output;
+        try (InputStream stdout = process.getInputStream()) {
+            output = new String(stdout.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        process.waitFor();
+        return output;
+    }
+}
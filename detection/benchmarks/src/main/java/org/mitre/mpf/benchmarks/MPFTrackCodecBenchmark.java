@@ -0,0 +1,206 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mitre.mpf.component.api.detection.MPFImageLocation;
+import org.mitre.mpf.component.api.detection.MPFVideoTrack;
+import org.mitre.mpf.component.api.detection.serialization.MPFBinaryTrackReader;
+import org.mitre.mpf.component.api.detection.serialization.MPFBinaryTrackWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MPFBinaryTrackWriter MPFBinaryTrackWriter} and {@link MPFBinaryTrackReader MPFBinaryTrackReader}
+ * with JSON written and read by Jackson, for "tracks" video tracks of 100 frames each.  Every track and detection has
+ * a few properties drawn from a small vocabulary, as detector output usually does.  The JSON uses the same field
+ * names as the workflow manager's track output, with frames as object keys.
+ * <BR><BR>
+ * The encoded sizes are printed when each trial starts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MPFTrackCodecBenchmark {
+
+    private static final int FRAMES_PER_TRACK = 100;
+
+    private static final String[] CLASSES = { "person", "car", "truck", "bicycle" };
+
+    private static final TypeReference<List<Map<String, Object>>> JSON_TRACKS = new TypeReference<>() {};
+
+    @Param({ "100", "1000" })
+    public int tracks;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private List<MPFVideoTrack> videoTracks;
+    private ByteBuffer binary;
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void createTracks() throws IOException {
+        Random random = new Random(42);
+        videoTracks = new ArrayList<>(tracks);
+        for (int t = 0; t < tracks; t++) {
+            int start = random.nextInt(10_000);
+            String classification = CLASSES[random.nextInt(CLASSES.length)];
+            Map<Integer, MPFImageLocation> locations = new HashMap<>();
+            for (int frame = start; frame < start + FRAMES_PER_TRACK; frame++) {
+                locations.put(frame, new MPFImageLocation(
+                        random.nextInt(1920), random.nextInt(1080), 32 + random.nextInt(64), 32 + random.nextInt(64),
+                        random.nextFloat(), Map.of("CLASSIFICATION", classification, "TRACKING_STATE", "TRACKED")));
+            }
+            videoTracks.add(new MPFVideoTrack(start, start + FRAMES_PER_TRACK - 1, locations, random.nextFloat(),
+                                              Map.of("CLASSIFICATION", classification)));
+        }
+        binary = encodeBinary();
+        json = encodeJson();
+        System.out.printf("%n%d tracks: binary %d bytes, JSON %d bytes%n", tracks, binary.remaining(), json.length);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeBinary() {
+        MPFBinaryTrackWriter writer = new MPFBinaryTrackWriter();
+        for (MPFVideoTrack track : videoTracks) {
+            writer.add(track);
+        }
+        return writer.toByteBuffer();
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        List<Map<String, Object>> documents = new ArrayList<>(videoTracks.size());
+        for (MPFVideoTrack track : videoTracks) {
+            Map<String, Object> locations = new LinkedHashMap<>();
+            for (Map.Entry<Integer, MPFImageLocation> entry : track.getFrameLocations().entrySet()) {
+                MPFImageLocation location = entry.getValue();
+                Map<String, Object> document = new LinkedHashMap<>();
+                document.put("x", location.getXLeftUpper());
+                document.put("y", location.getYLeftUpper());
+                document.put("width", location.getWidth());
+                document.put("height", location.getHeight());
+                document.put("confidence", location.getConfidence());
+                document.put("detectionProperties", location.getDetectionProperties());
+                locations.put(String.valueOf(entry.getKey()), document);
+            }
+            Map<String, Object> document = new LinkedHashMap<>();
+            document.put("startFrame", track.getStartFrame());
+            document.put("stopFrame", track.getStopFrame());
+            document.put("confidence", track.getConfidence());
+            document.put("detectionProperties", track.getDetectionProperties());
+            document.put("frameLocations", locations);
+            documents.add(document);
+        }
+        return mapper.writeValueAsBytes(documents);
+    }
+
+    @Benchmark
+    public List<MPFVideoTrack> decodeBinary() throws IOException {
+        MPFBinaryTrackReader reader = MPFBinaryTrackReader.open(binary.duplicate());
+        List<MPFVideoTrack> result = new ArrayList<>(reader.getRecordCount());
+        for (int i = 0; i < reader.getRecordCount(); i++) {
+            result.add(reader.getVideoTrack(i));
+        }
+        return result;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<MPFVideoTrack> decodeJson() throws IOException {
+        List<Map<String, Object>> documents = mapper.readValue(json, JSON_TRACKS);
+        List<MPFVideoTrack> result = new ArrayList<>(documents.size());
+        for (Map<String, Object> document : documents) {
+            Map<String, Map<String, Object>> frames = (Map<String, Map<String, Object>>) document.get("frameLocations");
+            Map<Integer, MPFImageLocation> locations = new HashMap<>();
+            for (Map.Entry<String, Map<String, Object>> entry : frames.entrySet()) {
+                Map<String, Object> location = entry.getValue();
+                locations.put(Integer.valueOf(entry.getKey()), new MPFImageLocation(
+                        (Integer) location.get("x"), (Integer) location.get("y"),
+                        (Integer) location.get("width"), (Integer) location.get("height"),
+                        ((Number) location.get("confidence")).floatValue(),
+                        (Map<String, String>) location.get("detectionProperties")));
+            }
+            result.add(new MPFVideoTrack((Integer) document.get("startFrame"), (Integer) document.get("stopFrame"),
+                                         locations, ((Number) document.get("confidence")).floatValue(),
+                                         (Map<String, String>) document.get("detectionProperties")));
+        }
+        return result;
+    }
+
+    // Finds the confident person tracks without creating any track objects.
+    @Benchmark
+    public int filterBinary() throws IOException {
+        MPFBinaryTrackReader reader = MPFBinaryTrackReader.open(binary.duplicate());
+        int count = 0;
+        for (int i = 0; i < reader.getRecordCount(); i++) {
+            if (reader.getConfidence(i) >= 0.5f && "person".equals(reader.getProperty(i, "CLASSIFICATION"))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // JSON has to be parsed in full before anything can be filtered.
+    @Benchmark
+    public int filterJson() throws IOException {
+        List<Map<String, Object>> documents = mapper.readValue(json, JSON_TRACKS);
+        int count = 0;
+        for (Map<String, Object> document : documents) {
+            Map<?, ?> properties = (Map<?, ?>) document.get("detectionProperties");
+            if (((Number) document.get("confidence")).floatValue() >= 0.5f
+                    && "person".equals(properties.get("CLASSIFICATION"))) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -26,7 +26,6 @@
 
 package org.mitre.mpf.component.api.detection;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -98,9 +97,6 @@ public class MPFAudioTrack {
         this.startTime = startTime;
         this.stopTime = stopTime;
         this.confidence = confidence;
-        this.detectionProperties = new HashMap<String,String>();
-        if (detectionProperties!=null) {
-            this.detectionProperties.putAll(detectionProperties);
-        }
+        this.detectionProperties = MPFPropertyMap.copyOf(detectionProperties);
     }
 }
@@ -0,0 +1,238 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable map of properties that stores its values in a flat array.  The keys are held in a separate, sorted
+ * key set that is interned, so every map with the same property names refers to the same key set.  Components
+ * usually set the same few properties on every detection, so the only per-map storage is the array of values.
+ * <BR><BR>
+ * {@link #copyOf(Map)} also remembers the last map it created on each thread.  When it is called again with equal
+ * contents, as when a component passes the same properties to the constructor of each detection, it returns that
+ * map instead of creating another one.
+ */
+public final class MPFCompactPropertyMap extends AbstractMap<String, String> {
+
+    public static final MPFCompactPropertyMap EMPTY = new MPFCompactPropertyMap(KeySet.EMPTY, new String[0]);
+
+    // Stops components that use unique property names, such as one per detection, from filling up the key set table.
+    private static final int MAX_INTERNED_KEY_SETS = 4096;
+
+    private static final Map<KeySet, KeySet> KEY_SETS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<MPFCompactPropertyMap> LAST_COPY = new ThreadLocal<>();
+
+    private final KeySet keys;
+    private final String[] values;
+    private int hash;
+
+    private MPFCompactPropertyMap(KeySet keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Returns an immutable map with the same contents as the source.
+     *
+     * @param source The properties to copy.  Null is treated as an empty map.  The source must not contain a null key.
+     * @return The source itself if it is already a compact map, or a compact map that may be shared with other
+     *         callers.
+     */
+    public static MPFCompactPropertyMap copyOf(Map<String, String> source) {
+        MPFCompactPropertyMap copy = tryCopyOf(source);
+        if (copy == null) {
+            throw new NullPointerException("Property names must not be null.");
+        }
+        return copy;
+    }
+
+    /**
+     * Like {@link #copyOf(Map)}, but returns null if the source contains a null key.
+     */
+    static MPFCompactPropertyMap tryCopyOf(Map<String, String> source) {
+        if (source == null || source.isEmpty()) {
+            return EMPTY;
+        }
+        if (source instanceof MPFCompactPropertyMap) {
+            return (MPFCompactPropertyMap) source;
+        }
+        MPFCompactPropertyMap last = LAST_COPY.get();
+        if (last != null && last.equals(source)) {
+            return last;
+        }
+
+        String[] names = new String[source.size()];
+        int count = 0;
+        for (String name : source.keySet()) {
+            if (name == null) {
+                return null;
+            }
+            names[count++] = name;
+        }
+        Arrays.sort(names);
+        KeySet keys = intern(new KeySet(names));
+        String[] values = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            values[i] = source.get(names[i]);
+        }
+        MPFCompactPropertyMap copy = new MPFCompactPropertyMap(keys, values);
+        LAST_COPY.set(copy);
+        return copy;
+    }
+
+    private static KeySet intern(KeySet keys) {
+        KeySet existing = KEY_SETS.get(keys);
+        if (existing != null) {
+            return existing;
+        }
+        if (KEY_SETS.size() >= MAX_INTERNED_KEY_SETS) {
+            return keys;
+        }
+        existing = KEY_SETS.putIfAbsent(keys, keys);
+        return existing == null ? keys : existing;
+    }
+
+    /**
+     * @return True if both maps have the same property names and refer to the same interned key set.
+     */
+    boolean hasSameKeys(MPFCompactPropertyMap other) {
+        return keys == other.keys;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public String get(Object key) {
+        int index = keys.indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return keys.indexOf(key) >= 0;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < values.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (index >= values.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = index++;
+                        return new SimpleImmutableEntry<>(keys.names[i], values[i]);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof MPFCompactPropertyMap) {
+            MPFCompactPropertyMap other = (MPFCompactPropertyMap) obj;
+            if (keys == other.keys) {
+                return Arrays.equals(values, other.values);
+            }
+        }
+        return super.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0 && values.length > 0) {
+            result = super.hashCode();
+            hash = result;
+        }
+        return result;
+    }
+
+    private static final class KeySet {
+        static final KeySet EMPTY = new KeySet(new String[0]);
+
+        final String[] names;
+        private final int hash;
+
+        KeySet(String[] names) {
+            this.names = names;
+            this.hash = Arrays.hashCode(names);
+        }
+
+        int indexOf(Object key) {
+            if (!(key instanceof String)) {
+                return -1;
+            }
+            // Interned names usually match by reference, which is cheaper than comparing.
+            for (int i = 0; i < names.length; i++) {
+                if (names[i] == key) {
+                    return i;
+                }
+            }
+            int index = Arrays.binarySearch(names, key);
+            return index < 0 ? -1 : index;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof KeySet && Arrays.equals(names, ((KeySet) obj).names);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -27,9 +27,34 @@
 package org.mitre.mpf.component.api.detection;
 
 import org.mitre.mpf.component.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
 
 public abstract class MPFDetectionComponentBase extends MPFComponentBase implements MPFDetectionComponentInterface {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MPFDetectionComponentBase.class);
+
+    /**
+     * Compiles the property schema in the component's descriptor.json, so that jobs can be read with
+     * {@link MPFJob#typed()}.  Components that override this method should call it.
+     */
+    @Override
+    public void init() {
+        try {
+            MPFPropertySchema schema = MPFPropertySchema.fromComponentDescriptor(getClass());
+            if (schema == null) {
+                LOG.debug("No descriptor was found for {}; job properties will not be typed.", getClass().getName());
+            }
+            else {
+                MPFPropertySchema.setComponentSchema(schema);
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to compile the property schema for {}.", getClass().getName(), e);
+        }
+    }
+
     /**
      * Returns {@link MPFComponentType MPFComponentType} of DETECTION by default.
      * @return MPFComponentType.DETECTION.
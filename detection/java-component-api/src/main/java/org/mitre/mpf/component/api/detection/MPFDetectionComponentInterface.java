@@ -82,6 +82,63 @@ public interface MPFDetectionComponentInterface extends MPFComponentInterface {
      */
     List<MPFGenericTrack> getDetections(MPFGenericJob job) throws MPFComponentDetectionError;
 
+    /**
+     * Passes the detections from a video file to the sink as they are found.  By default, this calls
+     * {@link #getDetections(MPFVideoJob)} and emits each track in the returned list.  Components that can finalize
+     * tracks before the whole job is done should override this so results can be consumed sooner.
+     *
+     * @param job     The job to be run.
+     * @param sink    Receives each video track.  The caller completes the sink after this returns.
+     * @throws  MPFComponentDetectionError If an error occurs while processing the job.  The exception will contain
+     *                                     an MPFDetectionError.
+     */
+    default void getDetections(MPFVideoJob job, MPFDetectionSink<MPFVideoTrack> sink)
+            throws MPFComponentDetectionError {
+        emitAll(getDetections(job), sink);
+    }
+
+    /**
+     * Passes the detections from an audio file to the sink as they are found.  By default, this calls
+     * {@link #getDetections(MPFAudioJob)} and emits each track in the returned list.
+     *
+     * @param job     The job to be run.
+     * @param sink    Receives each audio track.  The caller completes the sink after this returns.
+     * @throws  MPFComponentDetectionError If an error occurs while processing the job.  The exception will contain
+     *                                     an MPFDetectionError.
+     */
+    default void getDetections(MPFAudioJob job, MPFDetectionSink<MPFAudioTrack> sink)
+            throws MPFComponentDetectionError {
+        emitAll(getDetections(job), sink);
+    }
+
+    /**
+     * Passes the detections from an image file to the sink as they are found.  By default, this calls
+     * {@link #getDetections(MPFImageJob)} and emits each image location in the returned list.
+     *
+     * @param job     The job to be run.
+     * @param sink    Receives each image location.  The caller completes the sink after this returns.
+     * @throws  MPFComponentDetectionError If an error occurs while processing the job.  The exception will contain
+     *                                     an MPFDetectionError.
+     */
+    default void getDetections(MPFImageJob job, MPFDetectionSink<MPFImageLocation> sink)
+            throws MPFComponentDetectionError {
+        emitAll(getDetections(job), sink);
+    }
+
+    /**
+     * Passes the detections from a generic file to the sink as they are found.  By default, this calls
+     * {@link #getDetections(MPFGenericJob)} and emits each track in the returned list.
+     *
+     * @param job     The job to be run.
+     * @param sink    Receives each generic track.  The caller completes the sink after this returns.
+     * @throws  MPFComponentDetectionError If an error occurs while processing the job.  The exception will contain
+     *                                     an MPFDetectionError.
+     */
+    default void getDetections(MPFGenericJob job, MPFDetectionSink<MPFGenericTrack> sink)
+            throws MPFComponentDetectionError {
+        emitAll(getDetections(job), sink);
+    }
+
     /**
      * Checks whether the component supports a given data type.
      *
@@ -89,4 +146,12 @@ public interface MPFDetectionComponentInterface extends MPFComponentInterface {
      * @return  True if the data type is supported by this component.
      */
     boolean supports(MPFDataType dataType);
+
+    private static <T> void emitAll(List<T> results, MPFDetectionSink<T> sink) throws MPFComponentDetectionError {
+        for (T result : results) {
+            if (!sink.emit(result)) {
+                return;
+            }
+        }
+    }
 }
@@ -45,5 +45,6 @@ public enum MPFDetectionError {
         MPF_GPU_ERROR,
         MPF_NETWORK_ERROR,
         MPF_COULD_NOT_OPEN_MEDIA,
-        MPF_COULD_NOT_READ_MEDIA
+        MPF_COULD_NOT_READ_MEDIA,
+        MPF_PROCESS_TIMEOUT
 }
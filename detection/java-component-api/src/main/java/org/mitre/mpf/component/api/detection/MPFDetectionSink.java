@@ -0,0 +1,196 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import java.util.concurrent.Flow;
+
+/**
+ * Receives the results of a job as the component produces them, instead of as one list at the end.  A component
+ * passes each track or image location to {@link #emit(Object)} as soon as it is final.  The results are delivered
+ * to a {@link Flow.Subscriber Flow.Subscriber}, and {@code emit} waits while the subscriber has not requested more,
+ * so a slow consumer slows the component down instead of letting results pile up in memory.
+ * <BR><BR>
+ * Whoever creates the sink and calls
+ * {@link MPFDetectionComponentInterface#getDetections(MPFVideoJob, MPFDetectionSink)} or one of its overloads is
+ * responsible for calling {@link #complete()} when it returns, or {@link #fail(Throwable)} when it throws.  The
+ * component only emits.  {@code emit} may be called from several threads; the subscriber still receives one signal
+ * at a time.
+ *
+ * @param <T> The type of result: {@link MPFVideoTrack}, {@link MPFAudioTrack}, {@link MPFImageLocation} or
+ *            {@link MPFGenericTrack}.
+ */
+public class MPFDetectionSink<T> {
+
+    private final Flow.Subscriber<? super T> subscriber;
+
+    // Held while signaling the subscriber, so that signals are never concurrent.
+    private final Object signalLock = new Object();
+
+    // Guards the fields below.  Not held while calling onNext, so a subscriber on another thread can call request()
+    // or cancel() while the component waits.
+    private final Object stateLock = new Object();
+    private long demand;
+    private boolean cancelled;
+    private boolean terminated;
+    private Throwable requestError;
+
+    /**
+     * Creates a sink that delivers to the subscriber.  The subscriber's {@code onSubscribe} is called before this
+     * returns.
+     */
+    public MPFDetectionSink(Flow.Subscriber<? super T> subscriber) {
+        this.subscriber = subscriber;
+        synchronized (signalLock) {
+            subscriber.onSubscribe(new Subscription());
+        }
+    }
+
+    /**
+     * Delivers a result, first waiting until the subscriber has requested it.
+     *
+     * @param item The track or image location.
+     * @return False if the subscriber has cancelled, in which case the component may stop processing the job.
+     * @throws MPFComponentDetectionError If the thread is interrupted while waiting, or the sink has already been
+     *                                    completed.
+     */
+    public boolean emit(T item) throws MPFComponentDetectionError {
+        if (item == null) {
+            throw new NullPointerException("Detection results must not be null.");
+        }
+        synchronized (signalLock) {
+            synchronized (stateLock) {
+                if (terminated) {
+                    throw new MPFComponentDetectionError(MPFDetectionError.MPF_OTHER_DETECTION_ERROR_TYPE,
+                                                         "A result was emitted after the sink was completed.");
+                }
+                while (demand == 0 && !cancelled) {
+                    try {
+                        stateLock.wait();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new MPFComponentDetectionError(MPFDetectionError.MPF_OTHER_DETECTION_ERROR_TYPE,
+                                                             "Interrupted while waiting to emit a result.", e);
+                    }
+                }
+                if (cancelled) {
+                    deliverRequestError();
+                    return false;
+                }
+                if (demand != Long.MAX_VALUE) {
+                    demand--;
+                }
+            }
+            subscriber.onNext(item);
+            return true;
+        }
+    }
+
+    /**
+     * @return True if the subscriber has cancelled.
+     */
+    public boolean isCancelled() {
+        synchronized (stateLock) {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Tells the subscriber that there are no more results.  Does nothing if the subscriber has cancelled or the sink
+     * was already completed.
+     */
+    public void complete() {
+        synchronized (signalLock) {
+            if (terminate()) {
+                subscriber.onComplete();
+            }
+        }
+    }
+
+    /**
+     * Tells the subscriber that the job failed.  Does nothing if the subscriber has cancelled or the sink was already
+     * completed.
+     */
+    public void fail(Throwable error) {
+        synchronized (signalLock) {
+            if (terminate()) {
+                subscriber.onError(error);
+            }
+        }
+    }
+
+    private boolean terminate() {
+        synchronized (stateLock) {
+            if (terminated) {
+                return false;
+            }
+            terminated = true;
+            if (cancelled) {
+                deliverRequestError();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    // Called with both locks held.  The Flow specification requires an invalid request to be reported with onError.
+    private void deliverRequestError() {
+        if (requestError != null) {
+            Throwable error = requestError;
+            requestError = null;
+            terminated = true;
+            subscriber.onError(error);
+        }
+    }
+
+    private class Subscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            synchronized (stateLock) {
+                if (cancelled) {
+                    return;
+                }
+                if (n <= 0) {
+                    requestError = new IllegalArgumentException("The number of results requested must be positive.");
+                    cancelled = true;
+                }
+                else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                stateLock.notifyAll();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (stateLock) {
+                cancelled = true;
+                stateLock.notifyAll();
+            }
+        }
+    }
+}
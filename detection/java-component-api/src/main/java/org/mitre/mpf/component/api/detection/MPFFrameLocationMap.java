@@ -0,0 +1,515 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * The detections of a video track, stored as a sorted {@code int[]} of frame numbers and a parallel array of
+ * locations.  Compared to a {@code HashMap<Integer, MPFImageLocation>}, this needs no boxed key or entry node per
+ * frame, lookups are binary searches, and iteration is always in frame order without sorting.
+ * <BR><BR>
+ * It is also a {@code SortedMap<Integer, MPFImageLocation>}, so it can be used wherever a map was.  Adding frames in
+ * increasing order, as trackers usually do, appends in amortized constant time; adding a frame before existing ones
+ * shifts the later entries.  {@link #subMap(Integer, Integer)}, {@link #headMap(Integer)} and
+ * {@link #tailMap(Integer)} return views of a range of frames that share the same arrays.  This class is not
+ * thread-safe.
+ */
+public class MPFFrameLocationMap extends AbstractMap<Integer, MPFImageLocation>
+        implements SortedMap<Integer, MPFImageLocation> {
+
+    /**
+     * Receives a frame number and its location without boxing the frame.
+     */
+    public interface FrameLocationConsumer {
+        void accept(int frame, MPFImageLocation location);
+    }
+
+    private final Store store;
+
+    // The range of frames this map covers: fromFrame inclusive, toFrame exclusive.
+    private final long fromFrame;
+    private final long toFrame;
+
+    private Set<Entry<Integer, MPFImageLocation>> entrySet;
+
+    public MPFFrameLocationMap() {
+        this(new Store(), Integer.MIN_VALUE, (long) Integer.MAX_VALUE + 1);
+    }
+
+    /**
+     * @param frameLocations The detections to copy, or null for none.
+     */
+    public MPFFrameLocationMap(Map<Integer, MPFImageLocation> frameLocations) {
+        this();
+        if (frameLocations != null) {
+            putAll(frameLocations);
+        }
+    }
+
+    private MPFFrameLocationMap(Store store, long fromFrame, long toFrame) {
+        this.store = store;
+        this.fromFrame = fromFrame;
+        this.toFrame = toFrame;
+    }
+
+    /**
+     * @return The location at the frame, or null if there is none.
+     */
+    public MPFImageLocation get(int frame) {
+        if (!inRange(frame)) {
+            return null;
+        }
+        int index = store.indexOf(frame);
+        return index < 0 ? null : store.locations[index];
+    }
+
+    /**
+     * @return The previous location at the frame, or null if there was none.
+     * @throws IllegalArgumentException If this is a range view and the frame is outside of its range.
+     */
+    public MPFImageLocation put(int frame, MPFImageLocation location) {
+        if (!inRange(frame)) {
+            throw new IllegalArgumentException("Frame " + frame + " is outside of the range of this view.");
+        }
+        return store.put(frame, location);
+    }
+
+    /**
+     * @return The first index in the backing arrays that belongs to this map.
+     */
+    private int lowIndex() {
+        return store.lowerBound(fromFrame);
+    }
+
+    private int highIndex() {
+        return store.lowerBound(toFrame);
+    }
+
+    /**
+     * Calls the consumer with each frame and location, in frame order.
+     */
+    public void forEachFrame(FrameLocationConsumer consumer) {
+        int expectedModCount = store.modCount;
+        for (int i = lowIndex(), high = highIndex(); i < high; i++) {
+            consumer.accept(store.frames[i], store.locations[i]);
+            if (store.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * @return A copy of the frame numbers in this map, in increasing order.
+     */
+    public int[] getFrames() {
+        return Arrays.copyOfRange(store.frames, lowIndex(), highIndex());
+    }
+
+    /**
+     * @return A view of the frames from fromFrame, inclusive, to toFrame, exclusive.
+     * @throws IllegalArgumentException If fromFrame is greater than toFrame, or if this is a range view and either
+     *                                  frame is outside of its range.
+     */
+    public MPFFrameLocationMap subMap(int fromFrame, int toFrame) {
+        if (fromFrame > toFrame) {
+            throw new IllegalArgumentException("fromFrame must not be greater than toFrame.");
+        }
+        checkBound(fromFrame);
+        checkBound(toFrame);
+        return new MPFFrameLocationMap(store, fromFrame, toFrame);
+    }
+
+    @Override
+    public MPFFrameLocationMap subMap(Integer fromKey, Integer toKey) {
+        return subMap(fromKey.intValue(), toKey.intValue());
+    }
+
+    @Override
+    public MPFFrameLocationMap headMap(Integer toKey) {
+        checkBound(toKey);
+        return new MPFFrameLocationMap(store, fromFrame, toKey);
+    }
+
+    @Override
+    public MPFFrameLocationMap tailMap(Integer fromKey) {
+        checkBound(fromKey);
+        return new MPFFrameLocationMap(store, fromKey, toFrame);
+    }
+
+    // As with TreeMap, the end points of a view of a view may equal, but not go beyond, the end points of its range.
+    private void checkBound(int frame) {
+        if (frame < fromFrame || frame > toFrame) {
+            throw new IllegalArgumentException("Frame " + frame + " is outside of the range of this view.");
+        }
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return null;
+    }
+
+    @Override
+    public Integer firstKey() {
+        int low = lowIndex();
+        if (low >= highIndex()) {
+            throw new NoSuchElementException();
+        }
+        return store.frames[low];
+    }
+
+    @Override
+    public Integer lastKey() {
+        int high = highIndex();
+        if (high <= lowIndex()) {
+            throw new NoSuchElementException();
+        }
+        return store.frames[high - 1];
+    }
+
+    @Override
+    public int size() {
+        return highIndex() - lowIndex();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && inRange((Integer) key) && store.indexOf((Integer) key) >= 0;
+    }
+
+    @Override
+    public MPFImageLocation get(Object key) {
+        return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+    }
+
+    @Override
+    public MPFImageLocation put(Integer key, MPFImageLocation value) {
+        return put(key.intValue(), value);
+    }
+
+    @Override
+    public MPFImageLocation remove(Object key) {
+        if (!(key instanceof Integer) || !inRange((Integer) key)) {
+            return null;
+        }
+        int index = store.indexOf((Integer) key);
+        if (index < 0) {
+            return null;
+        }
+        MPFImageLocation previous = store.locations[index];
+        store.removeRange(index, index + 1);
+        return previous;
+    }
+
+    /**
+     * Adds the entries with a single sort and a single merge with the existing entries, rather than by inserting them
+     * one at a time.
+     *
+     * @throws IllegalArgumentException If this is a range view and any of the frames is outside of its range.  The map
+     *                                  is not changed in that case.
+     */
+    @Override
+    public void putAll(Map<? extends Integer, ? extends MPFImageLocation> map) {
+        if (map.isEmpty()) {
+            return;
+        }
+        int count = map.size();
+        long[] keys = new long[count];
+        MPFImageLocation[] unsorted = new MPFImageLocation[count];
+        int i = 0;
+        for (Entry<? extends Integer, ? extends MPFImageLocation> entry : map.entrySet()) {
+            // The frame in the high bits orders the keys; the low bits say where its location is.
+            keys[i] = ((long) entry.getKey() << 32) | i;
+            unsorted[i] = entry.getValue();
+            i++;
+        }
+        Arrays.sort(keys);
+        int first = (int) (keys[0] >> 32);
+        int last = (int) (keys[count - 1] >> 32);
+        if (!inRange(first) || !inRange(last)) {
+            throw new IllegalArgumentException("Frame " + (inRange(first) ? last : first)
+                                                       + " is outside of the range of this view.");
+        }
+        store.merge(keys, unsorted);
+    }
+
+    @Override
+    public void clear() {
+        store.removeRange(lowIndex(), highIndex());
+    }
+
+    @Override
+    public Set<Entry<Integer, MPFImageLocation>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private boolean inRange(int frame) {
+        return frame >= fromFrame && frame < toFrame;
+    }
+
+    private class EntrySet extends AbstractSet<Entry<Integer, MPFImageLocation>> {
+        @Override
+        public int size() {
+            return MPFFrameLocationMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            MPFFrameLocationMap.this.clear();
+        }
+
+        @Override
+        public Iterator<Entry<Integer, MPFImageLocation>> iterator() {
+            return new Iterator<>() {
+                private int index = lowIndex();
+                private int high = highIndex();
+                private int last = -1;
+                private int expectedModCount = store.modCount;
+
+                @Override
+                public boolean hasNext() {
+                    return index < high;
+                }
+
+                @Override
+                public Entry<Integer, MPFImageLocation> next() {
+                    if (store.modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (index >= high) {
+                        throw new NoSuchElementException();
+                    }
+                    last = index++;
+                    return new FrameEntry(store.frames[last], last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    if (store.modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    store.removeRange(last, last + 1);
+                    index = last;
+                    high--;
+                    last = -1;
+                    expectedModCount = store.modCount;
+                }
+            };
+        }
+    }
+
+    // Remembers where its frame was, and only looks the frame up again after the map's frames have changed, so that
+    // it stays correct after earlier entries are removed.
+    private class FrameEntry implements Entry<Integer, MPFImageLocation> {
+        private final int frame;
+        private int index;
+        private int expectedModCount;
+
+        FrameEntry(int frame, int index) {
+            this.frame = frame;
+            this.index = index;
+            expectedModCount = store.modCount;
+        }
+
+        // The index of the frame in the backing arrays, or a negative number if it has been removed.
+        private int currentIndex() {
+            if (store.modCount != expectedModCount) {
+                index = store.indexOf(frame);
+                expectedModCount = store.modCount;
+            }
+            return index;
+        }
+
+        @Override
+        public Integer getKey() {
+            return frame;
+        }
+
+        @Override
+        public MPFImageLocation getValue() {
+            int current = currentIndex();
+            return current < 0 ? null : store.locations[current];
+        }
+
+        @Override
+        public MPFImageLocation setValue(MPFImageLocation value) {
+            if (!inRange(frame)) {
+                throw new IllegalArgumentException("Frame " + frame + " is outside of the range of this view.");
+            }
+            int current = currentIndex();
+            if (current < 0) {
+                throw new IllegalStateException("Frame " + frame + " has been removed.");
+            }
+            MPFImageLocation previous = store.locations[current];
+            store.locations[current] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> other = (Entry<?, ?>) obj;
+            return getKey().equals(other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(frame) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return frame + "=" + getValue();
+        }
+    }
+
+    private static final class Store {
+        private int[] frames = new int[0];
+        private MPFImageLocation[] locations = new MPFImageLocation[0];
+        private int size;
+        private int modCount;
+
+        int indexOf(int frame) {
+            // Appends are the common case, so check the end before searching.
+            if (size > 0 && frames[size - 1] == frame) {
+                return size - 1;
+            }
+            return Arrays.binarySearch(frames, 0, size, frame);
+        }
+
+        // The index of the first frame that is not less than the given frame.
+        int lowerBound(long frame) {
+            if (frame > Integer.MAX_VALUE) {
+                return size;
+            }
+            if (frame < Integer.MIN_VALUE) {
+                return 0;
+            }
+            int index = Arrays.binarySearch(frames, 0, size, (int) frame);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        MPFImageLocation put(int frame, MPFImageLocation location) {
+            int index = size == 0 || frame > frames[size - 1] ? -size - 1 : indexOf(frame);
+            if (index >= 0) {
+                MPFImageLocation previous = locations[index];
+                locations[index] = location;
+                return previous;
+            }
+            int insertAt = -index - 1;
+            ensureCapacity(size + 1);
+            System.arraycopy(frames, insertAt, frames, insertAt + 1, size - insertAt);
+            System.arraycopy(locations, insertAt, locations, insertAt + 1, size - insertAt);
+            frames[insertAt] = frame;
+            locations[insertAt] = location;
+            size++;
+            modCount++;
+            return null;
+        }
+
+        void removeRange(int from, int to) {
+            if (from >= to) {
+                return;
+            }
+            System.arraycopy(frames, to, frames, from, size - to);
+            System.arraycopy(locations, to, locations, from, size - to);
+            Arrays.fill(locations, size - (to - from), size, null);
+            size -= to - from;
+            modCount++;
+        }
+
+        // Adds sorted keys, in the form built by putAll, with the existing entries.  Entries that are only appended
+        // go straight onto the end of the arrays; anything else is merged into new arrays in one pass.
+        void merge(long[] keys, MPFImageLocation[] unsorted) {
+            int count = keys.length;
+            if (size == 0 || (int) (keys[0] >> 32) > frames[size - 1]) {
+                ensureCapacity(size + count);
+                for (int i = 0; i < count; i++) {
+                    frames[size + i] = (int) (keys[i] >> 32);
+                    locations[size + i] = unsorted[(int) keys[i]];
+                }
+                size += count;
+                modCount++;
+                return;
+            }
+            int capacity = Math.max(8, size + count);
+            int[] mergedFrames = new int[capacity];
+            MPFImageLocation[] mergedLocations = new MPFImageLocation[capacity];
+            int existing = 0;
+            int added = 0;
+            int merged = 0;
+            while (existing < size || added < count) {
+                int addedFrame = added < count ? (int) (keys[added] >> 32) : 0;
+                if (added >= count || (existing < size && frames[existing] < addedFrame)) {
+                    mergedFrames[merged] = frames[existing];
+                    mergedLocations[merged] = locations[existing];
+                    existing++;
+                }
+                else {
+                    if (existing < size && frames[existing] == addedFrame) {
+                        // The new location replaces the existing one.
+                        existing++;
+                    }
+                    mergedFrames[merged] = addedFrame;
+                    mergedLocations[merged] = unsorted[(int) keys[added]];
+                    added++;
+                }
+                merged++;
+            }
+            frames = mergedFrames;
+            locations = mergedLocations;
+            size = merged;
+            modCount++;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > frames.length) {
+                int newCapacity = Math.max(capacity, Math.max(8, frames.length + (frames.length >> 1)));
+                frames = Arrays.copyOf(frames, newCapacity);
+                locations = Arrays.copyOf(locations, newCapacity);
+            }
+        }
+    }
+}
@@ -26,7 +26,6 @@
 
 package org.mitre.mpf.component.api.detection;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -70,9 +69,6 @@ public class MPFGenericTrack {
         Map<String, String> detectionProperties
     ) {
         this.confidence = confidence;
-        this.detectionProperties = new HashMap<String,String>();
-        if (detectionProperties!=null) {
-            this.detectionProperties.putAll(detectionProperties);
-        }
+        this.detectionProperties = MPFPropertyMap.copyOf(detectionProperties);
     }
 }
@@ -26,7 +26,6 @@
 
 package org.mitre.mpf.component.api.detection;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -119,9 +118,6 @@ public class MPFImageLocation {
         this.width = width;
         this.height = height;
         this.confidence = confidence;
-        this.detectionProperties = new HashMap<>();
-        if (detectionProperties!=null) {
-            this.detectionProperties.putAll(detectionProperties);
-        }
+        this.detectionProperties = MPFPropertyMap.copyOf(detectionProperties);
     }
 }
@@ -0,0 +1,382 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Many image locations stored as columns instead of as separate {@link MPFImageLocation MPFImageLocation} objects.
+ * The coordinates, sizes and confidences are each held in one primitive column, so a detection costs 20 bytes plus
+ * its property values, and filtering a batch only reads the columns it needs.
+ * <BR><BR>
+ * Detection properties are stored in one column of values per property name, shared by every detection in the batch.
+ * A detection that does not have a property has a null value in that column.
+ * <BR><BR>
+ * By default, the columns are {@code int[]} and {@code float[]} arrays on the heap.  A batch created with
+ * {@link #allocateDirect(int)} stores them in a direct {@link ByteBuffer}, outside of the heap, which can be passed to
+ * native code with {@link #getDirectBuffer()}.  Components that return {@code List<MPFImageLocation>} can return
+ * {@link #asList()}, which creates each {@link MPFImageLocation MPFImageLocation} only when it is read.  This class is
+ * not thread-safe.
+ */
+public class MPFImageLocationBatch {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // The number of bytes each detection takes up in a direct buffer: four ints and a float.
+    private static final int DIRECT_BYTES_PER_LOCATION = 5 * 4;
+
+    private final boolean direct;
+    private ByteBuffer directBuffer;
+    private IntBuffer xLeftUpper;
+    private IntBuffer yLeftUpper;
+    private IntBuffer width;
+    private IntBuffer height;
+    private FloatBuffer confidence;
+    private int capacity;
+    private int size;
+
+    private final Map<String, String[]> propertyColumns = new LinkedHashMap<>();
+
+    public MPFImageLocationBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MPFImageLocationBatch(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    private MPFImageLocationBatch(int initialCapacity, boolean direct) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initialCapacity must not be negative.");
+        }
+        this.direct = direct;
+        allocate(initialCapacity);
+    }
+
+    /**
+     * Creates an empty batch whose columns are stored in a direct {@link ByteBuffer}.
+     */
+    public static MPFImageLocationBatch allocateDirect(int initialCapacity) {
+        return new MPFImageLocationBatch(initialCapacity, true);
+    }
+
+    /**
+     * Creates a heap batch that contains the given image locations, in order.
+     */
+    public static MPFImageLocationBatch of(Collection<MPFImageLocation> locations) {
+        MPFImageLocationBatch batch = new MPFImageLocationBatch(locations.size());
+        for (MPFImageLocation location : locations) {
+            batch.add(location);
+        }
+        return batch;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Adds a detection without any properties.
+     *
+     * @return The index of the new detection.
+     */
+    public int add(int xLeftUpper, int yLeftUpper, int width, int height, float confidence) {
+        if (size == capacity) {
+            grow(size + 1);
+        }
+        int index = size++;
+        this.xLeftUpper.put(index, xLeftUpper);
+        this.yLeftUpper.put(index, yLeftUpper);
+        this.width.put(index, width);
+        this.height.put(index, height);
+        this.confidence.put(index, confidence);
+        return index;
+    }
+
+    /**
+     * Adds a copy of the image location and its properties.
+     *
+     * @return The index of the new detection.
+     */
+    public int add(MPFImageLocation location) {
+        int index = add(location.getXLeftUpper(), location.getYLeftUpper(), location.getWidth(),
+                        location.getHeight(), location.getConfidence());
+        for (Map.Entry<String, String> property : location.getDetectionProperties().entrySet()) {
+            setProperty(index, property.getKey(), property.getValue());
+        }
+        return index;
+    }
+
+    public int getXLeftUpper(int index) {
+        return xLeftUpper.get(checkIndex(index));
+    }
+
+    public int getYLeftUpper(int index) {
+        return yLeftUpper.get(checkIndex(index));
+    }
+
+    public int getWidth(int index) {
+        return width.get(checkIndex(index));
+    }
+
+    public int getHeight(int index) {
+        return height.get(checkIndex(index));
+    }
+
+    public float getConfidence(int index) {
+        return confidence.get(checkIndex(index));
+    }
+
+    public void setConfidence(int index, float confidence) {
+        this.confidence.put(checkIndex(index), confidence);
+    }
+
+    /**
+     * @return The value of the property for the detection, or null if the detection does not have the property.
+     */
+    public String getProperty(int index, String name) {
+        checkIndex(index);
+        String[] column = propertyColumns.get(name);
+        return column == null ? null : column[index];
+    }
+
+    /**
+     * Sets a property of one detection.  Setting the value to null removes the property from that detection.
+     */
+    public void setProperty(int index, String name, String value) {
+        checkIndex(index);
+        String[] column = propertyColumns.get(name);
+        if (column == null) {
+            if (value == null) {
+                return;
+            }
+            column = new String[capacity];
+            propertyColumns.put(name, column);
+        }
+        column[index] = value;
+    }
+
+    /**
+     * @return The names of the properties that have been set on any detection in the batch.
+     */
+    public Set<String> getPropertyNames() {
+        return Collections.unmodifiableSet(propertyColumns.keySet());
+    }
+
+    /**
+     * @return A new map of the properties of one detection.
+     */
+    public Map<String, String> getProperties(int index) {
+        checkIndex(index);
+        Map<String, String> properties = new HashMap<>();
+        for (Map.Entry<String, String[]> column : propertyColumns.entrySet()) {
+            String value = column.getValue()[index];
+            if (value != null) {
+                properties.put(column.getKey(), value);
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Creates an {@link MPFImageLocation MPFImageLocation} with the values of one detection.
+     */
+    public MPFImageLocation get(int index) {
+        return new MPFImageLocation(getXLeftUpper(index), getYLeftUpper(index), getWidth(index), getHeight(index),
+                                    getConfidence(index), getProperties(index));
+    }
+
+    /**
+     * Returns a read-only list view of the batch.  Each element is created when it is read, so later changes to the
+     * batch are reflected in the view, but not in elements that have already been read.
+     */
+    public List<MPFImageLocation> asList() {
+        return new AbstractList<>() {
+            @Override
+            public MPFImageLocation get(int index) {
+                return MPFImageLocationBatch.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Removes the detections whose index matches the filter.  The remaining detections keep their order, and are
+     * moved down in place so no columns are reallocated.
+     *
+     * @param filter Receives the index of each detection as it was before this call.
+     * @return The number of detections that were removed.
+     */
+    public int removeIf(IntPredicate filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.test(i)) {
+                continue;
+            }
+            if (kept != i) {
+                move(i, kept);
+            }
+            kept++;
+        }
+        int removed = size - kept;
+        for (String[] column : propertyColumns.values()) {
+            Arrays.fill(column, kept, size, null);
+        }
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * Removes the detections whose confidence is below the threshold.
+     *
+     * @return The number of detections that were removed.
+     */
+    public int removeBelowConfidence(float threshold) {
+        FloatBuffer confidence = this.confidence;
+        return removeIf(i -> confidence.get(i) < threshold);
+    }
+
+    public void clear() {
+        for (String[] column : propertyColumns.values()) {
+            Arrays.fill(column, 0, size, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the direct buffer that holds the columns of a batch created with {@link #allocateDirect(int)}.  It
+     * contains, in native byte order, the x coordinates, y coordinates, widths and heights as ints, then the
+     * confidences as floats.  Each column has room for {@link #getCapacity()} values, of which the first
+     * {@link #size()} are in use.  Adding detections beyond the capacity moves the columns to a new buffer.
+     *
+     * @return A duplicate of the direct buffer.
+     * @throws IllegalStateException If the batch is stored on the heap.
+     */
+    public ByteBuffer getDirectBuffer() {
+        if (!direct) {
+            throw new IllegalStateException("The batch is not stored in a direct buffer.");
+        }
+        return directBuffer.duplicate().order(ByteOrder.nativeOrder());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void move(int from, int to) {
+        xLeftUpper.put(to, xLeftUpper.get(from));
+        yLeftUpper.put(to, yLeftUpper.get(from));
+        width.put(to, width.get(from));
+        height.put(to, height.get(from));
+        confidence.put(to, confidence.get(from));
+        for (String[] column : propertyColumns.values()) {
+            column[to] = column[from];
+        }
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for a batch of " + size + '.');
+        }
+        return index;
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(minCapacity, Math.max(DEFAULT_CAPACITY, capacity + (capacity >> 1)));
+        IntBuffer oldX = xLeftUpper;
+        IntBuffer oldY = yLeftUpper;
+        IntBuffer oldWidth = width;
+        IntBuffer oldHeight = height;
+        FloatBuffer oldConfidence = confidence;
+        allocate(newCapacity);
+        copy(oldX, xLeftUpper);
+        copy(oldY, yLeftUpper);
+        copy(oldWidth, width);
+        copy(oldHeight, height);
+        oldConfidence.clear().limit(size);
+        confidence.put(oldConfidence).clear();
+        propertyColumns.replaceAll((name, column) -> Arrays.copyOf(column, newCapacity));
+    }
+
+    private void copy(IntBuffer from, IntBuffer to) {
+        from.clear().limit(size);
+        to.put(from).clear();
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        if (direct) {
+            directBuffer = ByteBuffer.allocateDirect(capacity * DIRECT_BYTES_PER_LOCATION)
+                    .order(ByteOrder.nativeOrder());
+            xLeftUpper = intColumn(0);
+            yLeftUpper = intColumn(1);
+            width = intColumn(2);
+            height = intColumn(3);
+            confidence = directBuffer.clear().position(4 * capacity * 4).limit(5 * capacity * 4)
+                    .slice().order(ByteOrder.nativeOrder()).asFloatBuffer();
+            directBuffer.clear();
+        }
+        else {
+            xLeftUpper = IntBuffer.wrap(new int[capacity]);
+            yLeftUpper = IntBuffer.wrap(new int[capacity]);
+            width = IntBuffer.wrap(new int[capacity]);
+            height = IntBuffer.wrap(new int[capacity]);
+            confidence = FloatBuffer.wrap(new float[capacity]);
+        }
+    }
+
+    private IntBuffer intColumn(int column) {
+        int columnBytes = capacity * 4;
+        return directBuffer.clear().position(column * columnBytes).limit((column + 1) * columnBytes)
+                .slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+}
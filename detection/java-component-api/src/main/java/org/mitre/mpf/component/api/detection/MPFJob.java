@@ -26,7 +26,6 @@
 
 package org.mitre.mpf.component.api.detection;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -36,8 +35,10 @@ public abstract class MPFJob {
 
     private final String jobName;
     private final String dataUri;
-    private final Map<String, String> jobProperties = new HashMap<>();
-    private final Map<String, String> mediaProperties = new HashMap<>();
+    private final MPFPropertyMap jobProperties;
+    private final MPFPropertyMap mediaProperties;
+    private volatile MPFTypedProperties typedJobProperties;
+    private volatile MPFTypedProperties typedMediaProperties;
 
     /**
      * Returns a unique name for the job.  This is used mainly for logging purposes.
@@ -74,7 +75,44 @@ public abstract class MPFJob {
     }
 
     /**
-     * Create a new job object.
+     * The job properties, parsed according to the component's descriptor.json.  They are parsed on the first call,
+     * so later changes to {@link #getJobProperties()} are not reflected.
+     *
+     * @return The typed job properties.
+     * @throws MPFComponentDetectionError With {@link MPFDetectionError#MPF_INVALID_PROPERTY} if a value does not
+     *                                    match its declared type.
+     * @see MPFPropertySchema#getComponentSchema()
+     */
+    public MPFTypedProperties typed() throws MPFComponentDetectionError {
+        MPFTypedProperties typed = typedJobProperties;
+        if (typed == null) {
+            typed = MPFPropertySchema.getComponentSchema().parse(jobProperties);
+            typedJobProperties = typed;
+        }
+        return typed;
+    }
+
+    /**
+     * The media properties, such as FRAME_COUNT and FPS, parsed once according to
+     * {@link MPFPropertySchema#MEDIA MPFPropertySchema.MEDIA}.
+     *
+     * @return The typed media properties.
+     * @throws MPFComponentDetectionError With {@link MPFDetectionError#MPF_INVALID_PROPERTY} if a value does not
+     *                                    match its type.
+     */
+    public MPFTypedProperties typedMedia() throws MPFComponentDetectionError {
+        MPFTypedProperties typed = typedMediaProperties;
+        if (typed == null) {
+            typed = MPFPropertySchema.MEDIA.parse(mediaProperties);
+            typedMediaProperties = typed;
+        }
+        return typed;
+    }
+
+    /**
+     * Create a new job object.  The property maps are not copied when they are the properties of another job or an
+     * {@link MPFCompactPropertyMap MPFCompactPropertyMap}; the jobs share them until one of the jobs changes them.
+     * Other maps are copied once into a {@code HashMap}.
      *
      * @param jobName    The name of the job being run.  Useful for logging purposes
      * @param dataUri    The URI for the piece of media being processed.
@@ -86,8 +124,8 @@ public abstract class MPFJob {
                      final Map <String, String> mediaProperties) {
         this.jobName = jobName;
         this.dataUri = dataUri;
-        this.jobProperties.putAll(jobProperties);
-        this.mediaProperties.putAll(mediaProperties);
+        this.jobProperties = MPFPropertyMap.snapshotOf(jobProperties);
+        this.mediaProperties = MPFPropertyMap.snapshotOf(mediaProperties);
     }
 
 
@@ -0,0 +1,250 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The properties of a job, track or image location.  It behaves like a {@code HashMap}, but it starts out sharing an
+ * immutable map with other jobs, tracks and locations, and only copies it into a map of its own the first time it is
+ * changed.
+ * <BR><BR>
+ * Passing a map to a track or location constructor stores a {@link MPFCompactPropertyMap MPFCompactPropertyMap}
+ * copy of it, and passing one to a job constructor stores a {@code HashMap} copy.  Passing the properties of another
+ * job, track or location, an {@code MPFCompactPropertyMap}, or a map created with {@link #adopt(Map)}, stores the same
+ * underlying map without copying it, unless that map has been changed since it was created, in which case it is
+ * copied once more.  Copying only reads the source, so several threads may pass the same properties to constructors
+ * at once, but this class is not otherwise thread-safe: a map must not be passed to a constructor while another thread
+ * is changing it.
+ */
+public class MPFPropertyMap extends AbstractMap<String, String> {
+
+    private Map<String, String> map;
+
+    // When true, map may be referred to by other instances and must be copied before it is changed.
+    private boolean shared;
+
+    public MPFPropertyMap() {
+        this(MPFCompactPropertyMap.EMPTY, true);
+    }
+
+    private MPFPropertyMap(Map<String, String> map, boolean shared) {
+        this.map = map;
+        this.shared = shared;
+    }
+
+    /**
+     * Creates the properties for a job, track or image location from the map passed to its constructor.
+     *
+     * @param source The properties, or null for none.
+     * @return A map that shares its contents with the source when that can be done safely.
+     */
+    public static MPFPropertyMap copyOf(Map<String, String> source) {
+        if (source instanceof MPFPropertyMap) {
+            MPFPropertyMap other = (MPFPropertyMap) source;
+            if (other.shared) {
+                return new MPFPropertyMap(other.map, true);
+            }
+            // The source still changes its map in place.  It is copied rather than marked as shared, so that copying
+            // never writes to the source and several threads can copy the same properties at once.
+            source = other.map;
+        }
+        MPFCompactPropertyMap compact = MPFCompactPropertyMap.tryCopyOf(source);
+        if (compact == null) {
+            // A compact map cannot hold a null key, which the HashMap used before allowed.
+            return new MPFPropertyMap(new HashMap<>(source), false);
+        }
+        return new MPFPropertyMap(compact, true);
+    }
+
+    /**
+     * Creates the properties for a job from the map passed to its constructor.  Unlike {@link #copyOf(Map)}, a map
+     * that cannot be shared is copied into a plain {@code HashMap}, which is cheaper to build than a compact map for
+     * the fresh maps a job is usually given.  The copy is never changed in place, so jobs created from this job's
+     * properties share it.
+     *
+     * @param source The properties, or null for none.
+     * @return A map that shares its contents with the source when that can be done safely.
+     */
+    public static MPFPropertyMap snapshotOf(Map<String, String> source) {
+        if (source instanceof MPFPropertyMap) {
+            MPFPropertyMap other = (MPFPropertyMap) source;
+            if (other.shared) {
+                return new MPFPropertyMap(other.map, true);
+            }
+            source = other.map;
+        }
+        if (source == null || source.isEmpty()) {
+            return new MPFPropertyMap();
+        }
+        if (source instanceof MPFCompactPropertyMap) {
+            return new MPFPropertyMap(source, true);
+        }
+        return new MPFPropertyMap(new HashMap<>(source), true);
+    }
+
+    /**
+     * Takes ownership of a map without copying it.  The caller must not use the map afterwards, since the returned
+     * properties and any track or location constructed with them may still refer to it.
+     *
+     * @param source The properties to take over.
+     * @return The properties, backed by the source map.
+     */
+    public static MPFPropertyMap adopt(Map<String, String> source) {
+        if (source instanceof MPFPropertyMap) {
+            return (MPFPropertyMap) source;
+        }
+        return new MPFPropertyMap(source, source instanceof MPFCompactPropertyMap);
+    }
+
+    /**
+     * @return True if both maps currently read from the same underlying map.
+     */
+    boolean sharesStorageWith(MPFPropertyMap other) {
+        return map == other.map;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public String get(Object key) {
+        return map.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public String put(String key, String value) {
+        return writable().put(key, value);
+    }
+
+    @Override
+    public String remove(Object key) {
+        if (!map.containsKey(key)) {
+            return null;
+        }
+        return writable().remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends String> other) {
+        writable().putAll(other);
+    }
+
+    @Override
+    public void clear() {
+        map = MPFCompactPropertyMap.EMPTY;
+        shared = true;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return map.size();
+            }
+
+            @Override
+            public void clear() {
+                MPFPropertyMap.this.clear();
+            }
+
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                Map<String, String> iterated = map;
+                Iterator<Entry<String, String>> iterator = iterated.entrySet().iterator();
+                return new Iterator<>() {
+                    private String lastKey;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        Entry<String, String> entry = iterator.next();
+                        lastKey = entry.getKey();
+                        return new PropertyEntry(entry);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (lastKey == null) {
+                            throw new IllegalStateException();
+                        }
+                        if (map == iterated && !shared) {
+                            iterator.remove();
+                        }
+                        else {
+                            // The iterator is reading a map that this one no longer changes in place.
+                            writable().remove(lastKey);
+                        }
+                        lastKey = null;
+                    }
+                };
+            }
+        };
+    }
+
+    private Map<String, String> writable() {
+        if (shared) {
+            map = new HashMap<>(map);
+            shared = false;
+        }
+        return map;
+    }
+
+    private class PropertyEntry extends SimpleEntry<String, String> {
+        PropertyEntry(Entry<String, String> entry) {
+            super(entry);
+        }
+
+        @Override
+        public String setValue(String value) {
+            super.setValue(value);
+            return put(getKey(), value);
+        }
+    }
+}
@@ -0,0 +1,431 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The names, types, and default values of a set of properties, compiled so that a job's string properties can be
+ * parsed once into primitive values.  Each property is assigned a slot in the arrays of an
+ * {@link MPFTypedProperties MPFTypedProperties}, and its default value is parsed when the schema is built.
+ * <BR><BR>
+ * The schema for a component's job properties comes from the "providesCollection" properties in its descriptor.json.
+ * {@link MPFDetectionComponentBase#init()} compiles it and installs it with {@link #setComponentSchema}, after which
+ * {@link MPFJob#typed()} uses it.  The schema for media properties is {@link #MEDIA}.  Schemas are immutable.
+ */
+public final class MPFPropertySchema {
+
+    public enum Type { INT, LONG, FLOAT, DOUBLE, BOOLEAN, STRING }
+
+    private static final Logger LOG = LoggerFactory.getLogger(MPFPropertySchema.class);
+
+    public static final MPFPropertySchema EMPTY = builder().build();
+
+    /**
+     * The media properties that the workflow manager provides.  FPS is a STRING because it may be a fraction such as
+     * "30000/1001"; parse it with MPFRational.  Parsing fails if any of these properties is malformed, so callers that
+     * only need some of them should build a schema of just those.
+     */
+    public static final MPFPropertySchema MEDIA = builder()
+            .add("FRAME_COUNT", Type.INT, null)
+            .add("FPS", Type.STRING, null)
+            .add("DURATION", Type.INT, null)
+            .add("FRAME_WIDTH", Type.INT, null)
+            .add("FRAME_HEIGHT", Type.INT, null)
+            .add("ROTATION", Type.DOUBLE, null)
+            .add("HORIZONTAL_FLIP", Type.BOOLEAN, null)
+            .add("HAS_CONSTANT_FRAME_RATE", Type.BOOLEAN, null)
+            .build();
+
+    private static volatile MPFPropertySchema componentSchema = EMPTY;
+
+    private final Map<String, Integer> slots;
+    private final String[] names;
+    private final Type[] types;
+    private final String[] defaultTexts;
+    private final long[] defaultIntegers;
+    private final double[] defaultReals;
+
+    private MPFPropertySchema(List<String> names, List<Type> types, List<String> defaults) {
+        int count = names.size();
+        this.slots = new HashMap<>(count * 2);
+        this.names = names.toArray(new String[0]);
+        this.types = types.toArray(new Type[0]);
+        this.defaultTexts = new String[count];
+        this.defaultIntegers = new long[count];
+        this.defaultReals = new double[count];
+        for (int slot = 0; slot < count; slot++) {
+            slots.put(this.names[slot], slot);
+            String defaultValue = defaults.get(slot);
+            if (defaultValue != null && !parse(this.types[slot], defaultValue.trim(), slot, defaultIntegers,
+                                               defaultReals)) {
+                throw new IllegalArgumentException("The default value \"" + defaultValue + "\" of " + this.names[slot]
+                                                   + " is not a valid " + this.types[slot] + '.');
+            }
+            defaultTexts[slot] = defaultValue;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Compiles the properties declared in a component descriptor.
+     *
+     * @param descriptor The contents of descriptor.json.
+     * @return The schema.
+     * @throws IOException If the descriptor cannot be read, is not valid JSON, or has an invalid default value.
+     */
+    public static MPFPropertySchema fromDescriptor(InputStream descriptor) throws IOException {
+        String json = new String(descriptor.readAllBytes(), StandardCharsets.UTF_8);
+        Builder builder = builder();
+        try {
+            Object algorithm = get(MPFJsonParser.parse(json), "algorithm");
+            Object properties = get(get(algorithm, "providesCollection"), "properties");
+            if (properties instanceof List) {
+                for (Object property : (List<?>) properties) {
+                    Object name = get(property, "name");
+                    if (!(name instanceof String)) {
+                        continue;
+                    }
+                    Object type = get(property, "type");
+                    Object defaultValue = get(property, "defaultValue");
+                    builder.add((String) name, toType(type),
+                                defaultValue == null ? null : toText(defaultValue));
+                }
+            }
+            return builder.build();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid component descriptor: " + e.getMessage(), e);
+        }
+    }
+
+    public static MPFPropertySchema fromDescriptor(Path descriptor) throws IOException {
+        try (InputStream stream = Files.newInputStream(descriptor)) {
+            return fromDescriptor(stream);
+        }
+    }
+
+    /**
+     * Finds and compiles the descriptor of the component.  The path in the "mpf.component.descriptor" system
+     * property or the MPF_COMPONENT_DESCRIPTOR environment variable is used if set.  Otherwise the descriptor is
+     * looked for where plugin packages put it relative to the component's jar: "descriptor/descriptor.json" in the
+     * jar's directory or in its parent.
+     *
+     * @param componentClass The component's class.
+     * @return The schema, or null if no descriptor was found.
+     * @throws IOException If a descriptor was found but could not be compiled.
+     */
+    public static MPFPropertySchema fromComponentDescriptor(Class<?> componentClass) throws IOException {
+        for (Path candidate : getDescriptorCandidates(componentClass)) {
+            if (Files.isRegularFile(candidate)) {
+                LOG.debug("Compiling the property schema in {}.", candidate);
+                return fromDescriptor(candidate);
+            }
+        }
+        return null;
+    }
+
+    public static MPFPropertySchema getComponentSchema() {
+        return componentSchema;
+    }
+
+    public static void setComponentSchema(MPFPropertySchema schema) {
+        componentSchema = schema == null ? EMPTY : schema;
+    }
+
+    /**
+     * Parses the values of every property in the schema.  Properties that are missing or blank take their default
+     * value.  All invalid values are reported together.
+     *
+     * @param values The string properties, such as a job's job properties.
+     * @return The parsed properties.
+     * @throws MPFComponentDetectionError With {@link MPFDetectionError#MPF_INVALID_PROPERTY} if any value cannot be
+     *                                    parsed as its property's type.
+     */
+    public MPFTypedProperties parse(Map<String, String> values) throws MPFComponentDetectionError {
+        int count = names.length;
+        long[] integers = new long[count];
+        double[] reals = new double[count];
+        String[] texts = new String[count];
+        StringBuilder errors = null;
+        for (int slot = 0; slot < count; slot++) {
+            String value = values.get(names[slot]);
+            if (value == null || value.isBlank()) {
+                texts[slot] = defaultTexts[slot];
+                integers[slot] = defaultIntegers[slot];
+                reals[slot] = defaultReals[slot];
+            }
+            else if (parse(types[slot], value.trim(), slot, integers, reals)) {
+                texts[slot] = value;
+            }
+            else {
+                errors = errors == null ? new StringBuilder() : errors.append("; ");
+                errors.append(names[slot]).append(" must be ").append(describe(types[slot]))
+                        .append(", but it was \"").append(value).append('"');
+            }
+        }
+        if (errors != null) {
+            throw new MPFComponentDetectionError(MPFDetectionError.MPF_INVALID_PROPERTY, errors.append('.').toString());
+        }
+        return new MPFTypedProperties(this, values, texts, integers, reals);
+    }
+
+    int slotOf(String name) {
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    Type typeOf(int slot) {
+        return types[slot];
+    }
+
+    // Parses the value into the slot of the integer or real array, without throwing on invalid input.
+    private static boolean parse(Type type, String value, int slot, long[] integers, double[] reals) {
+        switch (type) {
+            case INT:
+                return parseInteger(value, Integer.MIN_VALUE, Integer.MAX_VALUE, slot, integers);
+            case LONG:
+                return parseInteger(value, Long.MIN_VALUE, Long.MAX_VALUE, slot, integers);
+            case FLOAT:
+            case DOUBLE:
+                if (!isDecimal(value)) {
+                    return false;
+                }
+                reals[slot] = Double.parseDouble(value);
+                return true;
+            case BOOLEAN:
+                if (value.equalsIgnoreCase("true")) {
+                    integers[slot] = 1;
+                    return true;
+                }
+                if (value.equalsIgnoreCase("false")) {
+                    integers[slot] = 0;
+                    return true;
+                }
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private static boolean parseInteger(String value, long min, long max, int slot, long[] integers) {
+        int i = 0;
+        boolean negative = false;
+        if (!value.isEmpty() && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            i++;
+        }
+        if (i == value.length()) {
+            return false;
+        }
+        // Accumulate negatively so that Long.MIN_VALUE can be represented.
+        long result = 0;
+        for (; i < value.length(); i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+                return false;
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                return false;
+            }
+            result = -result;
+        }
+        if (result < min || result > max) {
+            return false;
+        }
+        integers[slot] = result;
+        return true;
+    }
+
+    // Accepts what Double.parseDouble accepts for ordinary decimal notation, so that it never throws.
+    private static boolean isDecimal(String value) {
+        int i = 0;
+        int length = value.length();
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        int digits = 0;
+        while (i < length && isAsciiDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            while (i < length && isAsciiDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < length && isAsciiDigit(value.charAt(i))) {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    // Character.isDigit also accepts digits from other scripts, which Double.parseDouble rejects.
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static String describe(Type type) {
+        switch (type) {
+            case INT:
+            case LONG:
+                return "an integer";
+            case FLOAT:
+            case DOUBLE:
+                return "a number";
+            case BOOLEAN:
+                return "true or false";
+            default:
+                return "a string";
+        }
+    }
+
+    private static Object get(Object object, String key) {
+        return object instanceof Map ? ((Map<?, ?>) object).get(key) : null;
+    }
+
+    private static Type toType(Object type) {
+        if (type instanceof String) {
+            try {
+                return Type.valueOf(((String) type).trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                // Fall through to STRING.
+            }
+        }
+        return Type.STRING;
+    }
+
+    // Descriptors normally quote defaults, but a bare JSON number or boolean is accepted too.
+    private static String toText(Object value) {
+        if (value instanceof Double) {
+            double number = (Double) value;
+            return number == Math.rint(number) && Math.abs(number) < 1e15
+                    ? String.valueOf((long) number)
+                    : String.valueOf(number);
+        }
+        return String.valueOf(value);
+    }
+
+    private static List<Path> getDescriptorCandidates(Class<?> componentClass) {
+        List<Path> candidates = new ArrayList<>();
+        String configured = System.getProperty("mpf.component.descriptor", System.getenv("MPF_COMPONENT_DESCRIPTOR"));
+        if (configured != null && !configured.isBlank()) {
+            candidates.add(Paths.get(configured));
+            return candidates;
+        }
+        try {
+            URL location = componentClass.getProtectionDomain().getCodeSource().getLocation();
+            Path path = Paths.get(location.toURI());
+            Path directory = Files.isDirectory(path) ? path : path.getParent();
+            if (directory != null) {
+                candidates.add(directory.resolve("descriptor").resolve("descriptor.json"));
+                if (directory.getParent() != null) {
+                    candidates.add(directory.getParent().resolve("descriptor").resolve("descriptor.json"));
+                }
+            }
+        } catch (SecurityException | NullPointerException | URISyntaxException
+                | FileSystemNotFoundException | IllegalArgumentException e) {
+            LOG.debug("Unable to determine where {} was loaded from.", componentClass, e);
+        }
+        return candidates;
+    }
+
+    /**
+     * Declares the properties of a schema in order.
+     */
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<Type> types = new ArrayList<>();
+        private final List<String> defaults = new ArrayList<>();
+
+        private Builder() {}
+
+        /**
+         * @param name         The property name.
+         * @param type         The type its values are parsed as.
+         * @param defaultValue The value used when the property is missing or blank, or null for none.
+         * @return This builder.
+         */
+        public Builder add(String name, Type type, String defaultValue) {
+            int existing = names.indexOf(name);
+            if (existing >= 0) {
+                types.set(existing, type);
+                defaults.set(existing, defaultValue);
+            }
+            else {
+                names.add(name);
+                types.add(type);
+                defaults.add(defaultValue);
+            }
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException If a default value is not valid for its type.
+         */
+        public MPFPropertySchema build() {
+            return new MPFPropertySchema(names, types, defaults);
+        }
+    }
+}
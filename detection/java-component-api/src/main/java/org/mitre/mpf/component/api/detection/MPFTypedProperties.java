@@ -0,0 +1,178 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import java.util.Map;
+
+/**
+ * Property values that were parsed once, according to an {@link MPFPropertySchema MPFPropertySchema}, into primitive
+ * arrays.  Reading a value is a hash lookup of its name followed by an array read, with no parsing and no boxing.
+ * Properties that are not in the schema can still be read as strings.
+ * <BR><BR>
+ * Values are immutable; they reflect the properties at the time they were parsed.
+ */
+public final class MPFTypedProperties {
+
+    private final MPFPropertySchema schema;
+    private final Map<String, String> values;
+    private final String[] texts;
+    private final long[] integers;
+    private final double[] reals;
+
+    MPFTypedProperties(MPFPropertySchema schema, Map<String, String> values, String[] texts, long[] integers,
+                       double[] reals) {
+        this.schema = schema;
+        // Job properties are shared rather than copied, so parsing several schemas from one job copies nothing.
+        this.values = MPFPropertyMap.snapshotOf(values);
+        this.texts = texts;
+        this.integers = integers;
+        this.reals = reals;
+    }
+
+    /**
+     * @return Whether the property has a value, either its own or its default.
+     */
+    public boolean has(String name) {
+        int slot = schema.slotOf(name);
+        return slot < 0 ? values.containsKey(name) : texts[slot] != null;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the property is not an INT in the schema or has no value.
+     */
+    public int getInt(String name) {
+        return (int) integers[requireSlot(name, MPFPropertySchema.Type.INT)];
+    }
+
+    public int getInt(String name, int defaultValue) {
+        int slot = optionalSlot(name, MPFPropertySchema.Type.INT);
+        return slot < 0 ? defaultValue : (int) integers[slot];
+    }
+
+    /**
+     * @throws IllegalArgumentException If the property is not an INT or LONG in the schema or has no value.
+     */
+    public long getLong(String name) {
+        return integers[requireSlot(name, MPFPropertySchema.Type.LONG)];
+    }
+
+    public long getLong(String name, long defaultValue) {
+        int slot = optionalSlot(name, MPFPropertySchema.Type.LONG);
+        return slot < 0 ? defaultValue : integers[slot];
+    }
+
+    /**
+     * @throws IllegalArgumentException If the property is not numeric in the schema or has no value.
+     */
+    public double getDouble(String name) {
+        return toDouble(requireSlot(name, MPFPropertySchema.Type.DOUBLE));
+    }
+
+    public double getDouble(String name, double defaultValue) {
+        int slot = optionalSlot(name, MPFPropertySchema.Type.DOUBLE);
+        return slot < 0 ? defaultValue : toDouble(slot);
+    }
+
+    public float getFloat(String name) {
+        return (float) getDouble(name);
+    }
+
+    public float getFloat(String name, float defaultValue) {
+        return (float) getDouble(name, defaultValue);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the property is not a BOOLEAN in the schema or has no value.
+     */
+    public boolean getBoolean(String name) {
+        return integers[requireSlot(name, MPFPropertySchema.Type.BOOLEAN)] != 0;
+    }
+
+    public boolean getBoolean(String name, boolean defaultValue) {
+        int slot = optionalSlot(name, MPFPropertySchema.Type.BOOLEAN);
+        return slot < 0 ? defaultValue : integers[slot] != 0;
+    }
+
+    /**
+     * @return The property's text, which is its default if it has no value of its own, or null if it has neither.
+     *         Properties of any type, and properties that are not in the schema, can be read as strings.
+     */
+    public String getString(String name) {
+        int slot = schema.slotOf(name);
+        return slot < 0 ? values.get(name) : texts[slot];
+    }
+
+    public String getString(String name, String defaultValue) {
+        String value = getString(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private double toDouble(int slot) {
+        MPFPropertySchema.Type type = schema.typeOf(slot);
+        return type == MPFPropertySchema.Type.INT || type == MPFPropertySchema.Type.LONG
+                ? integers[slot]
+                : reals[slot];
+    }
+
+    private int requireSlot(String name, MPFPropertySchema.Type type) {
+        int slot = schema.slotOf(name);
+        checkType(name, slot, type);
+        if (texts[slot] == null) {
+            throw new IllegalArgumentException(name + " has no value and no default.");
+        }
+        return slot;
+    }
+
+    // Returns -1 when the property has no value.
+    private int optionalSlot(String name, MPFPropertySchema.Type type) {
+        int slot = schema.slotOf(name);
+        checkType(name, slot, type);
+        return texts[slot] == null ? -1 : slot;
+    }
+
+    private void checkType(String name, int slot, MPFPropertySchema.Type requested) {
+        if (slot < 0) {
+            throw new IllegalArgumentException(name + " is not in the property schema.");
+        }
+        MPFPropertySchema.Type actual = schema.typeOf(slot);
+        boolean compatible;
+        switch (requested) {
+            case LONG:
+                compatible = actual == MPFPropertySchema.Type.INT || actual == MPFPropertySchema.Type.LONG;
+                break;
+            case DOUBLE:
+                compatible = actual != MPFPropertySchema.Type.BOOLEAN && actual != MPFPropertySchema.Type.STRING;
+                break;
+            default:
+                compatible = actual == requested;
+        }
+        if (!compatible) {
+            throw new IllegalArgumentException(name + " is a " + actual + " property and cannot be read as "
+                                               + requested + '.');
+        }
+    }
+}
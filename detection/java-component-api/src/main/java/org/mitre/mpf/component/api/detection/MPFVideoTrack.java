@@ -26,7 +26,6 @@
 
 package org.mitre.mpf.component.api.detection;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -41,7 +40,7 @@ public class MPFVideoTrack {
 
     private final int startFrame;
     private final int stopFrame;
-    private final Map<Integer, MPFImageLocation> frameLocations;
+    private final MPFFrameLocationMap frameLocations;
     private final float confidence;
     private final Map<String, String> detectionProperties;
 
@@ -71,13 +70,22 @@ public class MPFVideoTrack {
 
     /**
      * Gets the individual detections as a map with the frame number as key and the
-     * {@link MPFImageLocation MPFImageLocation} as the value.
+     * {@link MPFImageLocation MPFImageLocation} as the value.  The map is sorted by frame number.
      * @return The map of individual detections that make up the track.
      */
     public Map<Integer, MPFImageLocation> getFrameLocations() {
         return frameLocations;
     }
 
+    /**
+     * Gets the same detections as {@link #getFrameLocations()}, with access to frame ranges and lookups that do not
+     * box the frame number.
+     * @return The individual detections that make up the track, sorted by frame number.
+     */
+    public MPFFrameLocationMap getFrameLocationMap() {
+        return frameLocations;
+    }
+
     /**
      * Sets the frame locations for the track.  These are represented as a map with the frame number as key and the
      * {@link MPFImageLocation MPFImageLocation} as the value.  If there are existing frame locations, they will be
@@ -87,7 +95,7 @@ public class MPFVideoTrack {
      */
     public void setFrameLocations(Map<Integer, MPFImageLocation> frameLocations) {
         this.frameLocations.clear();
-        if (frameLocations==null) {
+        if (frameLocations!=null) {
             this.frameLocations.putAll(frameLocations);
         }
     }
@@ -133,14 +141,8 @@ public class MPFVideoTrack {
     ) {
         this.startFrame = startFrame;
         this.stopFrame = stopFrame;
-        this.frameLocations =  new HashMap<>();
-        if (frameLocations!=null) {
-            this.frameLocations.putAll(frameLocations);
-        }
+        this.frameLocations = new MPFFrameLocationMap(frameLocations);
         this.confidence = confidence;
-        this.detectionProperties = new HashMap<>();
-        if (detectionProperties!=null) {
-            this.detectionProperties.putAll(detectionProperties);
-        }
+        this.detectionProperties = MPFPropertyMap.copyOf(detectionProperties);
     }
 }
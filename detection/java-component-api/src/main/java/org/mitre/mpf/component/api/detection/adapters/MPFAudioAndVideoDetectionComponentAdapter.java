@@ -26,109 +26,527 @@
 
 package org.mitre.mpf.component.api.detection.adapters;
 
+import org.mitre.mpf.audioVideo.dsp.MPFSilenceSplitter;
+import org.mitre.mpf.audioVideo.dsp.MPFVoiceActivityDetector;
+import org.mitre.mpf.audioVideo.util.MPFFrameTimeMap;
+import org.mitre.mpf.audioVideo.util.MPFProcessTimeoutException;
+import org.mitre.mpf.audioVideo.util.MPFRational;
 import org.mitre.mpf.component.api.detection.*;
+import org.mitre.mpf.component.api.detection.util.MPFAudioTrackMerger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class MPFAudioAndVideoDetectionComponentAdapter extends MPFDetectionComponentBase {
 
     private static final Logger LOG = LoggerFactory.getLogger(MPFAudioAndVideoDetectionComponentAdapter.class);
 
+    /** When "true", audio is only passed to the component where voice activity is detected. */
+    public static final String VAD_ENABLED_PROPERTY = "VAD_ENABLED";
+
+    /** Milliseconds of audio kept before and after each region of voice activity.  Defaults to 250. */
+    public static final String VAD_PADDING_PROPERTY = "VAD_PADDING_MS";
+
+    /** How many dB above the noise floor audio must be to count as voice activity.  Defaults to 9. */
+    public static final String VAD_THRESHOLD_PROPERTY = "VAD_THRESHOLD_DB";
+
+    /**
+     * When "true", long jobs are split at pauses into pieces that are passed to the component concurrently.  Only
+     * enable this for components whose getDetections(MPFAudioJob) is thread-safe.
+     */
+    public static final String PARALLEL_SPLIT_ENABLED_PROPERTY = "PARALLEL_SPLIT_ENABLED";
+
+    /** The maximum number of pieces a job is split into.  Defaults to the number of available processors. */
+    public static final String PARALLEL_SPLIT_COUNT_PROPERTY = "PARALLEL_SPLIT_COUNT";
+
+    /** The minimum length of a piece in milliseconds.  Defaults to 60000. */
+    public static final String PARALLEL_SPLIT_MIN_PROPERTY = "PARALLEL_SPLIT_MIN_MS";
+
+    /** How far in milliseconds a cut may move from its evenly spaced target to find a pause.  Defaults to 5000. */
+    public static final String PARALLEL_SPLIT_SEARCH_PROPERTY = "PARALLEL_SPLIT_SEARCH_MS";
+
+    /**
+     * When "true", jobs are divided into overlapping windows of a fixed size that are passed to the component
+     * concurrently, and the tracks found in the windows are merged.  Unlike PARALLEL_SPLIT_ENABLED, this never depends
+     * on where the pauses are, and it takes precedence when both are set.  Only enable this for components whose
+     * getDetections(MPFAudioJob) is thread-safe.
+     */
+    public static final String SLIDING_WINDOW_ENABLED_PROPERTY = "SLIDING_WINDOW_ENABLED";
+
+    /** The length of each window in milliseconds.  Defaults to 60000. */
+    public static final String SLIDING_WINDOW_PROPERTY = "SLIDING_WINDOW_MS";
+
+    /**
+     * How much consecutive windows overlap in milliseconds.  Defaults to 5000; it should be longer than the longest
+     * detection that must not be cut.
+     */
+    public static final String SLIDING_WINDOW_OVERLAP_PROPERTY = "SLIDING_WINDOW_OVERLAP_MS";
+
+    /** The intersection over union at which tracks from different windows are duplicates.  Defaults to 0.5. */
+    public static final String SLIDING_WINDOW_MERGE_IOU_PROPERTY = "SLIDING_WINDOW_MERGE_IOU";
+
+    /** How much two parts of a track cut by a window boundary must overlap to be rejoined.  Defaults to 0. */
+    public static final String SLIDING_WINDOW_MERGE_OVERLAP_PROPERTY = "SLIDING_WINDOW_MERGE_OVERLAP_MS";
+
+    private static final int DEFAULT_VAD_PADDING_MS = 250;
+    private static final int DEFAULT_WINDOW_MS = 60_000;
+    private static final int DEFAULT_WINDOW_OVERLAP_MS = 5_000;
+    private static final int DEFAULT_SPLIT_MIN_MS = 60_000;
+    private static final int DEFAULT_SPLIT_SEARCH_MS = 5_000;
+
+    // Each schema is only parsed, and so only validated, when the adapter needs its properties.  Invalid values in
+    // media properties the adapter does not read, or in the properties of a feature that is disabled, are ignored.
+    private static final MPFPropertySchema VIDEO_MEDIA_SCHEMA = MPFPropertySchema.builder()
+            .add("FRAME_COUNT", MPFPropertySchema.Type.INT, null)
+            // Kept as text because it may be a fraction such as "30000/1001".
+            .add("FPS", MPFPropertySchema.Type.STRING, null)
+            .add("DURATION", MPFPropertySchema.Type.INT, null)
+            .build();
+
+    private static final MPFPropertySchema VAD_SCHEMA = MPFPropertySchema.builder()
+            .add(VAD_PADDING_PROPERTY, MPFPropertySchema.Type.INT, String.valueOf(DEFAULT_VAD_PADDING_MS))
+            .add(VAD_THRESHOLD_PROPERTY, MPFPropertySchema.Type.DOUBLE,
+                 String.valueOf(MPFVoiceActivityDetector.DEFAULT_THRESHOLD_DB))
+            .build();
+
+    private static final MPFPropertySchema SPLIT_SCHEMA = MPFPropertySchema.builder()
+            .add(PARALLEL_SPLIT_COUNT_PROPERTY, MPFPropertySchema.Type.INT, null)
+            .add(PARALLEL_SPLIT_MIN_PROPERTY, MPFPropertySchema.Type.INT, String.valueOf(DEFAULT_SPLIT_MIN_MS))
+            .add(PARALLEL_SPLIT_SEARCH_PROPERTY, MPFPropertySchema.Type.INT, String.valueOf(DEFAULT_SPLIT_SEARCH_MS))
+            .build();
+
+    private static final MPFPropertySchema WINDOW_SCHEMA = MPFPropertySchema.builder()
+            .add(SLIDING_WINDOW_PROPERTY, MPFPropertySchema.Type.INT, String.valueOf(DEFAULT_WINDOW_MS))
+            .add(SLIDING_WINDOW_OVERLAP_PROPERTY, MPFPropertySchema.Type.INT, String.valueOf(DEFAULT_WINDOW_OVERLAP_MS))
+            .add(SLIDING_WINDOW_MERGE_IOU_PROPERTY, MPFPropertySchema.Type.DOUBLE,
+                 String.valueOf(MPFAudioTrackMerger.DEFAULT_MIN_IOU))
+            .add(SLIDING_WINDOW_MERGE_OVERLAP_PROPERTY, MPFPropertySchema.Type.INT,
+                 String.valueOf(MPFAudioTrackMerger.DEFAULT_MIN_OVERLAP_MS))
+            .build();
+
+    // The rate of the samples from MPFAudioDetectionMediaHandler.ripAudioSamples.
+    private static final int RIP_SAMPLING_RATE = 16000;
+
+    private static final AtomicInteger SPLIT_THREAD_COUNT = new AtomicInteger();
+
+    // Components may block on I/O or native code, so the pieces run in their own pool rather than the common one.
+    private static final ForkJoinPool SPLIT_POOL = new ForkJoinPool(
+            Runtime.getRuntime().availableProcessors(),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("mpf-audio-split-" + SPLIT_THREAD_COUNT.incrementAndGet());
+                return thread;
+            },
+            null, false);
+
     public List<MPFVideoTrack> getDetections(MPFVideoJob job) throws MPFComponentDetectionError {
+        AudioJobForVideo audio = createAudioJob(job);
+
+        // get audio tracks
+
+        List<MPFAudioTrack> audioTracks = getDetectionsForVoiceActivity(audio.job);
+        LOG.info("Results: {}", audioTracks.size());
+
+        // convert audio tracks to video tracks
+        List<MPFVideoTrack> tracks = new LinkedList<>();
+        for (MPFAudioTrack audioTrack : audioTracks) {
+            tracks.add(toVideoTrack(audioTrack, audio.timeMap));
+        }
+
+        return tracks;
+    }
+
+    /**
+     * Passes each audio track to the sink as a video track as soon as the component produces it.  The component's
+     * {@link #getDetections(MPFAudioJob, MPFDetectionSink)} is called directly, so a component that overrides it
+     * streams its results all the way through.  When the job enables voice activity detection, parallel splitting
+     * or sliding windows, the audio tracks must all be available before they are combined, so they are forwarded
+     * once {@link #getDetectionsForVoiceActivity(MPFAudioJob)} returns.
+     */
+    @Override
+    public void getDetections(MPFVideoJob job, MPFDetectionSink<MPFVideoTrack> sink)
+            throws MPFComponentDetectionError {
+        AudioJobForVideo audio = createAudioJob(job);
+        Map<String, String> jobProperties = audio.job.getJobProperties();
+        if (Boolean.parseBoolean(jobProperties.get(VAD_ENABLED_PROPERTY))
+                || Boolean.parseBoolean(jobProperties.get(PARALLEL_SPLIT_ENABLED_PROPERTY))
+                || Boolean.parseBoolean(jobProperties.get(SLIDING_WINDOW_ENABLED_PROPERTY))) {
+            for (MPFAudioTrack audioTrack : getDetectionsForVoiceActivity(audio.job)) {
+                if (!sink.emit(toVideoTrack(audioTrack, audio.timeMap))) {
+                    return;
+                }
+            }
+            return;
+        }
+
+        VideoTrackForwarder forwarder = new VideoTrackForwarder(sink, audio.timeMap);
+        MPFDetectionSink<MPFAudioTrack> audioSink = new MPFDetectionSink<>(forwarder);
+        try {
+            getDetections(audio.job, audioSink);
+        }
+        catch (MPFComponentDetectionError | RuntimeException e) {
+            audioSink.fail(e);
+            throw e;
+        }
+        audioSink.complete();
+        if (forwarder.error != null) {
+            throw forwarder.error;
+        }
+    }
+
+    /**
+     * Creates the audio job that covers the same time range as the video job, along with the mapping that converts
+     * the resulting audio tracks back to frames.
+     */
+    private static AudioJobForVideo createAudioJob(MPFVideoJob job) throws MPFComponentDetectionError {
         LOG.debug("jobName = {}, startFrame = {}, stopFrame = {}, dataUri = {}, size of jobProperties = {}, size of mediaProperties = {}",
                 job.getJobName(), job.getStartFrame(), job.getStopFrame(), job.getDataUri(),
                 job.getJobProperties().size(), job.getMediaProperties().size());
 
-        List<MPFVideoTrack> tracks = new LinkedList<>();
         Map<String,String> mediaProperties = job.getMediaProperties();
 
-        Integer frameCount;
-        try {
-            if (mediaProperties.get("FRAME_COUNT") == null) {
-                LOG.error("Could not obtain video frame count.");
-                throw new MPFComponentDetectionError(MPFDetectionError.MPF_MISSING_PROPERTY, "Could not obtain video frame count.");
-            }
-            frameCount = Integer.valueOf(mediaProperties.get("FRAME_COUNT"));
-        } catch (NumberFormatException ex) {
+        // Invalid values are reported as MPF_INVALID_PROPERTY.
+        MPFTypedProperties media = VIDEO_MEDIA_SCHEMA.parse(mediaProperties);
+
+        if (!media.has("FRAME_COUNT")) {
             LOG.error("Could not obtain video frame count.");
-            throw new MPFComponentDetectionError(MPFDetectionError.MPF_INVALID_PROPERTY, "FRAME_COUNT property is not an integer value.");
+            throw new MPFComponentDetectionError(MPFDetectionError.MPF_MISSING_PROPERTY, "Could not obtain video frame count.");
         }
+        int frameCount = media.getInt("FRAME_COUNT");
 
-        Float fps;
-        try {
-            if (mediaProperties.get("FPS") == null) {
-                LOG.error("Could not obtain video frame rate.");
-                throw new MPFComponentDetectionError(MPFDetectionError.MPF_MISSING_PROPERTY, "Could not obtain video frame rate.");
-            }
-            fps = Float.valueOf(mediaProperties.get("FPS"));
-        } catch (NumberFormatException ex) {
+        if (!media.has("FPS")) {
+            LOG.error("Could not obtain video frame rate.");
+            throw new MPFComponentDetectionError(MPFDetectionError.MPF_MISSING_PROPERTY, "Could not obtain video frame rate.");
+        }
+        // Kept as an exact fraction so that frame/time conversions do not drift on long videos.
+        MPFRational fps = MPFRational.parse(media.getString("FPS"));
+        if (fps == null || fps.getNumerator() <= 0) {
             LOG.error("Could not obtain video frame rate.");
-            throw new MPFComponentDetectionError(MPFDetectionError.MPF_INVALID_PROPERTY, "FPS property is an invalid floating-point value.");
+            throw new MPFComponentDetectionError(MPFDetectionError.MPF_INVALID_PROPERTY,
+                    "FPS property must be a positive number or fraction, but it was \"" + media.getString("FPS") + "\".");
         }
 
-        Integer duration;
-        try {
-            if (mediaProperties.get("DURATION") == null) {
-                LOG.error("Could not obtain duration.");
-                throw new MPFComponentDetectionError(MPFDetectionError.MPF_MISSING_PROPERTY, "Could not obtain duration.");
-            }
-            duration = Integer.valueOf(mediaProperties.get("DURATION"));
-        }  catch (NumberFormatException ex) {
+        if (!media.has("DURATION")) {
             LOG.error("Could not obtain duration.");
-            throw new MPFComponentDetectionError(MPFDetectionError.MPF_INVALID_PROPERTY, "DURATION property is not an integer value.");
+            throw new MPFComponentDetectionError(MPFDetectionError.MPF_MISSING_PROPERTY, "Could not obtain duration.");
         }
+        int duration = media.getInt("DURATION");
 
         // determine actual start and stop frames
 
         int startFrame = job.getStartFrame();
         int stopFrame = job.getStopFrame();
 
-        float fpms =  fps / 1000;
-        int startTime = (int) (startFrame / fpms);
+        MPFFrameTimeMap timeMap = getFrameTimeMap(job, fps);
+        int startTime = (int) timeMap.getTimeMs(startFrame);
         int stopTime;
 
         // The WFM will pass a job stop frame equal to FRAME_COUNT-1 for the last video segment.
         // We want to use the detected DURATION in such cases instead to ensure we process the entire audio track.
         // Only use the job stop frame if it differs from FRAME_COUNT-1.
         if (stopFrame < frameCount - 1) {
-            stopTime = (int) (stopFrame / fpms);
+            stopTime = (int) timeMap.getTimeMs(stopFrame);
         } else if (duration > 0) {
             stopTime = duration;
         } else if (frameCount > 0) {
-            stopTime = (int) (frameCount / fpms);
+            stopTime = (int) timeMap.getTimeMs(frameCount);
         } else {
             stopTime = 0;
         }
 
-        // get audio tracks
+        MPFAudioJob audioJob = new MPFAudioJob(job.getJobName(), job.getDataUri(), job.getJobProperties(), mediaProperties, startTime, stopTime);
+        return new AudioJobForVideo(audioJob, timeMap);
+    }
 
-        List<MPFAudioTrack> audioTracks = getDetections(new MPFAudioJob(job.getJobName(), job.getDataUri(), job.getJobProperties(), mediaProperties, startTime, stopTime));
-        LOG.info("Results: {}", audioTracks.size());
+    private static MPFVideoTrack toVideoTrack(MPFAudioTrack audioTrack, MPFFrameTimeMap timeMap) {
+        LOG.debug("Track start time: {}, track stop time: {}", audioTrack.getStartTime(), audioTrack.getStopTime());
+        int trackStartFrame = (int) timeMap.getFrameAtOrBefore(audioTrack.getStartTime());
+        int trackStopFrame  = (int) timeMap.getFrameAtOrAfter(audioTrack.getStopTime());
 
-        // convert audio tracks to video tracks
-        for (MPFAudioTrack audioTrack : audioTracks) {
-            LOG.debug("Track start time: {}, track stop time: {}", audioTrack.getStartTime(), audioTrack.getStopTime());
-            int trackStartFrame = (int) Math.floor(fpms * audioTrack.getStartTime());
-            int trackStopFrame  = (int) Math.ceil(fpms * audioTrack.getStopTime());
+        MPFVideoTrack videoTrack = new MPFVideoTrack(trackStartFrame, trackStopFrame,
+                new HashMap<>(), audioTrack.getConfidence(), audioTrack.getDetectionProperties());
+
+        videoTrack.getFrameLocations().put(trackStartFrame, new MPFImageLocation(0, 0, 0, 0, audioTrack.getConfidence(), audioTrack.getDetectionProperties()));
+
+        LOG.info("Added video track: startFrame {}, stopFrame {}, location count {}", trackStartFrame, trackStopFrame, videoTrack.getFrameLocations().size());
+        return videoTrack;
+    }
 
-            MPFVideoTrack videoTrack = new MPFVideoTrack(trackStartFrame, trackStopFrame,
-                    new HashMap<>(), audioTrack.getConfidence(), audioTrack.getDetectionProperties());
+    public abstract List<MPFAudioTrack> getDetections(MPFAudioJob job) throws MPFComponentDetectionError;
 
-            videoTrack.getFrameLocations().put(trackStartFrame, new MPFImageLocation(0, 0, 0, 0, audioTrack.getConfidence(), audioTrack.getDetectionProperties()));
+    /**
+     * Chooses how to convert between the job's frames and milliseconds.  Only media that the workflow manager reports
+     * as having a variable frame rate, with "HAS_CONSTANT_FRAME_RATE" set to "false", has the timestamp of every frame
+     * read, once per file, so that tracks map to the frames that were actually shown at those times.  Everything else,
+     * including media for which the property is missing, uses the exact FPS without starting ffprobe.  If the
+     * timestamps cannot be read, the FPS is used.
+     */
+    private static MPFFrameTimeMap getFrameTimeMap(MPFVideoJob job, MPFRational fps) {
+        String constantRate = job.getMediaProperties().get("HAS_CONSTANT_FRAME_RATE");
+        if (constantRate == null || !constantRate.trim().equalsIgnoreCase("false")) {
+            return MPFFrameTimeMap.forConstantRate(fps);
+        }
+        try {
+            return MPFFrameTimeMap.getCached(new File(job.getDataUri()));
+        } catch (IOException e) {
+            LOG.debug("Could not read the frame timestamps of {}; assuming a constant {} fps.",
+                      job.getDataUri(), fps, e);
+            return MPFFrameTimeMap.forConstantRate(fps);
+        }
+    }
 
-            tracks.add(videoTrack);
-            LOG.info("Added video track: startFrame {}, stopFrame {}, location count {}", trackStartFrame, trackStopFrame, videoTrack.getFrameLocations().size());
+    /**
+     * Calls {@link #getDetections(MPFAudioJob)} for the job.  When the job's "VAD_ENABLED" property is "true", the
+     * audio is first checked for voice activity, and the component is instead called once for each active region,
+     * padded by "VAD_PADDING_MS" on each side.  Each of those jobs covers its region's absolute range within the
+     * media, so the tracks they return need no adjustment.  Regions whose padding overlaps are combined.  The
+     * fraction of the audio that was skipped is logged.
+     *
+     * @param job The audio job.
+     * @return The tracks from all of the active regions, in time order.
+     * @throws MPFComponentDetectionError If a VAD property is invalid or the component fails.
+     */
+    public List<MPFAudioTrack> getDetectionsForVoiceActivity(MPFAudioJob job) throws MPFComponentDetectionError {
+        Map<String, String> jobProperties = job.getJobProperties();
+        if (!Boolean.parseBoolean(jobProperties.get(VAD_ENABLED_PROPERTY))) {
+            return getDetectionsInParallel(job, null);
         }
 
+        MPFTypedProperties vadProperties = VAD_SCHEMA.parse(jobProperties);
+        int paddingMs = Math.max(0, vadProperties.getInt(VAD_PADDING_PROPERTY));
+        double thresholdDb = vadProperties.getDouble(VAD_THRESHOLD_PROPERTY);
+
+        ShortBuffer samples;
+        try {
+            samples = ripAudioForVoiceActivity(job);
+        } catch (MPFProcessTimeoutException e) {
+            // Decoding the whole range again would most likely hang the same way.
+            throw MPFAudioDetectionMediaHandler.toDetectionError(e);
+        } catch (IOException e) {
+            // Let the component read the media and report the problem as it would without VAD.
+            LOG.warn("Could not rip audio for voice activity detection; processing the whole range.", e);
+            return getDetectionsInParallel(job, null);
+        }
+
+        MPFVoiceActivityDetector detector = new MPFVoiceActivityDetector(
+                RIP_SAMPLING_RATE, MPFVoiceActivityDetector.DEFAULT_FRAME_MS, thresholdDb,
+                MPFVoiceActivityDetector.DEFAULT_MIN_GAP_MS);
+        List<int[]> ranges = new ArrayList<>();
+        for (MPFVoiceActivityDetector.Region region : detector.detect(samples)) {
+            int start = Math.max(job.getStartTime(), job.getStartTime() + region.getStartMs() - paddingMs);
+            int stop = Math.min(job.getStopTime(), job.getStartTime() + region.getStopMs() + paddingMs);
+            int[] previous = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (previous != null && start <= previous[1]) {
+                previous[1] = Math.max(previous[1], stop);
+            }
+            else {
+                ranges.add(new int[] { start, stop });
+            }
+        }
+
+        long totalMs = Math.max(0, job.getStopTime() - job.getStartTime());
+        long activeMs = ranges.stream().mapToLong(r -> r[1] - r[0]).sum();
+        LOG.info("Voice activity detection found {} active regions in job {}; skipping {}% of {} ms of audio.",
+                 ranges.size(), job.getJobName(),
+                 totalMs == 0 ? 0 : Math.round(100.0 * (totalMs - activeMs) / totalMs), totalMs);
+
+        List<MPFAudioTrack> tracks = new ArrayList<>();
+        for (int[] range : ranges) {
+            MPFAudioJob regionJob = createSubJob(job, range[0], range[1]);
+            tracks.addAll(getDetectionsInParallel(regionJob, slice(samples, job.getStartTime(), range[0], range[1])));
+        }
         return tracks;
     }
 
-    public abstract List<MPFAudioTrack> getDetections(MPFAudioJob job) throws MPFComponentDetectionError;
+    /**
+     * Calls {@link #getDetections(MPFAudioJob)} for the job.  When the job's "PARALLEL_SPLIT_ENABLED" property is
+     * "true" and the job is long enough, its range is instead cut into up to "PARALLEL_SPLIT_COUNT" pieces of at least
+     * "PARALLEL_SPLIT_MIN_MS" each, and the pieces are passed to the component concurrently.  Each cut is moved to the
+     * quietest point within "PARALLEL_SPLIT_SEARCH_MS" of its evenly spaced target, so that speech is not split
+     * mid-utterance.  Each piece is a job over its absolute range within the media, so the tracks need no
+     * adjustment; they are returned sorted by start time.
+     * <BR><BR>
+     * When the "SLIDING_WINDOW_ENABLED" property is "true", the job is instead divided into windows of
+     * "SLIDING_WINDOW_MS" that overlap by "SLIDING_WINDOW_OVERLAP_MS", for components that must not depend on where
+     * the cuts fall.  Tracks found in more than one window, or cut by a window boundary, are merged with an
+     * {@link MPFAudioTrackMerger MPFAudioTrackMerger}.
+     *
+     * @param job The audio job.
+     * @return The tracks from all of the pieces or windows.
+     * @throws MPFComponentDetectionError If a split or window property is invalid or the component fails on any
+     *                                    piece.
+     */
+    public List<MPFAudioTrack> getDetectionsInParallel(MPFAudioJob job) throws MPFComponentDetectionError {
+        return getDetectionsInParallel(job, null);
+    }
+
+    // The samples, if not null, cover exactly the job's range.
+    private List<MPFAudioTrack> getDetectionsInParallel(MPFAudioJob job, ShortBuffer samples)
+            throws MPFComponentDetectionError {
+        Map<String, String> jobProperties = job.getJobProperties();
+        if (Boolean.parseBoolean(jobProperties.get(SLIDING_WINDOW_ENABLED_PROPERTY))) {
+            return getDetectionsInWindows(job);
+        }
+        if (!Boolean.parseBoolean(jobProperties.get(PARALLEL_SPLIT_ENABLED_PROPERTY))) {
+            return getDetections(job);
+        }
+        MPFTypedProperties splitProperties = SPLIT_SCHEMA.parse(jobProperties);
+        int maxPieces = splitProperties.getInt(PARALLEL_SPLIT_COUNT_PROPERTY,
+                                               Runtime.getRuntime().availableProcessors());
+        int minPieceMs = Math.max(1, splitProperties.getInt(PARALLEL_SPLIT_MIN_PROPERTY));
+        int searchMs = Math.max(0, splitProperties.getInt(PARALLEL_SPLIT_SEARCH_PROPERTY));
+        int pieces = Math.min(maxPieces, (job.getStopTime() - job.getStartTime()) / minPieceMs);
+        if (pieces <= 1) {
+            return getDetections(job);
+        }
+
+        if (samples == null) {
+            try {
+                samples = ripAudioForVoiceActivity(job);
+            } catch (MPFProcessTimeoutException e) {
+                throw MPFAudioDetectionMediaHandler.toDetectionError(e);
+            } catch (IOException e) {
+                LOG.warn("Could not rip audio to find pauses; processing the whole range as one job.", e);
+                return getDetections(job);
+            }
+        }
+        int[] cuts = MPFSilenceSplitter.findCutPoints(samples, RIP_SAMPLING_RATE, pieces, searchMs);
+
+        List<Callable<List<MPFAudioTrack>>> tasks = new ArrayList<>(pieces);
+        int pieceStart = job.getStartTime();
+        for (int i = 0; i <= cuts.length; i++) {
+            int pieceStop = i < cuts.length ? job.getStartTime() + cuts[i] : job.getStopTime();
+            MPFAudioJob pieceJob = createSubJob(job, pieceStart, pieceStop);
+            tasks.add(() -> getDetections(pieceJob));
+            pieceStart = pieceStop;
+        }
+        LOG.info("Split job {} from {} to {} ms into {} pieces at {}.", job.getJobName(), job.getStartTime(),
+                 job.getStopTime(), pieces, Arrays.toString(cuts));
+
+        List<MPFAudioTrack> tracks = new ArrayList<>();
+        for (Future<List<MPFAudioTrack>> result : SPLIT_POOL.invokeAll(tasks)) {
+            tracks.addAll(await(result));
+        }
+        tracks.sort(Comparator.comparingInt(MPFAudioTrack::getStartTime));
+        return tracks;
+    }
+
+    /**
+     * Divides the job into overlapping windows, runs the component on them concurrently, and merges the tracks that
+     * were found more than once or cut by a window boundary.
+     */
+    private List<MPFAudioTrack> getDetectionsInWindows(MPFAudioJob job) throws MPFComponentDetectionError {
+        MPFTypedProperties windowProperties = WINDOW_SCHEMA.parse(job.getJobProperties());
+        int windowMs = windowProperties.getInt(SLIDING_WINDOW_PROPERTY);
+        int overlapMs = windowProperties.getInt(SLIDING_WINDOW_OVERLAP_PROPERTY);
+        if (windowMs <= 0 || overlapMs < 0 || overlapMs >= windowMs) {
+            throw new MPFComponentDetectionError(MPFDetectionError.MPF_INVALID_PROPERTY,
+                    SLIDING_WINDOW_PROPERTY + " must be positive and greater than " + SLIDING_WINDOW_OVERLAP_PROPERTY
+                    + ", which must not be negative.");
+        }
+        MPFAudioTrackMerger merger = new MPFAudioTrackMerger(
+                windowProperties.getDouble(SLIDING_WINDOW_MERGE_IOU_PROPERTY),
+                windowProperties.getInt(SLIDING_WINDOW_MERGE_OVERLAP_PROPERTY));
+
+        if (job.getStopTime() - job.getStartTime() <= windowMs) {
+            return getDetections(job);
+        }
+        List<MPFAudioJob> windowJobs = new ArrayList<>();
+        int step = windowMs - overlapMs;
+        for (int start = job.getStartTime(); ; start += step) {
+            int stop = Math.min(job.getStopTime(), start + windowMs);
+            windowJobs.add(createSubJob(job, start, stop));
+            if (stop == job.getStopTime()) {
+                break;
+            }
+        }
+        LOG.info("Divided job {} from {} to {} ms into {} windows of {} ms overlapping by {} ms.", job.getJobName(),
+                 job.getStartTime(), job.getStopTime(), windowJobs.size(), windowMs, overlapMs);
+
+        List<Callable<List<MPFAudioTrack>>> tasks = new ArrayList<>(windowJobs.size());
+        for (MPFAudioJob windowJob : windowJobs) {
+            tasks.add(() -> getDetections(windowJob));
+        }
+        List<Future<List<MPFAudioTrack>>> results = SPLIT_POOL.invokeAll(tasks);
+        for (int i = 0; i < results.size(); i++) {
+            MPFAudioJob windowJob = windowJobs.get(i);
+            merger.addWindow(windowJob.getStartTime(), windowJob.getStopTime(), await(results.get(i)));
+        }
+        return merger.merge();
+    }
+
+    private static List<MPFAudioTrack> await(Future<List<MPFAudioTrack>> result) throws MPFComponentDetectionError {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MPFComponentDetectionError(MPFDetectionError.MPF_DETECTION_FAILED,
+                                                 "Interrupted while waiting for the pieces of the job.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MPFComponentDetectionError) {
+                throw (MPFComponentDetectionError) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new MPFComponentDetectionError(MPFDetectionError.MPF_DETECTION_FAILED, cause.getMessage(),
+                                                 (Exception) cause);
+        }
+    }
+
+    private static MPFAudioJob createSubJob(MPFAudioJob job, int startTime, int stopTime) {
+        return new MPFAudioJob(job.getJobName(), job.getDataUri(), job.getJobProperties(), job.getMediaProperties(),
+                               startTime, stopTime, job.getFeedForwardTrack());
+    }
+
+    // Returns the part of the samples, which start at samplesStartTime, between startTime and stopTime.
+    private static ShortBuffer slice(ShortBuffer samples, int samplesStartTime, int startTime, int stopTime) {
+        ShortBuffer view = samples.duplicate();
+        int base = view.position();
+        int from = toSampleIndex(view, startTime - samplesStartTime);
+        int to = Math.max(from, toSampleIndex(view, stopTime - samplesStartTime));
+        view.limit(base + to);
+        view.position(base + from);
+        return view.slice();
+    }
+
+    private static int toSampleIndex(ShortBuffer samples, long offsetMillis) {
+        return (int) Math.max(0, Math.min(samples.remaining(), offsetMillis * RIP_SAMPLING_RATE / 1000));
+    }
+
+    /**
+     * Decodes the job's range for voice activity detection and for finding pauses to split at.  The default decodes 16 kHz mono audio with
+     * {@link MPFAudioDetectionMediaHandler#ripAudioSamples(File, int, int)}.
+     *
+     * @param job The audio job.
+     * @return 16 kHz mono samples from the job's start time to its stop time.
+     * @throws IOException If the audio could not be decoded.
+     */
+    protected ShortBuffer ripAudioForVoiceActivity(MPFAudioJob job) throws IOException {
+        return MPFAudioDetectionMediaHandler.getInstance()
+                .ripAudioSamples(new File(job.getDataUri()), job.getStartTime(), job.getStopTime());
+    }
 
     public List<MPFImageLocation> getDetections(MPFImageJob job) throws MPFComponentDetectionError {
         throw new MPFComponentDetectionError(MPFDetectionError.MPF_UNSUPPORTED_DATA_TYPE, "Image detection not supported.");
@@ -141,4 +559,60 @@ public abstract class MPFAudioAndVideoDetectionComponentAdapter extends MPFDetec
     public boolean supports(MPFDataType dataType) {
         return (MPFDataType.AUDIO == dataType) || (MPFDataType.VIDEO == dataType);
     }
+
+    private static class AudioJobForVideo {
+        final MPFAudioJob job;
+        final MPFFrameTimeMap timeMap;
+
+        AudioJobForVideo(MPFAudioJob job, MPFFrameTimeMap timeMap) {
+            this.job = job;
+            this.timeMap = timeMap;
+        }
+    }
+
+    /**
+     * Converts each audio track to a video track and emits it to the video sink.  All audio tracks are requested up
+     * front: when the video sink's subscriber falls behind, emitting to it blocks, which in turn blocks the component
+     * in its own emit.
+     */
+    private static class VideoTrackForwarder implements Flow.Subscriber<MPFAudioTrack> {
+        private final MPFDetectionSink<MPFVideoTrack> sink;
+        private final MPFFrameTimeMap timeMap;
+        private Flow.Subscription subscription;
+        private MPFComponentDetectionError error;
+
+        VideoTrackForwarder(MPFDetectionSink<MPFVideoTrack> sink, MPFFrameTimeMap timeMap) {
+            this.sink = sink;
+            this.timeMap = timeMap;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(MPFAudioTrack audioTrack) {
+            try {
+                if (!sink.emit(toVideoTrack(audioTrack, timeMap))) {
+                    subscription.cancel();
+                }
+            }
+            catch (MPFComponentDetectionError e) {
+                error = e;
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // The error is thrown to the caller by getDetections.
+        }
+
+        @Override
+        public void onComplete() {
+            // The caller completes the video sink.
+        }
+    }
 }
@@ -26,59 +26,391 @@
 
 package org.mitre.mpf.component.api.detection.adapters;
 
+import org.mitre.mpf.audioVideo.dsp.MPFAudioFilterChain;
 import org.mitre.mpf.audioVideo.util.MPFAudioAttributes;
+import org.mitre.mpf.audioVideo.util.MPFAudioSegmentCache;
 import org.mitre.mpf.audioVideo.util.MPFEncoder;
 import org.mitre.mpf.audioVideo.util.MPFEncodingAttributes;
+import org.mitre.mpf.audioVideo.util.MPFPcmAudio;
+import org.mitre.mpf.audioVideo.util.MPFPcmChunkConsumer;
+import org.mitre.mpf.audioVideo.util.MPFPcmDecodeCoalescer;
+import org.mitre.mpf.audioVideo.util.MPFProcessTimeoutException;
+import org.mitre.mpf.component.api.detection.MPFComponentDetectionError;
+import org.mitre.mpf.component.api.detection.MPFDetectionError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MPFAudioDetectionMediaHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(MPFAudioDetectionMediaHandler.class);
+
+    private static final int CHANNELS = 1;
+    private static final int SAMPLING_RATE = 16000;
+    private static final int HIGHPASS_CUTOFF_HZ = 200;
+    private static final int LOWPASS_CUTOFF_HZ = 3000;
+
+    // Each chunk after the first starts decoding this much earlier and discards the extra audio, so that the
+    // high-pass and low-pass filters have settled by the time the chunk's own samples begin.
+    private static final int CHUNK_PRE_ROLL_MS = 100;
+
+    // Splitting shorter ranges would cost more in process startup than it saves.
+    private static final int MIN_CHUNK_MS = 10_000;
+
+    private static final AtomicInteger CHUNK_THREAD_COUNT = new AtomicInteger();
+
+    private static final ExecutorService CHUNK_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "mpf-audio-chunk-" + CHUNK_THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private static MPFAudioDetectionMediaHandler instance;
     private MPFEncoder encoder;
+    private final MPFPcmDecodeCoalescer coalescer;
 
     private MPFAudioDetectionMediaHandler() {
-        encoder = new MPFEncoder();
+        this(new MPFEncoder());
+    }
+
+    MPFAudioDetectionMediaHandler(MPFEncoder encoder) {
+        this.encoder = encoder;
+        coalescer = new MPFPcmDecodeCoalescer(this::decodeSamples, SAMPLING_RATE * CHANNELS);
     }
 
+    /**
+     * Decodes a range of the media's audio to a 16 kHz mono WAV file.
+     * <BR><BR>
+     * When the shared segment cache is enabled with "mpf.audio.cache.dir", the output may be a hard link to a cached
+     * segment that other jobs and processes also read.  The output must then be treated as read-only: writing to,
+     * truncating or rewriting it in place would change the segment for every other reader.  A component that needs
+     * to change the audio must write its changes to a new file.  Deleting or renaming the output is safe.
+     *
+     * @param input     The media file.
+     * @param output    The WAV file to create.  It is replaced if it exists.
+     * @param startTime The beginning of the range to decode, in milliseconds.
+     * @param stopTime  The end of the range to decode, in milliseconds.
+     * @throws IOException If ffmpeg fails.
+     * @see MPFAudioSegmentCache#get
+     */
     public void ripAudio(File input, File output, int startTime, int stopTime)
         throws IllegalArgumentException, IOException {
 
-        final int channels = 1;
-        final int samplingRate = 16000;
-        final int highpassCutoffHz = 200;
-        final int lowpassCutoffHz = 3000;
+        MPFEncodingAttributes encodingAttr = createEncodingAttributes(startTime, stopTime);
+        LOG.debug("encoding attr: {}", encodingAttr.toString());
+
+        // invoke ffmpeg to transcode audio from video segment
+        MPFAudioSegmentCache cache = MPFAudioSegmentCache.getInstance();
+        if (cache == null) {
+            encoder.transcodeWithFiltering(input, output, encodingAttr);
+        }
+        else {
+            cache.get(input, encodingAttr, output,
+                      segment -> encoder.transcodeWithFiltering(input, segment, encodingAttr));
+        }
+    }
+
+    /**
+     * Produces the same WAV file as {@link #ripAudio(File, File, int, int)}, but splits the range into one chunk per
+     * available core and decodes the chunks concurrently.
+     *
+     * @see #ripAudioParallel(File, File, int, int, int)
+     */
+    public void ripAudioParallel(File input, File output, int startTime, int stopTime) throws IOException {
+        ripAudioParallel(input, output, startTime, stopTime, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Produces the same WAV file as {@link #ripAudio(File, File, int, int)}, but splits the range into chunks that are
+     * decoded by concurrent ffmpeg processes.  Each process seeks in the input to the start of its chunk, and its
+     * samples are written directly to their final position in the output file.  Chunk boundaries fall on whole
+     * milliseconds, which are also whole samples at 16 kHz, and every chunk is trimmed or padded to exactly the number
+     * of samples its range should contain, so the chunks join without gaps and the output never drifts.  Like the
+     * output of ripAudio, the output may be a hard link into the shared segment cache and must be treated as read-only.
+     *
+     * @param input      The media file.
+     * @param output     The WAV file to create.
+     * @param startTime  The beginning of the range to decode, in milliseconds.
+     * @param stopTime   The end of the range to decode, in milliseconds.
+     * @param chunkCount The maximum number of chunks.  Ranges too short to benefit from splitting use fewer chunks.
+     * @throws IOException If any chunk fails to decode or the output cannot be written.
+     */
+    public void ripAudioParallel(File input, File output, int startTime, int stopTime, int chunkCount)
+        throws IOException {
+        int rangeMs = stopTime - startTime;
+        int usableChunkCount = Math.max(1, Math.min(chunkCount, rangeMs / MIN_CHUNK_MS));
+        if (usableChunkCount == 1) {
+            ripAudio(input, output, startTime, stopTime);
+            return;
+        }
+
+        MPFAudioSegmentCache cache = MPFAudioSegmentCache.getInstance();
+        if (cache == null) {
+            ripChunks(input, output, startTime, stopTime, usableChunkCount);
+        }
+        else {
+            // Each chunk seeks in the input, so the samples can differ slightly from a single decode of the range.
+            MPFEncodingAttributes key = createEncodingAttributes(startTime, stopTime);
+            key.setInputSeek(true);
+            cache.get(input, key, output,
+                      segment -> ripChunks(input, segment, startTime, stopTime, usableChunkCount));
+        }
+    }
+
+    private void ripChunks(File input, File output, int startTime, int stopTime, int chunkCount) throws IOException {
+        int rangeMs = stopTime - startTime;
+        output = output.getAbsoluteFile();
+        if (!output.getParentFile().exists() && !output.getParentFile().mkdirs()) {
+            throw new IOException("Failed to create the directory for " + output);
+        }
+        LOG.debug("Ripping audio from {} to {} in {} chunks.", startTime, stopTime, chunkCount);
+
+        long dataBytes = toByteCount(rangeMs);
+        try (FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(MPFPcmAudio.createPcm16Header(SAMPLING_RATE, CHANNELS, dataBytes), 0);
+
+            List<CompletableFuture<Void>> chunks = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                int chunkStart = startTime + (int) ((long) rangeMs * i / chunkCount);
+                int chunkStop = startTime + (int) ((long) rangeMs * (i + 1) / chunkCount);
+                chunks.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        ripChunk(input, channel, startTime, chunkStart, chunkStop);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, CHUNK_EXECUTOR));
+            }
+            awaitChunks(chunks);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(output.toPath());
+            throw e;
+        }
+    }
+
+    private void ripChunk(File input, FileChannel output, int startTime, int chunkStart, int chunkStop)
+        throws IOException {
+        int preRollMs = Math.min(CHUNK_PRE_ROLL_MS, chunkStart);
+        if (chunkStart == startTime) {
+            // The first chunk must match the single-process output, which starts without any pre-roll.
+            preRollMs = 0;
+        }
+        MPFEncodingAttributes encodingAttr = createEncodingAttributes(chunkStart - preRollMs, chunkStop);
+        encodingAttr.setInputSeek(true);
+
+        long skipBytes = toByteCount(preRollMs);
+        long position = MPFPcmAudio.PCM16_HEADER_BYTES + toByteCount(chunkStart - startTime);
+        long remaining = toByteCount(chunkStop - chunkStart);
+
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (InputStream stream = encoder.openPcmStream(input, encodingAttr)) {
+            skipBytes -= stream.skip(skipBytes);
+            while (skipBytes > 0 && stream.read() >= 0) {
+                skipBytes--;
+            }
+            while (remaining > 0) {
+                int count = stream.read(buffer.array(), 0, (int) Math.min(buffer.capacity(), remaining));
+                if (count < 0) {
+                    break;
+                }
+                buffer.clear().limit(count);
+                while (buffer.hasRemaining()) {
+                    position += output.write(buffer, position);
+                }
+                remaining -= count;
+            }
+        }
+        if (remaining > 0) {
+            // ffmpeg produced fewer samples than the range holds, usually at the end of the media.  Pad with silence
+            // so the following chunk still lands at the right position.
+            LOG.debug("Padding chunk {}-{} with {} bytes of silence.", chunkStart, chunkStop, remaining);
+            ByteBuffer silence = ByteBuffer.allocate((int) Math.min(buffer.capacity(), remaining));
+            while (remaining > 0) {
+                silence.clear().limit((int) Math.min(silence.capacity(), remaining));
+                int written = output.write(silence, position);
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    private static void awaitChunks(List<CompletableFuture<Void>> chunks) throws IOException {
+        try {
+            CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for audio chunks to decode.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("Failed to decode audio chunk.", cause);
+        }
+    }
+
+    /**
+     * Decodes the same audio as {@link #ripAudio(File, File, int, int)}, but streams it as raw 16 kHz mono
+     * little-endian 16-bit PCM instead of writing a WAV file, so processing can begin before decoding has finished.
+     *
+     * @param input     The media file.
+     * @param startTime The beginning of the range to decode, in milliseconds.
+     * @param stopTime  The end of the range to decode, in milliseconds.
+     * @return The raw PCM samples.  The caller must close the stream.
+     * @throws IOException If decoding cannot be started.
+     */
+    public InputStream ripAudioStream(File input, int startTime, int stopTime) throws IOException {
+        MPFEncodingAttributes encodingAttr = createEncodingAttributes(startTime, stopTime);
+        LOG.debug("encoding attr: {}", encodingAttr.toString());
+        return encoder.openPcmStream(input, encodingAttr);
+    }
+
+    /**
+     * Decodes the same audio as {@link #ripAudio(File, File, int, int)} and passes it to the consumer in chunks of
+     * 16 kHz mono 16-bit samples as it is decoded.  No file is written.
+     *
+     * @param input         The media file.
+     * @param startTime     The beginning of the range to decode, in milliseconds.
+     * @param stopTime      The end of the range to decode, in milliseconds.
+     * @param chunkSamples  The number of samples in each chunk.
+     * @param consumer      Receives each chunk.  The buffer passed to it is reused.
+     * @return The total number of samples decoded.
+     * @throws IOException If ffmpeg fails or the consumer throws.
+     */
+    public long ripAudio(File input, int startTime, int stopTime, int chunkSamples, MPFPcmChunkConsumer consumer)
+        throws IOException {
+        MPFEncodingAttributes encodingAttr = createEncodingAttributes(startTime, stopTime);
+        LOG.debug("encoding attr: {}", encodingAttr.toString());
+        return encoder.transcodeToPcm(input, encodingAttr, chunkSamples, consumer);
+    }
+
+    /**
+     * Decodes the same audio as {@link #ripAudio(File, File, int, int)} into memory as 16 kHz mono 16-bit samples.
+     * Concurrent calls for adjacent or overlapping ranges of the same file, such as those for the segments of one
+     * video, are served by a single ffmpeg process, and each caller receives a view of its part of the shared result.
+     *
+     * @param input     The media file.
+     * @param startTime The beginning of the range to decode, in milliseconds.
+     * @param stopTime  The end of the range to decode, in milliseconds.
+     * @return A read-only view of the samples.  It always holds exactly one sample per 1/16000 of a second in the
+     *         range; audio missing from the end of the media is silent.
+     * @throws IOException If ffmpeg fails.
+     */
+    public ShortBuffer ripAudioSamples(File input, int startTime, int stopTime) throws IOException {
+        return coalescer.decode(input, startTime, stopTime);
+    }
+
+    /**
+     * Decodes the range into memory as 16 kHz mono 16-bit samples, like
+     * {@link #ripAudioSamples(File, int, int)}, but without the high-pass and low-pass filters.  A component that
+     * wants to compare several filter settings can decode once with this method and then run the samples through an
+     * {@link MPFAudioFilterChain MPFAudioFilterChain} for each setting, instead of running ffmpeg once per setting.
+     *
+     * @param input     The media file.
+     * @param startTime The beginning of the range to decode, in milliseconds.
+     * @param stopTime  The end of the range to decode, in milliseconds.
+     * @return The samples.
+     * @throws IOException If ffmpeg fails.
+     * @see #createDefaultFilterChain()
+     */
+    public ShortBuffer ripUnfilteredAudioSamples(File input, int startTime, int stopTime) throws IOException {
+        return decodeSamples(input, createEncodingAttributes(startTime, stopTime, false), stopTime - startTime);
+    }
+
+    /**
+     * Creates a filter chain for the samples from {@link #ripUnfilteredAudioSamples(File, int, int)} with the same
+     * high-pass and low-pass settings that the other ripAudio methods pass to ffmpeg.  The result is close to, but not
+     * the same as, what those methods return: ffmpeg filters at the media's own sampling rate and then resamples to
+     * 16 kHz, while this chain filters samples that have already been resampled to 16 kHz.  The filters' responses
+     * therefore differ slightly, mostly near the cutoffs.
+     *
+     * @return A 16 kHz mono filter chain.
+     */
+    public static MPFAudioFilterChain createDefaultFilterChain() {
+        return new MPFAudioFilterChain(SAMPLING_RATE, CHANNELS, SAMPLING_RATE, HIGHPASS_CUTOFF_HZ,
+                                       LOWPASS_CUTOFF_HZ, 2);
+    }
+
+    private ShortBuffer decodeSamples(File input, int startTime, int stopTime) throws IOException {
+        return decodeSamples(input, createEncodingAttributes(startTime, stopTime), stopTime - startTime);
+    }
+
+    private ShortBuffer decodeSamples(File input, MPFEncodingAttributes encodingAttr, int durationMs)
+            throws IOException {
+        LOG.debug("encoding attr: {}", encodingAttr.toString());
+        byte[] samples = new byte[Math.toIntExact(toByteCount(durationMs))];
+        try (InputStream stream = encoder.openPcmStream(input, encodingAttr)) {
+            stream.readNBytes(samples, 0, samples.length);
+        }
+        return ByteBuffer.wrap(samples).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    /**
+     * Converts a failure from one of the ripAudio methods into the error a component should report.  Media that made
+     * ffmpeg hang until its deadline is reported as {@link MPFDetectionError#MPF_PROCESS_TIMEOUT}, so it can be told
+     * apart from media that could not be read at all.
+     *
+     * @param e The exception thrown while ripping the audio.
+     * @return The error to throw from getDetections.
+     */
+    public static MPFComponentDetectionError toDetectionError(IOException e) {
+        if (e instanceof MPFProcessTimeoutException) {
+            return new MPFComponentDetectionError(MPFDetectionError.MPF_PROCESS_TIMEOUT, e.getMessage(), e);
+        }
+        return new MPFComponentDetectionError(MPFDetectionError.MPF_COULD_NOT_READ_MEDIA,
+                                              "Could not rip audio: " + e.getMessage(), e);
+    }
+
+    private static long toByteCount(long durationMs) {
+        return durationMs * SAMPLING_RATE / 1000 * CHANNELS * 2;
+    }
+
+    private static MPFEncodingAttributes createEncodingAttributes(int startTime, int stopTime) {
+        return createEncodingAttributes(startTime, stopTime, true);
+    }
+
+    private static MPFEncodingAttributes createEncodingAttributes(int startTime, int stopTime, boolean filtered) {
+        final int channels = CHANNELS;
+        final int samplingRate = SAMPLING_RATE;
         final String codec = "pcm_s16le";
         final String format = "wav";
-        
+
         MPFAudioAttributes audioAttr = new MPFAudioAttributes();
         MPFEncodingAttributes encodingAttr = new MPFEncodingAttributes();
 
         audioAttr.setChannels(channels);
         audioAttr.setSamplingRate(samplingRate);
         audioAttr.setCodec(codec);
-        audioAttr.setHighpassCutoffFrequency(highpassCutoffHz);
-        audioAttr.setLowpassCutoffFrequency(lowpassCutoffHz);
+        if (filtered) {
+            audioAttr.setHighpassCutoffFrequency(HIGHPASS_CUTOFF_HZ);
+            audioAttr.setLowpassCutoffFrequency(LOWPASS_CUTOFF_HZ);
+        }
 
         encodingAttr.setFormat(format);
         encodingAttr.setAudioAttributes(audioAttr);
 
-        // convert milliseconds to seconds
-        float offset = (float) startTime / 1000;
-        float duration = ((float) (stopTime - startTime)) / 1000;
-
-        encodingAttr.setOffset(offset);
-        encodingAttr.setDuration(duration);
-
-
-        LOG.debug("encoding attr: {}", encodingAttr.toString());
-
-        // invoke ffmpeg to transcode audio from video segment
-        encoder.transcodeWithFiltering(input, output, encodingAttr);
+        // A float number of seconds loses milliseconds in long media, so the range is passed on exactly.
+        encodingAttr.setOffsetMillis((long) startTime);
+        encodingAttr.setDurationMillis((long) stopTime - startTime);
+        return encodingAttr;
     }
 
 
@@ -0,0 +1,118 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.geometry;
+
+import org.mitre.mpf.component.api.detection.MPFImageLocation;
+import org.mitre.mpf.component.api.detection.MPFImageLocationBatch;
+
+import java.util.List;
+
+/**
+ * The bounding boxes of many detections, stored as parallel {@code int[]} columns of x, y, width and height, which
+ * is the form that {@link MPFBoxKernels} and {@link MPFBoxGridIndex} operate on.  A box covers the pixels from x to
+ * x + width - 1 and from y to y + height - 1, so a box with no width or height does not overlap anything.  Image
+ * locations that use a width and height of 0 to mean the entire image must be given the frame size before they are
+ * compared.
+ */
+public class MPFBoxArray {
+
+    final int[] x;
+    final int[] y;
+    final int[] width;
+    final int[] height;
+    private final int size;
+
+    /**
+     * Uses the arrays as they are, without copying them.  They must not be changed while the boxes are in use.
+     */
+    public MPFBoxArray(int[] x, int[] y, int[] width, int[] height) {
+        if (y.length != x.length || width.length != x.length || height.length != x.length) {
+            throw new IllegalArgumentException("The box columns must all have the same length.");
+        }
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.size = x.length;
+    }
+
+    public static MPFBoxArray of(List<MPFImageLocation> locations) {
+        int count = locations.size();
+        int[] x = new int[count];
+        int[] y = new int[count];
+        int[] width = new int[count];
+        int[] height = new int[count];
+        int i = 0;
+        for (MPFImageLocation location : locations) {
+            x[i] = location.getXLeftUpper();
+            y[i] = location.getYLeftUpper();
+            width[i] = location.getWidth();
+            height[i] = location.getHeight();
+            i++;
+        }
+        return new MPFBoxArray(x, y, width, height);
+    }
+
+    public static MPFBoxArray of(MPFImageLocationBatch batch) {
+        int count = batch.size();
+        int[] x = new int[count];
+        int[] y = new int[count];
+        int[] width = new int[count];
+        int[] height = new int[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = batch.getXLeftUpper(i);
+            y[i] = batch.getYLeftUpper(i);
+            width[i] = batch.getWidth(i);
+            height[i] = batch.getHeight(i);
+        }
+        return new MPFBoxArray(x, y, width, height);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getX(int index) {
+        return x[index];
+    }
+
+    public int getY(int index) {
+        return y[index];
+    }
+
+    public int getWidth(int index) {
+        return width[index];
+    }
+
+    public int getHeight(int index) {
+        return height[index];
+    }
+
+    public long getArea(int index) {
+        return Math.max(0, width[index]) * (long) Math.max(0, height[index]);
+    }
+}
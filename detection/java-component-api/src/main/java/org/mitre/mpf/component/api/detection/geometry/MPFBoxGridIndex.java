@@ -0,0 +1,233 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.geometry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A uniform grid over a set of boxes that finds the boxes overlapping a query box without comparing it to all of
+ * them.  The cell size is the average box size, so most boxes fall in one to four cells.  The grid is packed into
+ * two arrays: the start of each cell's entries, and the box indexes in all of the cells, one after another.
+ * <BR><BR>
+ * An index does not change once it is built and can be queried by several threads at once.  Bulk queries of at
+ * least {@link #PARALLEL_THRESHOLD} boxes are split across the common fork/join pool.
+ */
+public class MPFBoxGridIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MPFBoxGridIndex.class);
+
+    /** The number of query boxes at which {@link #findBestMatches(MPFBoxArray, float)} runs in parallel. */
+    public static final int PARALLEL_THRESHOLD = 4096;
+
+    // Keeps sparse boxes with very large coordinates from creating a huge, mostly empty grid.
+    private static final int MAX_CELLS_PER_BOX = 4;
+
+    private final MPFBoxArray boxes;
+    private final int originX;
+    private final int originY;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStarts;
+    private final int[] cellBoxes;
+
+    private MPFBoxGridIndex(MPFBoxArray boxes, int originX, int originY, int cellSize, int columns, int rows,
+                            int[] cellStarts, int[] cellBoxes) {
+        this.boxes = boxes;
+        this.originX = originX;
+        this.originY = originY;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.cellStarts = cellStarts;
+        this.cellBoxes = cellBoxes;
+    }
+
+    /**
+     * Builds an index over the boxes.  Boxes without any area are left out, since they cannot overlap anything.
+     */
+    public static MPFBoxGridIndex build(MPFBoxArray boxes) {
+        int n = boxes.size();
+        long minX = Long.MAX_VALUE;
+        long minY = Long.MAX_VALUE;
+        long maxX = Long.MIN_VALUE;
+        long maxY = Long.MIN_VALUE;
+        long totalSize = 0;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (boxes.width[i] <= 0 || boxes.height[i] <= 0) {
+                continue;
+            }
+            minX = Math.min(minX, boxes.x[i]);
+            minY = Math.min(minY, boxes.y[i]);
+            maxX = Math.max(maxX, (long) boxes.x[i] + boxes.width[i]);
+            maxY = Math.max(maxY, (long) boxes.y[i] + boxes.height[i]);
+            totalSize += Math.max(boxes.width[i], boxes.height[i]);
+            count++;
+        }
+        if (count == 0) {
+            return new MPFBoxGridIndex(boxes, 0, 0, 1, 0, 0, new int[1], new int[0]);
+        }
+
+        long cellSize = Math.max(1, totalSize / count);
+        long columns = (maxX - minX + cellSize - 1) / cellSize;
+        long rows = (maxY - minY + cellSize - 1) / cellSize;
+        while (columns * rows > (long) MAX_CELLS_PER_BOX * count) {
+            cellSize *= 2;
+            columns = (maxX - minX + cellSize - 1) / cellSize;
+            rows = (maxY - minY + cellSize - 1) / cellSize;
+        }
+        LOG.trace("Indexing {} boxes in a {}x{} grid of {} pixel cells.", count, columns, rows, cellSize);
+
+        MPFBoxGridIndex index = new MPFBoxGridIndex(boxes, (int) minX, (int) minY, (int) cellSize, (int) columns,
+                                                    (int) rows, new int[(int) (columns * rows) + 1], null);
+        return index.fill();
+    }
+
+    // Counts the entries in each cell, then places each box in its cells.
+    private MPFBoxGridIndex fill() {
+        int n = boxes.size();
+        int[] counts = cellStarts;
+        for (int i = 0; i < n; i++) {
+            if (boxes.width[i] > 0 && boxes.height[i] > 0) {
+                int firstColumn = (int) column(boxes.x[i]);
+                int lastColumn = (int) column((long) boxes.x[i] + boxes.width[i] - 1);
+                for (int row = (int) row(boxes.y[i]), lastRow = (int) row((long) boxes.y[i] + boxes.height[i] - 1);
+                        row <= lastRow; row++) {
+                    for (int column = firstColumn; column <= lastColumn; column++) {
+                        counts[row * columns + column + 1]++;
+                    }
+                }
+            }
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            counts[cell + 1] += counts[cell];
+        }
+        int[] entries = new int[counts[columns * rows]];
+        int[] next = Arrays.copyOf(counts, columns * rows);
+        for (int i = 0; i < n; i++) {
+            if (boxes.width[i] > 0 && boxes.height[i] > 0) {
+                int firstColumn = (int) column(boxes.x[i]);
+                int lastColumn = (int) column((long) boxes.x[i] + boxes.width[i] - 1);
+                for (int row = (int) row(boxes.y[i]), lastRow = (int) row((long) boxes.y[i] + boxes.height[i] - 1);
+                        row <= lastRow; row++) {
+                    for (int column = firstColumn; column <= lastColumn; column++) {
+                        entries[next[row * columns + column]++] = i;
+                    }
+                }
+            }
+        }
+        return new MPFBoxGridIndex(boxes, originX, originY, cellSize, columns, rows, counts, entries);
+    }
+
+    public MPFBoxArray getBoxes() {
+        return boxes;
+    }
+
+    /**
+     * Calls the consumer once with the index of each box that shares at least one pixel with the query box.
+     */
+    public void forEachOverlap(int x, int y, int width, int height, IntConsumer consumer) {
+        if (width <= 0 || height <= 0 || columns == 0) {
+            return;
+        }
+        long right = (long) x + width;
+        long bottom = (long) y + height;
+        int firstColumn = (int) Math.max(0, column(x));
+        int lastColumn = (int) Math.min(columns - 1, column(right - 1));
+        int firstRow = (int) Math.max(0, row(y));
+        int lastRow = (int) Math.min(rows - 1, row(bottom - 1));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int entry = cellStarts[cell], end = cellStarts[cell + 1]; entry < end; entry++) {
+                    int i = cellBoxes[entry];
+                    int boxX = boxes.x[i];
+                    int boxY = boxes.y[i];
+                    if (boxX < right && x < (long) boxX + boxes.width[i]
+                            && boxY < bottom && y < (long) boxY + boxes.height[i]
+                            // A box in several cells is only reported from the cell holding the top-left corner
+                            // of the overlap.
+                            && column(Math.max(x, boxX)) == column && row(Math.max(y, boxY)) == row) {
+                        consumer.accept(i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the indexed box that best overlaps each query box, as when matching the detections in one frame to the
+     * tracks from the previous frame.
+     *
+     * @param queries The boxes to match.
+     * @param minIou  The smallest intersection over union that counts as a match.
+     * @return For each query box, the index of the indexed box with the highest intersection over union, or -1 if
+     *         none reaches minIou.  Ties go to the lower index.
+     */
+    public int[] findBestMatches(MPFBoxArray queries, float minIou) {
+        int[] matches = new int[queries.size()];
+        IntStream range = IntStream.range(0, queries.size());
+        if (queries.size() >= PARALLEL_THRESHOLD) {
+            range = range.parallel();
+        }
+        range.forEach(q -> matches[q] = findBestMatch(queries.x[q], queries.y[q], queries.width[q],
+                                                      queries.height[q], minIou));
+        return matches;
+    }
+
+    /**
+     * @return The index of the box with the highest intersection over union with the query box, or -1 if none
+     *         reaches minIou.  Ties go to the lower index.
+     */
+    public int findBestMatch(int x, int y, int width, int height, float minIou) {
+        float[] best = { Float.NEGATIVE_INFINITY };
+        int[] bestIndex = { -1 };
+        forEachOverlap(x, y, width, height, i -> {
+            float iou = MPFBoxKernels.iou(x, y, width, height, boxes.x[i], boxes.y[i], boxes.width[i],
+                                          boxes.height[i]);
+            if (iou >= minIou && (iou > best[0] || (iou == best[0] && i < bestIndex[0]))) {
+                best[0] = iou;
+                bestIndex[0] = i;
+            }
+        });
+        return bestIndex[0];
+    }
+
+    private long column(long x) {
+        return Math.floorDiv(x - originX, (long) cellSize);
+    }
+
+    private long row(long y) {
+        return Math.floorDiv(y - originY, (long) cellSize);
+    }
+}
@@ -0,0 +1,157 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Overlap measures between boxes.  The bulk methods compare one box against a whole {@link MPFBoxArray} in a single
+ * loop over its columns, without creating an object per box.
+ */
+public final class MPFBoxKernels {
+
+    private MPFBoxKernels() {}
+
+    /**
+     * @return The number of pixels that are in both boxes.
+     */
+    public static long intersectionArea(int x1, int y1, int width1, int height1,
+                                        int x2, int y2, int width2, int height2) {
+        long overlapWidth = Math.min((long) x1 + width1, (long) x2 + width2) - Math.max(x1, x2);
+        long overlapHeight = Math.min((long) y1 + height1, (long) y2 + height2) - Math.max(y1, y2);
+        return Math.max(0, overlapWidth) * Math.max(0, overlapHeight);
+    }
+
+    /**
+     * @return The intersection over union of the two boxes, or 0 if neither has any area.
+     */
+    public static float iou(int x1, int y1, int width1, int height1, int x2, int y2, int width2, int height2) {
+        long intersection = intersectionArea(x1, y1, width1, height1, x2, y2, width2, height2);
+        long union = Math.max(0, width1) * (long) Math.max(0, height1)
+                + Math.max(0, width2) * (long) Math.max(0, height2) - intersection;
+        return union <= 0 ? 0 : (float) ((double) intersection / union);
+    }
+
+    public static float iou(MPFBoxArray boxes, int first, int second) {
+        return iou(boxes.x[first], boxes.y[first], boxes.width[first], boxes.height[first],
+                   boxes.x[second], boxes.y[second], boxes.width[second], boxes.height[second]);
+    }
+
+    /**
+     * @return The fraction of the inner box's area that is inside the outer box, or 0 if the inner box has no area.
+     */
+    public static float containment(int innerX, int innerY, int innerWidth, int innerHeight,
+                                    int outerX, int outerY, int outerWidth, int outerHeight) {
+        long area = Math.max(0, innerWidth) * (long) Math.max(0, innerHeight);
+        if (area == 0) {
+            return 0;
+        }
+        long intersection = intersectionArea(innerX, innerY, innerWidth, innerHeight,
+                                             outerX, outerY, outerWidth, outerHeight);
+        return (float) ((double) intersection / area);
+    }
+
+    /**
+     * Computes the intersection over union of one box with every box in the array.
+     *
+     * @param result Receives one value per box.  Must be at least as long as the array.
+     */
+    public static void iou(int x, int y, int width, int height, MPFBoxArray boxes, float[] result) {
+        int[] xs = boxes.x;
+        int[] ys = boxes.y;
+        int[] widths = boxes.width;
+        int[] heights = boxes.height;
+        for (int i = 0, n = boxes.size(); i < n; i++) {
+            result[i] = iou(x, y, width, height, xs[i], ys[i], widths[i], heights[i]);
+        }
+    }
+
+    /**
+     * Computes the fraction of each box in the array that is inside the outer box.
+     *
+     * @param result Receives one value per box.  Must be at least as long as the array.
+     */
+    public static void containment(MPFBoxArray boxes, int outerX, int outerY, int outerWidth, int outerHeight,
+                                   float[] result) {
+        int[] xs = boxes.x;
+        int[] ys = boxes.y;
+        int[] widths = boxes.width;
+        int[] heights = boxes.height;
+        for (int i = 0, n = boxes.size(); i < n; i++) {
+            result[i] = containment(xs[i], ys[i], widths[i], heights[i], outerX, outerY, outerWidth, outerHeight);
+        }
+    }
+
+    /**
+     * Greedy non-maximum suppression: keeps the highest scoring box, removes every remaining box whose intersection
+     * over union with it is greater than the threshold, and repeats.  Overlapping boxes are found with an
+     * {@link MPFBoxGridIndex}, so the time grows with the number of overlaps rather than with the square of the number
+     * of boxes.
+     *
+     * @param boxes        The boxes.
+     * @param scores       The score of each box.
+     * @param iouThreshold Boxes that overlap a kept box by more than this are suppressed.
+     * @return The indexes of the kept boxes, highest score first.  Ties keep the lower index.
+     */
+    public static int[] nonMaximumSuppression(MPFBoxArray boxes, float[] scores, float iouThreshold) {
+        int n = boxes.size();
+        if (scores.length < n) {
+            throw new IllegalArgumentException("There must be a score for each box.");
+        }
+        // Sort by descending score, then ascending index, by packing both into longs.
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            int bits = Float.floatToIntBits(scores[i]);
+            // Maps the float's bits to an int that sorts in the same order as the float.
+            int sortable = bits ^ ((bits >> 31) & 0x7FFFFFFF);
+            order[i] = ((long) ~sortable << 32) | i;
+        }
+        Arrays.sort(order);
+        int[] rank = new int[n];
+        for (int r = 0; r < n; r++) {
+            rank[(int) order[r]] = r;
+        }
+
+        MPFBoxGridIndex index = MPFBoxGridIndex.build(boxes);
+        boolean[] suppressed = new boolean[n];
+        int[] kept = new int[n];
+        int keptCount = 0;
+        for (int r = 0; r < n; r++) {
+            int i = (int) order[r];
+            if (suppressed[i]) {
+                continue;
+            }
+            kept[keptCount++] = i;
+            index.forEachOverlap(boxes.x[i], boxes.y[i], boxes.width[i], boxes.height[i], j -> {
+                if (rank[j] > rank[i] && !suppressed[j] && iou(boxes, i, j) > iouThreshold) {
+                    suppressed[j] = true;
+                }
+            });
+        }
+        return Arrays.copyOf(kept, keptCount);
+    }
+}
@@ -0,0 +1,100 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.serialization;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Constants and variable-length integer encoding shared by {@link MPFBinaryTrackWriter} and
+ * {@link MPFBinaryTrackReader}.
+ * <BR><BR>
+ * Version 1 of the format is laid out as follows.  Integers marked varint use 7 bits per byte, least significant
+ * group first, and signed values are zigzag encoded first.  Floats are 4 bytes, little-endian.
+ * <pre>
+ * header      "MPFB", version (1 byte), flags (1 byte, currently 0)
+ * dictionary  varint count, then each string as a varint UTF-8 length and its bytes
+ * records     varint count, then each record as its type (1 byte), varint body length, and body
+ *
+ * image location  confidence, signed x, signed y, width, height, properties
+ * audio track     confidence, signed start time, duration, properties
+ * video track     confidence, signed start frame, frame count, properties, location count, then each location as
+ *                 a signed frame delta from the previous frame (the first is from the start frame) and an image
+ *                 location body
+ * generic track   confidence, properties
+ * properties      varint count, then a dictionary index for each name and for each value
+ * </pre>
+ */
+final class MPFBinaryFormat {
+
+    static final int MAGIC = 'M' | 'P' << 8 | 'F' << 16 | 'B' << 24;
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 6;
+
+    static final byte IMAGE_LOCATION = 1;
+    static final byte AUDIO_TRACK = 2;
+    static final byte VIDEO_TRACK = 3;
+    static final byte GENERIC_TRACK = 4;
+
+    private MPFBinaryFormat() {}
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a varint at an absolute position.
+     *
+     * @return The value in the low 32 bits and the position after it in the high 32 bits.
+     */
+    static long readVarint(ByteBuffer buffer, int position) {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position >= buffer.limit()) {
+                throw new BufferUnderflowException();
+            }
+            byte b = buffer.get(position++);
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return ((long) position << 32) | (result & 0xFFFFFFFFL);
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at position " + position + '.');
+    }
+
+    static int value(long varint) {
+        return (int) varint;
+    }
+
+    static int next(long varint) {
+        return (int) (varint >>> 32);
+    }
+}
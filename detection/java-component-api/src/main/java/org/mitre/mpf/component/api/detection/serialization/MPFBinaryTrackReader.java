@@ -0,0 +1,303 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.serialization;
+
+import org.mitre.mpf.component.api.detection.MPFAudioTrack;
+import org.mitre.mpf.component.api.detection.MPFDataType;
+import org.mitre.mpf.component.api.detection.MPFGenericTrack;
+import org.mitre.mpf.component.api.detection.MPFImageLocation;
+import org.mitre.mpf.component.api.detection.MPFVideoTrack;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mitre.mpf.component.api.detection.serialization.MPFBinaryFormat.*;
+
+/**
+ * Reads tracks and image locations written by {@link MPFBinaryTrackWriter} directly from a {@link ByteBuffer}, such
+ * as a memory-mapped file, without copying it.  Opening a buffer only records where each record starts.  The
+ * confidence, range and individual properties of a record can be read without creating any objects for it, so
+ * results can be scanned or filtered cheaply, and only the records that are needed are turned into tracks with
+ * methods such as {@link #getVideoTrack(int)}.
+ * <BR><BR>
+ * Dictionary strings are decoded the first time they are used.  The buffer must not be changed while it is being
+ * read.  A reader may be used by several threads at once.
+ */
+public class MPFBinaryTrackReader {
+
+    private final ByteBuffer buffer;
+    private final int[] stringOffsets;
+    private final String[] strings;
+    private final byte[] recordTypes;
+    private final int[] bodyOffsets;
+
+    private MPFBinaryTrackReader(ByteBuffer buffer, int[] stringOffsets, byte[] recordTypes, int[] bodyOffsets) {
+        this.buffer = buffer;
+        this.stringOffsets = stringOffsets;
+        this.strings = new String[stringOffsets.length];
+        this.recordTypes = recordTypes;
+        this.bodyOffsets = bodyOffsets;
+    }
+
+    /**
+     * Indexes the records in the buffer, from its position to its limit.
+     *
+     * @param buffer Encoded records.  Its position and limit are not changed.
+     * @return A reader for the records.
+     * @throws IOException If the buffer does not contain a supported version of the format, or is truncated.
+     */
+    public static MPFBinaryTrackReader open(ByteBuffer buffer) throws IOException {
+        ByteBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+                throw new IOException("The buffer does not contain MPF binary tracks.");
+            }
+            if (data.get(4) != VERSION) {
+                throw new IOException("Unsupported MPF binary track version " + data.get(4) + '.');
+            }
+
+            int position = HEADER_SIZE;
+            long varint = readVarint(data, position);
+            int[] stringOffsets = new int[checkCount(value(varint), data)];
+            position = next(varint);
+            for (int i = 0; i < stringOffsets.length; i++) {
+                stringOffsets[i] = position;
+                varint = readVarint(data, position);
+                position = skip(data, next(varint), value(varint));
+            }
+
+            varint = readVarint(data, position);
+            int recordCount = checkCount(value(varint), data);
+            position = next(varint);
+            byte[] recordTypes = new byte[recordCount];
+            int[] bodyOffsets = new int[recordCount];
+            for (int i = 0; i < recordCount; i++) {
+                recordTypes[i] = data.get(position);
+                if (recordTypes[i] < IMAGE_LOCATION || recordTypes[i] > GENERIC_TRACK) {
+                    throw new IOException("Unknown record type " + recordTypes[i] + " at position " + position + '.');
+                }
+                varint = readVarint(data, position + 1);
+                bodyOffsets[i] = next(varint);
+                position = skip(data, next(varint), value(varint));
+            }
+            return new MPFBinaryTrackReader(data, stringOffsets, recordTypes, bodyOffsets);
+        }
+        catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("The MPF binary tracks are truncated or corrupt.", e);
+        }
+    }
+
+    private static int checkCount(int count, ByteBuffer data) throws IOException {
+        // Every string and record takes at least one byte.
+        if (count < 0 || count > data.limit()) {
+            throw new IOException("Invalid count " + count + " in MPF binary tracks.");
+        }
+        return count;
+    }
+
+    private static int skip(ByteBuffer data, int position, int length) throws IOException {
+        if (length < 0 || length > data.limit() - position) {
+            throw new IOException("The MPF binary tracks are truncated.");
+        }
+        return position + length;
+    }
+
+    public int getRecordCount() {
+        return recordTypes.length;
+    }
+
+    /**
+     * @return VIDEO for a video track, AUDIO for an audio track, IMAGE for an image location, or UNKNOWN for a generic
+     *         track.
+     */
+    public MPFDataType getDataType(int record) {
+        switch (recordTypes[record]) {
+            case VIDEO_TRACK:
+                return MPFDataType.VIDEO;
+            case AUDIO_TRACK:
+                return MPFDataType.AUDIO;
+            case IMAGE_LOCATION:
+                return MPFDataType.IMAGE;
+            default:
+                return MPFDataType.UNKNOWN;
+        }
+    }
+
+    public float getConfidence(int record) {
+        return buffer.getFloat(bodyOffsets[record]);
+    }
+
+    /**
+     * @return The start frame of a video track or the start time of an audio track.
+     */
+    public int getStart(int record) {
+        checkHasRange(record);
+        return unzigzag(value(readVarint(buffer, bodyOffsets[record] + 4)));
+    }
+
+    /**
+     * @return The stop frame of a video track or the stop time of an audio track.
+     */
+    public int getStop(int record) {
+        checkHasRange(record);
+        long start = readVarint(buffer, bodyOffsets[record] + 4);
+        return unzigzag(value(start)) + value(readVarint(buffer, next(start)));
+    }
+
+    /**
+     * Looks up one property of a record without reading the others.
+     *
+     * @return The value, or null if the record does not have the property.
+     */
+    public String getProperty(int record, String name) {
+        int position = propertiesOffset(record);
+        long varint = readVarint(buffer, position);
+        int count = value(varint);
+        position = next(varint);
+        for (int i = 0; i < count; i++) {
+            long key = readVarint(buffer, position);
+            long value = readVarint(buffer, next(key));
+            position = next(value);
+            if (getString(value(key)).equals(name)) {
+                return getString(value(value));
+            }
+        }
+        return null;
+    }
+
+    public MPFImageLocation getImageLocation(int record) {
+        checkType(record, IMAGE_LOCATION);
+        return readLocation(new int[] { bodyOffsets[record] });
+    }
+
+    public MPFAudioTrack getAudioTrack(int record) {
+        checkType(record, AUDIO_TRACK);
+        int[] position = { propertiesOffset(record) };
+        return new MPFAudioTrack(getStart(record), getStop(record), getConfidence(record), readProperties(position));
+    }
+
+    public MPFGenericTrack getGenericTrack(int record) {
+        checkType(record, GENERIC_TRACK);
+        int[] position = { propertiesOffset(record) };
+        return new MPFGenericTrack(getConfidence(record), readProperties(position));
+    }
+
+    public MPFVideoTrack getVideoTrack(int record) {
+        checkType(record, VIDEO_TRACK);
+        int startFrame = getStart(record);
+        int[] position = { propertiesOffset(record) };
+        Map<String, String> properties = readProperties(position);
+        MPFVideoTrack track = new MPFVideoTrack(startFrame, getStop(record), null, getConfidence(record), properties);
+
+        int count = nextVarint(position);
+        int frame = startFrame;
+        for (int i = 0; i < count; i++) {
+            frame += unzigzag(nextVarint(position));
+            // Frames are in increasing order, so each one is appended to the end of the track's map.
+            track.getFrameLocationMap().put(frame, readLocation(position));
+        }
+        return track;
+    }
+
+    private MPFImageLocation readLocation(int[] position) {
+        float confidence = buffer.getFloat(position[0]);
+        position[0] += 4;
+        int x = unzigzag(nextVarint(position));
+        int y = unzigzag(nextVarint(position));
+        int width = nextVarint(position);
+        int height = nextVarint(position);
+        return new MPFImageLocation(x, y, width, height, confidence, readProperties(position));
+    }
+
+    private Map<String, String> readProperties(int[] position) {
+        int count = nextVarint(position);
+        Map<String, String> properties = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String name = getString(nextVarint(position));
+            properties.put(name, getString(nextVarint(position)));
+        }
+        return properties;
+    }
+
+    private int nextVarint(int[] position) {
+        long varint = MPFBinaryFormat.readVarint(buffer, position[0]);
+        position[0] = next(varint);
+        return value(varint);
+    }
+
+    // Skips the fields that come before the properties in each type of record.
+    private int propertiesOffset(int record) {
+        int position = bodyOffsets[record] + 4;
+        switch (recordTypes[record]) {
+            case IMAGE_LOCATION:
+                for (int i = 0; i < 4; i++) {
+                    position = next(readVarint(buffer, position));
+                }
+                return position;
+            case AUDIO_TRACK:
+            case VIDEO_TRACK:
+                return next(readVarint(buffer, next(readVarint(buffer, position))));
+            default:
+                return position;
+        }
+    }
+
+    private String getString(int index) {
+        String string = strings[index];
+        if (string == null) {
+            long length = readVarint(buffer, stringOffsets[index]);
+            int start = next(length);
+            if (buffer.hasArray()) {
+                string = new String(buffer.array(), buffer.arrayOffset() + start, value(length), StandardCharsets.UTF_8);
+            }
+            else {
+                byte[] utf8 = new byte[value(length)];
+                buffer.duplicate().position(start).get(utf8);
+                string = new String(utf8, StandardCharsets.UTF_8);
+            }
+            strings[index] = string;
+        }
+        return string;
+    }
+
+    private void checkType(int record, byte type) {
+        if (recordTypes[record] != type) {
+            throw new IllegalArgumentException("Record " + record + " is a " + getDataType(record) + " record.");
+        }
+    }
+
+    private void checkHasRange(int record) {
+        if (recordTypes[record] != VIDEO_TRACK && recordTypes[record] != AUDIO_TRACK) {
+            throw new IllegalArgumentException("Record " + record + " is not a video or audio track.");
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.serialization;
+
+import org.mitre.mpf.component.api.detection.MPFAudioTrack;
+import org.mitre.mpf.component.api.detection.MPFGenericTrack;
+import org.mitre.mpf.component.api.detection.MPFImageLocation;
+import org.mitre.mpf.component.api.detection.MPFVideoTrack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mitre.mpf.component.api.detection.serialization.MPFBinaryFormat.*;
+
+/**
+ * Encodes tracks and image locations in the compact binary format described in {@link MPFBinaryFormat}, to be read
+ * back with {@link MPFBinaryTrackReader}.  Every distinct property name and value is stored once, in a dictionary,
+ * and the frames of a video track are stored as small deltas.  This class is not thread-safe.
+ */
+public class MPFBinaryTrackWriter {
+
+    private final Map<String, Integer> dictionaryIndexes = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private final Bytes records = new Bytes(1024);
+    private final Bytes body = new Bytes(256);
+    private int recordCount;
+
+    public MPFBinaryTrackWriter() {}
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public void add(MPFImageLocation location) {
+        body.clear();
+        writeLocation(location);
+        finishRecord(IMAGE_LOCATION);
+    }
+
+    public void add(MPFAudioTrack track) {
+        body.clear();
+        body.writeFloat(track.getConfidence());
+        body.writeVarint(zigzag(track.getStartTime()));
+        body.writeVarint(track.getStopTime() - track.getStartTime());
+        writeProperties(track.getDetectionProperties());
+        finishRecord(AUDIO_TRACK);
+    }
+
+    public void add(MPFVideoTrack track) {
+        body.clear();
+        body.writeFloat(track.getConfidence());
+        body.writeVarint(zigzag(track.getStartFrame()));
+        body.writeVarint(track.getStopFrame() - track.getStartFrame());
+        writeProperties(track.getDetectionProperties());
+        body.writeVarint(track.getFrameLocationMap().size());
+        int[] previous = { track.getStartFrame() };
+        track.getFrameLocationMap().forEachFrame((frame, location) -> {
+            body.writeVarint(zigzag(frame - previous[0]));
+            previous[0] = frame;
+            writeLocation(location);
+        });
+        finishRecord(VIDEO_TRACK);
+    }
+
+    public void add(MPFGenericTrack track) {
+        body.clear();
+        body.writeFloat(track.getConfidence());
+        writeProperties(track.getDetectionProperties());
+        finishRecord(GENERIC_TRACK);
+    }
+
+    /**
+     * @return A new heap buffer that contains everything added so far.
+     */
+    public ByteBuffer toByteBuffer() {
+        Bytes output = new Bytes(HEADER_SIZE + records.size + dictionary.size() * 8 + 16);
+        writeHeaderAndDictionary(output);
+        output.writeVarint(recordCount);
+        output.write(records.bytes, 0, records.size);
+        return ByteBuffer.wrap(output.bytes, 0, output.size).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes everything added so far to the stream.
+     */
+    public void writeTo(OutputStream stream) throws IOException {
+        Bytes header = new Bytes(HEADER_SIZE + dictionary.size() * 8 + 16);
+        writeHeaderAndDictionary(header);
+        header.writeVarint(recordCount);
+        stream.write(header.bytes, 0, header.size);
+        stream.write(records.bytes, 0, records.size);
+    }
+
+    private void writeHeaderAndDictionary(Bytes output) {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(0);
+        output.writeVarint(dictionary.size());
+        for (String string : dictionary) {
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            output.writeVarint(utf8.length);
+            output.write(utf8, 0, utf8.length);
+        }
+    }
+
+    private void writeLocation(MPFImageLocation location) {
+        body.writeFloat(location.getConfidence());
+        body.writeVarint(zigzag(location.getXLeftUpper()));
+        body.writeVarint(zigzag(location.getYLeftUpper()));
+        body.writeVarint(location.getWidth());
+        body.writeVarint(location.getHeight());
+        writeProperties(location.getDetectionProperties());
+    }
+
+    private void writeProperties(Map<String, String> properties) {
+        body.writeVarint(properties.size());
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            body.writeVarint(indexOf(property.getKey()));
+            body.writeVarint(indexOf(property.getValue()));
+        }
+    }
+
+    private int indexOf(String string) {
+        if (string == null) {
+            throw new IllegalArgumentException("Null property names and values cannot be encoded.");
+        }
+        Integer index = dictionaryIndexes.get(string);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.add(string);
+            dictionaryIndexes.put(string, index);
+        }
+        return index;
+    }
+
+    private void finishRecord(byte type) {
+        records.writeByte(type);
+        records.writeVarint(body.size);
+        records.write(body.bytes, 0, body.size);
+        recordCount++;
+    }
+
+    private static class Bytes {
+        byte[] bytes;
+        int size;
+
+        Bytes(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(size + 1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(size + 4);
+            for (int i = 0; i < 4; i++) {
+                bytes[size++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void writeFloat(float value) {
+            writeInt(Float.floatToRawIntBits(value));
+        }
+
+        void writeVarint(int value) {
+            ensureCapacity(size + 5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void write(byte[] source, int offset, int length) {
+            ensureCapacity(size + length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.util;
+
+import org.mitre.mpf.component.api.detection.MPFAudioTrack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Combines the tracks found in overlapping windows of the same audio into the tracks a single pass would have found.
+ * Two tracks from different windows are merged when they are duplicates, because their intersection over union is at
+ * least the minimum IoU, or when they overlap by at least the minimum overlap and one of them was cut short by an edge
+ * of its window that the other window extends past, so that the other window saw more of the same detection.
+ * Merging is transitive, so a track cut by several windows is rejoined.
+ * <BR><BR>
+ * Candidate pairs are found with an interval tree, so merging n tracks costs O(n log n) plus the number of
+ * overlapping pairs.
+ */
+public class MPFAudioTrackMerger {
+
+    public static final double DEFAULT_MIN_IOU = 0.5;
+    public static final int DEFAULT_MIN_OVERLAP_MS = 0;
+
+    // A track that ends this close to the edge of its window is taken to have been cut by the edge.
+    private static final int EDGE_TOLERANCE_MS = 20;
+
+    private final double minIou;
+    private final int minOverlapMs;
+    private final List<MPFAudioTrack> tracks = new ArrayList<>();
+    private final List<int[]> windows = new ArrayList<>();
+
+    public MPFAudioTrackMerger() {
+        this(DEFAULT_MIN_IOU, DEFAULT_MIN_OVERLAP_MS);
+    }
+
+    /**
+     * @param minIou       Tracks from different windows whose intersection over union is at least this are
+     *                     duplicates.
+     * @param minOverlapMs Tracks cut by a window edge must overlap by more than zero and at least this many
+     *                     milliseconds to be rejoined.
+     */
+    public MPFAudioTrackMerger(double minIou, int minOverlapMs) {
+        this.minIou = minIou;
+        this.minOverlapMs = Math.max(1, minOverlapMs);
+    }
+
+    /**
+     * Adds the tracks that were found in one window.
+     *
+     * @param windowStart The start of the window, in milliseconds.
+     * @param windowStop  The end of the window, in milliseconds.
+     * @param windowTracks The tracks found in the window.
+     */
+    public void addWindow(int windowStart, int windowStop, List<MPFAudioTrack> windowTracks) {
+        int[] window = { windowStart, windowStop };
+        for (MPFAudioTrack track : windowTracks) {
+            tracks.add(track);
+            windows.add(window);
+        }
+    }
+
+    /**
+     * @return The merged tracks, sorted by start time.  Each spans all of the tracks merged into it, and takes its
+     *         confidence and detection properties from the most confident of them.
+     */
+    public List<MPFAudioTrack> merge() {
+        int count = tracks.size();
+        int[] starts = new int[count];
+        int[] stops = new int[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = tracks.get(i).getStartTime();
+            // Make zero-length tracks occupy a point so that they can be found.
+            stops[i] = Math.max(tracks.get(i).getStopTime(), starts[i] + 1);
+        }
+
+        int[] parents = new int[count];
+        for (int i = 0; i < count; i++) {
+            parents[i] = i;
+        }
+        MPFIntervalTree tree = new MPFIntervalTree(starts, stops);
+        for (int i = 0; i < count; i++) {
+            int first = i;
+            tree.forEachOverlap(starts[i], stops[i], other -> {
+                if (other > first && shouldMerge(first, other, starts, stops)) {
+                    union(parents, first, other);
+                }
+            });
+        }
+
+        List<MPFAudioTrack> merged = new ArrayList<>();
+        int[] best = new int[count];
+        int[] mergedStarts = new int[count];
+        int[] mergedStops = new int[count];
+        Arrays.fill(best, -1);
+        for (int i = 0; i < count; i++) {
+            int root = find(parents, i);
+            if (best[root] < 0) {
+                best[root] = i;
+                mergedStarts[root] = tracks.get(i).getStartTime();
+                mergedStops[root] = tracks.get(i).getStopTime();
+                continue;
+            }
+            if (tracks.get(i).getConfidence() > tracks.get(best[root]).getConfidence()) {
+                best[root] = i;
+            }
+            mergedStarts[root] = Math.min(mergedStarts[root], tracks.get(i).getStartTime());
+            mergedStops[root] = Math.max(mergedStops[root], tracks.get(i).getStopTime());
+        }
+        for (int i = 0; i < count; i++) {
+            if (parents[i] == i) {
+                MPFAudioTrack representative = tracks.get(best[i]);
+                merged.add(new MPFAudioTrack(mergedStarts[i], mergedStops[i], representative.getConfidence(),
+                                             representative.getDetectionProperties()));
+            }
+        }
+        merged.sort(Comparator.comparingInt(MPFAudioTrack::getStartTime)
+                            .thenComparingInt(MPFAudioTrack::getStopTime));
+        return merged;
+    }
+
+    private boolean shouldMerge(int a, int b, int[] starts, int[] stops) {
+        int[] windowA = windows.get(a);
+        int[] windowB = windows.get(b);
+        if (windowA == windowB) {
+            return false;
+        }
+        long intersection = Math.min(stops[a], stops[b]) - Math.max(starts[a], starts[b]);
+        long union = Math.max(stops[a], stops[b]) - Math.min(starts[a], starts[b]);
+        if (intersection >= minIou * union) {
+            return true;
+        }
+        return intersection >= minOverlapMs
+                && (isCutByEdge(a, windowA, windowB) || isCutByEdge(b, windowB, windowA));
+    }
+
+    // Whether the track reaches an edge of its window beyond which the other window continues.
+    private boolean isCutByEdge(int track, int[] window, int[] otherWindow) {
+        MPFAudioTrack t = tracks.get(track);
+        return (otherWindow[0] < window[0] && t.getStartTime() <= window[0] + EDGE_TOLERANCE_MS)
+                || (otherWindow[1] > window[1] && t.getStopTime() >= window[1] - EDGE_TOLERANCE_MS);
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parents, int a, int b) {
+        int rootA = find(parents, a);
+        int rootB = find(parents, b);
+        if (rootA != rootB) {
+            parents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.util;
+
+import java.util.Comparator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A static interval tree over half-open intervals [start, stop).  The intervals are sorted by start and the tree is
+ * implicit in the sorted arrays: each subrange's middle element is its root, and each root records the largest stop
+ * in its subrange, so whole subtrees that end before a query begins are skipped.  A query costs O(log n + k) for k
+ * results, and the tree uses three int arrays in addition to the order.
+ */
+final class MPFIntervalTree {
+
+    private final int[] order;
+    private final int[] starts;
+    private final int[] stops;
+    private final int[] maxStops;
+
+    MPFIntervalTree(int[] starts, int[] stops) {
+        int count = starts.length;
+        order = IntStream.range(0, count).boxed()
+                .sorted(Comparator.comparingInt(i -> starts[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.starts = new int[count];
+        this.stops = new int[count];
+        for (int i = 0; i < count; i++) {
+            this.starts[i] = starts[order[i]];
+            this.stops[i] = stops[order[i]];
+        }
+        maxStops = new int[count];
+        build(0, count);
+    }
+
+    /**
+     * Calls the action with the index, in the arrays given to the constructor, of each interval that overlaps
+     * [start, stop).
+     */
+    void forEachOverlap(int start, int stop, IntConsumer action) {
+        query(0, starts.length, start, stop, action);
+    }
+
+    private int build(int low, int high) {
+        if (low >= high) {
+            return Integer.MIN_VALUE;
+        }
+        int mid = (low + high) >>> 1;
+        int max = Math.max(stops[mid], Math.max(build(low, mid), build(mid + 1, high)));
+        maxStops[mid] = max;
+        return max;
+    }
+
+    private void query(int low, int high, int start, int stop, IntConsumer action) {
+        if (low >= high) {
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        if (maxStops[mid] <= start) {
+            return;
+        }
+        query(low, mid, start, stop, action);
+        if (starts[mid] < stop) {
+            if (stops[mid] > start) {
+                action.accept(order[mid]);
+            }
+            query(mid + 1, high, start, stop, action);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MPFDetectionSinkTest extends TestCase {
+
+    @Test
+    public void testEmitWaitsForDemand() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        MPFDetectionSink<Integer> sink = new MPFDetectionSink<>(subscriber);
+        AtomicInteger emitted = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(1);
+
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 3; i++) {
+                    sink.emit(i);
+                    emitted.incrementAndGet();
+                }
+                sink.complete();
+            }
+            catch (MPFComponentDetectionError e) {
+                sink.fail(e);
+            }
+            finished.countDown();
+        });
+        producer.start();
+
+        Thread.sleep(100);
+        assertEquals(0, emitted.get());
+        subscriber.subscription.request(2);
+        assertFalse(finished.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, emitted.get());
+        subscriber.subscription.request(1);
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of(0, 1, 2), subscriber.items);
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void testCancellationAndInvalidRequests() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        MPFDetectionSink<Integer> sink = new MPFDetectionSink<>(subscriber);
+        assertTrue(sink.emit(1));
+        subscriber.subscription.cancel();
+        assertTrue(sink.isCancelled());
+        assertFalse(sink.emit(2));
+        sink.complete();
+        assertEquals(List.of(1), subscriber.items);
+        assertFalse(subscriber.completed);
+
+        RecordingSubscriber invalid = new RecordingSubscriber(0);
+        MPFDetectionSink<Integer> invalidSink = new MPFDetectionSink<>(invalid);
+        invalid.subscription.request(0);
+        assertFalse(invalidSink.emit(1));
+        assertTrue(invalid.error instanceof IllegalArgumentException);
+        assertTrue(invalid.items.isEmpty());
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Integer> {
+        private final long initialRequest;
+        final List<Integer> items = new ArrayList<>();
+        volatile Flow.Subscription subscription;
+        volatile boolean completed;
+        volatile Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            synchronized (items) {
+                items.add(item);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
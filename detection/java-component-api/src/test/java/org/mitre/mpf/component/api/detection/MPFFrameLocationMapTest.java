@@ -0,0 +1,238 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class MPFFrameLocationMapTest extends TestCase {
+
+    @Test
+    public void testMatchesTreeMap() {
+        Random random = new Random(7);
+        TreeMap<Integer, MPFImageLocation> expected = new TreeMap<>();
+        Map<Integer, MPFImageLocation> unordered = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            int frame = random.nextInt(2000);
+            MPFImageLocation location = new MPFImageLocation(frame, i, 10, 10, i, null);
+            expected.put(frame, location);
+            unordered.put(frame, location);
+        }
+        MPFFrameLocationMap actual = new MPFFrameLocationMap(unordered);
+        assertEquals(expected, actual);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+
+        for (int i = 0; i < 2000; i++) {
+            int frame = random.nextInt(2100) - 50;
+            switch (random.nextInt(3)) {
+                case 0:
+                    MPFImageLocation location = new MPFImageLocation(frame, -i, 5, 5, -1, null);
+                    assertSame(expected.put(frame, location), actual.put(frame, location));
+                    break;
+                case 1:
+                    assertSame(expected.remove(frame), actual.remove((Object) frame));
+                    break;
+                default:
+                    assertSame(expected.get(frame), actual.get(frame));
+            }
+        }
+        assertEquals(expected, actual);
+        assertEquals(expected.firstKey(), actual.firstKey());
+        assertEquals(expected.lastKey(), actual.lastKey());
+
+        List<Integer> visited = new ArrayList<>();
+        actual.forEachFrame((frame, location) -> {
+            assertSame(expected.get(frame), location);
+            visited.add(frame);
+        });
+        assertEquals(new ArrayList<>(expected.keySet()), visited);
+    }
+
+    @Test
+    public void testRangeViews() {
+        MPFFrameLocationMap map = new MPFFrameLocationMap();
+        for (int frame = 0; frame < 100; frame += 10) {
+            map.put(frame, location(frame));
+        }
+
+        MPFFrameLocationMap range = map.subMap(15, 55);
+        assertEquals(4, range.size());
+        assertEquals(20, (int) range.firstKey());
+        assertEquals(50, (int) range.lastKey());
+        assertNull(range.get(60));
+        assertEquals(3, range.headMap(50).size());
+        assertEquals(2, range.tailMap(40).size());
+        try {
+            range.put(70, location(70));
+            fail("Expected a frame outside of the view to be rejected.");
+        }
+        catch (IllegalArgumentException e) {
+            // Expected.
+        }
+
+        // The view and the map share their storage.
+        range.put(25, location(25));
+        assertEquals(11, map.size());
+        Iterator<Integer> frames = range.keySet().iterator();
+        while (frames.hasNext()) {
+            if (frames.next() % 20 == 0) {
+                frames.remove();
+            }
+        }
+        assertEquals(List.of(25, 30, 50), new ArrayList<>(range.keySet()));
+        assertEquals(List.of(0, 10, 25, 30, 50, 60, 70, 80, 90), new ArrayList<>(map.keySet()));
+
+        range.clear();
+        assertTrue(range.isEmpty());
+        assertEquals(6, map.size());
+    }
+
+    @Test
+    public void testRangeViewsRejectFramesOutsideTheirRange() {
+        MPFFrameLocationMap map = new MPFFrameLocationMap();
+        for (int frame = 0; frame < 100; frame += 10) {
+            map.put(frame, location(frame));
+        }
+        MPFFrameLocationMap range = map.subMap(15, 55);
+
+        // Like TreeMap, the end points of a nested view may equal those of the view, but not go beyond them.
+        assertEquals(4, range.subMap(15, 55).size());
+        assertEquals(4, range.headMap(55).size());
+        assertEquals(4, range.tailMap(15).size());
+        assertRejected(() -> range.headMap(56));
+        assertRejected(() -> range.headMap(14));
+        assertRejected(() -> range.tailMap(10));
+        assertRejected(() -> range.tailMap(60));
+        assertRejected(() -> range.subMap(10, 50));
+        assertRejected(() -> range.subMap(20, 60));
+        assertRejected(() -> range.tailMap(40).headMap(30));
+
+        Map<Integer, MPFImageLocation> partlyOutside = new HashMap<>();
+        partlyOutside.put(35, location(35));
+        partlyOutside.put(55, location(55));
+        assertRejected(() -> range.putAll(partlyOutside));
+        assertEquals("A rejected putAll must not change the map.", 10, map.size());
+    }
+
+    @Test
+    public void testPutAllMergesWithExistingFrames() {
+        Random random = new Random(11);
+        TreeMap<Integer, MPFImageLocation> expected = new TreeMap<>();
+        MPFFrameLocationMap actual = new MPFFrameLocationMap();
+        for (int round = 0; round < 50; round++) {
+            Map<Integer, MPFImageLocation> batch = new HashMap<>();
+            int size = random.nextInt(40);
+            for (int i = 0; i < size; i++) {
+                // Mostly new frames between existing ones, with some replacements and some appends.
+                int frame = random.nextInt(1000 + 20 * round) - 100;
+                batch.put(frame, new MPFImageLocation(frame, round, 1, 1, i, null));
+            }
+            expected.putAll(batch);
+            actual.putAll(batch);
+            assertEquals(expected, actual);
+            assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        }
+
+        // A view merges into the shared storage.
+        MPFFrameLocationMap view = actual.subMap(200, 300);
+        Map<Integer, MPFImageLocation> batch = Map.of(200, location(200), 250, location(250), 299, location(299));
+        view.putAll(batch);
+        expected.putAll(batch);
+        assertEquals(expected, actual);
+        assertEquals(expected.subMap(200, 300), view);
+    }
+
+    @Test
+    public void testEntriesFollowTheirFrame() {
+        MPFFrameLocationMap map = new MPFFrameLocationMap();
+        for (int frame = 0; frame < 5; frame++) {
+            map.put(frame, location(frame));
+        }
+        Iterator<Map.Entry<Integer, MPFImageLocation>> entries = map.entrySet().iterator();
+        entries.next();
+        entries.next();
+        Map.Entry<Integer, MPFImageLocation> entry = entries.next();
+        assertEquals(2, (int) entry.getKey());
+
+        // Removing an earlier frame moves the entry's frame to a different index.
+        map.remove(0);
+        assertEquals(location(2).getXLeftUpper(), entry.getValue().getXLeftUpper());
+        MPFImageLocation replacement = location(20);
+        entry.setValue(replacement);
+        assertSame(replacement, map.get(2));
+
+        map.remove(2);
+        assertNull(entry.getValue());
+        try {
+            entry.setValue(location(2));
+            fail("Expected setting a removed frame to be rejected.");
+        }
+        catch (IllegalStateException e) {
+            // Expected.
+        }
+    }
+
+    private static void assertRejected(Runnable action) {
+        try {
+            action.run();
+            fail("Expected a frame outside of the view to be rejected.");
+        }
+        catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testVideoTrackFrameLocations() {
+        Map<Integer, MPFImageLocation> locations = new HashMap<>();
+        locations.put(9, location(9));
+        locations.put(3, location(3));
+        MPFVideoTrack track = new MPFVideoTrack(3, 9, locations, -1, null);
+        locations.clear();
+        assertEquals(List.of(3, 9), new ArrayList<>(track.getFrameLocations().keySet()));
+
+        track.getFrameLocations().put(5, location(5));
+        assertEquals(1, track.getFrameLocationMap().subMap(4, 9).size());
+
+        track.setFrameLocations(Map.of(4, location(4)));
+        assertEquals(List.of(4), new ArrayList<>(track.getFrameLocations().keySet()));
+        track.setFrameLocations(null);
+        assertTrue(track.getFrameLocations().isEmpty());
+    }
+
+    private static MPFImageLocation location(int frame) {
+        return new MPFImageLocation(frame, 0, 1, 1, -1, null);
+    }
+}
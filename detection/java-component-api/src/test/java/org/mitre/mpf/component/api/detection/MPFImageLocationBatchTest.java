@@ -0,0 +1,100 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+public class MPFImageLocationBatchTest extends TestCase {
+
+    @Test
+    public void testHeapBatch() {
+        assertBatchBehavior(new MPFImageLocationBatch(1));
+    }
+
+    @Test
+    public void testDirectBatch() {
+        MPFImageLocationBatch batch = MPFImageLocationBatch.allocateDirect(1);
+        assertBatchBehavior(batch);
+        assertTrue(batch.isDirect());
+
+        ByteBuffer buffer = batch.getDirectBuffer();
+        assertTrue(buffer.isDirect());
+        int capacity = batch.getCapacity();
+        for (int i = 0; i < batch.size(); i++) {
+            assertEquals(batch.getXLeftUpper(i), buffer.getInt(i * 4));
+            assertEquals(batch.getHeight(i), buffer.getInt((3 * capacity + i) * 4));
+            assertEquals(batch.getConfidence(i), buffer.getFloat((4 * capacity + i) * 4));
+        }
+    }
+
+    private static void assertBatchBehavior(MPFImageLocationBatch batch) {
+        for (int i = 0; i < 100; i++) {
+            int index = batch.add(i, i + 1, 10, 20, i / 100f);
+            if (i % 3 == 0) {
+                batch.setProperty(index, "CLASSIFICATION", "car");
+            }
+        }
+        batch.add(new MPFImageLocation(5, 6, 7, 8, 0.99f, Map.of("CLASSIFICATION", "truck", "COLOR", "red")));
+        assertEquals(101, batch.size());
+        assertEquals(Map.of("CLASSIFICATION", "car"), batch.getProperties(3));
+        assertTrue(batch.getProperties(4).isEmpty());
+
+        assertEquals(50, batch.removeBelowConfidence(0.5f));
+        assertEquals(51, batch.size());
+        assertEquals(50, batch.getXLeftUpper(0));
+        assertEquals(51, batch.getYLeftUpper(0));
+        assertEquals("car", batch.getProperty(1, "CLASSIFICATION"));
+        assertNull(batch.getProperty(0, "CLASSIFICATION"));
+
+        List<MPFImageLocation> locations = batch.asList();
+        assertEquals(51, locations.size());
+        MPFImageLocation last = locations.get(50);
+        assertEquals(5, last.getXLeftUpper());
+        assertEquals(8, last.getHeight());
+        assertEquals(0.99f, last.getConfidence());
+        assertEquals(Map.of("CLASSIFICATION", "truck", "COLOR", "red"), last.getDetectionProperties());
+
+        MPFImageLocationBatch copy = MPFImageLocationBatch.of(locations);
+        assertEquals(batch.size(), copy.size());
+        assertEquals(batch.getProperties(50), copy.getProperties(50));
+
+        try {
+            batch.getWidth(51);
+            fail("Expected an index past the end to be rejected.");
+        }
+        catch (IndexOutOfBoundsException e) {
+            // Expected.
+        }
+        batch.clear();
+        assertTrue(locations.isEmpty());
+    }
+}
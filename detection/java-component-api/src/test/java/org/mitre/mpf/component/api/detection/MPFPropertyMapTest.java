@@ -0,0 +1,131 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+public class MPFPropertyMapTest extends TestCase {
+
+    @Test
+    public void testIdenticalPropertiesAreShared() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("CLASSIFICATION", "face");
+        properties.put("METADATA", "extra info");
+        MPFImageLocation first = new MPFImageLocation(0, 0, 1, 1, -1, properties);
+        MPFImageLocation second = new MPFImageLocation(0, 0, 1, 1, -1, new HashMap<>(properties));
+        assertEquals(properties, first.getDetectionProperties());
+
+        MPFCompactPropertyMap firstCompact = MPFCompactPropertyMap.copyOf(first.getDetectionProperties());
+        assertSame(firstCompact, MPFCompactPropertyMap.copyOf(properties));
+        assertSame(firstCompact, MPFCompactPropertyMap.copyOf(second.getDetectionProperties()));
+
+        // A different value still refers to the same interned key set.
+        properties.put("CLASSIFICATION", "person");
+        MPFCompactPropertyMap changed = MPFCompactPropertyMap.copyOf(properties);
+        assertNotSame(firstCompact, changed);
+        assertTrue(changed.hasSameKeys(firstCompact));
+        assertEquals("person", changed.get("CLASSIFICATION"));
+        assertNull(changed.get("OTHER"));
+        assertEquals(properties.hashCode(), changed.hashCode());
+
+        try {
+            changed.put("OTHER", "x");
+            fail("Expected the compact map to be immutable.");
+        }
+        catch (UnsupportedOperationException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testChangesAreCopiedOnWrite() {
+        MPFVideoTrack track = new MPFVideoTrack(0, 1, null, -1, Map.of("A", "1", "B", "2"));
+        MPFAudioTrack audioTrack = new MPFAudioTrack(0, 1, -1, track.getDetectionProperties());
+        MPFGenericTrack genericTrack = new MPFGenericTrack(-1, audioTrack.getDetectionProperties());
+
+        audioTrack.getDetectionProperties().put("C", "3");
+        assertEquals(Map.of("A", "1", "B", "2", "C", "3"), audioTrack.getDetectionProperties());
+        assertEquals(Map.of("A", "1", "B", "2"), track.getDetectionProperties());
+        assertEquals(Map.of("A", "1", "B", "2"), genericTrack.getDetectionProperties());
+
+        // A changed map is copied again, and copying it leaves it free to keep changing in place.
+        MPFPropertyMap changed = (MPFPropertyMap) audioTrack.getDetectionProperties();
+        MPFPropertyMap copy = MPFPropertyMap.copyOf(changed);
+        assertFalse(copy.sharesStorageWith(changed));
+        changed.put("C", "three");
+        assertEquals("3", copy.get("C"));
+        assertTrue(MPFPropertyMap.copyOf(copy).sharesStorageWith(copy));
+
+        Iterator<Map.Entry<String, String>> entries = track.getDetectionProperties().entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, String> entry = entries.next();
+            if (entry.getKey().equals("A")) {
+                entries.remove();
+            }
+            else {
+                entry.setValue("two");
+            }
+        }
+        assertEquals(Map.of("B", "two"), track.getDetectionProperties());
+        assertEquals(Map.of("A", "1", "B", "2"), genericTrack.getDetectionProperties());
+
+        Map<String, String> owned = new HashMap<>();
+        owned.put(null, "legacy");
+        MPFPropertyMap adopted = MPFPropertyMap.adopt(owned);
+        MPFImageLocation location = new MPFImageLocation(0, 0, 1, 1, -1, adopted);
+        assertEquals("legacy", location.getDetectionProperties().get(null));
+        adopted.put("D", "4");
+        assertFalse(location.getDetectionProperties().containsKey("D"));
+        assertEquals(2, adopted.size());
+    }
+
+    @Test
+    public void testDerivedJobsShareProperties() {
+        Map<String, String> jobProperties = new HashMap<>();
+        jobProperties.put("CONFIDENCE_THRESHOLD", "0.5");
+        MPFVideoJob videoJob = new MPFVideoJob("job", "uri", jobProperties, Map.of("FPS", "30"), 0, 99);
+        jobProperties.put("CONFIDENCE_THRESHOLD", "0.9");
+        assertEquals("0.5", videoJob.getJobProperties().get("CONFIDENCE_THRESHOLD"));
+
+        MPFAudioJob audioJob = new MPFAudioJob(videoJob.getJobName(), videoJob.getDataUri(),
+                                               videoJob.getJobProperties(), videoJob.getMediaProperties(), 0, 3300);
+        MPFPropertyMap videoJobProperties = (MPFPropertyMap) videoJob.getJobProperties();
+        MPFPropertyMap audioJobProperties = (MPFPropertyMap) audioJob.getJobProperties();
+        assertTrue(audioJobProperties.sharesStorageWith(videoJobProperties));
+        assertTrue(((MPFPropertyMap) audioJob.getMediaProperties())
+                           .sharesStorageWith((MPFPropertyMap) videoJob.getMediaProperties()));
+
+        audioJobProperties.put("EXTRA", "1");
+        assertFalse(audioJobProperties.sharesStorageWith(videoJobProperties));
+        assertFalse(videoJobProperties.containsKey("EXTRA"));
+    }
+}
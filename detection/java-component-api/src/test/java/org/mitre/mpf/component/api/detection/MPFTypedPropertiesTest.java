@@ -0,0 +1,148 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MPFTypedPropertiesTest extends TestCase {
+
+    private static final String DESCRIPTOR = "{\n"
+            + "  \"componentName\": \"TypedExample\",\n"
+            + "  \"algorithm\": {\n"
+            + "    \"name\": \"TypedExample\",\n"
+            + "    \"providesCollection\": {\n"
+            + "      \"states\": [\"DETECTION\"],\n"
+            + "      \"properties\": [\n"
+            + "        { \"name\": \"FRAME_INTERVAL\", \"type\": \"INT\", \"defaultValue\": \"1\" },\n"
+            + "        { \"name\": \"CONFIDENCE_THRESHOLD\", \"type\": \"DOUBLE\", \"defaultValue\": \"0.5\" },\n"
+            + "        { \"name\": \"USE_GPU\", \"type\": \"BOOLEAN\", \"defaultValue\": \"false\" },\n"
+            + "        { \"name\": \"MODEL_NAME\", \"type\": \"STRING\", \"defaultValue\": \"tiny \\\"v2\\\"\" },\n"
+            + "        { \"name\": \"MAX_FEATURES\", \"type\": \"LONG\" }\n"
+            + "      ]\n"
+            + "    }\n"
+            + "  }\n"
+            + "}";
+
+    @Test
+    public void testDescriptorSchemaParsesJobProperties() throws Exception {
+        MPFPropertySchema schema = compile(DESCRIPTOR);
+        MPFPropertySchema.setComponentSchema(schema);
+        try {
+            Map<String, String> jobProperties = new HashMap<>();
+            jobProperties.put("FRAME_INTERVAL", " 5 ");
+            jobProperties.put("USE_GPU", "TRUE");
+            jobProperties.put("OTHER", "x");
+            MPFVideoJob job = new MPFVideoJob("job", "uri", jobProperties, Map.of("FPS", "29.97"), 0, 10);
+
+            MPFTypedProperties typed = job.typed();
+            assertSame(typed, job.typed());
+            assertEquals(5, typed.getInt("FRAME_INTERVAL"));
+            assertEquals(0.5, typed.getDouble("CONFIDENCE_THRESHOLD"));
+            assertTrue(typed.getBoolean("USE_GPU"));
+            assertEquals("tiny \"v2\"", typed.getString("MODEL_NAME"));
+            assertEquals("x", typed.getString("OTHER"));
+            // The parsed values share the job's properties, but do not see later changes to them.
+            job.getJobProperties().put("OTHER", "y");
+            assertEquals("x", typed.getString("OTHER"));
+            assertFalse(typed.has("MAX_FEATURES"));
+            assertEquals(7L, typed.getLong("MAX_FEATURES", 7));
+            assertEquals(5.0, typed.getDouble("FRAME_INTERVAL"));
+
+            assertEquals("29.97", job.typedMedia().getString("FPS"));
+            assertFalse(job.typedMedia().has("FRAME_COUNT"));
+
+            try {
+                typed.getLong("MAX_FEATURES");
+                fail("Expected a property without a value to be rejected.");
+            }
+            catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("no value"));
+            }
+            try {
+                typed.getInt("USE_GPU");
+                fail("Expected a type mismatch to be rejected.");
+            }
+            catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("BOOLEAN"));
+            }
+        }
+        finally {
+            MPFPropertySchema.setComponentSchema(null);
+        }
+    }
+
+    @Test
+    public void testInvalidValuesAreReportedTogether() throws Exception {
+        MPFPropertySchema schema = compile(DESCRIPTOR);
+        Map<String, String> values = new HashMap<>();
+        values.put("FRAME_INTERVAL", "99999999999");
+        values.put("CONFIDENCE_THRESHOLD", "1e");
+        values.put("USE_GPU", "yes");
+        values.put("MAX_FEATURES", "-9223372036854775808");
+        try {
+            schema.parse(values);
+            fail("Expected the invalid values to be rejected.");
+        }
+        catch (MPFComponentDetectionError e) {
+            assertEquals(MPFDetectionError.MPF_INVALID_PROPERTY, e.getDetectionError());
+            assertTrue(e.getMessage().contains("FRAME_INTERVAL"));
+            assertTrue(e.getMessage().contains("CONFIDENCE_THRESHOLD"));
+            assertTrue(e.getMessage().contains("USE_GPU"));
+            assertFalse(e.getMessage().contains("MAX_FEATURES"));
+        }
+
+        // Only ASCII digits are numbers, as Double.parseDouble would throw on other digits.
+        values.clear();
+        values.put("CONFIDENCE_THRESHOLD", "\u0661.5");
+        try {
+            schema.parse(values);
+            fail("Expected a non-ASCII digit to be rejected.");
+        }
+        catch (MPFComponentDetectionError e) {
+            assertTrue(e.getMessage().contains("CONFIDENCE_THRESHOLD"));
+        }
+
+        try {
+            compile(DESCRIPTOR.replace("\"0.5\"", "\"half\""));
+            fail("Expected an invalid default to be rejected.");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().contains("CONFIDENCE_THRESHOLD"));
+        }
+    }
+
+    private static MPFPropertySchema compile(String descriptor) throws IOException {
+        return MPFPropertySchema.fromDescriptor(new ByteArrayInputStream(descriptor.getBytes(StandardCharsets.UTF_8)));
+    }
+}
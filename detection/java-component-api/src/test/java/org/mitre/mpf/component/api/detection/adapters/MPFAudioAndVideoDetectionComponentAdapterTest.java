@@ -28,12 +28,18 @@ package org.mitre.mpf.component.api.detection.adapters;
 
 import junit.framework.TestCase;
 import org.junit.Test;
+import org.mitre.mpf.audioVideo.util.MPFProcessTimeoutException;
 import org.mitre.mpf.component.api.detection.*;
 
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
 
 public class MPFAudioAndVideoDetectionComponentAdapterTest extends TestCase {
 
@@ -80,6 +86,324 @@ public class MPFAudioAndVideoDetectionComponentAdapterTest extends TestCase {
         assertEquals(0, tracks.size());
     }
 
+    @Test
+    public void testReadsOnlyTheMediaPropertiesItNeeds() throws Exception {
+        MPFAudioAndVideoDetectionComponentAdapter component = new MPFAudioAndVideoDetectionComponentAdapter() {
+            @Override
+            public List<MPFAudioTrack> getDetections(MPFAudioJob job) {
+                return List.of(new MPFAudioTrack(1001, 2002, 1, Collections.emptyMap()));
+            }
+        };
+
+        HashMap<String, String> mediaProperties = new HashMap<>();
+        mediaProperties.put("DURATION", "10010");
+        mediaProperties.put("FPS", "30000/1001");
+        mediaProperties.put("FRAME_COUNT", "300");
+        mediaProperties.put("HAS_CONSTANT_FRAME_RATE", "true");
+        // The adapter does not use these, so their values do not matter.
+        mediaProperties.put("FRAME_WIDTH", "wide");
+        mediaProperties.put("ROTATION", "upside down");
+        mediaProperties.put("HORIZONTAL_FLIP", "maybe");
+
+        List<MPFVideoTrack> tracks = component.getDetections(
+                new MPFVideoJob("TEST", "test", new HashMap<>(), mediaProperties, 0, 299));
+        assertEquals(1, tracks.size());
+        assertEquals(30, tracks.get(0).getStartFrame());
+        assertEquals(60, tracks.get(0).getStopFrame());
+
+        mediaProperties.put("FPS", "fast");
+        try {
+            component.getDetections(new MPFVideoJob("TEST", "test", new HashMap<>(), mediaProperties, 0, 299));
+            fail("Expected an invalid FPS to be rejected.");
+        } catch (MPFComponentDetectionError e) {
+            assertEquals(MPFDetectionError.MPF_INVALID_PROPERTY, e.getDetectionError());
+            assertTrue(e.getMessage().contains("fast"));
+        }
+    }
+
+    @Test
+    public void testVoiceActivitySkipsSilence() throws Exception {
+        // Ten seconds of quiet noise with speech-level tones from 3 to 5 seconds and from 7.2 to 7.6 seconds.
+        short[] samples = new short[16000 * 10];
+        Random random = new Random(1);
+        for (int i = 0; i < samples.length; i++) {
+            double noise = random.nextGaussian() * 30;
+            boolean active = (i >= 48000 && i < 80000) || (i >= 115200 && i < 121600);
+            double tone = active ? 8000 * Math.sin(2 * Math.PI * 300 * i / 16000.0) : 0;
+            samples[i] = (short) Math.round(noise + tone);
+        }
+
+        List<int[]> jobRanges = new ArrayList<>();
+        MPFAudioAndVideoDetectionComponentAdapter component = new MPFAudioAndVideoDetectionComponentAdapter() {
+            @Override
+            public List<MPFAudioTrack> getDetections(MPFAudioJob job) {
+                jobRanges.add(new int[] { job.getStartTime(), job.getStopTime() });
+                return List.of(new MPFAudioTrack(job.getStartTime(), job.getStopTime(), 1, Collections.emptyMap()));
+            }
+
+            @Override
+            protected ShortBuffer ripAudioForVoiceActivity(MPFAudioJob job) {
+                return ShortBuffer.wrap(samples);
+            }
+        };
+
+        HashMap<String, String> jobProperties = new HashMap<>();
+        jobProperties.put("VAD_ENABLED", "true");
+        jobProperties.put("VAD_PADDING_MS", "200");
+        HashMap<String, String> mediaProperties = new HashMap<>();
+        mediaProperties.put("DURATION", "10000");
+        mediaProperties.put("FPS", "30");
+        mediaProperties.put("FRAME_COUNT", "300");
+
+        List<MPFVideoTrack> tracks = component.getDetections(
+                new MPFVideoJob("TEST", "test", jobProperties, mediaProperties, 0, 299));
+
+        assertEquals(2, jobRanges.size());
+        assertEquals(2800, jobRanges.get(0)[0], 20);
+        assertEquals(5200, jobRanges.get(0)[1], 20);
+        assertEquals(7000, jobRanges.get(1)[0], 20);
+        assertEquals(7800, jobRanges.get(1)[1], 20);
+
+        // The tracks are in absolute time, so they map to the frames of the active regions.
+        assertEquals(2, tracks.size());
+        assertEquals(84, tracks.get(0).getStartFrame(), 1);
+        assertEquals(156, tracks.get(0).getStopFrame(), 1);
+
+        // Without the property, the whole range is processed once.
+        jobRanges.clear();
+        component.getDetections(new MPFVideoJob("TEST", "test", new HashMap<>(), mediaProperties, 0, 299));
+        assertEquals(1, jobRanges.size());
+        assertEquals(10000, jobRanges.get(0)[1]);
+    }
+
+    @Test
+    public void testRipTimeoutIsReportedWithoutProcessingTheWholeRange() {
+        List<int[]> jobRanges = new ArrayList<>();
+        MPFAudioAndVideoDetectionComponentAdapter component = new MPFAudioAndVideoDetectionComponentAdapter() {
+            @Override
+            public List<MPFAudioTrack> getDetections(MPFAudioJob job) {
+                jobRanges.add(new int[] { job.getStartTime(), job.getStopTime() });
+                return List.of();
+            }
+
+            @Override
+            protected ShortBuffer ripAudioForVoiceActivity(MPFAudioJob job) throws IOException {
+                throw new MPFProcessTimeoutException("ffmpeg", 1000);
+            }
+        };
+
+        HashMap<String, String> jobProperties = new HashMap<>();
+        jobProperties.put("VAD_ENABLED", "true");
+        try {
+            component.getDetectionsForVoiceActivity(
+                    new MPFAudioJob("TEST", "test", jobProperties, new HashMap<>(), 0, 10000));
+            fail("Expected the timeout to be reported.");
+        } catch (MPFComponentDetectionError e) {
+            assertEquals(MPFDetectionError.MPF_PROCESS_TIMEOUT, e.getDetectionError());
+        }
+
+        jobProperties.remove("VAD_ENABLED");
+        jobProperties.put("PARALLEL_SPLIT_ENABLED", "true");
+        jobProperties.put("PARALLEL_SPLIT_COUNT", "2");
+        jobProperties.put("PARALLEL_SPLIT_MIN_MS", "1000");
+        try {
+            component.getDetectionsInParallel(
+                    new MPFAudioJob("TEST", "test", jobProperties, new HashMap<>(), 0, 10000));
+            fail("Expected the timeout to be reported.");
+        } catch (MPFComponentDetectionError e) {
+            assertEquals(MPFDetectionError.MPF_PROCESS_TIMEOUT, e.getDetectionError());
+        }
+        assertTrue(jobRanges.isEmpty());
+    }
+
+    @Test
+    public void testParallelSplitCutsAtPauses() throws Exception {
+        // Twelve seconds of continuous tone, with pauses from 3.5 to 3.9 seconds and from 8.2 to 8.6 seconds.
+        short[] samples = new short[16000 * 12];
+        for (int i = 0; i < samples.length; i++) {
+            boolean pause = (i >= 56000 && i < 62400) || (i >= 131200 && i < 137600);
+            samples[i] = pause ? 0 : (short) Math.round(8000 * Math.sin(2 * Math.PI * 300 * i / 16000.0));
+        }
+
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        MPFAudioAndVideoDetectionComponentAdapter component = new MPFAudioAndVideoDetectionComponentAdapter() {
+            @Override
+            public List<MPFAudioTrack> getDetections(MPFAudioJob job) {
+                threads.add(Thread.currentThread().getName());
+                return List.of(new MPFAudioTrack(job.getStartTime(), job.getStopTime(), 1, Collections.emptyMap()));
+            }
+
+            @Override
+            protected ShortBuffer ripAudioForVoiceActivity(MPFAudioJob job) {
+                return ShortBuffer.wrap(samples);
+            }
+        };
+
+        HashMap<String, String> jobProperties = new HashMap<>();
+        jobProperties.put("PARALLEL_SPLIT_ENABLED", "true");
+        jobProperties.put("PARALLEL_SPLIT_COUNT", "3");
+        jobProperties.put("PARALLEL_SPLIT_MIN_MS", "1000");
+        jobProperties.put("PARALLEL_SPLIT_SEARCH_MS", "2000");
+
+        List<MPFAudioTrack> tracks = component.getDetectionsInParallel(
+                new MPFAudioJob("TEST", "test", jobProperties, new HashMap<>(), 0, 12000));
+
+        // The even cuts at 4 and 8 seconds move to the nearest points that are entirely within the pauses.
+        assertEquals(3, tracks.size());
+        assertEquals(0, tracks.get(0).getStartTime());
+        assertEquals(3890, tracks.get(0).getStopTime());
+        assertEquals(3890, tracks.get(1).getStartTime());
+        assertEquals(8210, tracks.get(1).getStopTime());
+        assertEquals(8210, tracks.get(2).getStartTime());
+        assertEquals(12000, tracks.get(2).getStopTime());
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("mpf-audio-split-")));
+
+        // Jobs shorter than two pieces are not split.
+        threads.clear();
+        jobProperties.put("PARALLEL_SPLIT_MIN_MS", "7000");
+        tracks = component.getDetectionsInParallel(
+                new MPFAudioJob("TEST", "test", jobProperties, new HashMap<>(), 0, 12000));
+        assertEquals(1, tracks.size());
+        assertEquals(Thread.currentThread().getName(), threads.get(0));
+    }
+
+    @Test
+    public void testSlidingWindowsMatchSinglePass() throws Exception {
+        List<MPFAudioTrack> truth = List.of(
+                new MPFAudioTrack(500, 1200, 0.5f, Collections.emptyMap()),
+                new MPFAudioTrack(8500, 9500, 0.6f, Collections.emptyMap()),  // inside the first overlap
+                new MPFAudioTrack(9800, 21000, 0.7f, Collections.emptyMap()), // spans two window edges
+                new MPFAudioTrack(29000, 30000, 0.8f, Collections.emptyMap()));
+
+        List<int[]> windows = Collections.synchronizedList(new ArrayList<>());
+        MPFAudioAndVideoDetectionComponentAdapter component = new MPFAudioAndVideoDetectionComponentAdapter() {
+            @Override
+            public List<MPFAudioTrack> getDetections(MPFAudioJob job) {
+                windows.add(new int[] { job.getStartTime(), job.getStopTime() });
+                List<MPFAudioTrack> tracks = new ArrayList<>();
+                for (MPFAudioTrack track : truth) {
+                    int start = Math.max(job.getStartTime(), track.getStartTime());
+                    int stop = Math.min(job.getStopTime(), track.getStopTime());
+                    if (start < stop) {
+                        tracks.add(new MPFAudioTrack(start, stop, track.getConfidence(), Collections.emptyMap()));
+                    }
+                }
+                return tracks;
+            }
+        };
+
+        HashMap<String, String> jobProperties = new HashMap<>();
+        jobProperties.put("SLIDING_WINDOW_ENABLED", "true");
+        jobProperties.put("SLIDING_WINDOW_MS", "10000");
+        jobProperties.put("SLIDING_WINDOW_OVERLAP_MS", "2000");
+
+        List<MPFAudioTrack> tracks = component.getDetectionsInParallel(
+                new MPFAudioJob("TEST", "test", jobProperties, new HashMap<>(), 0, 30000));
+
+        // Windows start every 8 seconds, and the last one ends with the job.
+        assertEquals(4, windows.size());
+        assertEquals(truth.size(), tracks.size());
+        for (int i = 0; i < truth.size(); i++) {
+            assertEquals(truth.get(i).getStartTime(), tracks.get(i).getStartTime());
+            assertEquals(truth.get(i).getStopTime(), tracks.get(i).getStopTime());
+            assertEquals(truth.get(i).getConfidence(), tracks.get(i).getConfidence());
+        }
+
+        jobProperties.put("SLIDING_WINDOW_OVERLAP_MS", "10000");
+        try {
+            component.getDetectionsInParallel(new MPFAudioJob("TEST", "test", jobProperties, new HashMap<>(), 0, 30000));
+            fail("Expected an overlap as long as the window to be rejected.");
+        } catch (MPFComponentDetectionError e) {
+            assertEquals(MPFDetectionError.MPF_INVALID_PROPERTY, e.getDetectionError());
+        }
+    }
+
+    @Test
+    public void testStreamingDetectionsFromVideo() throws Exception {
+        List<String> events = new ArrayList<>();
+        MPFAudioAndVideoDetectionComponentAdapter component = new MPFAudioAndVideoDetectionComponentAdapter() {
+            @Override
+            public List<MPFAudioTrack> getDetections(MPFAudioJob job) {
+                throw new AssertionError("The streaming method should be called instead.");
+            }
+
+            @Override
+            public void getDetections(MPFAudioJob job, MPFDetectionSink<MPFAudioTrack> sink)
+                    throws MPFComponentDetectionError {
+                events.add("emit audio 1");
+                sink.emit(new MPFAudioTrack(5, 3000, 0.9f, Collections.emptyMap()));
+                events.add("emit audio 2");
+                sink.emit(new MPFAudioTrack(3500, 8020, 0.7f, Collections.emptyMap()));
+            }
+        };
+
+        HashMap<String,String> mediaProperties = new HashMap<>();
+        mediaProperties.put("DURATION", "10000");
+        mediaProperties.put("FPS", "30");
+        mediaProperties.put("FRAME_COUNT", "300");
+        mediaProperties.put("HAS_CONSTANT_FRAME_RATE", "true");
+        MPFVideoJob job = new MPFVideoJob("TEST", "test", new HashMap<>(), mediaProperties, 0, 299);
+
+        List<MPFVideoTrack> tracks = new ArrayList<>();
+        MPFDetectionSink<MPFVideoTrack> sink = new MPFDetectionSink<>(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(MPFVideoTrack track) {
+                events.add("video " + track.getStartFrame());
+                tracks.add(track);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                events.add("error");
+            }
+
+            @Override
+            public void onComplete() {
+                events.add("complete");
+            }
+        });
+        component.getDetections(job, sink);
+        sink.complete();
+
+        assertEquals(List.of("emit audio 1", "video 0", "emit audio 2", "video 105", "complete"), events);
+        assertEquals(90, tracks.get(0).getStopFrame());
+        assertEquals(241, tracks.get(1).getStopFrame());
+        assertEquals(1, tracks.get(1).getFrameLocations().size());
+
+        // Components that only return lists are bridged by the default implementation.
+        List<MPFVideoTrack> bridged = new ArrayList<>();
+        new TestInstanceMPFAudioAndVideoDetectionComponentAdapter().getDetections(job, new MPFDetectionSink<>(
+                new Flow.Subscriber<MPFVideoTrack>() {
+                    @Override
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        subscription.request(Long.MAX_VALUE);
+                    }
+
+                    @Override
+                    public void onNext(MPFVideoTrack track) {
+                        bridged.add(track);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                    }
+
+                    @Override
+                    public void onComplete() {
+                    }
+                }));
+        assertEquals(2, bridged.size());
+        assertEquals(105, bridged.get(1).getStartFrame());
+    }
 
     private class TestInstanceMPFAudioAndVideoDetectionComponentAdapter extends MPFAudioAndVideoDetectionComponentAdapter {
 
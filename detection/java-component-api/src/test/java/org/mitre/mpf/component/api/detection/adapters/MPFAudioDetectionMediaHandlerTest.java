@@ -0,0 +1,173 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.adapters;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.mitre.mpf.audioVideo.util.MPFEncoder;
+import org.mitre.mpf.audioVideo.util.MPFEncodingAttributes;
+import org.mitre.mpf.audioVideo.util.MPFPcmAudio;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class MPFAudioDetectionMediaHandlerTest extends TestCase {
+
+    // Past about 16,000 seconds, a float number of seconds can no longer represent every millisecond.
+    private static final int START_TIME = 20_000_123;
+
+    // Not a multiple of the chunk count, so the chunks have different lengths.
+    private static final int RANGE_MS = 31_007;
+
+    @Test
+    public void testChunksJoinAtExactSampleBoundaries() throws IOException {
+        StubEncoder encoder = new StubEncoder(Long.MAX_VALUE, -1);
+        File output = File.createTempFile("mpf-audio-handler-test", ".wav");
+        try {
+            // Each chunk must be at least 10 seconds long, so only 3 of the 8 requested chunks are used.
+            new MPFAudioDetectionMediaHandler(encoder)
+                    .ripAudioParallel(new File("media.mp4"), output, START_TIME, START_TIME + RANGE_MS, 8);
+
+            assertSamples(output, Long.MAX_VALUE);
+
+            List<MPFEncodingAttributes> requests = new ArrayList<>(encoder.requests);
+            requests.sort(Comparator.comparing(MPFEncodingAttributes::getOffsetMillis));
+            assertEquals(3, requests.size());
+            // The first chunk starts at the beginning of the range.  The others start 100 ms early so the filters
+            // can settle, and that pre-roll is discarded.
+            assertRequest(requests.get(0), START_TIME, START_TIME + 10_335);
+            assertRequest(requests.get(1), START_TIME + 10_335 - 100, START_TIME + 20_671);
+            assertRequest(requests.get(2), START_TIME + 20_671 - 100, START_TIME + RANGE_MS);
+        }
+        finally {
+            Files.deleteIfExists(output.toPath());
+        }
+    }
+
+    @Test
+    public void testPadsShortChunksWithSilence() throws IOException {
+        // The media ends partway through the last chunk.
+        long mediaStopTime = START_TIME + 25_000;
+        StubEncoder encoder = new StubEncoder(mediaStopTime, -1);
+        File output = File.createTempFile("mpf-audio-handler-test", ".wav");
+        try {
+            new MPFAudioDetectionMediaHandler(encoder)
+                    .ripAudioParallel(new File("media.mp4"), output, START_TIME, START_TIME + RANGE_MS, 3);
+
+            assertSamples(output, mediaStopTime);
+        }
+        finally {
+            Files.deleteIfExists(output.toPath());
+        }
+    }
+
+    @Test
+    public void testFailedChunkDeletesOutput() throws IOException {
+        StubEncoder encoder = new StubEncoder(Long.MAX_VALUE, START_TIME + 10_335 - 100);
+        File output = File.createTempFile("mpf-audio-handler-test", ".wav");
+        try {
+            new MPFAudioDetectionMediaHandler(encoder)
+                    .ripAudioParallel(new File("media.mp4"), output, START_TIME, START_TIME + RANGE_MS, 3);
+            fail("Expected the chunk's exception.");
+        }
+        catch (IOException e) {
+            assertEquals("chunk failed", e.getMessage());
+            assertFalse(output.exists());
+        }
+        finally {
+            Files.deleteIfExists(output.toPath());
+        }
+    }
+
+    private static void assertRequest(MPFEncodingAttributes attributes, long startTime, long stopTime) {
+        assertEquals(startTime, attributes.getOffsetMillis().longValue());
+        assertEquals(stopTime - startTime, attributes.getDurationMillis().longValue());
+        assertEquals(Boolean.TRUE, attributes.getInputSeek());
+    }
+
+    // Every sample should hold the low bits of its index in the media, and the samples after the end of the media
+    // should be silent.
+    private static void assertSamples(File output, long mediaStopTime) throws IOException {
+        byte[] bytes = Files.readAllBytes(output.toPath());
+        assertEquals(MPFPcmAudio.PCM16_HEADER_BYTES + RANGE_MS * 16 * 2, bytes.length);
+        ShortBuffer samples = ByteBuffer.wrap(bytes, MPFPcmAudio.PCM16_HEADER_BYTES,
+                                              bytes.length - MPFPcmAudio.PCM16_HEADER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        long mediaStopSample = Math.min(mediaStopTime, Long.MAX_VALUE / 16) * 16;
+        for (int i = 0; i < samples.limit(); i++) {
+            long sampleIndex = START_TIME * 16L + i;
+            short expected = sampleIndex < mediaStopSample ? (short) sampleIndex : 0;
+            if (samples.get(i) != expected) {
+                fail("Sample " + i + " was " + samples.get(i) + " instead of " + expected + ".");
+            }
+        }
+    }
+
+    // Produces 16 kHz samples that hold their own index, in reads that split samples across odd byte boundaries.
+    private static class StubEncoder extends MPFEncoder {
+        private final long mediaStopTime;
+        private final long failingOffset;
+        private final List<MPFEncodingAttributes> requests = Collections.synchronizedList(new ArrayList<>());
+
+        private StubEncoder(long mediaStopTime, long failingOffset) {
+            this.mediaStopTime = mediaStopTime;
+            this.failingOffset = failingOffset;
+        }
+
+        @Override
+        public InputStream openPcmStream(File source, MPFEncodingAttributes attributes) throws IOException {
+            requests.add(attributes);
+            long offset = attributes.getOffsetMillis();
+            if (offset == failingOffset) {
+                throw new IOException("chunk failed");
+            }
+            long stopTime = Math.min(mediaStopTime, offset + attributes.getDurationMillis());
+            int sampleCount = (int) Math.max(0, (stopTime - offset) * 16);
+            ByteBuffer bytes = ByteBuffer.allocate(sampleCount * 2).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < sampleCount; i++) {
+                bytes.putShort((short) (offset * 16 + i));
+            }
+            return new FilterInputStream(new ByteArrayInputStream(bytes.array())) {
+                @Override
+                public int read(byte[] buffer, int off, int len) throws IOException {
+                    return super.read(buffer, off, Math.min(len, 999));
+                }
+            };
+        }
+    }
+}
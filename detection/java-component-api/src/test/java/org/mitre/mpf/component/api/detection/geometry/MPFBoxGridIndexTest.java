@@ -0,0 +1,152 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.geometry;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.mitre.mpf.component.api.detection.MPFImageLocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class MPFBoxGridIndexTest extends TestCase {
+
+    @Test
+    public void testOverlapsAndMatchesMatchBruteForce() {
+        Random random = new Random(3);
+        MPFBoxArray boxes = randomBoxes(random, 2000);
+        MPFBoxArray queries = randomBoxes(random, MPFBoxGridIndex.PARALLEL_THRESHOLD + 100);
+        MPFBoxGridIndex index = MPFBoxGridIndex.build(boxes);
+
+        for (int q = 0; q < 300; q++) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < boxes.size(); i++) {
+                if (MPFBoxKernels.intersectionArea(queries.getX(q), queries.getY(q), queries.getWidth(q),
+                        queries.getHeight(q), boxes.getX(i), boxes.getY(i), boxes.getWidth(i),
+                        boxes.getHeight(i)) > 0) {
+                    expected.add(i);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            index.forEachOverlap(queries.getX(q), queries.getY(q), queries.getWidth(q), queries.getHeight(q),
+                                 actual::add);
+            actual.sort(null);
+            assertEquals(expected, actual);
+        }
+
+        // Large enough to run in parallel.
+        int[] matches = index.findBestMatches(queries, 0.3f);
+        float[] ious = new float[boxes.size()];
+        for (int q = 0; q < queries.size(); q++) {
+            MPFBoxKernels.iou(queries.getX(q), queries.getY(q), queries.getWidth(q), queries.getHeight(q), boxes,
+                              ious);
+            int expected = -1;
+            for (int i = 0; i < ious.length; i++) {
+                if (ious[i] >= 0.3f && (expected < 0 || ious[i] > ious[expected] + 1e-6f)) {
+                    expected = i;
+                }
+            }
+            if (expected < 0 || matches[q] < 0) {
+                assertEquals(expected, matches[q]);
+            }
+            else {
+                assertEquals(ious[expected], ious[matches[q]], 1e-5f);
+            }
+        }
+    }
+
+    @Test
+    public void testNonMaximumSuppressionMatchesBruteForce() {
+        Random random = new Random(5);
+        MPFBoxArray boxes = randomBoxes(random, 3000);
+        float[] scores = new float[boxes.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextInt(100) / 100f;
+        }
+
+        Integer[] order = new Integer[boxes.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+        List<Integer> expected = new ArrayList<>();
+        for (int i : order) {
+            boolean suppressed = false;
+            for (int kept : expected) {
+                if (MPFBoxKernels.iou(boxes, kept, i) > 0.4f) {
+                    suppressed = true;
+                    break;
+                }
+            }
+            if (!suppressed) {
+                expected.add(i);
+            }
+        }
+
+        int[] actual = MPFBoxKernels.nonMaximumSuppression(boxes, scores, 0.4f);
+        assertEquals(expected.size(), actual.length);
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals((int) expected.get(i), actual[i]);
+        }
+    }
+
+    @Test
+    public void testKernels() {
+        assertEquals(1f / 7, MPFBoxKernels.iou(0, 0, 10, 10, 5, 5, 10, 10), 1e-6f);
+        assertEquals(0.25f, MPFBoxKernels.containment(0, 0, 10, 10, 5, 5, 10, 10));
+        assertEquals(0f, MPFBoxKernels.iou(0, 0, 10, 10, 10, 0, 10, 10));
+        assertEquals(0f, MPFBoxKernels.iou(0, 0, 0, 0, 0, 0, 0, 0));
+
+        MPFBoxArray boxes = MPFBoxArray.of(List.of(new MPFImageLocation(2, 2, 4, 4, -1, null),
+                                                   new MPFImageLocation(8, 8, 4, 4, -1, null),
+                                                   new MPFImageLocation(0, 0, 0, 0, -1, null)));
+        float[] result = new float[3];
+        MPFBoxKernels.containment(boxes, 0, 0, 10, 10, result);
+        assertEquals(1f, result[0]);
+        assertEquals(0.25f, result[1]);
+        assertEquals(0f, result[2]);
+        MPFBoxKernels.iou(0, 0, 8, 8, boxes, result);
+        assertEquals(0.25f, result[0]);
+        assertEquals(0f, result[1]);
+        assertEquals(0f, result[2]);
+    }
+
+    private static MPFBoxArray randomBoxes(Random random, int count) {
+        int[] x = new int[count];
+        int[] y = new int[count];
+        int[] width = new int[count];
+        int[] height = new int[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = random.nextInt(1920) - 20;
+            y[i] = random.nextInt(1080) - 20;
+            // Mostly small boxes, with a few large ones that span many cells.
+            width[i] = random.nextInt(20) == 0 ? 200 + random.nextInt(400) : random.nextInt(60);
+            height[i] = random.nextInt(20) == 0 ? 200 + random.nextInt(400) : random.nextInt(60);
+        }
+        return new MPFBoxArray(x, y, width, height);
+    }
+}
@@ -0,0 +1,143 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.serialization;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.mitre.mpf.component.api.detection.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MPFBinaryTrackCodecTest extends TestCase {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Map<Integer, MPFImageLocation> frameLocations = new HashMap<>();
+        for (int frame = 100; frame < 5100; frame += 5) {
+            frameLocations.put(frame, new MPFImageLocation(frame % 640 - 20, 30, 64, 128, frame / 5100f,
+                                                           Map.of("CLASSIFICATION", "face")));
+        }
+        MPFVideoTrack videoTrack = new MPFVideoTrack(100, 5099, frameLocations, 0.8f,
+                                                     Map.of("CLASSIFICATION", "face", "TEXT", "café über"));
+        MPFAudioTrack audioTrack = new MPFAudioTrack(1500, 9250, -1, Map.of("SPEAKER_ID", "7"));
+        MPFImageLocation imageLocation = new MPFImageLocation(-5, 10, 0, 0, 0.25f, null);
+        MPFGenericTrack genericTrack = new MPFGenericTrack(0.5f, Map.of("CLASSIFICATION", "document"));
+
+        MPFBinaryTrackWriter writer = new MPFBinaryTrackWriter();
+        writer.add(videoTrack);
+        writer.add(audioTrack);
+        writer.add(imageLocation);
+        writer.add(genericTrack);
+        ByteBuffer encoded = writer.toByteBuffer();
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.writeTo(stream);
+        assertEquals(encoded, ByteBuffer.wrap(stream.toByteArray()));
+        // 1000 locations, each a few bytes plus one property reference, instead of repeating the strings.
+        assertTrue(encoded.remaining() < 1000 * 16);
+
+        // Reading from a direct buffer at an offset does not copy the data.
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.remaining() + 3);
+        direct.position(3);
+        direct.put(encoded.duplicate());
+        direct.position(3);
+        MPFBinaryTrackReader reader = MPFBinaryTrackReader.open(direct);
+        assertEquals(3, direct.position());
+
+        assertEquals(4, reader.getRecordCount());
+        assertEquals(MPFDataType.VIDEO, reader.getDataType(0));
+        assertEquals(MPFDataType.AUDIO, reader.getDataType(1));
+        assertEquals(MPFDataType.IMAGE, reader.getDataType(2));
+        assertEquals(MPFDataType.UNKNOWN, reader.getDataType(3));
+        assertEquals(100, reader.getStart(0));
+        assertEquals(5099, reader.getStop(0));
+        assertEquals(9250, reader.getStop(1));
+        assertEquals(0.8f, reader.getConfidence(0));
+        assertEquals("café über", reader.getProperty(0, "TEXT"));
+        assertNull(reader.getProperty(2, "TEXT"));
+
+        MPFVideoTrack decodedVideo = reader.getVideoTrack(0);
+        assertEquals(videoTrack.getDetectionProperties(), decodedVideo.getDetectionProperties());
+        assertEquals(videoTrack.getFrameLocations().keySet(), decodedVideo.getFrameLocations().keySet());
+        for (int frame : videoTrack.getFrameLocationMap().getFrames()) {
+            assertSameLocation(videoTrack.getFrameLocationMap().get(frame),
+                               decodedVideo.getFrameLocationMap().get(frame));
+        }
+
+        MPFAudioTrack decodedAudio = reader.getAudioTrack(1);
+        assertEquals(1500, decodedAudio.getStartTime());
+        assertEquals(9250, decodedAudio.getStopTime());
+        assertEquals(-1f, decodedAudio.getConfidence());
+        assertEquals(audioTrack.getDetectionProperties(), decodedAudio.getDetectionProperties());
+        assertSameLocation(imageLocation, reader.getImageLocation(2));
+        assertEquals(genericTrack.getDetectionProperties(), reader.getGenericTrack(3).getDetectionProperties());
+
+        try {
+            reader.getAudioTrack(0);
+            fail("Expected a video record to be rejected as an audio track.");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("VIDEO"));
+        }
+    }
+
+    @Test
+    public void testInvalidInputIsRejected() {
+        MPFBinaryTrackWriter writer = new MPFBinaryTrackWriter();
+        writer.add(new MPFAudioTrack(0, 10, 1, Map.of("A", "B")));
+        ByteBuffer encoded = writer.toByteBuffer();
+
+        assertRejected(ByteBuffer.wrap(new byte[] { 'J', 'S', 'O', 'N', 1, 0 }), "does not contain");
+        ByteBuffer newerVersion = ByteBuffer.allocate(encoded.remaining()).put(encoded.duplicate());
+        newerVersion.put(4, (byte) 2).flip();
+        assertRejected(newerVersion, "version 2");
+        assertRejected(encoded.duplicate().limit(encoded.limit() - 1), "truncated");
+    }
+
+    private static void assertRejected(ByteBuffer buffer, String message) {
+        try {
+            MPFBinaryTrackReader.open(buffer);
+            fail("Expected the buffer to be rejected.");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    private static void assertSameLocation(MPFImageLocation expected, MPFImageLocation actual) {
+        assertEquals(expected.getXLeftUpper(), actual.getXLeftUpper());
+        assertEquals(expected.getYLeftUpper(), actual.getYLeftUpper());
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getConfidence(), actual.getConfidence());
+        assertEquals(expected.getDetectionProperties(), actual.getDetectionProperties());
+    }
+}
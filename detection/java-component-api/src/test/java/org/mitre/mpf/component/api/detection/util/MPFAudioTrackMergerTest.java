@@ -0,0 +1,111 @@
+/******************************************************************************
+ * NOTICE                                                                     *
+ *                                                                            *
+ * This software (or technical data) was produced for the U.S. Government     *
+ * under contract, and is subject to the Rights in Data-General Clause        *
+ * 52.227-14, Alt. IV (DEC 2007).                                             *
+ *                                                                            *
+ * Copyright 2024 The MITRE Corporation. All Rights Reserved.                 *
+ ******************************************************************************/
+
+/******************************************************************************
+ * Copyright 2024 The MITRE Corporation                                       *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *    http://www.apache.org/licenses/LICENSE-2.0                              *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package org.mitre.mpf.component.api.detection.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.mitre.mpf.component.api.detection.MPFAudioTrack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class MPFAudioTrackMergerTest extends TestCase {
+
+    @Test
+    public void testWindowedTracksMatchSinglePass() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 50; trial++) {
+            // Non-overlapping detections, from short keywords to events longer than a window.
+            List<MPFAudioTrack> truth = new ArrayList<>();
+            int time = random.nextInt(500);
+            while (time < 600_000) {
+                int length = random.nextInt(10) == 0 ? 20_000 + random.nextInt(100_000) : 50 + random.nextInt(2000);
+                truth.add(new MPFAudioTrack(time, time + length, random.nextFloat(),
+                                            Map.of("ID", String.valueOf(truth.size()))));
+                time += length + 1 + random.nextInt(5000);
+            }
+            int end = time;
+
+            // A component that reports each detection, clipped to the window it was given.
+            MPFAudioTrackMerger merger = new MPFAudioTrackMerger();
+            int windowMs = 30_000;
+            int overlapMs = 3_000;
+            for (int start = 0; ; start += windowMs - overlapMs) {
+                int stop = Math.min(end, start + windowMs);
+                merger.addWindow(start, stop, clip(truth, start, stop));
+                if (stop == end) {
+                    break;
+                }
+            }
+
+            List<MPFAudioTrack> merged = merger.merge();
+            assertEquals(truth.size(), merged.size());
+            for (int i = 0; i < truth.size(); i++) {
+                assertEquals(truth.get(i).getStartTime(), merged.get(i).getStartTime());
+                assertEquals(truth.get(i).getStopTime(), merged.get(i).getStopTime());
+                assertEquals(truth.get(i).getDetectionProperties(), merged.get(i).getDetectionProperties());
+            }
+        }
+    }
+
+    @Test
+    public void testDuplicatesKeepMostConfidentTrack() {
+        MPFAudioTrackMerger merger = new MPFAudioTrackMerger(0.5, 0);
+        merger.addWindow(0, 10_000, List.of(
+                new MPFAudioTrack(8000, 9000, 0.6f, Map.of("TEXT", "first")),
+                new MPFAudioTrack(9100, 9200, 0.9f, Collections.emptyMap())));
+        merger.addWindow(8000, 18_000, List.of(
+                new MPFAudioTrack(8050, 9000, 0.8f, Map.of("TEXT", "second")),
+                // Overlaps the 9100 track, but neither is a duplicate nor cut by an edge.
+                new MPFAudioTrack(9150, 9600, 0.5f, Collections.emptyMap())));
+
+        List<MPFAudioTrack> merged = merger.merge();
+        assertEquals(3, merged.size());
+        assertEquals(8000, merged.get(0).getStartTime());
+        assertEquals(9000, merged.get(0).getStopTime());
+        assertEquals(0.8f, merged.get(0).getConfidence());
+        assertEquals("second", merged.get(0).getDetectionProperties().get("TEXT"));
+        assertEquals(9100, merged.get(1).getStartTime());
+        assertEquals(9150, merged.get(2).getStartTime());
+    }
+
+    private static List<MPFAudioTrack> clip(List<MPFAudioTrack> tracks, int start, int stop) {
+        List<MPFAudioTrack> clipped = new ArrayList<>();
+        for (MPFAudioTrack track : tracks) {
+            int clippedStart = Math.max(start, track.getStartTime());
+            int clippedStop = Math.min(stop, track.getStopTime());
+            if (clippedStart < clippedStop) {
+                clipped.add(new MPFAudioTrack(clippedStart, clippedStop, track.getConfidence(),
+                                              track.getDetectionProperties()));
+            }
+        }
+        return clipped;
+    }
+}